@@ -0,0 +1,822 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class times the hot paths of the Solar program (the per-tick
+ ** simulation, submitting draw commands, and rasterizing a whole frame to an
+ ** off-screen image) for a range of body counts and for both the Sol view and
+ ** a planet view, reporting throughput and allocation rate for each. Each
+ ** Projection mode is timed moving every body a tick and projecting it
+ ** (against project.none, which only moves them), and checked for how far
+ ** its sines and cosines stray from Math's over a run. queue.single and
+ ** queue.batch queue every body in polar co-ordinates, one call apiece and
+ ** in one batch respectively. ephemeris.query answers an EphemerisService
+ ** query for one moon at one time in-process, and ephemeris.http makes the
+ ** same query over HTTP on the loopback interface, one at a time.
+ **
+ ** stream.loopback checks the StateServer end to end over the loopback
+ ** interface rather than timing anything: a simulation with a main belt is
+ ** served to a number of StateClients (half joining part way through)
+ ** and to one client that never reads, while bodies move, wrap round past
+ ** 0 degrees and are jumped ahead by a seek. Every reading client must end
+ ** up with every body within half a quantization step of where it is, the
+ ** client that never reads must have been skipped, and the others must
+ ** not have been. orbit.nodes checks that KeplerSolver tilts inclined orbits
+ ** about their line of nodes: a body at its ascending node is drawn its full
+ ** distance out at angle 0, and one 90 degrees further on is foreshortened
+ ** by the cosine of the inclination. nbody.nodes checks that
+ ** NBodySimulation seeds such bodies the same way: in the plane of the view
+ ** at their nodes, crossing it there, and highest above it 90 degrees on.
+ ** If any check fails the benchmark exits with status 1.
+ **
+ ** Build and run it headless alongside the program itself:
+ **
+ **   javac -encoding UTF-8 -d out src/*.java bench/*.java
+ **   java -Djava.awt.headless=true -cp out SolarBenchmark
+ **
+ ** The runs can be tuned with these system properties:
+ **   bench.bodies     comma-separated body counts (default 186,1000,100000,1000000)
+ **   bench.focus      comma-separated focus modes, sol and/or planet
+ **   bench.pad        what to pad the solar system out with, moons (copies
+ **                    of real ones; the default) or belt (the main belt)
+ **   bench.raster     how frames draw small bodies, direct (the default) or
+ **                    java2d
+ **   bench.threads    threads to move bodies on in tick.parallel (default
+ **                    the number of processors)
+ **   bench.filter     only run benchmarks whose name contains this
+ **   bench.warmup     warm-up time per benchmark, in ms (default 1000)
+ **   bench.time       time per measured iteration, in ms (default 1000)
+ **   bench.iterations measured iterations per benchmark (default 5)
+ **   bench.error.bodies  bodies to check projection errors over (default
+ **                    10000)
+ **   bench.error.ticks   ticks to check projection errors over (default 3000)
+ **   bench.stream.bodies   bodies to serve in stream.loopback (default 10000)
+ **   bench.stream.clients  reading clients in stream.loopback (default 24)
+ **   bench.stream.ticks    ticks to serve in stream.loopback (default 300)
+ **/
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class SolarBenchmark {
+   // The planet view benchmarked is Jupiter's, which has the most moons.
+   private static final int PLANET_FOCUS = 6;
+   private static final int WIDTH = 1920;
+   private static final int HEIGHT = 1080;
+
+   private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+   private static long warmupMillis;
+   private static long iterationMillis;
+   private static int iterations;
+   private static String filter;
+   private static boolean padWithBelt;
+   private static boolean directRendering;
+
+   // Somewhere for results to go so the JIT can't discard the work.
+   private static volatile long sink;
+   // Set if a check fails, to exit with.
+   private static int status = 0;
+
+   /**
+    **   A single operation to be timed.
+    **/
+   private interface Operation {
+      public void run();
+   }
+
+   /**
+    **   Runs every benchmark for every combination of body count and focus.
+    **
+    **   @param args arguments passed in from the command line (unused).
+    **/
+   public static void main(String[] args) {
+      int[] counts = parseCounts(System.getProperty("bench.bodies",
+                                                    "186,1000,100000,1000000"));
+      String[] focusModes = System.getProperty("bench.focus", "sol,planet")
+                                  .split(",");
+      warmupMillis = Long.getLong("bench.warmup", 1000);
+      iterationMillis = Long.getLong("bench.time", 1000);
+      iterations = Integer.getInteger("bench.iterations", 5);
+      filter = System.getProperty("bench.filter", "");
+      padWithBelt = System.getProperty("bench.pad", "moons").equals("belt");
+      directRendering = !System.getProperty("bench.raster", "direct")
+                               .equals("java2d");
+      ForkJoinPool pool = new ForkJoinPool(Integer.getInteger("bench.threads",
+         Runtime.getRuntime().availableProcessors()));
+
+      System.out.printf("%-16s %9s %-7s %14s %12s %12s %10s%n", "benchmark",
+                        "bodies", "focus", "ops/s", "ns/op", "B/op", "MB/s");
+
+      run("colour", 0, "-", new Operation() {
+         private int i = 0;
+         public void run() {
+            String name = SolarCanvas.COLOUR_NAMES[i++ % SolarCanvas.COLOUR_NAMES.length];
+            sink += SolarCanvas.getColourIndex(name);
+         }
+      });
+
+      if ("project.error".contains(filter))
+         projectionErrors(Integer.getInteger("bench.error.bodies", 10000),
+                          Integer.getInteger("bench.error.ticks", 3000));
+      if ("ephemeris.query".contains(filter) || 
+          "ephemeris.http".contains(filter))
+         runEphemeris();
+      if ("stream.loopback".contains(filter))
+         streamLoopback(Integer.getInteger("bench.stream.bodies", 10000),
+                        Integer.getInteger("bench.stream.clients", 24),
+                        Integer.getInteger("bench.stream.ticks", 300));
+      if ("orbit.nodes".contains(filter))
+         orbitNodes();
+      if ("nbody.nodes".contains(filter))
+         nbodyNodes();
+
+      for (int count : counts) {
+         for (String focusMode : focusModes) {
+            final SolarScene scene = populate(count);
+            final OffscreenSolarSystem display = new OffscreenSolarSystem(WIDTH, HEIGHT);
+            display.setDirectRendering(directRendering);
+            final SubmitOnlyDisplay submitter = new SubmitOnlyDisplay(WIDTH, HEIGHT);
+            int focus = focusMode.trim().equals("planet") ? PLANET_FOCUS : 1;
+            scene.setFocus(focus, display);
+            submitter.setZoom(display.getZoom());
+
+            run("tick", count, focusMode, new Operation() {
+               public void run() {
+                  scene.move();
+               }
+            });
+            scene.getBodies().setPool(pool);
+            run("tick.parallel", count, focusMode, new Operation() {
+               public void run() {
+                  scene.move();
+               }
+            });
+            scene.getBodies().setPool(null);
+            run("satellite.move", count, focusMode, new Operation() {
+               public void run() {
+                  for (Satellite m : scene.getMoons())
+                     m.move();
+               }
+            });
+
+            if (focus == 1) {
+               runQueue(scene.getBodies(), submitter, count);
+               runProjection(scene.getBodies(), null, count);
+               for (Projection.Mode mode : Projection.Mode.values())
+                  runProjection(scene.getBodies(), new Projection(mode), count);
+            }
+
+            run("submit", count, focusMode, new Operation() {
+               public void run() {
+                  scene.draw(submitter);
+                  submitter.finishedDrawing();
+               }
+            });
+            run("frame", count, focusMode, new Operation() {
+               public void run() {
+                  scene.draw(display);
+                  display.finishedDrawing();
+               }
+            });
+         }
+      }
+      System.out.println("(sink " + (sink & 1) + ")");
+      if (status != 0)
+         System.exit(status);
+   }
+
+   /**
+    **   Warms up and then times an operation, and prints its results.
+    **/
+   private static void run(String name, int count, String focusMode,
+                           Operation op) {
+      if (!name.contains(filter))
+         return;
+
+      measure(op, warmupMillis);
+
+      double[] rates = new double[iterations];
+      long totalOps = 0;
+      long totalNanos = 0;
+      long totalBytes = 0;
+      for (int i = 0; i < iterations; i++) {
+         long bytes = allocatedBytes();
+         long start = System.nanoTime();
+         long ops = measure(op, iterationMillis);
+         long nanos = System.nanoTime() - start;
+         bytes = allocatedBytes() - bytes;
+
+         rates[i] = ops * 1e9 / nanos;
+         totalOps += ops;
+         totalNanos += nanos;
+         totalBytes += bytes;
+      }
+
+      double mean = 0;
+      for (double r : rates)
+         mean += r / iterations;
+      double variance = 0;
+      for (double r : rates)
+         variance += (r - mean) * (r - mean) / Math.max(iterations - 1, 1);
+
+      String bytesPerOp = "n/a";
+      String allocRate = "n/a";
+      if (THREADS != null) {
+         bytesPerOp = String.format("%.1f", (double) totalBytes / totalOps);
+         allocRate = String.format("%.1f", totalBytes / 1e6 / (totalNanos / 1e9));
+      }
+      System.out.printf("%-16s %9d %-7s %8.1f +-%4.1f%% %12.1f %12s %10s%n", name,
+                        count, focusMode, mean,
+                        mean == 0 ? 0 : 100 * Math.sqrt(variance) / mean,
+                        (double) totalNanos / totalOps, bytesPerOp, allocRate);
+   }
+
+   /**
+    **   Times queuing every body in a table about its primary (or the
+    **   centre), one call at a time and then as one batch.
+    **/
+   private static void runQueue(BodyTable bodies, 
+                                final SubmitOnlyDisplay submitter, 
+                                final int count) {
+      final int n = bodies.size();
+      final double[] distance = new double[n];
+      final double[] angle = new double[n];
+      final double[] diameter = new double[n];
+      final int[] colour = new int[n];
+      final double[] centreDistance = new double[n];
+      final double[] centreAngle = new double[n];
+      for (int i = 0; i < n; i++) {
+         distance[i] = bodies.getTrueDistance(i) * BodyTable.DISTANCE_SCALE;
+         angle[i] = bodies.getTrueAngle(i);
+         diameter[i] = bodies.getDiameter(i);
+         colour[i] = bodies.getColour(i);
+         int primary = bodies.getPrimary(i);
+         if (primary != BodyTable.NO_PRIMARY) {
+            centreDistance[i] = bodies.getTrueDistance(primary) * 
+                                BodyTable.DISTANCE_SCALE;
+            centreAngle[i] = bodies.getTrueAngle(primary);
+         }
+      }
+      run("queue.single", count, "-", new Operation() {
+         public void run() {
+            for (int i = 0; i < n; i++)
+               submitter.drawSolarObjectAbout(distance[i], angle[i], 
+                  diameter[i], SolarCanvas.COLOUR_NAMES[colour[i]], 
+                  centreDistance[i], centreAngle[i]);
+            submitter.finishedDrawing();
+         }
+      });
+      run("queue.batch", count, "-", new Operation() {
+         public void run() {
+            submitter.drawSolarObjects(distance, angle, diameter, colour, 
+                                       centreDistance, centreAngle, 0, n);
+            submitter.finishedDrawing();
+         }
+      });
+   }
+
+   /**
+    **   Times answering ephemeris queries about the real solar system, in
+    **   process and over HTTP.
+    **/
+   private static void runEphemeris() {
+      SolarScene scene = Solar.createScene(new Random(1));
+      final EphemerisService service;
+      try {
+         service = new EphemerisService(scene, 1.0 / 360, 0);
+      } catch (IOException e) {
+         System.out.println("ephemeris: couldn't start the service: " + 
+                            e.getMessage());
+         return;
+      }
+      service.start();
+      final int count = scene.getBodies().size();
+      run("ephemeris.query", count, "-", new Operation() {
+         private long tick = 0;
+         public void run() {
+            sink += service.query("body=Ganymede&tick=" + tick++).length();
+         }
+      });
+      final String url = "http://127.0.0.1:" + service.getPort() + 
+                         "/ephemeris?body=Ganymede&tick=";
+      final byte[] buffer = new byte[8192];
+      run("ephemeris.http", count, "-", new Operation() {
+         private long tick = 0;
+         public void run() {
+            try {
+               HttpURLConnection connection = (HttpURLConnection) 
+                  new URL(url + tick++).openConnection();
+               InputStream in = connection.getInputStream();
+               for (int read; (read = in.read(buffer)) >= 0; )
+                  sink += read;
+               in.close();
+            } catch (IOException e) {
+               throw new IllegalStateException(e);
+            }
+         }
+      });
+      service.stop();
+   }
+
+   /**
+    **   Times moving every body a tick and then projecting it, or only moving
+    **   it if projection is null.
+    **/
+   private static void runProjection(final BodyTable bodies, 
+                                     final Projection projection, int count) {
+      final double[] result = new double[2];
+      run("project." + (projection == null ? "none" 
+                           : projection.getMode().name().toLowerCase()), 
+          count, "-", new Operation() {
+         public void run() {
+            bodies.move();
+            if (projection == null)
+               return;
+            projection.begin(bodies);
+            double sum = 0;
+            for (int i = 0, n = bodies.size(); i < n; i++) {
+               projection.sinCos(i, bodies.getTrueAngle(i), result);
+               sum += result[0] + result[1];
+            }
+            sink += (long) sum;
+         }
+      });
+   }
+
+   /**
+    **   Moves a solar system padded out as for the other benchmarks on tick
+    **   by tick, projecting every body in every mode at each tick (skipping
+    **   some ticks, and seeking once, as a running program would), and prints
+    **   the most each mode's sines and cosines strayed from Math's, and by
+    **   how many pixels that moved a body, for bodies on circular and on
+    **   eccentric orbits.
+    **/
+   private static void projectionErrors(int count, int ticks) {
+      BodyTable bodies = populate(count).getBodies();
+      bodies.seek(0);
+      Projection.Mode[] modes = Projection.Mode.values();
+      Projection[] projections = new Projection[modes.length];
+      for (int m = 0; m < modes.length; m++)
+         projections[m] = new Projection(modes[m]);
+      // By mode, then circular (0) or eccentric (1).
+      double[][] error = new double[modes.length][2];
+      double[][] pixels = new double[modes.length][2];
+      double[] exact = new double[2];
+      double[] result = new double[2];
+
+      for (int t = 0; t < ticks; t++) {
+         if (t == ticks / 2)
+            bodies.seek(bodies.getTick() + 100);
+         else if (t % 7 == 0)
+            bodies.move();
+         bodies.move();
+         for (int m = 0; m < modes.length; m++) {
+            Projection projection = projections[m];
+            projection.begin(bodies);
+            for (int i = 0, n = bodies.size(); i < n; i++) {
+               double angle = bodies.getTrueAngle(i);
+               projection.sinCos(i, angle, result);
+               Projection.exactSinCos(angle, exact);
+               double e = Math.max(Math.abs(result[0] - exact[0]), 
+                                   Math.abs(result[1] - exact[1]));
+               int kind = bodies.isEccentric(i) ? 1 : 0;
+               error[m][kind] = Math.max(error[m][kind], e);
+               pixels[m][kind] = Math.max(pixels[m][kind], 
+                                          e * bodies.getTrueDistance(i) *
+                                          BodyTable.DISTANCE_SCALE);
+            }
+         }
+      }
+      for (int m = 0; m < modes.length; m++)
+         System.out.printf("%-16s %9d %-11s max error circular %.3g (%.3g " +
+                           "pixels), eccentric %.3g (%.3g pixels)%n",
+                           "project.error", bodies.size(), 
+                           modes[m].name().toLowerCase(), error[m][0], 
+                           pixels[m][0], error[m][1], pixels[m][1]);
+   }
+
+   /**
+    **   Serves a solar system padded out with a main belt to StateClients
+    **   over the loopback interface, and checks what they receive. See the
+    **   class comment.
+    **/
+   private static void streamLoopback(int count, int clients, int ticks) {
+      SolarScene scene = Solar.createScene(new Random(42));
+      BodyTable bodies = scene.getBodies();
+      if (count > bodies.size())
+         scene.addBelt(Belt.mainBelt(count - bodies.size()), 42);
+      bodies.seek(bodies.getTick());
+      Simulation simulation = new Simulation(scene, 30);
+      StateServer server;
+      StateClient[] readers = new StateClient[clients];
+      Socket stalled;
+      try {
+         server = new StateServer(scene, 0);
+         server.start();
+         simulation.setServer(server);
+         stalled = new Socket("localhost", server.getPort());
+         stalled.setReceiveBufferSize(4096);
+         for (int c = 0; c < clients / 2; c++)
+            readers[c] = new StateClient("localhost", server.getPort());
+      } catch (IOException e) {
+         System.out.println("stream.loopback: couldn't serve: " + e.getMessage());
+         status = 1;
+         return;
+      }
+
+      int n = bodies.size();
+      double[] last = new double[n];
+      long wraps = 0;
+      long start = System.nanoTime();
+      try {
+         awaitClients(server, clients / 2 + 1);
+         for (int t = 0; t < ticks; t++) {
+            if (t == ticks / 3) {
+               // Half the clients join part way through, from a keyframe.
+               for (int c = clients / 2; c < clients; c++)
+                  readers[c] = new StateClient("localhost", server.getPort());
+               awaitClients(server, clients + 1);
+            }
+            if (t == 2 * ticks / 3)
+               simulation.seek(simulation.getTick() + 12345);
+            for (int i = 0; i < n; i++)
+               last[i] = bodies.getTrueAngle(i);
+            simulation.step();
+            for (int i = 0; i < n; i++)
+               if (bodies.getTrueAngle(i) < last[i] - 180)
+                  wraps++;
+            // Gives the clients' threads a look in, as a simulation
+            // ticking in real time would.
+            Thread.sleep(2);
+         }
+         long tick = simulation.getTick();
+         long deadline = System.currentTimeMillis() + 10000;
+         for (StateClient client : readers)
+            while (client.getTick() < tick && client.isConnected() && 
+                   System.currentTimeMillis() < deadline)
+               Thread.sleep(5);
+      } catch (IOException e) {
+         System.out.println("stream.loopback: couldn't connect: " + e.getMessage());
+         status = 1;
+         return;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return;
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      // Half a step either way, and a little for rounding (distances are
+      // also scaled by semi-major axes sent as floats).
+      double angleLimit = 360.0 / StateServer.STEPS / 2 * 1.001;
+      double distanceLimit = 1.0 / StateServer.STEPS + 1e-6;
+      double angleError = 0;
+      double distanceError = 0;
+      boolean behind = false;
+      // Every reading client gets every tick from when it joined.
+      int missing = 0;
+      for (int c = 0; c < clients; c++) {
+         StateClient client = readers[c];
+         if (client.getFrames() < (c < clients / 2 ? ticks : ticks - ticks / 3))
+            missing++;
+         behind |= client.getTick() != simulation.getTick();
+         for (int i = 0; i < n; i++) {
+            double d = Math.abs(client.getAngle(i) - bodies.getTrueAngle(i));
+            angleError = Math.max(angleError, Math.min(d, 360 - d));
+            distanceError = Math.max(distanceError, 
+               Math.abs(client.getDistance(i) - bodies.getTrueDistance(i)) / 
+               bodies.getDistance(i));
+         }
+      }
+      long skipped = server.getSkipped();
+      long sent = server.getSent();
+      String failure = behind ? "clients behind"
+                       : angleError > angleLimit ? "angles off"
+                       : distanceError > distanceLimit ? "distances off"
+                       : wraps == 0 ? "no wraps"
+                       : skipped == 0 ? "nothing skipped"
+                       : missing > 0 ? missing + " clients missed frames" 
+                       : null;
+      boolean ok = failure == null;
+      System.out.printf("%-16s %9d %d clients, %d ticks (%d wraps) in %.2fs, " +
+                        "%.2f bytes/body, max error %.3g degrees, %.3g of " +
+                        "distance, %d frames sent, %d skipped: %s%n",
+                        "stream.loopback", n, clients, ticks, wraps, seconds,
+                        (double) server.getBytesSent() / sent / n, 
+                        angleError, distanceError, sent, skipped, 
+                        ok ? "ok" : "FAILED, " + failure);
+      if (!ok)
+         status = 1;
+      for (StateClient client : readers)
+         client.close();
+      try {
+         stalled.close();
+      } catch (IOException e) {
+         // Closed anyway.
+      }
+      server.close();
+   }
+
+   /**
+    **   Puts bodies on inclined orbits, prograde and retrograde, at and 90
+    **   degrees past their ascending nodes, and checks where the table puts
+    **   them. See the class comment.
+    **/
+   private static void orbitNodes() {
+      double[] inclinations = {0, 30, 60, 89, 120, 180};
+      double a = 10;
+      BodyTable bodies = new BodyTable(3 * inclinations.length);
+      double error = 0;
+      for (double inclination : inclinations) {
+         double cos = Math.cos(Math.toRadians(inclination));
+         // Circular, at the node and 90 degrees on; then eccentric, at a
+         // periapsis on the node.
+         int node = bodies.add(a, 0, 1, 0, BodyTable.NO_PRIMARY, 0);
+         int across = bodies.add(a, 90, 1, 0, BodyTable.NO_PRIMARY, 0);
+         int periapsis = bodies.add(a, 0, 1, 0, BodyTable.NO_PRIMARY, 0);
+         bodies.setOrbit(node, 0, inclination, 0);
+         bodies.setOrbit(across, 0, inclination, 0);
+         bodies.setOrbit(periapsis, 0.5, inclination, 0);
+         error = Math.max(error, 
+            Math.abs(bodies.getTrueDistance(node) - a) +
+            angleError(bodies.getTrueAngle(node), 0));
+         error = Math.max(error, 
+            Math.abs(bodies.getTrueDistance(across) - a * Math.abs(cos)) +
+            (Math.abs(cos) < 1e-9 ? 0 
+               : angleError(bodies.getTrueAngle(across), cos > 0 ? 90 : 270)));
+         error = Math.max(error, 
+            Math.abs(bodies.getTrueDistance(periapsis) - a / 2) +
+            angleError(bodies.getTrueAngle(periapsis), 0));
+      }
+      boolean ok = error < 1e-9;
+      System.out.printf("%-16s %9d max error %.3g: %s%n", "orbit.nodes", 
+                        bodies.size(), error, ok ? "ok" : "FAILED");
+      if (!ok)
+         status = 1;
+   }
+
+   /**
+    **   Seeds an N-body simulation with test particles on inclined orbits, at
+    **   and 90 degrees past their ascending nodes, and checks their positions
+    **   and velocities. See the class comment.
+    **/
+   private static void nbodyNodes() {
+      double[] inclinations = {30, 60, 120};
+      double a = 10;
+      BodyTable bodies = new BodyTable(3 * inclinations.length);
+      for (double inclination : inclinations) {
+         // Circular, at the node and 90 degrees on; then eccentric, at a
+         // periapsis on the node.
+         int node = bodies.add(a, 0, 1, 0.1, BodyTable.NO_PRIMARY, 0);
+         int across = bodies.add(a, 90, 1, 0.1, BodyTable.NO_PRIMARY, 0);
+         int periapsis = bodies.add(a, 0, 1, 0.1, BodyTable.NO_PRIMARY, 0);
+         bodies.setOrbit(node, 0, inclination, 0);
+         bodies.setOrbit(across, 0, inclination, 0);
+         bodies.setOrbit(periapsis, 0.5, inclination, 0);
+      }
+      double[] projected = new double[2 * bodies.size()];
+      for (int i = 0; i < bodies.size(); i++) {
+         projected[2 * i] = bodies.getTrueDistance(i);
+         projected[2 * i + 1] = bodies.getTrueAngle(i);
+      }
+      // Test particles only, so Sol stays put and the body for row i is i + 1.
+      NBodySimulation nbody = new NBodySimulation(bodies, new double[0], 1, 
+                                                  1.0 / 360, null);
+      double[] position = new double[3];
+      double[] velocity = new double[3];
+      double error = 0;
+      for (int n = 0; n < inclinations.length; n++) {
+         double sin = Math.sin(Math.toRadians(inclinations[n]));
+         for (int j = 0; j < 3; j++) {
+            int i = 3 * n + j;
+            nbody.getPosition(i + 1, position);
+            nbody.getVelocity(i + 1, velocity);
+            double speed = Math.sqrt(velocity[0] * velocity[0] + 
+                                     velocity[1] * velocity[1] + 
+                                     velocity[2] * velocity[2]);
+            // Drawn where the table had it.
+            error = Math.max(error, 
+               Math.abs(Math.hypot(position[0], position[1]) - projected[2 * i]) +
+               angleError(Math.toDegrees(Math.atan2(position[0], position[1])),
+                          projected[2 * i + 1]));
+            if (j == 1) {
+               // Highest above the plane, and moving parallel to it.
+               error = Math.max(error, Math.abs(position[2] - a * sin));
+               error = Math.max(error, Math.abs(velocity[2]) / speed);
+            } else {
+               // In the plane, crossing it at the orbit's inclination.
+               error = Math.max(error, Math.abs(position[2]));
+               error = Math.max(error, Math.abs(velocity[2] / speed - sin));
+            }
+         }
+      }
+      boolean ok = error < 1e-9;
+      System.out.printf("%-16s %9d max error %.3g: %s%n", "nbody.nodes", 
+                        bodies.size(), error, ok ? "ok" : "FAILED");
+      if (!ok)
+         status = 1;
+   }
+
+   // How far apart two angles in degrees are, the short way round.
+   private static double angleError(double angle, double expected) {
+      double d = Math.abs(BodyTable.normalizeAngle(angle - expected));
+      return Math.min(d, 360 - d);
+   }
+
+   // Waits for the server to have accepted the given number of clients.
+   private static void awaitClients(StateServer server, int clients) 
+      throws InterruptedException {
+      while (server.getClients() < clients)
+         Thread.sleep(1);
+   }
+
+   /**
+    **   Runs an operation repeatedly for (at least) the given time.
+    **
+    **   @return The number of times the operation ran.
+    **/
+   private static long measure(Operation op, long millis) {
+      long end = System.nanoTime() + millis * 1000000L;
+      long ops = 0;
+      do {
+         op.run();
+         ops++;
+      } while (System.nanoTime() < end);
+      return ops;
+   }
+
+   /**
+    **   Builds the real solar system, then pads it out with extra moons
+    **   (copies of real ones at random phases) or a main belt until it has
+    **   the requested number of bodies.
+    **/
+   private static SolarScene populate(int count) {
+      SolarScene scene = Solar.createScene(new Random(42));
+      BodyTable bodies = scene.getBodies();
+      Satellite[] realMoons = scene.getMoons();
+      int extra = Math.max(count - bodies.size(), 0);
+      if (padWithBelt) {
+         if (extra > 0)
+            scene.addBelt(Belt.mainBelt(extra), 42);
+         bodies.seek(bodies.getTick());
+         return scene;
+      }
+      Satellite[] moons = new Satellite[realMoons.length + extra];
+      System.arraycopy(realMoons, 0, moons, 0, realMoons.length);
+
+      Random random = new Random(42);
+      for (int i = realMoons.length; i < moons.length; i++) {
+         Satellite m = realMoons[random.nextInt(realMoons.length)];
+         moons[i] = new Satellite(bodies, m.getDistance() / BodyTable.DISTANCE_SCALE,
+                                  random.nextInt(361), m.getRadius(),
+                                  (1 - m.getSpeed()) * 1000, m.getName(),
+                                  m.getColour(), m.getPrimary());
+      }
+      return new SolarScene(bodies, scene.getCentre(), scene.getPlanets(),
+                            scene.getDwarfPlanets(), moons);
+   }
+
+   private static int[] parseCounts(String counts) {
+      String[] parts = counts.split(",");
+      int[] result = new int[parts.length];
+      for (int i = 0; i < parts.length; i++)
+         result[i] = Integer.parseInt(parts[i].trim());
+      return result;
+   }
+
+   private static long allocatedBytes() {
+      if (THREADS == null)
+         return 0;
+      return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+   }
+
+   private static com.sun.management.ThreadMXBean threads() {
+      try {
+         com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)
+            ManagementFactory.getThreadMXBean();
+         if (!threads.isThreadAllocatedMemorySupported())
+            return null;
+         threads.setThreadAllocatedMemoryEnabled(true);
+         return threads;
+      } catch (ClassCastException e) {
+         return null;
+      }
+   }
+
+   /**
+    **   A display that accepts draw commands but never rasterizes them, so
+    **   the cost of submitting commands can be timed on its own.
+    **/
+   private static class SubmitOnlyDisplay implements SolarDisplay {
+      private SolarCanvas canvas;
+
+      public SubmitOnlyDisplay(int width, int height) {
+         this.canvas = new SolarCanvas(width, height);
+      }
+
+      public void drawSolarObject(double distance, double angle,
+                                  double diameter, String col) {
+         canvas.queue(distance, angle, diameter, col);
+      }
+
+      public void drawSolarObjectAbout(double distance, double angle,
+                                       double diameter, String col,
+                                       double centreOfRotationDistance,
+                                       double centreOfRotationAngle) {
+         canvas.queueAbout(distance, angle, diameter, col,
+                           centreOfRotationDistance, centreOfRotationAngle);
+      }
+
+      public void drawSolarObjectAt(double x, double y, double diameter,
+                                    String col) {
+         canvas.queueAt(x, y, diameter, col);
+      }
+
+      public void drawSolarObjects(double[] distance, double[] angle,
+                                   double[] diameter, int[] colour,
+                                   double[] centreOfRotationDistance,
+                                   double[] centreOfRotationAngle, 
+                                   int offset, int count) {
+         canvas.queueAll(distance, angle, diameter, colour, 
+                         centreOfRotationDistance, centreOfRotationAngle, 
+                         offset, count);
+      }
+
+      public void drawSolarObjectsAt(double[] x, double[] y, 
+                                     double[] diameter, int[] colour, 
+                                     int offset, int count) {
+         canvas.queueAllAt(x, y, diameter, colour, offset, count);
+      }
+
+      public void drawTrailAt(double[] x, double[] y, int points,
+                              String col) {
+         canvas.queueTrail(x, y, points, col);
+      }
+
+      public void drawPathAt(double[] x, double[] y, int points, String col,
+                             double opacity) {
+         canvas.queuePath(x, y, points, col, opacity);
+      }
+
+      public void finishedDrawing() {
+         canvas.publish();
+      }
+
+      public double getZoom() {
+         return canvas.getZoom();
+      }
+
+      public int getFocus() {
+         return canvas.getFocus();
+      }
+
+      public int getHeight() {
+         return canvas.getHeight();
+      }
+
+      public int getWidth() {
+         return canvas.getWidth();
+      }
+
+      public void setZoom(double zoom) {
+         canvas.setZoom(zoom);
+      }
+
+      public void setFocus(int focus) {
+         canvas.setFocus(focus);
+      }
+
+      public boolean takeClick(double[] result) {
+         return false;
+      }
+   }
+}
@@ -0,0 +1,323 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class generates a belt of minor bodies (e.g. the main asteroid belt
+ ** or the Kuiper belt) and adds them to a BodyTable. Belts can hold millions
+ ** of bodies, so they get no Satellite of their own; each is a row of the
+ ** table on the same orbit model as the named bodies (Kepler orbits, with
+ ** speed worked out from the orbital period as the Satellite constructors
+ ** do), and SolarScene draws them straight from the table.
+ **
+ ** Generation is seeded, so the same belt comes out every time:
+ **   - semi-major axes follow a surface density falling off as r^-1.5
+ **     between the inner and outer radii, with any resonance gaps cut out
+ **     (or, for a resonant population, a narrow band about one radius);
+ **   - eccentricities and inclinations are Rayleigh-distributed;
+ **   - diameters follow a power law, N(>D) proportional to D^-2.5 (a
+ **     collisional cascade), between the smallest and largest diameter.
+ **/
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class Belt {
+   // Terra's diameter, in km, as diameters in the table are relative to it.
+   private static final double TERRA_DIAMETER = 12742;
+   // How many bodies are generated before being copied into the table.
+   private static final int CHUNK = 65536;
+
+   private String name;
+   private double inner;
+   private double outer;
+   private int count;
+   private String colour;
+   private double eccentricitySigma = 0.1;
+   private double inclinationSigma = 5;
+   private double minDiameter = 1;
+   private double maxDiameter = 100;
+   private double sizeSlope = 2.5;
+   private double[] gaps = new double[0];
+
+   private int first = -1;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param name The name of the belt.
+    **   @param inner The inner edge of the belt, in AU.
+    **   @param outer The outer edge of the belt, in AU.
+    **   @param count The number of bodies in the belt.
+    **   @param colour The colour to draw the belt's bodies in.
+    **/
+   public Belt(String name, double inner, double outer, int count, 
+               String colour) {
+      if (inner <= 0 || outer < inner)
+         throw new IllegalArgumentException("Not a belt: " + inner + "-" + 
+                                            outer + " AU");
+      if (count < 0)
+         throw new IllegalArgumentException("Not a number of bodies: " + count);
+      this.name = name;
+      this.inner = inner;
+      this.outer = outer;
+      this.count = count;
+      this.colour = colour;
+   }
+
+   /**
+    **   Creates the main asteroid belt, between Mars and Jupiter, with the
+    **   Kirkwood gaps at Jupiter's 3:1, 5:2, 7:3 and 2:1 resonances.
+    **
+    **   @param count The number of bodies in the belt.
+    **   @return The belt.
+    **/
+   public static Belt mainBelt(int count) {
+      Belt belt = new Belt("Main belt", 2.06, 3.27, count, "GREY");
+      belt.setEccentricity(0.07);
+      belt.setInclination(6.5);
+      belt.setDiameters(1, 500);
+      belt.addGap(2.502, 0.02);
+      belt.addGap(2.825, 0.015);
+      belt.addGap(2.958, 0.01);
+      belt.addGap(3.279, 0.03);
+      return belt;
+   }
+
+   /**
+    **   Creates the classical Kuiper belt, beyond Neptune.
+    **
+    **   @param count The number of bodies in the belt.
+    **   @return The belt.
+    **/
+   public static Belt kuiperBelt(int count) {
+      Belt belt = new Belt("Kuiper belt", 42, 48, count, "LIGHTGREY");
+      belt.setEccentricity(0.05);
+      belt.setInclination(5);
+      belt.setDiameters(20, 1000);
+      return belt;
+   }
+
+   /**
+    **   Creates the plutinos: the bodies held in Neptune's 3:2 resonance,
+    **   alongside Pluto.
+    **
+    **   @param count The number of bodies in the belt.
+    **   @return The belt.
+    **/
+   public static Belt plutinos(int count) {
+      Belt belt = new Belt("Plutinos", 39.2, 39.6, count, "LIGHTGREY");
+      belt.setEccentricity(0.15);
+      belt.setInclination(10);
+      belt.setDiameters(20, 1000);
+      return belt;
+   }
+
+   /**
+    **   Adds the belt's bodies to a table, after any already there. As with
+    **   BodyTable.setOrbits(), their true positions aren't known until the
+    **   table is next moved or seeked.
+    **
+    **   @param bodies The table to add the bodies to.
+    **   @param seed The seed to generate the bodies from.
+    **   @return The row of the table the belt's first body went in.
+    **/
+   public int populate(BodyTable bodies, long seed) {
+      if (first >= 0)
+         throw new IllegalStateException(name + " has already been populated");
+      Random random = new Random(seed);
+      first = bodies.size();
+      bodies.ensureCapacity(first + count);
+
+      int chunk = Math.min(count, CHUNK);
+      double[] distance = new double[chunk];
+      double[] angle = new double[chunk];
+      double[] diameter = new double[chunk];
+      double[] speed = new double[chunk];
+      double[] eccentricity = new double[chunk];
+      double[] inclination = new double[chunk];
+      double[] periapsis = new double[chunk];
+      int[] primary = new int[chunk];
+      int[] colour = new int[chunk];
+      Arrays.fill(primary, BodyTable.NO_PRIMARY);
+      Arrays.fill(colour, SolarCanvas.getColourIndex(this.colour));
+
+      double rootInner = Math.sqrt(inner);
+      double rootOuter = Math.sqrt(outer);
+      double smallest = Math.pow(minDiameter / maxDiameter, sizeSlope);
+      for (int from = 0; from < count; from += chunk) {
+         int n = Math.min(chunk, count - from);
+         for (int k = 0; k < n; k++) {
+            // dN/da goes as a * a^-1.5, so sqrt(a) is uniform.
+            double a;
+            do {
+               double r = rootInner + random.nextDouble() * (rootOuter - rootInner);
+               a = r * r;
+            } while (this.inGap(a));
+            distance[k] = a;
+            angle[k] = random.nextDouble() * 360;
+            // Kepler's third law gives the period in years, which becomes a
+            // speed as in the Satellite constructors.
+            speed[k] = 1 - (Math.pow(a, 1.5) / 1000);
+            diameter[k] = minDiameter * 
+               Math.pow(1 - random.nextDouble() * (1 - smallest), -1 / sizeSlope) /
+               TERRA_DIAMETER;
+            eccentricity[k] = Math.min(rayleigh(random, eccentricitySigma), 0.9);
+            inclination[k] = rayleigh(random, inclinationSigma);
+            periapsis[k] = random.nextDouble() * 360;
+         }
+         bodies.addAll(distance, angle, diameter, speed, primary, colour, 0, n);
+         bodies.setOrbits(first + from, eccentricity, inclination, periapsis, 
+                          0, n);
+      }
+      return first;
+   }
+
+   /**
+    **   Marks the belt's bodies as already being in a table, e.g. one
+    **   restored from a Snapshot, rather than generating them.
+    **
+    **   @param first The row of the table holding the belt's first body.
+    **/
+   public void setFirst(int first) {
+      if (this.first >= 0)
+         throw new IllegalStateException(name + " has already been populated");
+      this.first = first;
+   }
+
+   private boolean inGap(double a) {
+      for (int g = 0; g < gaps.length; g += 2)
+         if (Math.abs(a - gaps[g]) < gaps[g + 1] / 2)
+            return true;
+      return false;
+   }
+
+   private static double rayleigh(Random random, double sigma) {
+      return sigma * Math.sqrt(-2 * Math.log(1 - random.nextDouble()));
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param sigma The scale of the (Rayleigh-distributed) eccentricities of
+    * the bodies' orbits.
+	 */
+   public void setEccentricity(double sigma) {
+      this.eccentricitySigma = sigma;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param sigma The scale of the (Rayleigh-distributed) inclinations of
+    * the bodies' orbits, in degrees.
+	 */
+   public void setInclination(double sigma) {
+      this.inclinationSigma = sigma;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param min The diameter of the smallest bodies, in km.
+	 * @param max The diameter of the largest bodies, in km.
+	 */
+   public void setDiameters(double min, double max) {
+      if (min <= 0 || max < min)
+         throw new IllegalArgumentException("Not a range of diameters: " + 
+                                            min + "-" + max + " km");
+      this.minDiameter = min;
+      this.maxDiameter = max;
+   }
+
+	/**
+	 **   Leaves out the bodies whose orbits are in a gap, e.g. one cleared by
+    **   a resonance with a planet.
+	 **
+	 **   @param centre The semi-major axis at the centre of the gap, in AU.
+	 **   @param width The width of the gap, in AU.
+	 **/
+   public void addGap(double centre, double width) {
+      gaps = Arrays.copyOf(gaps, gaps.length + 2);
+      gaps[gaps.length - 2] = centre;
+      gaps[gaps.length - 1] = width;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The name of the belt.
+	 */
+   public String getName() {
+      return name;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The inner edge of the belt, in AU.
+	 */
+   public double getInner() {
+      return inner;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The outer edge of the belt, in AU.
+	 */
+   public double getOuter() {
+      return outer;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The colour the belt's bodies are drawn in.
+	 */
+   public String getColour() {
+      return colour;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies in the belt.
+	 */
+   public int size() {
+      return count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The row of the BodyTable holding the belt's first body, or -1
+    * if the belt hasn't been populated yet.
+	 */
+   public int getFirst() {
+      return first;
+   }
+}
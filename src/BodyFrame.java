@@ -0,0 +1,92 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class holds the true distance and angle of every body in a
+ ** BodyTable as of one tick, copied out of the table by BodyTable.publish()
+ ** so that frames can be drawn on one thread from a consistent state while
+ ** the table moves on on another.
+ **/
+
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class BodyFrame {
+   long tick = 0;
+   int size = 0;
+   double[] distance = new double[0];
+   double[] angle = new double[0];
+   // Set when published, cleared once taken to be drawn.
+   volatile boolean fresh = false;
+
+   // Makes room for the given number of bodies.
+   void resize(int size) {
+      if (size > distance.length) {
+         distance = Arrays.copyOf(distance, size);
+         angle = Arrays.copyOf(angle, size);
+      }
+      this.size = size;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The tick the bodies were at.
+	 */
+   public long getTick() {
+      return tick;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies.
+	 */
+   public int size() {
+      return size;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The body's true distance from its primary, as
+    * BodyTable.getTrueDistance().
+	 */
+   public double getDistance(int i) {
+      return distance[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The body's true angle about its primary, as
+    * BodyTable.getTrueAngle().
+	 */
+   public double getAngle(int i) {
+      return angle[i];
+   }
+}
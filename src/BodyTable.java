@@ -0,0 +1,715 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class stores the orbital state of every body in the simulation as a
+ ** set of parallel primitive arrays, one row per body. Satellite objects are
+ ** views onto a row; bulk operations such as move() work on the arrays
+ ** directly, so updating a large number of bodies is a linear scan.
+ **
+ ** Each body also keeps its phase: the angle it was at on tick 0. As bodies
+ ** move at a constant speed, the angle at any tick t is just
+ ** phase + speed * t, so seek() can jump the whole table to any point in
+ ** time (forwards or backwards) without replaying the ticks in between.
+ ** Angles are always kept within [0, 360).
+ **
+ ** Bodies are on circular orbits unless setOrbit() gives them an eccentric
+ ** (or inclined) one, in which case their angle is the mean anomaly and a
+ ** KeplerSolver works out their true distance and angle, in one batch for
+ ** all such bodies whenever the table moves.
+ **
+ ** Given a fork-join pool, a large table moves (and seeks) in parallel, in
+ ** fixed chunks of rows. Each row is worked out on its own, so the results
+ ** are exactly the same as moving it on one thread, however many threads
+ ** the pool has.
+ **
+ ** The table is moved in place. To draw it on another thread, publish()
+ ** copies where every body is into a BodyFrame at the end of each tick and
+ ** takeFrame() hands the newest one over. Three frames are passed between
+ ** the two threads through an atomic exchange (one being filled, one being
+ ** drawn and the newest spare), so neither ever waits for the other and a
+ ** frame is never written while it is drawn.
+ **/
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class BodyTable {
+   /** The primary index of a body that orbits the centre point. */
+   public static final int NO_PRIMARY = -1;
+   /** The factor between a stored distance and the displayed one. */
+   public static final double DISTANCE_SCALE = 5;
+   // Tables smaller than this always move on the calling thread, as handing
+   // the work out would cost more than it saves.
+   private static final int PARALLEL_SIZE = 1 << 15;
+   // Rows per task when moving in parallel.
+   private static final int CHUNK = 1 << 13;
+
+   private int size = 0;
+   private long tick = 0;
+   private double[] distance;
+   private double[] angle;
+   private double[] phase;
+   private double[] speed;
+   private double[] diameter;
+   private int[] primary;
+   private int[] colour;
+   // Only created once a body is given an eccentric orbit.
+   private KeplerSolver orbits = null;
+   private int[] orbitSlot = null;
+   private double[] trueDistance = null;
+   private double[] trueAngle = null;
+   private ForkJoinPool pool = null;
+   // Only created once the table is first published: the frame publish()
+   // fills next, the one takeFrame() last handed out, and the newest.
+   private BodyFrame filling = null;
+   private BodyFrame taken = null;
+   private final AtomicReference<BodyFrame> newest = 
+      new AtomicReference<BodyFrame>();
+
+   /**
+    **   Constructor method.
+    **
+    **   @param capacity The number of bodies to allocate room for up front.
+    **   The table grows if more are added.
+    **/
+   public BodyTable(int capacity) {
+      capacity = Math.max(capacity, 1);
+      this.distance = new double[capacity];
+      this.angle = new double[capacity];
+      this.phase = new double[capacity];
+      this.speed = new double[capacity];
+      this.diameter = new double[capacity];
+      this.primary = new int[capacity];
+      this.colour = new int[capacity];
+   }
+
+   /**
+    **   Adds a body to the table.
+    **
+    **   @param distance The distance of the body from its primary.
+    **   @param angle The position of the body along its orbit at the current
+    **   tick.
+    **   @param diameter The diameter of the body.
+    **   @param speed The speed of the body, in degrees per tick.
+    **   @param primary The row of the body's primary, or NO_PRIMARY.
+    **   @param colour The body's colour, as an index into SolarCanvas' palette.
+    **   @return The row the body was stored in.
+    **/
+   public int add(double distance, double angle, double diameter, double speed,
+                  int primary, int colour) {
+      if (primary != NO_PRIMARY && (primary < 0 || primary >= size))
+         throw new IllegalArgumentException("No such primary: " + primary);
+      if (size == this.distance.length)
+         this.grow(size * 2);
+
+      this.distance[size] = distance;
+      this.angle[size] = normalizeAngle(angle);
+      this.phase[size] = normalizeAngle(angle - phaseShift(speed, tick));
+      this.speed[size] = speed;
+      this.diameter[size] = diameter;
+      this.primary[size] = primary;
+      this.colour[size] = colour;
+      if (orbitSlot != null)
+         orbitSlot[size] = -1;
+      return size++;
+   }
+
+   /**
+    **   Adds a run of bodies to the table at once. The arguments are as for
+    **   add(), as arrays holding the bodies from offset onwards.
+    **
+    **   @param count The number of bodies to add.
+    **   @return The row the first body was stored in.
+    **/
+   public int addAll(double[] distance, double[] angle, double[] diameter,
+                     double[] speed, int[] primary, int[] colour, int offset,
+                     int count) {
+      int first = size;
+      for (int k = offset; k < offset + count; k++)
+         if (primary[k] != NO_PRIMARY &&
+             (primary[k] < 0 || primary[k] >= first + (k - offset)))
+            throw new IllegalArgumentException("No such primary: " + primary[k]);
+      this.ensureCapacity(size + count);
+
+      System.arraycopy(distance, offset, this.distance, first, count);
+      System.arraycopy(speed, offset, this.speed, first, count);
+      System.arraycopy(diameter, offset, this.diameter, first, count);
+      System.arraycopy(primary, offset, this.primary, first, count);
+      System.arraycopy(colour, offset, this.colour, first, count);
+      for (int k = 0; k < count; k++) {
+         double a = angle[offset + k];
+         this.angle[first + k] = normalizeAngle(a);
+         this.phase[first + k] = normalizeAngle(a - phaseShift(speed[offset + k], tick));
+      }
+      if (orbitSlot != null)
+         Arrays.fill(orbitSlot, first, first + count, -1);
+      size += count;
+      return first;
+   }
+
+   /**
+    **   Makes room for the given number of bodies without growing again.
+    **
+    **   @param capacity The number of bodies.
+    **/
+   public void ensureCapacity(int capacity) {
+      if (capacity > this.distance.length)
+         this.grow(Math.max(capacity, this.distance.length * 2));
+   }
+
+   private void grow(int capacity) {
+      distance = Arrays.copyOf(distance, capacity);
+      angle = Arrays.copyOf(angle, capacity);
+      phase = Arrays.copyOf(phase, capacity);
+      speed = Arrays.copyOf(speed, capacity);
+      diameter = Arrays.copyOf(diameter, capacity);
+      primary = Arrays.copyOf(primary, capacity);
+      colour = Arrays.copyOf(colour, capacity);
+      if (orbits != null) {
+         orbitSlot = Arrays.copyOf(orbitSlot, capacity);
+         trueDistance = Arrays.copyOf(trueDistance, capacity);
+         trueAngle = Arrays.copyOf(trueAngle, capacity);
+      }
+   }
+
+	/**
+	 **   Puts a body on an eccentric and/or inclined orbit. Its distance
+    **   becomes the semi-major axis of the orbit, and its angle the mean
+    **   anomaly.
+    **
+    **   @param i The row of the body.
+    **   @param eccentricity The eccentricity of the orbit, in [0, 1).
+    **   @param inclination The inclination of the orbit, in degrees.
+    **   @param periapsis The argument of periapsis of the orbit, in degrees.
+	 **/
+   public void setOrbit(int i, double eccentricity, double inclination,
+                        double periapsis) {
+      this.createOrbits();
+      orbitSlot[i] = orbits.set(orbitSlot[i], i, eccentricity, inclination,
+                                periapsis);
+      this.solveOrbit(i);
+   }
+
+	/**
+	 **   Puts a run of bodies on eccentric and/or inclined orbits at once.
+    **   Bodies whose eccentricity and inclination are both 0 are left as they
+    **   are. Solving Kepler's equation for a large batch costs as much as a
+    **   tick, so the bodies' true positions are left to the next move() or
+    **   seek() to work out.
+    **
+    **   @param first The row of the first body.
+    **   @param eccentricity The eccentricities of the orbits, from offset on.
+    **   @param inclination The inclinations of the orbits, from offset on.
+    **   @param periapsis The arguments of periapsis, from offset on.
+    **   @param offset Where in the arrays the first body's elements are.
+    **   @param count The number of bodies.
+	 **/
+   public void setOrbits(int first, double[] eccentricity, double[] inclination,
+                         double[] periapsis, int offset, int count) {
+      this.createOrbits();
+      orbits.ensureCapacity(orbits.size() + count);
+      for (int k = 0; k < count; k++) {
+         double e = eccentricity[offset + k];
+         double inc = inclination[offset + k];
+         if (e != 0 || inc != 0)
+            orbitSlot[first + k] = orbits.set(orbitSlot[first + k], first + k, 
+                                              e, inc, periapsis[offset + k]);
+      }
+   }
+
+   private void createOrbits() {
+      if (orbits != null)
+         return;
+      orbits = new KeplerSolver();
+      orbitSlot = new int[distance.length];
+      Arrays.fill(orbitSlot, -1);
+      trueDistance = new double[distance.length];
+      trueAngle = new double[distance.length];
+   }
+
+	/**
+	 **   Puts a body back on a circular orbit at its current true distance
+    **   and angle.
+    **
+    **   @param i The row of the body.
+	 **/
+   public void clearOrbit(int i) {
+      if (!this.isEccentric(i))
+         return;
+      double distance = trueDistance[i];
+      double angle = trueAngle[i];
+      int moved = orbits.remove(orbitSlot[i]);
+      if (moved >= 0)
+         orbitSlot[moved] = orbitSlot[i];
+      orbitSlot[i] = -1;
+      this.setPosition(i, distance, angle);
+   }
+
+	/**
+	 **   Moves a body to the given distance from its primary and angle about
+    **   it, on a circular orbit.
+    **
+    **   @param i The row of the body.
+    **   @param distance The (unscaled) distance from the body's primary.
+    **   @param angle The angle about the body's primary, in degrees.
+	 **/
+   public void setPosition(int i, double distance, double angle) {
+      this.clearOrbit(i);
+      this.distance[i] = distance;
+      this.setAngle(i, angle);
+   }
+
+	/**
+	 **   Works out whether a body is on an eccentric (or inclined) orbit, and
+    **   so whether its true angle moves at other than a constant speed.
+    **
+    **   @param i The row of the body.
+    **   @return true if setOrbit() has put the body on such an orbit.
+	 **/
+   public boolean isEccentric(int i) {
+      return orbitSlot != null && orbitSlot[i] >= 0;
+   }
+
+   // Works out the true positions of every body on an eccentric orbit.
+   private void solveOrbits() {
+      if (orbits == null)
+         return;
+      this.parallel(orbits.size(), new RangeTask.Range() {
+         public void run(int from, int to) {
+            orbits.solve(from, to, angle, distance, trueDistance, trueAngle);
+         }
+      });
+   }
+
+	/**
+	 **   Copies the true distance and angle of every body, as of the current
+    **   tick, into a frame for takeFrame() to hand out. Only one thread may
+    **   publish, and only between moves.
+	 **/
+   public void publish() {
+      if (filling == null) {
+         filling = new BodyFrame();
+         taken = new BodyFrame();
+         newest.set(new BodyFrame());
+      }
+      final BodyFrame frame = filling;
+      frame.resize(size);
+      this.parallel(size, new RangeTask.Range() {
+         public void run(int from, int to) {
+            System.arraycopy(distance, from, frame.distance, from, to - from);
+            System.arraycopy(angle, from, frame.angle, from, to - from);
+         }
+      });
+      if (orbits != null)
+         this.parallel(orbits.size(), new RangeTask.Range() {
+            public void run(int from, int to) {
+               for (int k = from; k < to; k++) {
+                  int row = orbits.getRow(k);
+                  frame.distance[row] = trueDistance[row];
+                  frame.angle[row] = trueAngle[row];
+               }
+            }
+         });
+      frame.tick = tick;
+      frame.fresh = true;
+      filling = newest.getAndSet(frame);
+   }
+
+	/**
+	 **   Gets the newest frame published, for drawing from. The frame handed
+    **   out before is given back, and mustn't be used again. Only one
+    **   thread may take frames.
+    **
+    **   @return The newest frame, or the one handed out last time if none
+    **   has been published since, or null if the table has never been
+    **   published.
+	 **/
+   public BodyFrame takeFrame() {
+      BodyFrame frame = newest.get();
+      if (frame == null)
+         return null;
+      if (frame.fresh) {
+         // Only publish() can have replaced it since, and only with a
+         // fresher one.
+         taken = newest.getAndSet(taken);
+         taken.fresh = false;
+      }
+      return taken;
+   }
+
+   // Runs something over n rows (or slots), in parallel if there are enough
+   // of them and there is a pool to do it on.
+   private void parallel(int n, RangeTask.Range range) {
+      RangeTask.invoke(n < PARALLEL_SIZE ? null : pool, 0, n, CHUNK, range);
+   }
+
+   // Works out the true position of one body, if it is on an eccentric orbit,
+   // as a batch of one written straight into the table.
+   private void solveOrbit(int i) {
+      if (!this.isEccentric(i))
+         return;
+      int slot = orbitSlot[i];
+      orbits.solve(slot, slot + 1, angle, distance, trueDistance, trueAngle);
+   }
+
+	/**
+	 **   Moves every body along its orbit according to its current speed, and
+    **   advances the table to the next tick.
+	 **/
+   public void move() {
+      this.parallel(size, new RangeTask.Range() {
+         public void run(int from, int to) {
+            advance(from, to);
+         }
+      });
+      this.solveOrbits();
+      tick++;
+   }
+
+	/**
+	 **   Moves a range of bodies one tick's worth along their orbits, leaving
+    **   the rest of the table where it is. The moved bodies stay one tick
+    **   ahead of the others from then on (including after a seek()).
+    **
+    **   @param from The first row to move.
+    **   @param to One past the last row to move.
+	 **/
+   public void move(int from, int to) {
+      this.advance(from, to);
+      for (int i = from; i < to; i++) {
+         phase[i] = normalizeAngle(phase[i] + speed[i]);
+         this.solveOrbit(i);
+      }
+   }
+
+   private void advance(int from, int to) {
+      double[] angle = this.angle;
+      double[] speed = this.speed;
+      for (int i = from; i < to; i++) {
+         double a = angle[i] + speed[i];
+         if (a >= 360 || a < 0)
+            a = normalizeAngle(a);
+         angle[i] = a;
+      }
+   }
+
+	/**
+	 **   Jumps every body to where it is at the given tick.
+    **
+    **   @param tick The tick to jump to. May be before the current one.
+	 **/
+   public void seek(final long tick) {
+      this.parallel(size, new RangeTask.Range() {
+         public void run(int from, int to) {
+            for (int i = from; i < to; i++)
+               angle[i] = getAngleAt(i, tick);
+         }
+      });
+      this.solveOrbits();
+      this.tick = tick;
+   }
+
+	/**
+	 **   Works out where a body is along its orbit at any point in time,
+    **   without moving it.
+    **
+    **   @param i The row of the body.
+    **   @param t The time, in ticks. Needn't be a whole number of ticks.
+    **   @return The angle along the body's orbit at that time, in [0, 360).
+    **   For a body on an eccentric orbit this is the mean anomaly.
+	 **/
+   public double getAngleAt(int i, double t) {
+      return normalizeAngle(phase[i] + phaseShift(speed[i], t));
+   }
+
+	/**
+	 **   Works out how far a body is from its primary, and at what angle, at
+    **   any point in time, without moving it. For a body on a circular orbit
+    **   this is just its distance and getAngleAt().
+    **
+    **   @param i The row of the body.
+    **   @param t The time, in ticks. Needn't be a whole number of ticks.
+    **   @param result Where to put the distance (element 0) and the angle in
+    **   [0, 360) (element 1).
+	 **/
+   public void getTruePositionAt(int i, double t, double[] result) {
+      double meanAngle = this.getAngleAt(i, t);
+      if (this.isEccentric(i)) {
+         orbits.solve(orbitSlot[i], meanAngle, distance[i], result);
+      } else {
+         result[0] = distance[i];
+         result[1] = meanAngle;
+      }
+   }
+
+	/**
+	 **   Works out a point on a body's orbit, at a given eccentric anomaly
+    **   rather than a time, so that stepping the anomaly evenly traces the
+    **   orbit out with more points where it bends most. For a body on a
+    **   circular orbit the eccentric anomaly is just the angle.
+    **
+    **   @param i The row of the body.
+    **   @param eccentricAnomaly The eccentric anomaly, in degrees.
+    **   @param result Where to put the distance (element 0) and the angle in
+    **   [0, 360) (element 1) of the point about the body's primary.
+	 **/
+   public void getOrbitPointAt(int i, double eccentricAnomaly, double[] result) {
+      if (this.isEccentric(i)) {
+         orbits.getPointAt(orbitSlot[i], eccentricAnomaly, distance[i], result);
+      } else {
+         result[0] = distance[i];
+         result[1] = normalizeAngle(eccentricAnomaly);
+      }
+   }
+
+	/**
+	 **   Brings an angle into the range [0, 360).
+    **
+    **   @param angle The angle, in degrees.
+    **   @return The equivalent angle in [0, 360).
+	 **/
+   public static double normalizeAngle(double angle) {
+      angle %= 360;
+      if (angle < 0)
+         angle += 360;
+      // -1e-20 % 360 + 360 rounds to 360.
+      return angle >= 360 ? 0 : angle;
+   }
+
+   // How far a body moving at the given speed goes in t ticks, reduced mod
+   // 360 before it is added to anything so that large t costs no precision.
+   private static double phaseShift(double speed, double t) {
+      return (speed * t) % 360;
+   }
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies in the table.
+	 */
+   public int size() {
+      return this.size;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The tick the table is at.
+	 */
+   public long getTick() {
+      return this.tick;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The angle the body was at on tick 0.
+	 */
+   public double getPhase(int i) {
+      return this.phase[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The stored (unscaled) distance between the body and its primary.
+	 */
+   public double getDistance(int i) {
+      return this.distance[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The angle along the body's orbit it is currently at.
+	 */
+   public double getAngle(int i) {
+      return this.angle[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The current (unscaled) distance between the body and its
+    * primary, which only differs from getDistance() for eccentric orbits.
+	 */
+   public double getTrueDistance(int i) {
+      return this.isEccentric(i) ? this.trueDistance[i] : this.distance[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The current angle of the body about its primary, which only
+    * differs from getAngle() for eccentric or inclined orbits.
+	 */
+   public double getTrueAngle(int i) {
+      return this.isEccentric(i) ? this.trueAngle[i] : this.angle[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The eccentricity of the body's orbit.
+	 */
+   public double getEccentricity(int i) {
+      return this.isEccentric(i) ? orbits.getEccentricity(orbitSlot[i]) : 0;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The inclination of the body's orbit, in degrees.
+	 */
+   public double getInclination(int i) {
+      return this.isEccentric(i) ? orbits.getInclination(orbitSlot[i]) : 0;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The argument of periapsis of the body's orbit, in degrees.
+	 */
+   public double getPeriapsis(int i) {
+      return this.isEccentric(i) ? orbits.getPeriapsis(orbitSlot[i]) : 0;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return How far round its orbit from periapsis the body is, in degrees,
+    * in the plane of the orbit; just its angle for a circular orbit.
+	 */
+   public double getTrueAnomaly(int i) {
+      return this.isEccentric(i) ? orbits.getTrueAnomaly(orbitSlot[i], angle[i])
+                                 : angle[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The speed of the body.
+	 */
+   public double getSpeed(int i) {
+      return this.speed[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The diameter of the body.
+	 */
+   public double getDiameter(int i) {
+      return this.diameter[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The row of the body's primary, or NO_PRIMARY.
+	 */
+   public int getPrimary(int i) {
+      return this.primary[i];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The body's colour, as an index into SolarCanvas' palette.
+	 */
+   public int getColour(int i) {
+      return this.colour[i];
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param i The row of the body.
+	 * @param angle The new angle along the body's orbit.
+	 */
+   public void setAngle(int i, double angle) {
+      this.angle[i] = normalizeAngle(angle);
+      this.phase[i] = normalizeAngle(angle - phaseShift(speed[i], tick));
+      this.solveOrbit(i);
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param i The row of the body.
+	 * @param speed The new speed of the body.
+	 */
+   public void setSpeed(int i, double speed) {
+      this.speed[i] = speed;
+      // Carries on from where the body is now.
+      this.phase[i] = normalizeAngle(angle[i] - phaseShift(speed, tick));
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param i The row of the body.
+	 * @param diameter The new diameter of the body.
+	 */
+   public void setDiameter(int i, double diameter) {
+      this.diameter[i] = diameter;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param i The row of the body.
+	 * @param colour The body's new colour, as an index into SolarCanvas'
+    * palette.
+	 */
+   public void setColour(int i, int colour) {
+      this.colour[i] = colour;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param pool The pool to move large tables on, or null to always move
+    * them on the calling thread (the default).
+	 */
+   public void setPool(ForkJoinPool pool) {
+      this.pool = pool;
+   }
+}
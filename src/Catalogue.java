@@ -0,0 +1,453 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class reads a body catalogue: the bodies to populate the solar
+ ** system with, kept in a compact binary file rather than compiled into the
+ ** program. Catalogues are made with CatalogueWriter, e.g. from a CSV file.
+ **
+ ** The file is memory-mapped and nothing is decoded up front, so opening
+ ** one costs the same however many bodies it holds. Fields and names are
+ ** read straight out of the mapping when asked for, and load() copies every
+ ** body into a BodyTable a column at a time with bulk reads, so a million
+ ** bodies load in milliseconds.
+ **
+ ** Format version 1, little-endian throughout:
+ **
+ **   header      magic "SOLC", version, count, flags (ints), length of the
+ **               string table (long), padded to 64 bytes
+ **   distance    double[count], in AU from the body's primary
+ **   angle       double[count], in degrees, or NaN for a random start
+ **   diameter    double[count], relative to Terra
+ **   speed       double[count], in degrees per tick
+ **   mass        double[count], in Earth masses (0 if unknown)
+ **   elements    eccentricity, inclination and argument of periapsis, as
+ **               three double[count] columns (only if flags has ELEMENTS)
+ **   primary     int[count], the row of the body's primary, or -1
+ **   colour      byte[count], an index into SolarCanvas' palette
+ **   kind        byte[count], PLANET, DWARF_PLANET, MOON or MINOR
+ **   names       int[count + 1], where each body's name starts in the
+ **               string table (the last marks its end)
+ **   strings     the names, in UTF-8
+ **
+ ** Each column starts on an 8-byte boundary. A body's primary always comes
+ ** before it.
+ **/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class Catalogue {
+   /** The first four bytes of every catalogue: "SOLC". */
+   public static final int MAGIC = 0x434C4F53;
+   /** The newest version of the format this class reads and writes. */
+   public static final int VERSION = 1;
+   /** Set in the header's flags when the orbital elements are present. */
+   public static final int ELEMENTS = 1;
+
+   /** The kinds of body in a catalogue. */
+   public static final byte PLANET = 0;
+   public static final byte DWARF_PLANET = 1;
+   public static final byte MOON = 2;
+   public static final byte MINOR = 3;
+   static final String[] KIND_NAMES = {"planet", "dwarf", "moon", "minor"};
+
+   static final int HEADER_SIZE = 64;
+   // How many bodies load() decodes at a time.
+   private static final int CHUNK = 65536;
+
+   private Path path;
+   private ByteBuffer map;
+   private int version;
+   private int count;
+   private int flags;
+   private Layout layout;
+   private DoubleBuffer distance;
+   private DoubleBuffer angle;
+   private DoubleBuffer diameter;
+   private DoubleBuffer speed;
+   private DoubleBuffer mass;
+   private DoubleBuffer eccentricity;
+   private DoubleBuffer inclination;
+   private DoubleBuffer periapsis;
+   private IntBuffer primary;
+   private IntBuffer names;
+
+   private Catalogue(Path path, ByteBuffer map) throws IOException {
+      this.path = path;
+      this.map = map.order(ByteOrder.LITTLE_ENDIAN);
+      if (map.capacity() < HEADER_SIZE || map.getInt(0) != MAGIC)
+         throw new IOException(path + " isn't a body catalogue");
+      this.version = map.getInt(4);
+      if (version < 1 || version > VERSION)
+         throw new IOException(path + " is catalogue version " + version + 
+                               ", only up to " + VERSION + " can be read");
+      this.count = map.getInt(8);
+      this.flags = map.getInt(12);
+      long stringsLength = map.getLong(16);
+      if (count < 0 || stringsLength < 0)
+         throw new IOException(path + " has a corrupt header");
+      this.layout = new Layout(count, flags, stringsLength);
+      if (layout.end != map.capacity())
+         throw new IOException(path + " should be " + layout.end + 
+                               " bytes long, but is " + map.capacity());
+
+      this.distance = doubles(layout.distance);
+      this.angle = doubles(layout.angle);
+      this.diameter = doubles(layout.diameter);
+      this.speed = doubles(layout.speed);
+      this.mass = doubles(layout.mass);
+      if (this.hasElements()) {
+         this.eccentricity = doubles(layout.eccentricity);
+         this.inclination = doubles(layout.inclination);
+         this.periapsis = doubles(layout.periapsis);
+      }
+      this.primary = slice(layout.primary, count * 4).asIntBuffer();
+      this.names = slice(layout.names, (count + 1) * 4).asIntBuffer();
+      this.checkRows();
+   }
+
+   // Checks that every row's kind and colour are ones this program knows,
+   // and that its primary (if it has one) comes before it, so that neither
+   // load() nor the Satellites made from the table trip over a bad row.
+   private void checkRows() throws IOException {
+      for (int i = 0; i < count; i++) {
+         int kind = map.get(layout.kind + i);
+         if (kind < 0 || kind >= KIND_NAMES.length)
+            throw new IOException(path + " is corrupt: row " + i + 
+                                  " has no such kind of body: " + kind);
+         int colour = map.get(layout.colour + i) & 0xFF;
+         if (colour >= SolarCanvas.COLOUR_NAMES.length)
+            throw new IOException(path + " is corrupt: row " + i + 
+                                  " has no such colour: " + colour);
+         int primary = this.primary.get(i);
+         if (primary != BodyTable.NO_PRIMARY && (primary < 0 || primary >= i))
+            throw new IOException(path + " is corrupt: row " + i + 
+                                  "'s primary, " + primary + 
+                                  ", doesn't come before it");
+      }
+   }
+
+   private DoubleBuffer doubles(int at) {
+      return slice(at, count * 8).asDoubleBuffer();
+   }
+
+   private ByteBuffer slice(int at, int length) {
+      return map.slice(at, length).order(ByteOrder.LITTLE_ENDIAN);
+   }
+
+   /**
+    **   Opens a catalogue, mapping it into memory.
+    **
+    **   @param path The catalogue file.
+    **   @return The catalogue.
+    **   @throws IOException If the file can't be read, isn't a catalogue or
+    **   has a corrupt row.
+    **/
+   public static Catalogue open(Path path) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         if (channel.size() > Integer.MAX_VALUE)
+            throw new IOException(path + " is too big to map");
+         return new Catalogue(path, channel.map(FileChannel.MapMode.READ_ONLY, 
+                                                0, channel.size()));
+      }
+   }
+
+   /**
+    **   Copies every body in the catalogue into a table, after any already
+    **   there. Bodies whose angle is NaN are started at a random point in
+    **   their orbits. As with BodyTable.setOrbits(), the true positions of
+    **   bodies on eccentric orbits aren't known until the table is next
+    **   moved or seeked.
+    **
+    **   @param bodies The table to add the bodies to.
+    **   @param random Where to get random starting angles from.
+    **   @return The row of the table the catalogue's first body went in; the
+    **   catalogue's row i is the table's row i plus this.
+    **/
+   public int load(BodyTable bodies, Random random) {
+      int base = bodies.size();
+      bodies.ensureCapacity(base + count);
+
+      int chunk = Math.min(count, CHUNK);
+      double[] distance = new double[chunk];
+      double[] angle = new double[chunk];
+      double[] diameter = new double[chunk];
+      double[] speed = new double[chunk];
+      int[] primary = new int[chunk];
+      byte[] colourBytes = new byte[chunk];
+      int[] colour = new int[chunk];
+      for (int from = 0; from < count; from += chunk) {
+         int n = Math.min(chunk, count - from);
+         this.distance.get(from, distance, 0, n);
+         this.angle.get(from, angle, 0, n);
+         this.diameter.get(from, diameter, 0, n);
+         this.speed.get(from, speed, 0, n);
+         this.primary.get(from, primary, 0, n);
+         map.get(layout.colour + from, colourBytes, 0, n);
+         for (int k = 0; k < n; k++) {
+            if (Double.isNaN(angle[k]))
+               angle[k] = random.nextInt(361);
+            if (primary[k] != BodyTable.NO_PRIMARY)
+               primary[k] += base;
+            colour[k] = colourBytes[k] & 0xFF;
+         }
+         bodies.addAll(distance, angle, diameter, speed, primary, colour, 0, n);
+      }
+
+      if (this.hasElements()) {
+         double[] e = new double[count];
+         double[] inc = new double[count];
+         double[] periapsis = new double[count];
+         this.eccentricity.get(0, e);
+         this.inclination.get(0, inc);
+         this.periapsis.get(0, periapsis);
+         bodies.setOrbits(base, e, inc, periapsis, 0, count);
+      }
+      return base;
+   }
+
+   /**
+    **   Reads every body's mass.
+    **
+    **   @return The masses, in Earth masses, by row.
+    **/
+   public double[] getMasses() {
+      double[] masses = new double[count];
+      mass.get(0, masses);
+      return masses;
+   }
+
+   /**
+    **   Prints how many bodies of each kind a catalogue holds, or makes a
+    **   catalogue. Use:
+    **
+    **      java Catalogue info catalogue.solc
+    **      java Catalogue import bodies.csv catalogue.solc
+    **      java Catalogue export catalogue.solc
+    **
+    **   where export writes out the catalogue compiled into Solar.
+    **
+    **   @param args arguments passed in from the command line.
+    **   @throws IOException If a file can't be read or written.
+    **/
+   public static void main(String[] args) throws IOException {
+      if (args.length == 2 && args[0].equals("info")) {
+         long start = System.nanoTime();
+         Catalogue catalogue = Catalogue.open(Paths.get(args[1]));
+         BodyTable bodies = new BodyTable(catalogue.size());
+         catalogue.load(bodies, new Random());
+         double millis = (System.nanoTime() - start) / 1e6;
+
+         int[] kinds = new int[KIND_NAMES.length];
+         for (int i = 0; i < catalogue.size(); i++)
+            kinds[catalogue.getKind(i)]++;
+         System.out.printf("%s: version %d, %d bodies, loaded in %.1fms%n", 
+                           args[1], catalogue.getVersion(), catalogue.size(), 
+                           millis);
+         for (int k = 0; k < kinds.length; k++)
+            System.out.printf("   %-6s %d%n", KIND_NAMES[k], kinds[k]);
+      } else if (args.length == 3 && args[0].equals("import")) {
+         CatalogueWriter writer = CatalogueWriter.importCsv(Paths.get(args[1]));
+         writer.write(Paths.get(args[2]));
+         System.out.println("Wrote " + writer.size() + " bodies to " + args[2]);
+      } else if (args.length == 2 && args[0].equals("export")) {
+         SolarScene scene = Solar.createScene();
+         CatalogueWriter writer = new CatalogueWriter();
+         writer.addScene(scene, Solar.getMasses(scene));
+         writer.write(Paths.get(args[1]));
+         System.out.println("Wrote " + writer.size() + " bodies to " + args[1]);
+      } else {
+         System.err.println("Use: Catalogue info <catalogue>\n" + 
+                            "     Catalogue import <csv> <catalogue>\n" + 
+                            "     Catalogue export <catalogue>");
+         System.exit(2);
+      }
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The file the catalogue was read from.
+	 */
+   public Path getPath() {
+      return path;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The version of the format the catalogue is in.
+	 */
+   public int getVersion() {
+      return version;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies in the catalogue.
+	 */
+   public int size() {
+      return count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return Whether the catalogue holds orbital elements.
+	 */
+   public boolean hasElements() {
+      return (flags & ELEMENTS) != 0;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The name of the body.
+	 */
+   public String getName(int i) {
+      int start = names.get(i);
+      int end = names.get(i + 1);
+      byte[] bytes = new byte[end - start];
+      map.get(layout.strings + start, bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The kind of body: PLANET, DWARF_PLANET, MOON or MINOR.
+	 */
+   public int getKind(int i) {
+      return map.get(layout.kind + i);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The row of the body's primary, or BodyTable.NO_PRIMARY.
+	 */
+   public int getPrimary(int i) {
+      return primary.get(i);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The distance of the body from its primary, in AU.
+	 */
+   public double getDistance(int i) {
+      return distance.get(i);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The diameter of the body, relative to Terra.
+	 */
+   public double getDiameter(int i) {
+      return diameter.get(i);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The speed of the body, in degrees per tick.
+	 */
+   public double getSpeed(int i) {
+      return speed.get(i);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The colour of the body, as an index into SolarCanvas' palette.
+	 */
+   public int getColour(int i) {
+      return map.get(layout.colour + i) & 0xFF;
+   }
+
+   /**
+    ** Where each column of a catalogue starts, in bytes from the start of the
+    ** file.
+    **/
+   static class Layout {
+      final int distance, angle, diameter, speed, mass;
+      final int eccentricity, inclination, periapsis;
+      final int primary, colour, kind, names, strings;
+      final long end;
+
+      Layout(int count, int flags, long stringsLength) throws IOException {
+         long at = HEADER_SIZE;
+         long doubles = 8L * count;
+         distance = (int) at;
+         angle = (int) (at += doubles);
+         diameter = (int) (at += doubles);
+         speed = (int) (at += doubles);
+         mass = (int) (at += doubles);
+         at += doubles;
+         if ((flags & ELEMENTS) != 0) {
+            eccentricity = (int) at;
+            inclination = (int) (at += doubles);
+            periapsis = (int) (at += doubles);
+            at += doubles;
+         } else {
+            eccentricity = inclination = periapsis = -1;
+         }
+         primary = (int) at;
+         colour = (int) (at = align(at + 4L * count));
+         kind = (int) (at += count);
+         names = (int) (at = align(at + count));
+         strings = (int) (at = align(at + 4L * (count + 1)));
+         end = at + stringsLength;
+         if (end > Integer.MAX_VALUE)
+            throw new IOException("A catalogue of " + count + 
+                                  " bodies is too big to map");
+      }
+
+      private static long align(long at) {
+         return (at + 7) & ~7L;
+      }
+   }
+}
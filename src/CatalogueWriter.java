@@ -0,0 +1,330 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class builds up a body catalogue and writes it out in the format
+ ** Catalogue reads. Bodies can be added one at a time, copied from a
+ ** SolarScene, or imported from a CSV file with a body a line:
+ **
+ **   name,kind,primary,distance,radius,period,colour[,angle,mass,e,i,w]
+ **
+ ** where kind is planet, dwarf, moon or minor, primary is the name of a
+ ** body on an earlier line (or blank for Sol), and the rest are as for the
+ ** Satellite constructors: distance in AU, radius relative to Terra's and
+ ** period as Satellite takes it. The optional columns are the starting angle
+ ** (blank for random), the mass in Earth masses, and the eccentricity,
+ ** inclination and argument of periapsis of the orbit. Blank lines and
+ ** lines starting with # are skipped. Names can't contain commas.
+ **/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class CatalogueWriter {
+   private int size = 0;
+   private boolean hasElements = false;
+   private String[] name;
+   private byte[] kind;
+   private int[] primary;
+   private double[] distance;
+   private double[] angle;
+   private double[] diameter;
+   private double[] speed;
+   private int[] colour;
+   private double[] mass;
+   private double[] eccentricity;
+   private double[] inclination;
+   private double[] periapsis;
+
+   /**
+    **   Constructor method.
+    **/
+   public CatalogueWriter() {
+      this.grow(256);
+   }
+
+   private void grow(int capacity) {
+      name = Arrays.copyOf(name == null ? new String[0] : name, capacity);
+      kind = Arrays.copyOf(kind == null ? new byte[0] : kind, capacity);
+      primary = Arrays.copyOf(primary == null ? new int[0] : primary, capacity);
+      colour = Arrays.copyOf(colour == null ? new int[0] : colour, capacity);
+      distance = copy(distance, capacity);
+      angle = copy(angle, capacity);
+      diameter = copy(diameter, capacity);
+      speed = copy(speed, capacity);
+      mass = copy(mass, capacity);
+      eccentricity = copy(eccentricity, capacity);
+      inclination = copy(inclination, capacity);
+      periapsis = copy(periapsis, capacity);
+   }
+
+   private static double[] copy(double[] array, int capacity) {
+      return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+   }
+
+   /**
+    **   Adds a body on a circular orbit.
+    **
+    **   @param name The name of the body.
+    **   @param kind Catalogue.PLANET, DWARF_PLANET, MOON or MINOR.
+    **   @param primary The row of the body's primary, or BodyTable.NO_PRIMARY.
+    **   @param distance The distance of the body from its primary, in AU.
+    **   @param angle The starting position of the body along its orbit, or
+    **   NaN for a random one.
+    **   @param diameter The diameter of the body, relative to Terra.
+    **   @param speed The speed of the body, in degrees per tick.
+    **   @param colour The body's colour, as an index into SolarCanvas' palette.
+    **   @param mass The mass of the body, in Earth masses, or 0 if unknown.
+    **   @return The row the body was stored in.
+    **/
+   public int add(String name, int kind, int primary, double distance, 
+                  double angle, double diameter, double speed, int colour, 
+                  double mass) {
+      if (kind < 0 || kind >= Catalogue.KIND_NAMES.length)
+         throw new IllegalArgumentException("No such kind of body: " + kind);
+      if (primary != BodyTable.NO_PRIMARY && (primary < 0 || primary >= size))
+         throw new IllegalArgumentException("No such primary: " + primary);
+      if (colour < 0 || colour >= SolarCanvas.COLOUR_NAMES.length)
+         throw new IllegalArgumentException("No such colour: " + colour);
+      if (size == this.name.length)
+         this.grow(size * 2);
+
+      this.name[size] = name;
+      this.kind[size] = (byte) kind;
+      this.primary[size] = primary;
+      this.distance[size] = distance;
+      this.angle[size] = angle;
+      this.diameter[size] = diameter;
+      this.speed[size] = speed;
+      this.colour[size] = colour;
+      this.mass[size] = mass;
+      return size++;
+   }
+
+	/**
+	 **   Puts a body onto an eccentric and/or inclined orbit.
+	 **
+    **   @param i The row of the body.
+    **   @param eccentricity The eccentricity of the orbit, in [0, 1).
+    **   @param inclination The inclination of the orbit, in degrees.
+    **   @param periapsis The argument of periapsis of the orbit, in degrees.
+	 **/
+   public void setOrbit(int i, double eccentricity, double inclination,
+                        double periapsis) {
+      if (eccentricity < 0 || eccentricity >= 1)
+         throw new IllegalArgumentException("Not an elliptical orbit: e = " + 
+                                            eccentricity);
+      this.eccentricity[i] = eccentricity;
+      this.inclination[i] = inclination;
+      this.periapsis[i] = periapsis;
+      hasElements = true;
+   }
+
+	/**
+	 **   Adds every body of a scene, as they are now but with random starting
+    **   angles. Bodies without a Satellite of their own are added as unnamed
+    **   moons or minor bodies.
+	 **
+	 **   @param scene The scene to copy.
+	 **   @param masses The masses of the scene's bodies, in Earth masses, by
+    **   row of its BodyTable.
+	 **/
+   public void addScene(SolarScene scene, double[] masses) {
+      BodyTable bodies = scene.getBodies();
+      String[] names = new String[bodies.size()];
+      byte[] kinds = new byte[bodies.size()];
+      Satellite[][] groups = {scene.getPlanets(), scene.getDwarfPlanets(), 
+                              scene.getMoons()};
+      byte[] groupKinds = {Catalogue.PLANET, Catalogue.DWARF_PLANET, 
+                           Catalogue.MOON};
+      for (int g = 0; g < groups.length; g++)
+         for (Satellite s : groups[g]) {
+            names[s.getIndex()] = s.getName();
+            kinds[s.getIndex()] = groupKinds[g];
+         }
+
+      int base = size;
+      for (int i = 0; i < bodies.size(); i++) {
+         int kind = names[i] != null ? kinds[i] 
+                  : bodies.getPrimary(i) == BodyTable.NO_PRIMARY ? Catalogue.MINOR
+                                                                  : Catalogue.MOON;
+         int primary = bodies.getPrimary(i);
+         int row = this.add(names[i] == null ? "" : names[i], kind, 
+                            primary == BodyTable.NO_PRIMARY ? primary 
+                                                            : base + primary,
+                            bodies.getDistance(i), Double.NaN, 
+                            bodies.getDiameter(i), bodies.getSpeed(i), 
+                            bodies.getColour(i), masses[i]);
+         if (bodies.getEccentricity(i) != 0 || bodies.getInclination(i) != 0)
+            this.setOrbit(row, bodies.getEccentricity(i), 
+                          bodies.getInclination(i), bodies.getPeriapsis(i));
+      }
+   }
+
+	/**
+	 **   Reads bodies from a CSV file, in the form described above.
+	 **
+	 **   @param csv The file to read.
+	 **   @return A writer holding the bodies.
+    **   @throws IOException If the file can't be read or a line is wrong.
+	 **/
+   public static CatalogueWriter importCsv(Path csv) throws IOException {
+      CatalogueWriter writer = new CatalogueWriter();
+      Map<String, Integer> rows = new HashMap<String, Integer>();
+      try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+         String line;
+         for (int lineNumber = 1; (line = in.readLine()) != null; lineNumber++) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+               continue;
+            String[] fields = line.split(",", -1);
+            try {
+               writer.importLine(fields, rows);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+               throw new IOException(csv + ":" + lineNumber + ": " + e.getMessage());
+            }
+         }
+      }
+      return writer;
+   }
+
+   // Adds the body on one line of a CSV file.
+   private void importLine(String[] fields, Map<String, Integer> rows) {
+      if (fields.length < 7)
+         throw new IllegalArgumentException("Expected at least 7 fields, got " + 
+                                            fields.length);
+      String name = fields[0].trim();
+      int kind = Arrays.asList(Catalogue.KIND_NAMES)
+                       .indexOf(fields[1].trim().toLowerCase());
+      if (kind < 0)
+         throw new IllegalArgumentException("No such kind of body: " + fields[1]);
+      int primary = BodyTable.NO_PRIMARY;
+      if (!fields[2].trim().isEmpty()) {
+         Integer row = rows.get(fields[2].trim());
+         if (row == null)
+            throw new IllegalArgumentException("No such primary: " + fields[2]);
+         primary = row;
+      }
+      // Works out the speed and diameter as the Satellite constructors do.
+      int row = this.add(name, kind, primary, number(fields, 3, 0), 
+                         number(fields, 7, Double.NaN), 
+                         number(fields, 4, 0) * 2, 
+                         1 - (number(fields, 5, 0) / 1000),
+                         SolarCanvas.getColourIndex(fields[6].trim()), 
+                         number(fields, 8, 0));
+      double e = number(fields, 9, 0);
+      double i = number(fields, 10, 0);
+      if (e != 0 || i != 0)
+         this.setOrbit(row, e, i, number(fields, 11, 0));
+      rows.put(name, row);
+   }
+
+   // Reads an optional number from a CSV line.
+   private static double number(String[] fields, int i, double otherwise) {
+      if (i >= fields.length || fields[i].trim().isEmpty())
+         return otherwise;
+      return Double.parseDouble(fields[i].trim());
+   }
+
+	/**
+	 **   Writes out the bodies added so far as a catalogue.
+	 **
+	 **   @param path The file to write to. It is replaced if it exists.
+    **   @throws IOException If the file can't be written.
+	 **/
+   public void write(Path path) throws IOException {
+      byte[][] names = new byte[size][];
+      long stringsLength = 0;
+      for (int i = 0; i < size; i++) {
+         names[i] = name[i].getBytes(StandardCharsets.UTF_8);
+         stringsLength += names[i].length;
+      }
+      int flags = hasElements ? Catalogue.ELEMENTS : 0;
+      Catalogue.Layout layout = new Catalogue.Layout(size, flags, stringsLength);
+
+      Files.deleteIfExists(path);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, 
+                                                  StandardOpenOption.READ, 
+                                                  StandardOpenOption.WRITE)) {
+         ByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, layout.end)
+                                 .order(ByteOrder.LITTLE_ENDIAN);
+         out.putInt(0, Catalogue.MAGIC);
+         out.putInt(4, Catalogue.VERSION);
+         out.putInt(8, size);
+         out.putInt(12, flags);
+         out.putLong(16, stringsLength);
+
+         this.put(out, layout.distance, distance);
+         this.put(out, layout.angle, angle);
+         this.put(out, layout.diameter, diameter);
+         this.put(out, layout.speed, speed);
+         this.put(out, layout.mass, mass);
+         if (hasElements) {
+            this.put(out, layout.eccentricity, eccentricity);
+            this.put(out, layout.inclination, inclination);
+            this.put(out, layout.periapsis, periapsis);
+         }
+         out.slice(layout.primary, size * 4).order(ByteOrder.LITTLE_ENDIAN)
+            .asIntBuffer().put(primary, 0, size);
+         for (int i = 0; i < size; i++) {
+            out.put(layout.colour + i, (byte) colour[i]);
+            out.put(layout.kind + i, kind[i]);
+         }
+         int offset = 0;
+         for (int i = 0; i < size; i++) {
+            out.putInt(layout.names + 4 * i, offset);
+            out.put(layout.strings + offset, names[i]);
+            offset += names[i].length;
+         }
+         out.putInt(layout.names + 4 * size, offset);
+      }
+   }
+
+   private void put(ByteBuffer out, int at, double[] column) {
+      out.slice(at, size * 8).order(ByteOrder.LITTLE_ENDIAN)
+         .asDoubleBuffer().put(column, 0, size);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies added so far.
+	 */
+   public int size() {
+      return size;
+   }
+}
@@ -0,0 +1,124 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class saves Snapshots of a running simulation at a fixed interval,
+ ** on a thread of its own. Only the tick is read from the simulation, so
+ ** the simulation thread is never held up while one is written.
+ **/
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class Checkpointer {
+   private Path path;
+   private SolarScene scene;
+   private Simulation simulation;
+   private SolarDisplay system;
+   private Timer timer;
+   private long checkpoints = 0;
+   private long lastNanos = 0;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param path The file to save snapshots to. Each replaces the last.
+    **   @param scene The scene to save.
+    **   @param simulation The simulation moving the scene's bodies.
+    **   @param system The display whose zoom to save.
+    **/
+   public Checkpointer(Path path, SolarScene scene, Simulation simulation,
+                       SolarDisplay system) {
+      this.path = path;
+      this.scene = scene;
+      this.simulation = simulation;
+      this.system = system;
+   }
+
+   /**
+    **   Saves a snapshot every so often, on a thread of its own, until
+    **   stop() is called.
+    **
+    **   @param periodMillis How often to save one, in milliseconds.
+    **/
+   public synchronized void start(long periodMillis) {
+      this.stop();
+      timer = new Timer("Solar checkpoints", true);
+      timer.scheduleAtFixedRate(new TimerTask() {
+         public void run() {
+            try {
+               checkpoint();
+            } catch (IOException e) {
+               System.err.println("Couldn't save a checkpoint: " + e.getMessage());
+            }
+         }
+      }, periodMillis, periodMillis);
+   }
+
+   /**
+    **   Stops the saving started by start(), waiting for a snapshot being
+    **   saved to be finished.
+    **/
+   public synchronized void stop() {
+      if (timer == null)
+         return;
+      timer.cancel();
+      timer = null;
+   }
+
+   /**
+    **   Saves a snapshot now, on the calling thread.
+    **
+    **   @throws IOException If the snapshot can't be written.
+    **/
+   public synchronized void checkpoint() throws IOException {
+      long start = System.nanoTime();
+      Snapshot.write(path, scene, simulation.getTick(), system.getZoom());
+      lastNanos = System.nanoTime() - start;
+      checkpoints++;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of snapshots saved so far.
+	 */
+   public synchronized long getCheckpoints() {
+      return checkpoints;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return How long the last snapshot took to save, in nanoseconds.
+	 */
+   public synchronized long getLastNanos() {
+      return lastNanos;
+   }
+}
@@ -0,0 +1,186 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class passes everything drawn on to another SolarDisplay, and
+ ** works out a checksum of each frame from the objects drawn in it, so that
+ ** two runs can be checked to have drawn exactly the same thing. The
+ ** checksum depends on the order objects are drawn in, and on the zoom.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class ChecksumDisplay implements SolarDisplay {
+   private SolarDisplay display;
+   // Where every frame's checksum starts from.
+   private static final long START = 0x5EED5EED5EED5EEDL;
+
+   private long checksum = START;
+   private long lastChecksum;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param display The display to pass everything drawn on to.
+    **/
+   public ChecksumDisplay(SolarDisplay display) {
+      this.display = display;
+   }
+
+   public void drawSolarObject(double distance, double angle, double diameter,
+                               String col) {
+      checksum = mix(mix(mix(mix(checksum, 1), distance), angle), diameter);
+      checksum = mix(checksum, col.hashCode());
+      display.drawSolarObject(distance, angle, diameter, col);
+   }
+
+   public void drawSolarObjectAbout(double distance, double angle,
+                                    double diameter, String col,
+                                    double centreOfRotationDistance,
+                                    double centreOfRotationAngle) {
+      checksum = mix(mix(mix(mix(checksum, 2), distance), angle), diameter);
+      checksum = mix(mix(checksum, centreOfRotationDistance), 
+                     centreOfRotationAngle);
+      checksum = mix(checksum, col.hashCode());
+      display.drawSolarObjectAbout(distance, angle, diameter, col, 
+                                   centreOfRotationDistance, 
+                                   centreOfRotationAngle);
+   }
+
+   public void drawSolarObjectAt(double x, double y, double diameter,
+                                 String col) {
+      checksum = mix(mix(mix(mix(checksum, 3), x), y), diameter);
+      checksum = mix(checksum, col.hashCode());
+      display.drawSolarObjectAt(x, y, diameter, col);
+   }
+
+   public void drawSolarObjects(double[] distance, double[] angle,
+                                double[] diameter, int[] colour,
+                                double[] centreOfRotationDistance,
+                                double[] centreOfRotationAngle, int offset,
+                                int count) {
+      for (int i = offset; i < offset + count; i++) {
+         checksum = mix(mix(mix(mix(checksum, 6), distance[i]), angle[i]), 
+                        diameter[i]);
+         if (centreOfRotationDistance != null)
+            checksum = mix(mix(checksum, centreOfRotationDistance[i]), 
+                           centreOfRotationAngle[i]);
+         checksum = mix(checksum, colour[i]);
+      }
+      display.drawSolarObjects(distance, angle, diameter, colour, 
+                               centreOfRotationDistance, 
+                               centreOfRotationAngle, offset, count);
+   }
+
+   public void drawSolarObjectsAt(double[] x, double[] y, double[] diameter,
+                                  int[] colour, int offset, int count) {
+      for (int i = offset; i < offset + count; i++) {
+         checksum = mix(mix(mix(mix(checksum, 7), x[i]), y[i]), diameter[i]);
+         checksum = mix(checksum, colour[i]);
+      }
+      display.drawSolarObjectsAt(x, y, diameter, colour, offset, count);
+   }
+
+   public void drawTrailAt(double[] x, double[] y, int points, String col) {
+      checksum = mix(mix(checksum, 4), points);
+      for (int k = 0; k < points; k++)
+         checksum = mix(mix(checksum, x[k]), y[k]);
+      checksum = mix(checksum, col.hashCode());
+      display.drawTrailAt(x, y, points, col);
+   }
+
+   public void drawPathAt(double[] x, double[] y, int points, String col,
+                          double opacity) {
+      checksum = mix(mix(mix(checksum, 5), points), opacity);
+      for (int k = 0; k < points; k++)
+         checksum = mix(mix(checksum, x[k]), y[k]);
+      checksum = mix(checksum, col.hashCode());
+      display.drawPathAt(x, y, points, col, opacity);
+   }
+
+   /**
+    **   Finishes the frame's checksum, then passes the call on.
+    **/
+   public void finishedDrawing() {
+      lastChecksum = mix(checksum, display.getZoom());
+      checksum = START;
+      display.finishedDrawing();
+   }
+
+   private static long mix(long checksum, double value) {
+      return mix(checksum, Double.doubleToLongBits(value));
+   }
+
+   private static long mix(long checksum, long value) {
+      long h = (checksum ^ value) * 0x9E3779B97F4A7C15L;
+      return h ^ (h >>> 29);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The checksum of the frame last finished.
+	 */
+   public long getChecksum() {
+      return lastChecksum;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The display everything is passed on to.
+	 */
+   public SolarDisplay getDisplay() {
+      return display;
+   }
+
+	public double getZoom() {
+	   return display.getZoom();
+	}
+
+	public int getFocus() {
+	   return display.getFocus();
+	}
+
+   public int getHeight() {
+      return display.getHeight();
+   }
+
+   public int getWidth() {
+      return display.getWidth();
+   }
+
+	public void setZoom(double zoom) {
+	   display.setZoom(zoom);
+	}
+
+	public void setFocus(int focus) {
+	   display.setFocus(focus);
+	}
+
+	public boolean takeClick(double[] result) {
+	   return display.takeClick(result);
+	}
+}
@@ -0,0 +1,133 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class holds one frame's worth of draw commands as parallel primitive
+ ** arrays: the top-left corner and diameter of each object in pixels, and
+ ** its colour as an index into SolarCanvas' palette. Lines (e.g. the
+ ** segments of a trail) are kept the same way, in arrays of their own, with
+ ** an opacity out of 256 apiece. Buffers grow to hold
+ ** as many objects as a frame needs and keep the room for later frames, so
+ ** a steady scene stops allocating after its first few. A buffer is filled
+ ** by one thread and read by another, so it does no locking of its own; see
+ ** SolarCanvas for how buffers are handed over.
+ **/
+
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class DrawBuffer {
+   public float[] x;
+   public float[] y;
+   public float[] diameter;
+   public int[] colour;
+   public int size = 0;
+   public float[] lineX1 = new float[0];
+   public float[] lineY1 = new float[0];
+   public float[] lineX2 = new float[0];
+   public float[] lineY2 = new float[0];
+   public int[] lineColour = new int[0];
+   public int[] lineAlpha = new int[0];
+   public int lines = 0;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param capacity The number of objects to make room for up front.
+    **/
+   public DrawBuffer(int capacity) {
+      capacity = Math.max(capacity, 1);
+      this.x = new float[capacity];
+      this.y = new float[capacity];
+      this.diameter = new float[capacity];
+      this.colour = new int[capacity];
+   }
+
+   /**
+    **   Adds an object to the buffer, making room for it if need be.
+    **/
+   public void add(float x, float y, float diameter, int colour) {
+      if (size == this.x.length)
+         this.grow(size * 2);
+
+      this.x[size] = x;
+      this.y[size] = y;
+      this.diameter[size] = diameter;
+      this.colour[size] = colour;
+      size++;
+   }
+
+   /**
+    **   Makes room for the given number of objects in all, so that a batch
+    **   of them can be added without growing the buffer part way through.
+    **
+    **   @param capacity The number of objects.
+    **/
+   public void ensureCapacity(int capacity) {
+      if (capacity > x.length)
+         this.grow(Math.max(capacity, x.length * 2));
+   }
+
+   /**
+    **   Adds a line to the buffer, making room for it if need be.
+    **/
+   public void addLine(float x1, float y1, float x2, float y2, int colour,
+                       int alpha) {
+      if (lines == lineX1.length)
+         this.growLines(Math.max(lines * 2, 64));
+
+      this.lineX1[lines] = x1;
+      this.lineY1[lines] = y1;
+      this.lineX2[lines] = x2;
+      this.lineY2[lines] = y2;
+      this.lineColour[lines] = colour;
+      this.lineAlpha[lines] = alpha;
+      lines++;
+   }
+
+   private void growLines(int capacity) {
+      lineX1 = Arrays.copyOf(lineX1, capacity);
+      lineY1 = Arrays.copyOf(lineY1, capacity);
+      lineX2 = Arrays.copyOf(lineX2, capacity);
+      lineY2 = Arrays.copyOf(lineY2, capacity);
+      lineColour = Arrays.copyOf(lineColour, capacity);
+      lineAlpha = Arrays.copyOf(lineAlpha, capacity);
+   }
+
+   private void grow(int capacity) {
+      x = Arrays.copyOf(x, capacity);
+      y = Arrays.copyOf(y, capacity);
+      diameter = Arrays.copyOf(diameter, capacity);
+      colour = Arrays.copyOf(colour, capacity);
+   }
+
+   /**
+    **   Empties the buffer, ready for the next frame.
+    **/
+   public void clear() {
+      size = 0;
+      lines = 0;
+   }
+}
@@ -0,0 +1,464 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class answers queries over HTTP about where the named bodies of a
+ ** SolarScene are at any point in time, as JSON, so that other programs can
+ ** find out without running the simulation. Positions are worked out from
+ ** the closed-form orbits kept by the BodyTable, so any time costs the same
+ ** and the table is only ever read.
+ **
+ ** GET /bodies lists the bodies. GET /ephemeris answers, for every body
+ ** named by body and every time given by tick (or year), where the body is
+ ** about its primary (distance and angle) and about Sol (x and y, with Sol
+ ** at the origin and angles measured from the y axis, as drawn). Several
+ ** comma-separated values, or several of each parameter, make a batch of
+ ** every body at every time; leaving out body queries every body. The same
+ ** parameters may be POSTed, form-encoded, for batches too long for a URL.
+ **
+ **   GET /ephemeris?body=Ganymede,Io&tick=0,100.5
+ **   {"results":[{"body":"Ganymede","primary":"Jupiter","tick":0.0,
+ **                "distance":...,"angle":...,"x":...,"y":...},...]}
+ **
+ ** Distances are in the (unscaled) units of the BodyTable. Positions ignore
+ ** N-body mode, which has no closed form.
+ **
+ ** Each request is handled on a virtual thread of its own where the Java
+ ** runtime has them, found by reflection so that the program still builds
+ ** and runs on older runtimes; there, requests are handled on a fixed pool
+ ** of POOL_THREADS_PER_CORE threads a core instead.
+ **/
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class EphemerisService {
+   /** The most results a single query may ask for. */
+   public static final int MAX_RESULTS = 100000;
+   /** The most bytes of parameters a query may POST. */
+   public static final int MAX_REQUEST_BYTES = 1 << 20;
+   /** Threads a core to handle requests on without virtual threads. */
+   public static final int POOL_THREADS_PER_CORE = 2;
+   // Connections that may wait to be accepted.
+   private static final int BACKLOG = 1024;
+   // The JDK's HTTP server otherwise leaves Nagle's algorithm on, which
+   // holds each small response back until the client's delayed ACK (tens of
+   // milliseconds). Only read when the first server is made.
+   private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+   private final BodyTable bodies;
+   private final double ticksPerYear;
+   // Every named body, by its name in lower case, and in the order listed.
+   private final Map<String, Satellite> byName = new HashMap<String, Satellite>();
+   private final Satellite[] named;
+   private final String[] primaryNames;
+   private final HttpServer server;
+   private final ExecutorService executor;
+   private final boolean virtual;
+   private final LongAdder queries = new LongAdder();
+   private final LongAdder results = new LongAdder();
+   private final LongAdder failures = new LongAdder();
+
+   /**
+    **   Constructor method. Binds to the port, on the loopback address only,
+    **   but answers nothing until start() is called.
+    **
+    **   @param scene The scene whose named bodies to answer for.
+    **   @param yearsPerTick How many years a tick of the simulation is, to
+    **   turn years into ticks.
+    **   @param port The port to listen on, or 0 for any free one.
+    **   @throws IOException if the port can't be listened on.
+    **/
+   public EphemerisService(SolarScene scene, double yearsPerTick, int port) 
+      throws IOException {
+      this.bodies = scene.getBodies();
+      this.ticksPerYear = 1 / yearsPerTick;
+      List<Satellite> all = new ArrayList<Satellite>();
+      for (Satellite[] group : new Satellite[][] {scene.getPlanets(), 
+                                                  scene.getDwarfPlanets(),
+                                                  scene.getMoons()})
+         for (Satellite body : group) {
+            all.add(body);
+            byName.put(body.getName().toLowerCase(), body);
+         }
+      this.named = all.toArray(new Satellite[all.size()]);
+      // Rows of named bodies, so their primaries' names can be looked up.
+      String[] rowNames = new String[bodies.size()];
+      for (Satellite body : named)
+         rowNames[body.getIndex()] = body.getName();
+      this.primaryNames = new String[bodies.size()];
+      for (Satellite body : named) {
+         int primary = bodies.getPrimary(body.getIndex());
+         primaryNames[body.getIndex()] = primary == BodyTable.NO_PRIMARY 
+                                         ? scene.getCentre().getName()
+                                         : rowNames[primary];
+      }
+
+      ExecutorService virtualThreads = newVirtualThreadExecutor();
+      this.virtual = virtualThreads != null;
+      this.executor = virtual ? virtualThreads : newPool();
+      if (System.getProperty(NO_DELAY) == null)
+         System.setProperty(NO_DELAY, "true");
+      this.server = HttpServer.create(new InetSocketAddress(
+         InetAddress.getLoopbackAddress(), port), BACKLOG);
+      server.setExecutor(executor);
+      server.createContext("/bodies", new HttpHandler() {
+         public void handle(HttpExchange exchange) throws IOException {
+            respond(exchange, false);
+         }
+      });
+      server.createContext("/ephemeris", new HttpHandler() {
+         public void handle(HttpExchange exchange) throws IOException {
+            respond(exchange, true);
+         }
+      });
+   }
+
+   // Makes an executor starting a virtual thread per task, or returns null
+   // if the runtime has no virtual threads (or they aren't enabled).
+   private static ExecutorService newVirtualThreadExecutor() {
+      try {
+         Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) factory.invoke(null);
+      } catch (ReflectiveOperationException e) {
+         return null;
+      } catch (UnsupportedOperationException e) {
+         return null;
+      }
+   }
+
+   private static ExecutorService newPool() {
+      return Executors.newFixedThreadPool(
+         POOL_THREADS_PER_CORE * Runtime.getRuntime().availableProcessors(),
+         new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            public Thread newThread(Runnable task) {
+               Thread thread = new Thread(task, "Solar ephemeris " + 
+                                                count.incrementAndGet());
+               thread.setDaemon(true);
+               return thread;
+            }
+         });
+   }
+
+   /**
+    **   Starts answering queries.
+    **/
+   public void start() {
+      server.start();
+   }
+
+   /**
+    **   Stops answering queries, waiting up to a second for those being
+    **   answered.
+    **/
+   public void stop() {
+      server.stop(1);
+      executor.shutdown();
+      try {
+         executor.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   // Answers a request for the body list or for ephemerides.
+   private void respond(HttpExchange exchange, boolean ephemeris) 
+      throws IOException {
+      int status = 200;
+      String json;
+      try {
+         String method = exchange.getRequestMethod();
+         if (!method.equals("GET") && !method.equals("POST") && 
+             !method.equals("HEAD")) {
+            status = 405;
+            exchange.getResponseHeaders().set("Allow", "GET, POST, HEAD");
+            json = error("Unsupported method " + method);
+         } else if (!exchange.getRequestURI().getPath().equals(
+                       exchange.getHttpContext().getPath())) {
+            status = 404;
+            json = error("No such resource " + exchange.getRequestURI().getPath());
+         } else if (ephemeris) {
+            String parameters = exchange.getRequestURI().getRawQuery();
+            if (method.equals("POST")) {
+               String posted = readBody(exchange.getRequestBody());
+               parameters = parameters == null ? posted 
+                                               : parameters + "&" + posted;
+            }
+            json = this.query(parameters);
+         } else
+            json = this.listBodies();
+      } catch (IllegalArgumentException e) {
+         status = 400;
+         json = error(e.getMessage());
+      }
+      if (status == 200)
+         queries.increment();
+      else
+         failures.increment();
+
+      byte[] response = json.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", 
+                                        "application/json; charset=utf-8");
+      boolean head = exchange.getRequestMethod().equals("HEAD");
+      exchange.sendResponseHeaders(status, head ? -1 : response.length);
+      if (!head) {
+         OutputStream out = exchange.getResponseBody();
+         out.write(response);
+      }
+      exchange.close();
+   }
+
+   private static String readBody(InputStream in) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int read; (read = in.read(buffer)) >= 0; ) {
+         if (bytes.size() + read > MAX_REQUEST_BYTES)
+            throw new IllegalArgumentException("More than " + MAX_REQUEST_BYTES +
+                                               " bytes of parameters");
+         bytes.write(buffer, 0, read);
+      }
+      return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+   }
+
+   /**
+    **   Lists the bodies that can be queried, as JSON: each one's name, the
+    **   name of its primary, and its orbit's distance, eccentricity and
+    **   period in ticks (null if it doesn't move).
+    **
+    **   @return The list.
+    **/
+   public String listBodies() {
+      StringBuilder json = new StringBuilder(named.length * 96);
+      json.append("{\"bodies\":[");
+      for (int k = 0; k < named.length; k++) {
+         int i = named[k].getIndex();
+         if (k > 0)
+            json.append(',');
+         json.append("{\"name\":");
+         appendString(json, named[k].getName());
+         json.append(",\"primary\":");
+         appendString(json, primaryNames[i]);
+         json.append(",\"distance\":").append(bodies.getDistance(i))
+             .append(",\"eccentricity\":").append(bodies.getEccentricity(i))
+             .append(",\"period\":");
+         // A body that doesn't move has no period.
+         double speed = Math.abs(bodies.getSpeed(i));
+         if (speed == 0)
+            json.append("null");
+         else
+            json.append(360 / speed);
+         json.append('}');
+      }
+      return json.append("]}").toString();
+   }
+
+   /**
+    **   Answers an ephemeris query.
+    **
+    **   @param parameters The query's parameters, form-encoded (as in a URL):
+    **   body, tick and year, each a comma-separated list and each possibly
+    **   repeated. May be null.
+    **   @return The positions of every body asked for at every time asked
+    **   for, as JSON.
+    **   @throws IllegalArgumentException if the query is malformed, names a
+    **   body that doesn't exist or asks for more than MAX_RESULTS results.
+    **/
+   public String query(String parameters) {
+      List<Satellite> asked = new ArrayList<Satellite>();
+      List<Double> ticks = new ArrayList<Double>();
+      if (parameters != null)
+         for (String parameter : parameters.split("&")) {
+            if (parameter.isEmpty())
+               continue;
+            int equals = parameter.indexOf('=');
+            if (equals < 0)
+               throw new IllegalArgumentException("No value for " + parameter);
+            String name = decode(parameter.substring(0, equals));
+            for (String value : decode(parameter.substring(equals + 1)).split(",")) {
+               value = value.trim();
+               if (name.equals("body")) {
+                  Satellite body = byName.get(value.toLowerCase());
+                  if (body == null)
+                     throw new IllegalArgumentException("No such body " + value);
+                  asked.add(body);
+               } else if (name.equals("tick"))
+                  ticks.add(parseTime(value));
+               else if (name.equals("year"))
+                  ticks.add(parseTime(value) * ticksPerYear);
+               else
+                  throw new IllegalArgumentException("Unknown parameter " + name);
+            }
+         }
+      if (ticks.isEmpty())
+         throw new IllegalArgumentException("No tick or year given");
+      Satellite[] targets = asked.isEmpty() ? named 
+                            : asked.toArray(new Satellite[asked.size()]);
+      if ((long) targets.length * ticks.size() > MAX_RESULTS)
+         throw new IllegalArgumentException("More than " + MAX_RESULTS + 
+                                            " results asked for");
+
+      double[] position = new double[2];
+      StringBuilder json = new StringBuilder(targets.length * ticks.size() * 128);
+      json.append("{\"results\":[");
+      boolean first = true;
+      for (Satellite body : targets) {
+         int i = body.getIndex();
+         for (double t : ticks) {
+            if (!first)
+               json.append(',');
+            first = false;
+            // Adds up where each primary in turn is about its own.
+            bodies.getTruePositionAt(i, t, position);
+            double distance = position[0];
+            double angle = position[1];
+            double x = 0;
+            double y = 0;
+            for (int row = i; row != BodyTable.NO_PRIMARY; 
+                 row = bodies.getPrimary(row)) {
+               if (row != i)
+                  bodies.getTruePositionAt(row, t, position);
+               double theta = Math.toRadians(position[1]);
+               x += position[0] * Math.sin(theta);
+               y += position[0] * Math.cos(theta);
+            }
+            json.append("{\"body\":");
+            appendString(json, body.getName());
+            json.append(",\"primary\":");
+            appendString(json, primaryNames[i]);
+            json.append(",\"tick\":").append(t)
+                .append(",\"distance\":").append(distance)
+                .append(",\"angle\":").append(angle)
+                .append(",\"x\":").append(x)
+                .append(",\"y\":").append(y)
+                .append('}');
+         }
+      }
+      results.add((long) targets.length * ticks.size());
+      return json.append("]}").toString();
+   }
+
+   private static String decode(String value) {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8);
+   }
+
+   private static double parseTime(String value) {
+      double time;
+      try {
+         time = Double.parseDouble(value);
+      } catch (NumberFormatException e) {
+         throw new IllegalArgumentException("Not a time: " + value);
+      }
+      if (Double.isNaN(time) || Double.isInfinite(time))
+         throw new IllegalArgumentException("Not a time: " + value);
+      return time;
+   }
+
+   private static String error(String message) {
+      StringBuilder json = new StringBuilder("{\"error\":");
+      appendString(json, message);
+      return json.append('}').toString();
+   }
+
+   // Appends a string as a JSON string literal.
+   private static void appendString(StringBuilder json, String value) {
+      json.append('"');
+      for (int k = 0; k < value.length(); k++) {
+         char c = value.charAt(k);
+         if (c == '"' || c == '\\')
+            json.append('\\').append(c);
+         else if (c < 0x20)
+            json.append(String.format("\\u%04x", (int) c));
+         else
+            json.append(c);
+      }
+      json.append('"');
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The port being listened on.
+	 */
+   public int getPort() {
+      return server.getAddress().getPort();
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return Whether requests are handled on virtual threads.
+	 */
+   public boolean isVirtual() {
+      return virtual;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of requests answered successfully.
+	 */
+   public long getQueries() {
+      return queries.sum();
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of positions worked out, over all requests.
+	 */
+   public long getResults() {
+      return results.sum();
+   }
+
+   public String toString() {
+      return String.format("ephemeris service: %d queries (%d results), %d " +
+                           "failed, on %s", queries.sum(), results.sum(), 
+                           failures.sum(), 
+                           virtual ? "virtual threads" : "a thread pool");
+   }
+}
@@ -0,0 +1,215 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class writes frames out to numbered image files, encoding them on a
+ ** pool of threads so that drawing the next frame needn't wait for the last
+ ** to be written. Each frame is copied into one of a fixed number of
+ ** buffers, which go back to be reused once the frame is written; when all
+ ** of them are waiting to be written, submit() blocks until one is free.
+ ** The frames drawn ahead of the disk (and the memory they take up) are so
+ ** kept within bounds, and an export runs as fast as the slower of drawing
+ ** and encoding allows.
+ **
+ ** Frames can be written as PNG, or as raw RGBA: four bytes a pixel, in
+ ** rows from the top, with no header, which is far quicker to write and can
+ ** be read by e.g. ffmpeg -f rawvideo -pix_fmt rgba.
+ **/
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class FrameExporter {
+   /** The formats frames can be written in. */
+   public enum Format {PNG, RGBA}
+
+   private Path directory;
+   private Format format;
+   private int width;
+   private int height;
+   private ExecutorService encoders;
+   private BlockingQueue<Frame> free;
+   private AtomicLong bytesWritten = new AtomicLong();
+   private volatile IOException failure = null;
+   private long submitted = 0;
+
+   /**
+    **   Constructor method. Creates the directory if it doesn't exist.
+    **
+    **   @param directory The directory to write the frames to.
+    **   @param format The format to write them in.
+    **   @param width The width of every frame, in pixels.
+    **   @param height The height of every frame, in pixels.
+    **   @param threads The number of threads to encode frames on.
+    **   @param buffers The most frames to hold at once, waiting to be (or
+    **   being) written. At least threads, for every thread to be kept busy.
+    **   @throws IOException If the directory can't be created.
+    **/
+   public FrameExporter(Path directory, Format format, int width, int height,
+                        int threads, int buffers) throws IOException {
+      if (threads < 1 || buffers < 1)
+         throw new IllegalArgumentException("Need at least one thread and buffer");
+      Files.createDirectories(directory);
+      this.directory = directory;
+      this.format = format;
+      this.width = width;
+      this.height = height;
+      this.encoders = Executors.newFixedThreadPool(threads);
+      this.free = new ArrayBlockingQueue<Frame>(buffers);
+      for (int i = 0; i < buffers; i++)
+         free.add(new Frame());
+   }
+
+   /**
+    **   Copies a frame and has it written out, waiting for a buffer to copy
+    **   it into if all are in use.
+    **
+    **   @param image The frame, of the exporter's size. Only its pixels are
+    **   read, and the image can be drawn over again as soon as this returns.
+    **   @return The number of the frame, as in its file name.
+    **   @throws IOException If an earlier frame couldn't be written.
+    **   @throws InterruptedException If interrupted while waiting for a
+    **   buffer.
+    **/
+   public long submit(BufferedImage image) 
+      throws IOException, InterruptedException {
+      if (image.getWidth() != width || image.getHeight() != height)
+         throw new IllegalArgumentException("Frames must be " + width + "x" + 
+                                            height);
+      this.checkFailure();
+      final Frame frame = free.take();
+      frame.number = submitted++;
+      if (image.getRaster().getDataBuffer() instanceof DataBufferInt && 
+          image.getType() == frame.image.getType())
+         System.arraycopy(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0,
+                          frame.pixels, 0, frame.pixels.length);
+      else
+         image.getRGB(0, 0, width, height, frame.pixels, 0, width);
+      encoders.execute(new Runnable() {
+         public void run() {
+            try {
+               write(frame);
+            } catch (IOException e) {
+               failure = e;
+            } finally {
+               free.add(frame);
+            }
+         }
+      });
+      return frame.number;
+   }
+
+   /**
+    **   Waits for every frame submitted to be written, and stops the
+    **   encoding threads.
+    **
+    **   @throws IOException If a frame couldn't be written.
+    **   @throws InterruptedException If interrupted while waiting.
+    **/
+   public void close() throws IOException, InterruptedException {
+      encoders.shutdown();
+      while (!encoders.awaitTermination(1, TimeUnit.SECONDS))
+         ;
+      this.checkFailure();
+   }
+
+   private void checkFailure() throws IOException {
+      IOException failure = this.failure;
+      if (failure != null)
+         throw new IOException("Couldn't write a frame: " + failure.getMessage(), 
+                               failure);
+   }
+
+   // Runs on an encoding thread.
+   private void write(Frame frame) throws IOException {
+      Path file = directory.resolve(String.format("frame-%06d.%s", frame.number,
+                                                  format.name().toLowerCase()));
+      if (format == Format.PNG) {
+         ImageIO.write(frame.image, "png", file.toFile());
+      } else {
+         if (frame.bytes == null)
+            frame.bytes = ByteBuffer.allocateDirect(width * height * 4);
+         ByteBuffer bytes = frame.bytes;
+         bytes.clear();
+         for (int argb : frame.pixels)
+            bytes.putInt((argb << 8) | (argb >>> 24));
+         bytes.flip();
+         try (FileChannel channel = FileChannel.open(file, 
+                                                     StandardOpenOption.CREATE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING,
+                                                     StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining())
+               channel.write(bytes);
+         }
+      }
+      bytesWritten.addAndGet(Files.size(file));
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of frames submitted so far.
+	 */
+   public long getSubmitted() {
+      return submitted;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bytes written out so far.
+	 */
+   public long getBytesWritten() {
+      return bytesWritten.get();
+   }
+
+   /**
+    ** A buffer holding a frame waiting to be (or being) written.
+    **/
+   private class Frame {
+      final BufferedImage image = new BufferedImage(width, height, 
+                                                    BufferedImage.TYPE_INT_ARGB);
+      final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+                              .getData();
+      // Only allocated for raw RGBA.
+      ByteBuffer bytes;
+      long number;
+   }
+}
@@ -0,0 +1,164 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class times the phases each frame goes through: moving the bodies,
+ ** building the draw commands, rasterizing them, and blitting the result to
+ ** the screen. It can register itself (and a PhaseStats per phase) with the
+ ** platform's MBean server, so the numbers can be watched over JMX, and can
+ ** log a summary line at a fixed interval.
+ **
+ ** The phases needn't all run on the same thread, but each one must only run
+ ** on one thread at a time.
+ **/
+
+import java.lang.management.ManagementFactory;
+import java.util.Timer;
+import java.util.TimerTask;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class FrameMetrics implements FrameMetricsMBean {
+   /** The name the metrics are registered under. */
+   public static final String OBJECT_NAME = "Solar:type=FrameMetrics";
+
+   /** The phases of a frame. */
+   public enum Phase {UPDATE, BUILD, RASTER, BLIT}
+
+   private FramePacer pacer;
+   private PhaseStats[] phases = new PhaseStats[Phase.values().length];
+   private Timer timer;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param pacer Where to get the frame counts from, or null if frames
+    **   aren't paced.
+    **/
+   public FrameMetrics(FramePacer pacer) {
+      this.pacer = pacer;
+      for (Phase phase : Phase.values())
+         phases[phase.ordinal()] = new PhaseStats(phase.name().toLowerCase());
+   }
+
+   /**
+    **   Marks the start of a run of a phase.
+    **
+    **   @param phase The phase.
+    **/
+   public void begin(Phase phase) {
+      phases[phase.ordinal()].begin();
+   }
+
+   /**
+    **   Marks the end of the run of a phase started by the last begin().
+    **
+    **   @param phase The phase.
+    **/
+   public void end(Phase phase) {
+      phases[phase.ordinal()].end();
+   }
+
+   /**
+    **   Registers these metrics, and those of each phase, with the platform's
+    **   MBean server.
+    **
+    **   @throws JMException if they can't be registered, e.g. because some
+    **   already have been.
+    **/
+   public void register() throws JMException {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.registerMBean(this, new ObjectName(OBJECT_NAME));
+      for (PhaseStats phase : phases)
+         server.registerMBean(phase, new ObjectName(OBJECT_NAME + ",phase=" + 
+                                                    phase.getName()));
+   }
+
+   /**
+    **   Prints getSummary() to System.out at a fixed interval, on a thread of
+    **   its own, until stopLogging() is called.
+    **
+    **   @param periodMillis How often to print it, in milliseconds.
+    **/
+   public synchronized void startLogging(long periodMillis) {
+      this.stopLogging();
+      timer = new Timer("Solar metrics", true);
+      timer.scheduleAtFixedRate(new TimerTask() {
+         public void run() {
+            System.out.println(getSummary());
+         }
+      }, periodMillis, periodMillis);
+   }
+
+   /**
+    **   Stops the printing started by startLogging().
+    **/
+   public synchronized void stopLogging() {
+      if (timer == null)
+         return;
+      timer.cancel();
+      timer = null;
+   }
+
+   public void reset() {
+      for (PhaseStats phase : phases)
+         phase.reset();
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param phase The phase.
+	 * @return The times taken by the phase.
+	 */
+   public PhaseStats getPhase(Phase phase) {
+      return phases[phase.ordinal()];
+   }
+
+   public long getFrames() {
+      return pacer == null ? 0 : pacer.getFrames();
+   }
+
+   public long getDroppedFrames() {
+      return pacer == null ? 0 : pacer.getDroppedFrames();
+   }
+
+   public String getSummary() {
+      StringBuilder summary = new StringBuilder();
+      summary.append(String.format("%d frames, %d dropped", getFrames(), 
+                                   getDroppedFrames()));
+      for (PhaseStats phase : phases)
+         if (phase.getCount() > 0)
+            summary.append("; ").append(phase);
+      return summary.toString();
+   }
+
+   public String toString() {
+      return this.getSummary();
+   }
+}
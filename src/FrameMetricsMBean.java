@@ -0,0 +1,54 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** The management interface of a FrameMetrics, through which JMX clients
+ ** (e.g. JConsole) can see how frames are being drawn. The time taken by
+ ** each phase is under a PhaseStatsMBean of its own.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public interface FrameMetricsMBean {
+   /**
+    **   @return The number of frames drawn (or being drawn).
+    **/
+   long getFrames();
+
+   /**
+    **   @return The number of frame slots missed because drawing overran.
+    **/
+   long getDroppedFrames();
+
+   /**
+    **   @return A line summing up every phase, as logged.
+    **/
+   String getSummary();
+
+   /**
+    **   Starts timing every phase again from nothing.
+    **/
+   void reset();
+}
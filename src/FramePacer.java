@@ -0,0 +1,130 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class paces the drawing of frames to a fixed rate, normally the
+ ** display's refresh rate. If drawing a frame overruns, the frames whose
+ ** slots were missed are dropped rather than drawn late, so the frame rate
+ ** degrades under load without the display lagging behind the simulation.
+ **/
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class FramePacer {
+   /** The refresh rate assumed when the display's can't be found out. */
+   public static final int DEFAULT_REFRESH_RATE = 60;
+
+   private long frameNanos;
+   private long next = -1;
+   // Only counted by the thread drawing the frames, but read from others.
+   private volatile long frames = 0;
+   private volatile long droppedFrames = 0;
+   private JitterStats jitter = new JitterStats("frames");
+
+   /**
+    **   Constructor method.
+    **
+    **   @param framesPerSecond How many frames to allow a second, or 0 to not
+    **   pace frames at all.
+    **/
+   public FramePacer(double framesPerSecond) {
+      this.frameNanos = framesPerSecond > 0 ? (long) (1e9 / framesPerSecond) : 0;
+   }
+
+   /**
+    **   Finds out how often the default screen refreshes.
+    **
+    **   @return The refresh rate in Hz, or DEFAULT_REFRESH_RATE if it isn't
+    **   known (or there is no screen).
+    **/
+   public static int getDisplayRefreshRate() {
+      if (GraphicsEnvironment.isHeadless())
+         return DEFAULT_REFRESH_RATE;
+
+      DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                            .getDefaultScreenDevice()
+                                            .getDisplayMode();
+      if (mode.getRefreshRate() == DisplayMode.REFRESH_RATE_UNKNOWN)
+         return DEFAULT_REFRESH_RATE;
+      return mode.getRefreshRate();
+   }
+
+   /**
+    **   Waits until it is time to draw the next frame. If one or more frame
+    **   slots have already passed, they are counted as dropped and this
+    **   returns straight away.
+    **/
+   public void awaitFrame() {
+      frames++;
+      if (frameNanos == 0)
+         return;
+
+      long now = System.nanoTime();
+      if (next < 0)
+         next = now;
+
+      if (now - next >= frameNanos) {
+         long missed = (now - next) / frameNanos;
+         droppedFrames += missed;
+         next += missed * frameNanos;
+      }
+      while (now < next) {
+         LockSupport.parkNanos(next - now);
+         now = System.nanoTime();
+      }
+      jitter.record(now - next);
+      next += frameNanos;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of frames drawn (or being drawn).
+	 */
+   public long getFrames() {
+      return frames;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of frame slots missed because drawing overran.
+	 */
+   public long getDroppedFrames() {
+      return droppedFrames;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return How late frames have started compared to their slots.
+	 */
+   public JitterStats getJitter() {
+      return jitter;
+   }
+}
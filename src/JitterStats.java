@@ -0,0 +1,104 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class keeps running statistics of how late a periodic event (a
+ ** simulation tick or a frame) happened compared to when it was scheduled.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class JitterStats {
+   private String name;
+   private long count = 0;
+   private double mean = 0;
+   // Sum of squared differences from the mean (Welford's method).
+   private double m2 = 0;
+   private long max = 0;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param name What is being measured, for toString().
+    **/
+   public JitterStats(String name) {
+      this.name = name;
+   }
+
+   /**
+    **   Records one event.
+    **
+    **   @param latenessNanos How long after its scheduled time the event
+    **   happened, in nanoseconds.
+    **/
+   public synchronized void record(long latenessNanos) {
+      count++;
+      double delta = latenessNanos - mean;
+      mean += delta / count;
+      m2 += delta * (latenessNanos - mean);
+      max = Math.max(max, latenessNanos);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of events recorded.
+	 */
+   public synchronized long getCount() {
+      return count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The mean lateness, in nanoseconds.
+	 */
+   public synchronized double getMean() {
+      return mean;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The standard deviation of the lateness, in nanoseconds.
+	 */
+   public synchronized double getStandardDeviation() {
+      return count < 2 ? 0 : Math.sqrt(m2 / (count - 1));
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The greatest lateness, in nanoseconds.
+	 */
+   public synchronized long getMax() {
+      return max;
+   }
+
+   public synchronized String toString() {
+      return String.format("%s: %d, lateness mean %.3fms, stddev %.3fms, " +
+                           "max %.3fms", name, count, mean / 1e6,
+                           getStandardDeviation() / 1e6, max / 1e6);
+   }
+}
@@ -0,0 +1,334 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class works out where bodies on elliptical (and inclined) orbits
+ ** are. A body's angle in its BodyTable is treated as its mean anomaly, which
+ ** grows at a constant rate; Kepler's equation M = E - e sin E then gives the
+ ** eccentric anomaly E, and from that the body's true distance and angle.
+ **
+ ** The orbital elements of every elliptical body are packed into arrays of
+ ** their own, and the equation is solved for all of them at once with a
+ ** fixed number of Newton iterations and no convergence test, so each step
+ ** is a tight loop over the whole batch and a tick costs the same every time.
+ ** Each body starts from an upper bound on E, so Newton's method closes in on
+ ** it from above without overshooting, and ITERATIONS keeps the residual of
+ ** Kepler's equation within 1e-15 radians for every eccentricity below 1.
+ **
+ ** The view is of the plane of the primary's equator (or the ecliptic), with
+ ** each orbit's ascending node taken to be at angle 0. An inclination above
+ ** 90 degrees mirrors the orbit, so retrograde bodies go round backwards.
+ **/
+
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class KeplerSolver {
+   /** The number of Newton iterations applied to every body. */
+   public static final int ITERATIONS = 6;
+
+   private int count = 0;
+   private int[] rows;
+   private double[] eccentricity;
+   private double[] inclination;
+   private double[] periapsis;
+   // Derived from the elements above, so the batch loop needn't.
+   private double[] cosInclination;
+   private double[] sqrtOneMinusE;
+   private double[] sqrtOnePlusE;
+   // Scratch space for solve().
+   private double[] meanAnomaly;
+   private double[] eccentricAnomaly;
+
+   /**
+    **   Constructor method.
+    **/
+   public KeplerSolver() {
+      this.resize(8);
+   }
+
+   /**
+    **   Makes room for the given number of bodies without growing again.
+    **
+    **   @param capacity The number of bodies.
+    **/
+   public void ensureCapacity(int capacity) {
+      if (capacity > rows.length)
+         this.resize(Math.max(capacity, rows.length * 2));
+   }
+
+   private void resize(int capacity) {
+      rows = Arrays.copyOf(rows == null ? new int[0] : rows, capacity);
+      eccentricity = copy(eccentricity, capacity);
+      inclination = copy(inclination, capacity);
+      periapsis = copy(periapsis, capacity);
+      cosInclination = copy(cosInclination, capacity);
+      sqrtOneMinusE = copy(sqrtOneMinusE, capacity);
+      sqrtOnePlusE = copy(sqrtOnePlusE, capacity);
+      meanAnomaly = new double[capacity];
+      eccentricAnomaly = new double[capacity];
+   }
+
+   private static double[] copy(double[] array, int capacity) {
+      return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+   }
+
+   /**
+    **   Adds a body to the batch, or changes its elements if already there.
+    **
+    **   @param slot The body's slot, as returned by an earlier call, or -1.
+    **   @param row The body's row in the BodyTable.
+    **   @param e The orbit's eccentricity, in [0, 1).
+    **   @param inclination The orbit's inclination, in degrees.
+    **   @param periapsis The orbit's argument of periapsis, in degrees.
+    **   @return The body's slot.
+    **/
+   public int set(int slot, int row, double e, double inclination,
+                  double periapsis) {
+      if (e < 0 || e >= 1)
+         throw new IllegalArgumentException("Not an elliptical orbit: e = " + e);
+      if (slot < 0) {
+         if (count == rows.length)
+            this.resize(count * 2);
+         slot = count++;
+      }
+      this.rows[slot] = row;
+      this.eccentricity[slot] = e;
+      this.inclination[slot] = inclination;
+      this.periapsis[slot] = periapsis;
+      this.cosInclination[slot] = Math.cos(Math.toRadians(inclination));
+      this.sqrtOneMinusE[slot] = Math.sqrt(1 - e);
+      this.sqrtOnePlusE[slot] = Math.sqrt(1 + e);
+      return slot;
+   }
+
+   /**
+    **   Takes a body out of the batch. The last body in the batch is moved
+    **   into its slot.
+    **
+    **   @param slot The body's slot.
+    **   @return The row of the body now in that slot, or -1 if the removed
+    **   body was the last one.
+    **/
+   public int remove(int slot) {
+      int last = --count;
+      if (slot == last)
+         return -1;
+      rows[slot] = rows[last];
+      eccentricity[slot] = eccentricity[last];
+      inclination[slot] = inclination[last];
+      periapsis[slot] = periapsis[last];
+      cosInclination[slot] = cosInclination[last];
+      sqrtOneMinusE[slot] = sqrtOneMinusE[last];
+      sqrtOnePlusE[slot] = sqrtOnePlusE[last];
+      return rows[slot];
+   }
+
+   /**
+    **   Works out the true position of every body in the batch.
+    **
+    **   @param angle The mean anomalies of the bodies, in degrees, by row.
+    **   @param distance The semi-major axes of the bodies, by row.
+    **   @param trueDistance Where to put the distances of the bodies from their
+    **   primaries, by row.
+    **   @param trueAngle Where to put the angles of the bodies about their
+    **   primaries, in degrees, by row.
+    **/
+   public void solve(double[] angle, double[] distance, double[] trueDistance,
+                     double[] trueAngle) {
+      this.solve(0, count, angle, distance, trueDistance, trueAngle);
+   }
+
+   /**
+    **   Works out the true position of a range of the bodies in the batch.
+    **   Different ranges may be solved at the same time on different threads,
+    **   as long as they don't overlap.
+    **
+    **   @param from The slot of the first body.
+    **   @param to One past the slot of the last body.
+    **   @param angle The mean anomalies of the bodies, in degrees, by row.
+    **   @param distance The semi-major axes of the bodies, by row.
+    **   @param trueDistance Where to put the distances of the bodies from their
+    **   primaries, by row.
+    **   @param trueAngle Where to put the angles of the bodies about their
+    **   primaries, in degrees, by row.
+    **/
+   public void solve(int from, int to, double[] angle, double[] distance, 
+                     double[] trueDistance, double[] trueAngle) {
+      double[] e = this.eccentricity;
+      double[] m = this.meanAnomaly;
+      double[] ea = this.eccentricAnomaly;
+
+      for (int k = from; k < to; k++) {
+         m[k] = Math.IEEEremainder(Math.toRadians(angle[rows[k]]), 2 * Math.PI);
+         ea[k] = startingGuess(m[k], e[k]);
+      }
+      for (int n = 0; n < ITERATIONS; n++)
+         for (int k = from; k < to; k++)
+            ea[k] -= (ea[k] - e[k] * Math.sin(ea[k]) - m[k]) /
+                     (1 - e[k] * Math.cos(ea[k]));
+      for (int k = from; k < to; k++) {
+         int row = rows[k];
+         this.place(k, ea[k], distance[row], trueDistance, row, trueAngle, row);
+      }
+   }
+
+   /**
+    **   Works out the true position of one body in the batch.
+    **
+    **   @param slot The body's slot.
+    **   @param meanAnomaly The body's mean anomaly, in degrees.
+    **   @param distance The semi-major axis of the body's orbit.
+    **   @param result Where to put the distance (element 0) and angle in
+    **   degrees (element 1) of the body about its primary.
+    **/
+   public void solve(int slot, double meanAnomaly, double distance,
+                     double[] result) {
+      double ea = this.eccentricAnomaly(slot, Math.toRadians(meanAnomaly));
+      this.place(slot, ea, distance, result, 0, result, 1);
+   }
+
+   /**
+    **   Works out how far round its orbit from periapsis one body in the
+    **   batch is, in the plane of the orbit.
+    **
+    **   @param slot The body's slot.
+    **   @param meanAnomaly The body's mean anomaly, in degrees.
+    **   @return The body's true anomaly, in degrees.
+    **/
+   public double getTrueAnomaly(int slot, double meanAnomaly) {
+      double ea = this.eccentricAnomaly(slot, Math.toRadians(meanAnomaly));
+      return BodyTable.normalizeAngle(Math.toDegrees(this.trueAnomaly(slot, ea)));
+   }
+
+   // Solves Kepler's equation for one body.
+   private double eccentricAnomaly(int slot, double m) {
+      double e = eccentricity[slot];
+      m = Math.IEEEremainder(m, 2 * Math.PI);
+      double ea = startingGuess(m, e);
+      for (int n = 0; n < ITERATIONS; n++)
+         ea -= (ea - e * Math.sin(ea) - m) / (1 - e * Math.cos(ea));
+      return ea;
+   }
+
+   /**
+    **   Works out where on its orbit a body in the batch is at a given
+    **   eccentric anomaly, e.g. to trace the whole orbit out.
+    **
+    **   @param slot The body's slot.
+    **   @param eccentricAnomaly The eccentric anomaly, in degrees.
+    **   @param distance The semi-major axis of the body's orbit.
+    **   @param result Where to put the distance (element 0) and angle in
+    **   degrees (element 1) of that point about the body's primary.
+    **/
+   public void getPointAt(int slot, double eccentricAnomaly, double distance,
+                          double[] result) {
+      this.place(slot, Math.toRadians(eccentricAnomaly), distance, result, 0, 
+                 result, 1);
+   }
+
+   // Turns an eccentric anomaly into a distance and angle, and stores them at
+   // trueDistance[distanceAt] and trueAngle[angleAt].
+   private void place(int k, double ea, double distance, double[] trueDistance,
+                      int distanceAt, double[] trueAngle, int angleAt) {
+      double e = eccentricity[k];
+      double r = distance * (1 - e * Math.cos(ea));
+      double theta = this.trueAnomaly(k, ea) + Math.toRadians(periapsis[k]);
+      // The line of nodes lies along angle 0 and stays full length; only
+      // the part of the orbit across it is foreshortened.
+      double u = r * Math.sin(theta) * cosInclination[k];
+      double v = r * Math.cos(theta);
+      trueDistance[distanceAt] = Math.sqrt(u * u + v * v);
+      trueAngle[angleAt] = BodyTable.normalizeAngle(Math.toDegrees(Math.atan2(u, v)));
+   }
+
+   // Turns an eccentric anomaly into a true anomaly, both in radians.
+   private double trueAnomaly(int k, double ea) {
+      return 2 * Math.atan2(sqrtOnePlusE[k] * Math.sin(ea / 2),
+                            sqrtOneMinusE[k] * Math.cos(ea / 2));
+   }
+
+   // Starts a mean anomaly in [-pi, pi] from the tightest of three upper
+   // bounds on |E| (pi, |M| + e, and |M| / (1 - e), or (6 |M| / e)^(1/3) near
+   // periapsis on very eccentric orbits), with M's sign. Kepler's equation is
+   // convex over [0, pi], so Newton's method falls monotonically from there
+   // onto the root, quickly even as e nears 1.
+   private static double startingGuess(double m, double e) {
+      double s = Math.abs(m);
+      double guess = Math.min(Math.PI, Math.min(s + e, s / (1 - e)));
+      if (e > 0)
+         guess = Math.min(guess, Math.cbrt(6 * s / e));
+      return Math.copySign(guess, m);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies in the batch.
+	 */
+   public int size() {
+      return count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param slot The body's slot.
+	 * @return The row of the body in the BodyTable.
+	 */
+   public int getRow(int slot) {
+      return rows[slot];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param slot The body's slot.
+	 * @return The eccentricity of the body's orbit.
+	 */
+   public double getEccentricity(int slot) {
+      return eccentricity[slot];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param slot The body's slot.
+	 * @return The inclination of the body's orbit, in degrees.
+	 */
+   public double getInclination(int slot) {
+      return inclination[slot];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param slot The body's slot.
+	 * @return The argument of periapsis of the body's orbit, in degrees.
+	 */
+   public double getPeriapsis(int slot) {
+      return periapsis[slot];
+   }
+}
@@ -0,0 +1,139 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class counts how long something took into log-linear buckets, so
+ ** percentiles of the times can be read back at any point without keeping
+ ** every one. Each power of two is split into SUB_BUCKETS equal buckets, so
+ ** a percentile is never out by more than one part in SUB_BUCKETS, from a
+ ** nanosecond up to centuries. Recording a time allocates nothing.
+ **/
+
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class LatencyHistogram {
+   private static final int SUB_BITS = 4;
+   /** The number of buckets each power of two is split into. */
+   public static final int SUB_BUCKETS = 1 << SUB_BITS;
+   // Enough buckets for any positive long.
+   private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+   private long[] buckets = new long[BUCKETS];
+   private long count = 0;
+   private long total = 0;
+   private long max = 0;
+
+   /**
+    **   Records one time.
+    **
+    **   @param nanos The time taken, in nanoseconds. Negative times count as
+    **   0.
+    **/
+   public synchronized void record(long nanos) {
+      nanos = Math.max(nanos, 0);
+      buckets[index(nanos)]++;
+      count++;
+      total += nanos;
+      max = Math.max(max, nanos);
+   }
+
+   /**
+    **   Forgets every time recorded so far.
+    **/
+   public synchronized void reset() {
+      Arrays.fill(buckets, 0);
+      count = 0;
+      total = 0;
+      max = 0;
+   }
+
+   // Times below SUB_BUCKETS get a bucket each; above that, the top SUB_BITS
+   // bits after the leading one pick the bucket within its power of two.
+   static int index(long value) {
+      if (value < SUB_BUCKETS)
+         return (int) value;
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int shift = exponent - SUB_BITS;
+      return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+   }
+
+   // The smallest time that falls into the given bucket.
+   static long lowerBound(int index) {
+      if (index < SUB_BUCKETS)
+         return index;
+      int shift = index / SUB_BUCKETS - 1;
+      return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of times recorded.
+	 */
+   public synchronized long getCount() {
+      return count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The mean time, in nanoseconds, or 0 if none have been recorded.
+	 */
+   public synchronized double getMean() {
+      return count == 0 ? 0 : (double) total / count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The longest time, in nanoseconds.
+	 */
+   public synchronized long getMax() {
+      return max;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param percentile The percentile wanted, from 0 to 100.
+	 * @return The time in nanoseconds that the given percentage of times were
+    * no longer than (rounded up to the top of its bucket), or 0 if none have
+    * been recorded.
+	 */
+   public synchronized long getPercentile(double percentile) {
+      if (count == 0)
+         return 0;
+      long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS - 1; i++) {
+         seen += buckets[i];
+         if (seen >= rank)
+            return Math.min(lowerBound(i + 1) - 1, max);
+      }
+      return max;
+   }
+}
@@ -0,0 +1,504 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class moves bodies under their mutual gravity rather than along
+ ** fixed orbits, so that perturbations, captures and ejections can happen.
+ **
+ ** It takes over every body in a BodyTable that orbits the centre point
+ ** (planets, dwarf planets and anything else without a primary), seeding
+ ** each from its current position with the velocity of its orbit, and adds
+ ** Sol itself. Moons stay on their fixed orbits about their (now
+ ** gravitating) primaries, as resolving them would need steps hundreds of
+ ** times shorter. Bodies given no mass are test particles: they feel
+ ** gravity but exert none.
+ **
+ ** Forces are found with a Barnes-Hut octree over the bodies with mass: a
+ ** cell far enough away (its width over its distance below the opening
+ ** angle) is treated as a single body at its centre of mass. The tree is
+ ** built, and forces evaluated, in parallel on a fork-join pool, and bodies
+ ** are advanced with a kick-drift-kick leapfrog, which conserves energy well
+ ** over long runs.
+ **
+ ** Units are AU, years and solar masses. Positions are written back to the
+ ** BodyTable as heliocentric distances and angles after every step, so the
+ ** rest of the program draws them as usual; seek() has no meaning for the
+ ** bodies taken over.
+ **/
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class NBodySimulation {
+   /** The gravitational constant in AU^3 / (solar mass * year^2). */
+   public static final double G = 4 * Math.PI * Math.PI;
+
+   // Bodies per leaf of the octree.
+   private static final int LEAF_SIZE = 8;
+   // Octree cells with more bodies than this are built in parallel.
+   private static final int PARALLEL_BUILD = 2048;
+   // Bodies per task when updating or evaluating forces in parallel.
+   private static final int CHUNK = 1024;
+   // Stops the octree recursing forever over bodies at the same position.
+   private static final int MAX_DEPTH = 48;
+
+   private BodyTable bodies;
+   private ForkJoinPool pool;
+   // The table row of each body, -1 for Sol (always body 0).
+   private int[] rows;
+   private int count;
+   private double[] x, y, z;
+   private double[] vx, vy, vz;
+   private double[] ax, ay, az;
+   private double[] mass;
+   // The bodies with mass, reordered by the octree as it is built.
+   private int[] massive;
+   private int[] scratch;
+   private int massiveCount;
+
+   private double theta = 0.5;
+   private double softening = 1e-5;
+   private double yearsPerTick;
+   private int substeps = 4;
+
+   /**
+    **   A cubic cell of the octree.
+    **/
+   private static final class Cell {
+      double centreX, centreY, centreZ, half;
+      double mass, massX, massY, massZ;
+      // Null for a leaf, whose bodies are massive[from] to massive[to - 1].
+      Cell[] children;
+      int from, to;
+   }
+
+   /**
+    **   Constructor method. Takes over every body in the table without a
+    **   primary: they are put on circular orbits with a speed of 0, so that
+    **   the table's own move() leaves them be.
+    **
+    **   @param bodies The table of bodies.
+    **   @param masses The mass of each body, in solar masses, by row (0, or
+    **   missing, for a test particle).
+    **   @param solMass The mass of Sol, in solar masses.
+    **   @param yearsPerTick How much simulated time passes each step().
+    **   @param pool The pool to build the tree and evaluate forces on, or
+    **   null to do it all on the calling thread.
+    **/
+   public NBodySimulation(BodyTable bodies, double[] masses, double solMass,
+                          double yearsPerTick, ForkJoinPool pool) {
+      this.bodies = bodies;
+      this.yearsPerTick = yearsPerTick;
+      this.pool = pool;
+
+      int taken = 0;
+      for (int i = 0; i < bodies.size(); i++)
+         if (bodies.getPrimary(i) == BodyTable.NO_PRIMARY)
+            taken++;
+      count = taken + 1;
+      rows = new int[count];
+      x = new double[count]; y = new double[count]; z = new double[count];
+      vx = new double[count]; vy = new double[count]; vz = new double[count];
+      ax = new double[count]; ay = new double[count]; az = new double[count];
+      mass = new double[count];
+      massive = new int[count];
+      scratch = new int[count];
+
+      rows[0] = -1;
+      mass[0] = solMass;
+      int k = 1;
+      for (int i = 0; i < bodies.size(); i++) {
+         if (bodies.getPrimary(i) != BodyTable.NO_PRIMARY)
+            continue;
+         rows[k] = i;
+         mass[k] = i < masses.length ? masses[i] : 0;
+         this.seed(k, i, solMass);
+         k++;
+      }
+
+      // Keeps the centre of mass still, so the system doesn't drift away.
+      double px = 0, py = 0, pz = 0, total = 0;
+      for (k = 0; k < count; k++) {
+         px += mass[k] * vx[k];
+         py += mass[k] * vy[k];
+         pz += mass[k] * vz[k];
+         total += mass[k];
+      }
+      vx[0] -= px / total;
+      vy[0] -= py / total;
+      vz[0] -= pz / total;
+
+      for (k = 0; k < count; k++)
+         if (mass[k] > 0)
+            massive[massiveCount++] = k;
+
+      this.accelerate();
+   }
+
+   // Places body k where row i is, moving along its orbit: out from Sol at
+   // sqrt(GM/p) e sin(v) and across at sqrt(GM/p) (1 + e cos(v)), for true
+   // anomaly v and semi-latus rectum p. This is worked out in the plane of
+   // the orbit and then tilted by its inclination about the line of nodes,
+   // as KeplerSolver does, so the body is drawn where the table had it and
+   // sets off along the same orbit.
+   private void seed(int k, int i, double solMass) {
+      double a = bodies.getDistance(i);
+      double e = bodies.getEccentricity(i);
+      double nu = Math.toRadians(bodies.getTrueAnomaly(i));
+      double theta = nu + Math.toRadians(bodies.getPeriapsis(i));
+      double inclination = Math.toRadians(bodies.getInclination(i));
+      double p = a * (1 - e * e);
+      double r = p / (1 + e * Math.cos(nu));
+      double h = Math.sqrt(G * solMass / p);
+      // Bodies whose angle decreases go the other way round.
+      double direction = bodies.getSpeed(i) < 0 ? -1 : 1;
+      double radial = direction * h * e * Math.sin(nu);
+      double across = direction * h * (1 + e * Math.cos(nu));
+
+      // In the plane of the orbit, along the line of nodes (w, which is y,
+      // at angle 0) and across it (u). Only u is tilted out of the plane.
+      double u = r * Math.sin(theta);
+      double w = r * Math.cos(theta);
+      double vu = radial * Math.sin(theta) + across * Math.cos(theta);
+      double vw = radial * Math.cos(theta) - across * Math.sin(theta);
+      x[k] = u * Math.cos(inclination);
+      y[k] = w;
+      z[k] = u * Math.sin(inclination);
+      vx[k] = vu * Math.cos(inclination);
+      vy[k] = vw;
+      vz[k] = vu * Math.sin(inclination);
+
+      bodies.clearOrbit(i);
+      bodies.setSpeed(i, 0);
+   }
+
+	/**
+	 **   Advances every body by one tick's worth of simulated time, in
+    **   substeps leapfrog steps, and writes their new positions back to the
+    **   table.
+	 **/
+   public void step() {
+      final double dt = yearsPerTick / substeps;
+      for (int s = 0; s < substeps; s++) {
+         // Kick and drift.
+         this.parallel(count, new RangeTask.Range() {
+            public void run(int from, int to) {
+               for (int k = from; k < to; k++) {
+                  vx[k] += ax[k] * dt / 2;
+                  vy[k] += ay[k] * dt / 2;
+                  vz[k] += az[k] * dt / 2;
+                  x[k] += vx[k] * dt;
+                  y[k] += vy[k] * dt;
+                  z[k] += vz[k] * dt;
+               }
+            }
+         });
+         this.accelerate();
+         // Kick.
+         this.parallel(count, new RangeTask.Range() {
+            public void run(int from, int to) {
+               for (int k = from; k < to; k++) {
+                  vx[k] += ax[k] * dt / 2;
+                  vy[k] += ay[k] * dt / 2;
+                  vz[k] += az[k] * dt / 2;
+               }
+            }
+         });
+      }
+
+      for (int k = 1; k < count; k++) {
+         double dx = x[k] - x[0];
+         double dy = y[k] - y[0];
+         bodies.setPosition(rows[k], Math.sqrt(dx * dx + dy * dy),
+                            Math.toDegrees(Math.atan2(dx, dy)));
+      }
+   }
+
+   // Builds the octree and works out the acceleration of every body.
+   private void accelerate() {
+      final Cell root = this.buildTree();
+      this.parallel(count, new RangeTask.Range() {
+         public void run(int from, int to) {
+            double[] a = new double[3];
+            for (int k = from; k < to; k++) {
+               a[0] = a[1] = a[2] = 0;
+               if (root != null)
+                  accelerate(k, root, a);
+               ax[k] = a[0];
+               ay[k] = a[1];
+               az[k] = a[2];
+            }
+         }
+      });
+   }
+
+   // Adds the pull of a cell on body k to a.
+   private void accelerate(int k, Cell cell, double[] a) {
+      double dx = cell.massX - x[k];
+      double dy = cell.massY - y[k];
+      double dz = cell.massZ - z[k];
+      double d2 = dx * dx + dy * dy + dz * dz;
+      double width = 2 * cell.half;
+
+      if (cell.children == null) {
+         for (int n = cell.from; n < cell.to; n++) {
+            int j = massive[n];
+            if (j != k)
+               this.pull(k, x[j] - x[k], y[j] - y[k], z[j] - z[k], mass[j], a);
+         }
+      } else if (width * width < theta * theta * d2) {
+         this.pull(k, dx, dy, dz, cell.mass, a);
+      } else {
+         for (Cell child : cell.children)
+            if (child != null)
+               this.accelerate(k, child, a);
+      }
+   }
+
+   private void pull(int k, double dx, double dy, double dz, double m,
+                     double[] a) {
+      double d2 = dx * dx + dy * dy + dz * dz + softening * softening;
+      double f = G * m / (d2 * Math.sqrt(d2));
+      a[0] += f * dx;
+      a[1] += f * dy;
+      a[2] += f * dz;
+   }
+
+   private Cell buildTree() {
+      if (massiveCount == 0)
+         return null;
+
+      double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+      double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+      for (int n = 0; n < massiveCount; n++) {
+         int k = massive[n];
+         minX = Math.min(minX, x[k]); maxX = Math.max(maxX, x[k]);
+         minY = Math.min(minY, y[k]); maxY = Math.max(maxY, y[k]);
+         minZ = Math.min(minZ, z[k]); maxZ = Math.max(maxZ, z[k]);
+      }
+      double half = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ)) / 2;
+      Build root = new Build(0, massiveCount, (minX + maxX) / 2,
+                             (minY + maxY) / 2, (minZ + maxZ) / 2,
+                             half * 1.0001 + 1e-12, 0);
+      return pool == null ? root.compute() : pool.invoke(root);
+   }
+
+   /**
+    **   Builds the cell holding massive[from] to massive[to - 1], forking the
+    **   building of large children when there is a pool to fork them on.
+    **/
+   private final class Build extends RecursiveTask<Cell> {
+      private static final long serialVersionUID = 1L;
+
+      private int from, to, depth;
+      private double centreX, centreY, centreZ, half;
+
+      Build(int from, int to, double centreX, double centreY, double centreZ,
+            double half, int depth) {
+         this.from = from;
+         this.to = to;
+         this.centreX = centreX;
+         this.centreY = centreY;
+         this.centreZ = centreZ;
+         this.half = half;
+         this.depth = depth;
+      }
+
+      protected Cell compute() {
+         boolean forking = pool != null;
+         Cell cell = new Cell();
+         cell.centreX = centreX;
+         cell.centreY = centreY;
+         cell.centreZ = centreZ;
+         cell.half = half;
+         cell.from = from;
+         cell.to = to;
+
+         if (to - from <= LEAF_SIZE || depth >= MAX_DEPTH) {
+            for (int n = from; n < to; n++) {
+               int k = massive[n];
+               cell.mass += mass[k];
+               cell.massX += mass[k] * x[k];
+               cell.massY += mass[k] * y[k];
+               cell.massZ += mass[k] * z[k];
+            }
+            cell.massX /= cell.mass;
+            cell.massY /= cell.mass;
+            cell.massZ /= cell.mass;
+            return cell;
+         }
+
+         // Sorts the cell's bodies by octant, counting-sort style.
+         int[] starts = new int[9];
+         for (int n = from; n < to; n++)
+            starts[octant(massive[n]) + 1]++;
+         for (int o = 0; o < 8; o++)
+            starts[o + 1] += starts[o];
+         int[] next = new int[8];
+         for (int o = 0; o < 8; o++)
+            next[o] = from + starts[o];
+         for (int n = from; n < to; n++)
+            scratch[next[octant(massive[n])]++] = massive[n];
+         System.arraycopy(scratch, from, massive, from, to - from);
+
+         Build[] builds = new Build[8];
+         double q = half / 2;
+         for (int o = 0; o < 8; o++) {
+            if (starts[o] == starts[o + 1])
+               continue;
+            builds[o] = new Build(from + starts[o], from + starts[o + 1],
+                                  centreX + ((o & 1) != 0 ? q : -q),
+                                  centreY + ((o & 2) != 0 ? q : -q),
+                                  centreZ + ((o & 4) != 0 ? q : -q),
+                                  q, depth + 1);
+         }
+
+         cell.children = new Cell[8];
+         for (int o = 0; o < 8; o++)
+            if (builds[o] != null && forking
+                && builds[o].to - builds[o].from > PARALLEL_BUILD)
+               builds[o].fork();
+         for (int o = 0; o < 8; o++) {
+            if (builds[o] == null)
+               continue;
+            if (forking && builds[o].to - builds[o].from > PARALLEL_BUILD)
+               cell.children[o] = builds[o].join();
+            else
+               cell.children[o] = builds[o].compute();
+         }
+
+         for (Cell child : cell.children) {
+            if (child == null)
+               continue;
+            cell.mass += child.mass;
+            cell.massX += child.mass * child.massX;
+            cell.massY += child.mass * child.massY;
+            cell.massZ += child.mass * child.massZ;
+         }
+         cell.massX /= cell.mass;
+         cell.massY /= cell.mass;
+         cell.massZ /= cell.mass;
+         return cell;
+      }
+
+      private int octant(int k) {
+         return (x[k] > centreX ? 1 : 0) | (y[k] > centreY ? 2 : 0) |
+                (z[k] > centreZ ? 4 : 0);
+      }
+   }
+
+   // Runs something over bodies 0 to n - 1 in chunks on the pool.
+   private void parallel(int n, RangeTask.Range range) {
+      RangeTask.invoke(pool, 0, n, CHUNK, range);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies being simulated, including Sol.
+	 */
+   public int size() {
+      return count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param k The body: 0 for Sol, then the bodies taken from the table in
+    * order of row.
+	 * @param result Where to put the body's x, y and z, in AU, with y along
+    * angle 0 and z out of the plane of the view.
+	 */
+   public void getPosition(int k, double[] result) {
+      result[0] = x[k];
+      result[1] = y[k];
+      result[2] = z[k];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param k The body, as for getPosition().
+	 * @param result Where to put the body's velocity along x, y and z, in
+    * AU per year.
+	 */
+   public void getVelocity(int k, double[] result) {
+      result[0] = vx[k];
+      result[1] = vy[k];
+      result[2] = vz[k];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The total kinetic plus potential energy of the bodies (found
+    * directly, so slow for many bodies with mass); useful for checking the
+    * integration is stable.
+	 */
+   public double getEnergy() {
+      double energy = 0;
+      for (int k = 0; k < count; k++) {
+         energy += mass[k] * (vx[k] * vx[k] + vy[k] * vy[k] + vz[k] * vz[k]) / 2;
+         for (int n = 0; n < massiveCount; n++) {
+            int j = massive[n];
+            if (j <= k)
+               continue;
+            double dx = x[j] - x[k], dy = y[j] - y[k], dz = z[j] - z[k];
+            energy -= G * mass[k] * mass[j] / Math.sqrt(dx * dx + dy * dy + dz * dz);
+         }
+      }
+      return energy;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param theta The Barnes-Hut opening angle: smaller is more accurate
+    * but slower, 0 is exact. Defaults to 0.5.
+	 */
+   public void setOpeningAngle(double theta) {
+      this.theta = theta;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param softening The distance, in AU, below which gravity stops
+    * growing, to keep close encounters from blowing up. Defaults to 1e-5.
+	 */
+   public void setSoftening(double softening) {
+      this.softening = softening;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param substeps The number of leapfrog steps per tick. Defaults to 4.
+	 */
+   public void setSubsteps(int substeps) {
+      this.substeps = Math.max(substeps, 1);
+   }
+}
@@ -0,0 +1,185 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class draws the solar system into an image in memory rather than a
+ ** window, so that the simulation can run with java.awt.headless=true (e.g.
+ ** on a render box or in a performance run). Unlike SolarSystem, it does not
+ ** throttle finishedDrawing(), so frames are produced as fast as they can be
+ ** drawn.
+ **/
+
+import java.awt.*;
+import java.awt.image.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class OffscreenSolarSystem implements SolarDisplay {
+   private SolarCanvas canvas;
+   private BufferedImage image;
+   private Graphics2D graphics;
+   private long framesDrawn = 0;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param width The width of the image to draw into, in pixels.
+    **   @param height The height of the image to draw into, in pixels.
+    **/
+   public OffscreenSolarSystem(int width, int height) {
+      this.canvas = new SolarCanvas(width, height);
+      this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      this.graphics = image.createGraphics();
+   }
+
+   public void drawSolarObject(double distance, double angle, double diameter,
+                               String col) {
+      canvas.queue(distance, angle, diameter, col);
+   }
+
+   public void drawSolarObjectAbout(double distance, double angle,
+                                    double diameter, String col,
+                                    double centreOfRotationDistance,
+                                    double centreOfRotationAngle) {
+      canvas.queueAbout(distance, angle, diameter, col,
+                        centreOfRotationDistance, centreOfRotationAngle);
+   }
+
+   public void drawSolarObjectAt(double x, double y, double diameter,
+                                 String col) {
+      canvas.queueAt(x, y, diameter, col);
+   }
+
+   public void drawSolarObjects(double[] distance, double[] angle,
+                                double[] diameter, int[] colour,
+                                double[] centreOfRotationDistance,
+                                double[] centreOfRotationAngle, int offset,
+                                int count) {
+      canvas.queueAll(distance, angle, diameter, colour, 
+                      centreOfRotationDistance, centreOfRotationAngle, offset,
+                      count);
+   }
+
+   public void drawSolarObjectsAt(double[] x, double[] y, double[] diameter,
+                                  int[] colour, int offset, int count) {
+      canvas.queueAllAt(x, y, diameter, colour, offset, count);
+   }
+
+   public void drawTrailAt(double[] x, double[] y, int points, String col) {
+      canvas.queueTrail(x, y, points, col);
+   }
+
+   public void drawPathAt(double[] x, double[] y, int points, String col,
+                          double opacity) {
+      canvas.queuePath(x, y, points, col, opacity);
+   }
+
+   /**
+    **   Rasterizes everything drawn since the last call into the image, then
+    **   starts a new frame. Returns as soon as the image has been drawn.
+    **/
+   public void finishedDrawing() {
+      canvas.publish();
+      canvas.render(image, graphics);
+      framesDrawn++;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The image holding the most recently finished frame.
+	 */
+   public BufferedImage getImage() {
+      return this.image;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of frames finished so far.
+	 */
+   public long getFramesDrawn() {
+      return this.framesDrawn;
+   }
+
+	public double getZoom() {
+	   return canvas.getZoom();
+	}
+
+	public int getFocus() {
+	   return canvas.getFocus();
+	}
+
+   public int getHeight() {
+      return canvas.getHeight();
+   }
+
+   public int getWidth() {
+      return canvas.getWidth();
+   }
+
+	public void setZoom(double zoom) {
+	   canvas.setZoom(zoom);
+	}
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param directRendering Whether small bodies may be drawn straight into
+    * the image's pixels rather than through Java2D. Defaults to true.
+	 */
+	public void setDirectRendering(boolean directRendering) {
+	   canvas.setDirectRendering(directRendering);
+	}
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param metrics Where to time rasterizing each frame, or null not to.
+    * Defaults to null.
+	 */
+	public void setMetrics(FrameMetrics metrics) {
+	   canvas.setMetrics(metrics);
+	}
+
+	/**
+	 *	Mutator function. Stands in for the number keys of the on-screen display.
+    *
+	 * @param focus The new focus (1 for Sol, 2-9 for the planets, or 0 for
+    * any other body).
+	 */
+	public void setFocus(int focus) {
+	   canvas.setFocus(focus);
+	}
+
+	/**
+	 * Nothing can be clicked on off-screen.
+	 *
+	 * @param result Left as it is.
+	 * @return false.
+	 */
+	public boolean takeClick(double[] result) {
+	   return false;
+	}
+}
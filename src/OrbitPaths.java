@@ -0,0 +1,416 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class draws the whole orbit of a body about its primary, as a
+ ** closed polyline traced out from the body's orbital elements, and caches
+ ** the polylines so they needn't be traced out again every frame.
+ **
+ ** Zoom scales the sizes of bodies (and so how far their satellites sit
+ ** from their centres) but not the distances between them, so a path is
+ ** kept as a direction and a distance from the primary's centre for each
+ ** point, and moved out by the primary's size as it is drawn; the same path
+ ** is right at every zoom and about any focus. What zoom does change is how
+ ** big an orbit is on the display, and so how many segments it needs: just
+ ** enough that no segment strays more than about TOLERANCE pixels from the
+ ** true orbit. Paths are therefore cached by body and zoom bucket, so that
+ ** zooming in traces orbits out in more detail and zooming out in less.
+ **
+ ** After a zoom into a new bucket only so many paths are traced out a frame;
+ ** until a body's turn comes, the path it was last drawn with stands in, so
+ ** a zoom over thousands of orbits is spread over a few frames rather than
+ ** stalling one. The least recently drawn paths are dropped once the cache
+ ** holds more than its limit of bytes.
+ **
+ ** The cache is kept in arrays indexed by entry, chained by hash and linked
+ ** in order of use, so that drawing a cached path allocates nothing.
+ **/
+
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class OrbitPaths {
+   /** The most a path may stray from the true orbit, in pixels. */
+   public static final double TOLERANCE = 0.5;
+   /** How opaque orbits are drawn, from 0 to 1. */
+   public static final double OPACITY = 0.3;
+   /** The fewest segments a path is drawn with. */
+   public static final int MIN_SEGMENTS = 16;
+   /** The most segments a path is drawn with. */
+   public static final int MAX_SEGMENTS = 2048;
+   // Zooms within a factor of this of each other are in the same bucket.
+   private static final double LOG_ZOOM_STEP = Math.log(1.25);
+   // Roughly what an entry costs besides its points, in bytes.
+   private static final int ENTRY_BYTES = 64;
+   private static final int NONE = -1;
+
+   private BodyTable bodies;
+   private long maxBytes;
+   private int buildsPerFrame;
+   private int buildsLeft;
+   private boolean[] shown;
+   // The entry each row was last drawn with, whatever its bucket.
+   private int[] latest;
+
+   // Per entry: the row and bucket it is for, its points (the x and y of
+   // the direction to each, then its distance from the primary's centre),
+   // the greatest of those distances, the next entry with the same hash,
+   // and the entries used just before and after it.
+   private int[] row = new int[0];
+   private int[] bucket = new int[0];
+   private float[][] points = new float[0][];
+   private float[] reach = new float[0];
+   private int[] chain = new int[0];
+   private int[] older = new int[0];
+   private int[] newer = new int[0];
+   private int created = 0;
+   private int size = 0;
+   // Entries dropped and ready for reuse, chained through chain[].
+   private int free = NONE;
+   private int newest = NONE;
+   private int oldest = NONE;
+   private int[] table = new int[64];
+   private long bytes = 0;
+
+   private long hits = 0;
+   private long misses = 0;
+   private long builds = 0;
+   private long evictions = 0;
+
+   // Scratch space.
+   private final double[] point = new double[2];
+   private double[] pathX = new double[0];
+   private double[] pathY = new double[0];
+
+   /**
+    **   Constructor method.
+    **
+    **   @param bodies The table holding the bodies' orbits.
+    **   @param maxBytes Roughly how many bytes of paths to keep at most.
+    **   @param buildsPerFrame How many paths to trace out at most a frame.
+    **/
+   public OrbitPaths(BodyTable bodies, long maxBytes, int buildsPerFrame) {
+      this.bodies = bodies;
+      this.maxBytes = maxBytes;
+      this.buildsPerFrame = Math.max(buildsPerFrame, 1);
+      this.shown = new boolean[bodies.size()];
+      this.latest = new int[bodies.size()];
+      Arrays.fill(latest, NONE);
+      Arrays.fill(table, NONE);
+   }
+
+   /**
+    **   Chooses whether a run of rows have their orbits drawn.
+    **
+    **   @param from The first row.
+    **   @param to One past the last row.
+    **   @param shown Whether to draw them.
+    **/
+   public void setShown(int from, int to, boolean shown) {
+      Arrays.fill(this.shown, from, to, shown);
+   }
+
+   /**
+    **   Finds whether a row has its orbit drawn.
+    **
+    **   @param i The row.
+    **   @return Whether it is drawn.
+    **/
+   public boolean isShown(int i) {
+      return shown[i];
+   }
+
+   /**
+    **   Starts a frame, allowing buildsPerFrame more paths to be traced out.
+    **/
+   public void begin() {
+      buildsLeft = buildsPerFrame;
+   }
+
+   /**
+    **   Draws the orbit of a body in the body's colour, if it is shown and
+    **   could be in view.
+    **
+    **   @param i The row of the body.
+    **   @param cx Where its primary's centre is, in pixels from the left.
+    **   @param cy Where its primary's centre is, in pixels from the top.
+    **   @param offset How far the body is moved out from its primary's
+    **   centre by the primary's size, in pixels.
+    **   @param zoom The zoom the display is at.
+    **   @param width The width of the display, in pixels.
+    **   @param height The height of the display, in pixels.
+    **   @param system The display to draw onto.
+    **/
+   public void draw(int i, double cx, double cy, double offset, double zoom,
+                    float width, float height, SolarDisplay system) {
+      if (!shown[i])
+         return;
+      int b = bucketOf(zoom);
+      int e = this.find(i, b);
+      if (e != NONE) {
+         hits++;
+      } else {
+         misses++;
+         if (buildsLeft > 0) {
+            buildsLeft--;
+            e = this.build(i, b, offset * zoomOf(b) / zoom);
+         } else {
+            e = latest[i];
+            if (e == NONE)
+               return;
+         }
+      }
+      this.touch(e);
+
+      double r = reach[e] + offset;
+      if (cx + r < 0 || cx - r > width || cy + r < 0 || cy - r > height)
+         return;
+      float[] p = points[e];
+      int n = p.length / 3;
+      if (n + 1 > pathX.length) {
+         pathX = new double[n + 1];
+         pathY = new double[n + 1];
+      }
+      for (int j = 0; j < n; j++) {
+         double distance = p[3 * j + 2] + offset;
+         pathX[j] = cx + distance * p[3 * j];
+         pathY[j] = cy + distance * p[3 * j + 1];
+      }
+      pathX[n] = pathX[0];
+      pathY[n] = pathY[0];
+      system.drawPathAt(pathX, pathY, n + 1, 
+                        SolarCanvas.COLOUR_NAMES[bodies.getColour(i)], OPACITY);
+   }
+
+   /**
+    **   Works out how many segments a path needs for no segment to stray
+    **   more than TOLERANCE pixels from a circle of the given radius.
+    **
+    **   @param radius The radius, in pixels.
+    **   @return The number of segments.
+    **/
+   public static int segmentsFor(double radius) {
+      if (radius <= TOLERANCE)
+         return MIN_SEGMENTS;
+      double n = Math.ceil(Math.PI / Math.acos(1 - TOLERANCE / radius));
+      return (int) Math.max(MIN_SEGMENTS, Math.min(MAX_SEGMENTS, n));
+   }
+
+   private static int bucketOf(double zoom) {
+      return (int) Math.floor(Math.log(zoom) / LOG_ZOOM_STEP);
+   }
+
+   // The zoom in the middle of a bucket.
+   private static double zoomOf(int bucket) {
+      return Math.exp((bucket + 0.5) * LOG_ZOOM_STEP);
+   }
+
+   // Traces out the path of a row's orbit for a bucket and caches it.
+   private int build(int i, int b, double offset) {
+      double e = bodies.getEccentricity(i);
+      int n = segmentsFor(bodies.getDistance(i) * (1 + e) * 
+                          BodyTable.DISTANCE_SCALE + offset);
+      float[] p = new float[3 * n];
+      float greatest = 0;
+      for (int j = 0; j < n; j++) {
+         bodies.getOrbitPointAt(i, 360.0 * j / n, point);
+         double angle = Math.toRadians(point[1]);
+         p[3 * j] = (float) Math.sin(angle);
+         p[3 * j + 1] = (float) Math.cos(angle);
+         p[3 * j + 2] = (float) (point[0] * BodyTable.DISTANCE_SCALE);
+         greatest = Math.max(greatest, p[3 * j + 2]);
+      }
+      builds++;
+      return this.add(i, b, p, greatest);
+   }
+
+   private static int hash(int i, int b) {
+      int h = i * 0x9E3779B9 ^ b * 0x85EBCA6B;
+      return h ^ (h >>> 16);
+   }
+
+   private int find(int i, int b) {
+      for (int e = table[hash(i, b) & (table.length - 1)]; e != NONE; 
+           e = chain[e])
+         if (row[e] == i && bucket[e] == b)
+            return e;
+      return NONE;
+   }
+
+   private int add(int i, int b, float[] p, float greatest) {
+      int e;
+      if (free != NONE) {
+         e = free;
+         free = chain[e];
+      } else {
+         if (created == row.length)
+            this.grow(Math.max(created * 2, 64));
+         e = created++;
+      }
+      row[e] = i;
+      bucket[e] = b;
+      points[e] = p;
+      reach[e] = greatest;
+      older[e] = NONE;
+      newer[e] = NONE;
+      if (++size > table.length * 3 / 4)
+         this.rehash(table.length * 2);
+      int h = hash(i, b) & (table.length - 1);
+      chain[e] = table[h];
+      table[h] = e;
+      this.link(e);
+      latest[i] = e;
+      bytes += cost(e);
+      while (bytes > maxBytes && oldest != e)
+         this.remove(oldest);
+      return e;
+   }
+
+   private long cost(int e) {
+      return ENTRY_BYTES + 4L * points[e].length;
+   }
+
+   private void remove(int e) {
+      int h = hash(row[e], bucket[e]) & (table.length - 1);
+      if (table[h] == e) {
+         table[h] = chain[e];
+      } else {
+         int before = table[h];
+         while (chain[before] != e)
+            before = chain[before];
+         chain[before] = chain[e];
+      }
+      this.unlink(e);
+      bytes -= cost(e);
+      if (latest[row[e]] == e)
+         latest[row[e]] = NONE;
+      points[e] = null;
+      chain[e] = free;
+      free = e;
+      size--;
+      evictions++;
+   }
+
+   // Makes an entry the most recently used.
+   private void touch(int e) {
+      if (e == newest)
+         return;
+      this.unlink(e);
+      this.link(e);
+   }
+
+   private void link(int e) {
+      older[e] = newest;
+      newer[e] = NONE;
+      if (newest != NONE)
+         newer[newest] = e;
+      newest = e;
+      if (oldest == NONE)
+         oldest = e;
+   }
+
+   private void unlink(int e) {
+      if (older[e] != NONE)
+         newer[older[e]] = newer[e];
+      else
+         oldest = newer[e];
+      if (newer[e] != NONE)
+         older[newer[e]] = older[e];
+      else
+         newest = older[e];
+   }
+
+   private void grow(int capacity) {
+      row = Arrays.copyOf(row, capacity);
+      bucket = Arrays.copyOf(bucket, capacity);
+      points = Arrays.copyOf(points, capacity);
+      reach = Arrays.copyOf(reach, capacity);
+      chain = Arrays.copyOf(chain, capacity);
+      older = Arrays.copyOf(older, capacity);
+      newer = Arrays.copyOf(newer, capacity);
+   }
+
+   private void rehash(int capacity) {
+      table = new int[capacity];
+      Arrays.fill(table, NONE);
+      for (int e = oldest; e != NONE; e = newer[e]) {
+         int h = hash(row[e], bucket[e]) & (capacity - 1);
+         chain[e] = table[h];
+         table[h] = e;
+      }
+   }
+
+   /**
+    **   Drops every cached path, e.g. because orbits have changed.
+    **/
+   public void clear() {
+      while (oldest != NONE)
+         this.remove(oldest);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of paths cached.
+	 */
+   public int size() {
+      return size;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return Roughly how many bytes the cached paths take up.
+	 */
+   public long getBytes() {
+      return bytes;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return How many paths have been traced out.
+	 */
+   public long getBuilds() {
+      return builds;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return How many paths have been dropped to stay within the limit, or
+    * by clear().
+	 */
+   public long getEvictions() {
+      return evictions;
+   }
+
+   public String toString() {
+      return String.format("orbit paths: %d cached (%.1fMB), %d hits, %d " +
+                           "misses, %d built, %d evicted", size, bytes / 1e6, 
+                           hits, misses, builds, evictions);
+   }
+}
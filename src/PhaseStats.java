@@ -0,0 +1,150 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class times one phase of drawing frames (e.g. rasterizing), keeping
+ ** a histogram of how long it takes and counting the bytes it allocates.
+ ** begin() and end() are called around each run of the phase, and must be
+ ** called on the same thread; only one thread may be running the phase at a
+ ** time. Nothing is allocated between them.
+ **/
+
+import java.lang.management.ManagementFactory;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class PhaseStats implements PhaseStatsMBean {
+   private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+   private String name;
+   private LatencyHistogram histogram = new LatencyHistogram();
+   private volatile long allocatedBytes = 0;
+   // Where the run in progress started.
+   private long started;
+   private long startedBytes;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param name The name of the phase, for toString().
+    **/
+   public PhaseStats(String name) {
+      this.name = name;
+   }
+
+   /**
+    **   Marks the start of a run of the phase.
+    **/
+   public void begin() {
+      startedBytes = allocatedBytes();
+      started = System.nanoTime();
+   }
+
+   /**
+    **   Marks the end of the run of the phase started by the last begin().
+    **/
+   public void end() {
+      long nanos = System.nanoTime() - started;
+      long bytes = allocatedBytes() - startedBytes;
+      histogram.record(nanos);
+      allocatedBytes += bytes;
+   }
+
+   public void reset() {
+      histogram.reset();
+      allocatedBytes = 0;
+   }
+
+   private static long allocatedBytes() {
+      if (THREADS == null)
+         return 0;
+      return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+   }
+
+   private static com.sun.management.ThreadMXBean threads() {
+      try {
+         com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)
+            ManagementFactory.getThreadMXBean();
+         if (!threads.isThreadAllocatedMemorySupported())
+            return null;
+         threads.setThreadAllocatedMemoryEnabled(true);
+         return threads;
+      } catch (ClassCastException e) {
+         return null;
+      }
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The name of the phase.
+	 */
+   public String getName() {
+      return name;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The times the phase has taken.
+	 */
+   public LatencyHistogram getHistogram() {
+      return histogram;
+   }
+
+   public long getCount() {
+      return histogram.getCount();
+   }
+
+   public double getMeanMillis() {
+      return histogram.getMean() / 1e6;
+   }
+
+   public double getMedianMillis() {
+      return histogram.getPercentile(50) / 1e6;
+   }
+
+   public double getP99Millis() {
+      return histogram.getPercentile(99) / 1e6;
+   }
+
+   public double getMaxMillis() {
+      return histogram.getMax() / 1e6;
+   }
+
+   public long getAllocatedBytes() {
+      return THREADS == null ? -1 : allocatedBytes;
+   }
+
+   public String toString() {
+      String result = String.format("%s: median %.3fms, p99 %.3fms, max %.3fms",
+                                    name, getMedianMillis(), getP99Millis(), 
+                                    getMaxMillis());
+      long count = getCount();
+      if (THREADS != null && count > 0)
+         result += String.format(", %dB/run", allocatedBytes / count);
+      return result;
+   }
+}
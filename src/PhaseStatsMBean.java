@@ -0,0 +1,70 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** The management interface of a PhaseStats, through which JMX clients (e.g.
+ ** JConsole) can see how long one phase of drawing frames is taking.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public interface PhaseStatsMBean {
+   /**
+    **   @return The number of times the phase has run.
+    **/
+   long getCount();
+
+   /**
+    **   @return The mean time the phase has taken, in milliseconds.
+    **/
+   double getMeanMillis();
+
+   /**
+    **   @return The median time the phase has taken, in milliseconds.
+    **/
+   double getMedianMillis();
+
+   /**
+    **   @return The time 99% of runs of the phase took no longer than, in
+    **   milliseconds.
+    **/
+   double getP99Millis();
+
+   /**
+    **   @return The longest time the phase has taken, in milliseconds.
+    **/
+   double getMaxMillis();
+
+   /**
+    **   @return The number of bytes allocated while the phase was running, or
+    **   -1 if the JVM can't count them.
+    **/
+   long getAllocatedBytes();
+
+   /**
+    **   Starts counting again from nothing.
+    **/
+   void reset();
+}
@@ -0,0 +1,263 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class works out the sines and cosines that turn the angles of
+ ** bodies about their primaries into positions on the display, in one of
+ ** three modes:
+ **
+ **   EXACT        Math.sin() and Math.cos(), as ever.
+ **   TABLE        linear interpolation in a table of TABLE_SIZE sines and
+ **                cosines, out by at most TABLE_ERROR.
+ **   INCREMENTAL  each body's last sine and cosine, rotated on by its speed
+ **                for every tick it has moved since, out by at most
+ **                INCREMENTAL_ERROR.
+ **
+ ** INCREMENTAL relies on a body's angle going up by its speed each tick, so
+ ** it predicts the angle each rotation should land on the same way
+ ** BodyTable.move() works it out, and only rotates if the body's angle is
+ ** exactly that; a body that has been seeked, set, pushed by N-body mode or
+ ** moved more than MAX_STEPS ticks since it was last drawn is worked out
+ ** exactly instead, as is one that has been rotated RESYNC times, so that
+ ** rounding errors can't build up. Bodies on eccentric orbits, whose true
+ ** angles don't go up evenly, use the table. The last angle, sine, cosine
+ ** and rotation of every body are kept, about 50 bytes a body.
+ **
+ ** An instance is only to be used by one thread at a time.
+ **/
+
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class Projection {
+   /** The ways sines and cosines can be worked out. */
+   public enum Mode {EXACT, TABLE, INCREMENTAL}
+
+   /** The number of steps in the table of sines and cosines. */
+   public static final int TABLE_SIZE = 4096;
+   /**
+    ** The most a sine or cosine from the table can be out by: the error of
+    ** linear interpolation, (2 pi / TABLE_SIZE)^2 / 8, rounded up.
+    **/
+   public static final double TABLE_ERROR = 3e-7;
+   /** How many times a body is rotated before being worked out afresh. */
+   public static final int RESYNC = 1024;
+   /**
+    ** The most a sine or cosine worked out incrementally can be out by,
+    ** allowing for the rounding of RESYNC rotations and of the angles they
+    ** follow.
+    **/
+   public static final double INCREMENTAL_ERROR = 1e-11;
+   /** The most ticks a body is rotated on by before being worked out afresh. */
+   public static final int MAX_STEPS = 4;
+
+   private static final double[] SIN = new double[TABLE_SIZE + 1];
+   private static final double[] COS = new double[TABLE_SIZE + 1];
+   static {
+      for (int k = 0; k <= TABLE_SIZE; k++) {
+         SIN[k] = Math.sin(2 * Math.PI * k / TABLE_SIZE);
+         COS[k] = Math.cos(2 * Math.PI * k / TABLE_SIZE);
+      }
+   }
+
+   private final Mode mode;
+   private BodyTable bodies;
+   // Per body, for INCREMENTAL: the angle last worked out, its sine and
+   // cosine, the speed it was moving at, the sine and cosine of that, and
+   // how many times it has been rotated since it was worked out exactly.
+   private double[] angle = new double[0];
+   private double[] sin = new double[0];
+   private double[] cos = new double[0];
+   private double[] step = new double[0];
+   private double[] stepSin = new double[0];
+   private double[] stepCos = new double[0];
+   private int[] rotations = new int[0];
+   private long rotated = 0;
+   private long resynced = 0;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param mode How to work out sines and cosines.
+    **/
+   public Projection(Mode mode) {
+      this.mode = mode;
+   }
+
+   /**
+    **   Starts a frame, making room for every body in a table.
+    **
+    **   @param bodies The table holding the bodies to be projected.
+    **/
+   public void begin(BodyTable bodies) {
+      this.bodies = bodies;
+      if (mode != Mode.INCREMENTAL || bodies.size() <= angle.length)
+         return;
+      int from = angle.length;
+      int capacity = Math.max(bodies.size(), from * 2);
+      angle = Arrays.copyOf(angle, capacity);
+      sin = Arrays.copyOf(sin, capacity);
+      cos = Arrays.copyOf(cos, capacity);
+      step = Arrays.copyOf(step, capacity);
+      stepSin = Arrays.copyOf(stepSin, capacity);
+      stepCos = Arrays.copyOf(stepCos, capacity);
+      rotations = Arrays.copyOf(rotations, capacity);
+      // Matches no angle, so each new body is worked out exactly first.
+      Arrays.fill(angle, from, capacity, Double.NaN);
+   }
+
+   /**
+    **   Works out the sine and cosine of a body's angle about its primary.
+    **
+    **   @param row The row of the body in the table given to begin().
+    **   @param angle The body's true angle, in degrees.
+    **   @param result Where to put the sine (element 0) and cosine (element
+    **   1).
+    **/
+   public void sinCos(int row, double angle, double[] result) {
+      switch (mode) {
+         case EXACT:
+            exactSinCos(angle, result);
+            break;
+         case TABLE:
+            tableSinCos(angle, result);
+            break;
+         default:
+            if (bodies.isEccentric(row))
+               tableSinCos(angle, result);
+            else
+               this.incrementalSinCos(row, angle, result);
+      }
+   }
+
+   /**
+    **   Works out the sine and cosine of an angle with Math.sin() and
+    **   Math.cos().
+    **
+    **   @param angle The angle, in degrees.
+    **   @param result Where to put the sine (element 0) and cosine (element
+    **   1).
+    **/
+   public static void exactSinCos(double angle, double[] result) {
+      double rads = Math.toRadians(angle);
+      result[0] = Math.sin(rads);
+      result[1] = Math.cos(rads);
+   }
+
+   /**
+    **   Works out the sine and cosine of an angle from the table, to within
+    **   TABLE_ERROR.
+    **
+    **   @param angle The angle, in degrees.
+    **   @param result Where to put the sine (element 0) and cosine (element
+    **   1).
+    **/
+   public static void tableSinCos(double angle, double[] result) {
+      double t = angle * (TABLE_SIZE / 360.0);
+      double floor = Math.floor(t);
+      double f = t - floor;
+      int k = (int) ((long) floor & (TABLE_SIZE - 1));
+      result[0] = SIN[k] + f * (SIN[k + 1] - SIN[k]);
+      result[1] = COS[k] + f * (COS[k + 1] - COS[k]);
+   }
+
+   private void incrementalSinCos(int row, double angle, double[] result) {
+      double a = this.angle[row];
+      if (a != angle) {
+         double s = sin[row];
+         double c = cos[row];
+         double speed = step[row];
+         double ss = stepSin[row];
+         double sc = stepCos[row];
+         int n = 0;
+         do {
+            // As BodyTable.move() moves the body on.
+            a += speed;
+            if (a >= 360 || a < 0)
+               a = BodyTable.normalizeAngle(a);
+            double next = s * sc + c * ss;
+            c = c * sc - s * ss;
+            s = next;
+            n++;
+         } while (a != angle && n < MAX_STEPS);
+
+         if (a == angle && rotations[row] + n <= RESYNC) {
+            this.angle[row] = a;
+            sin[row] = s;
+            cos[row] = c;
+            rotations[row] += n;
+            rotated += n;
+         } else {
+            this.resync(row, angle);
+         }
+      }
+      result[0] = sin[row];
+      result[1] = cos[row];
+   }
+
+   // Works out a body's sine and cosine, and its rotation, exactly.
+   private void resync(int row, double angle) {
+      double rads = Math.toRadians(angle);
+      this.angle[row] = angle;
+      sin[row] = Math.sin(rads);
+      cos[row] = Math.cos(rads);
+      step[row] = bodies.getSpeed(row);
+      double stepRads = Math.toRadians(step[row]);
+      stepSin[row] = Math.sin(stepRads);
+      stepCos[row] = Math.cos(stepRads);
+      rotations[row] = 0;
+      resynced++;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return How sines and cosines are worked out.
+	 */
+   public Mode getMode() {
+      return mode;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return How many ticks bodies have been rotated on by, in INCREMENTAL
+    * mode.
+	 */
+   public long getRotated() {
+      return rotated;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return How many times a body has been worked out exactly, in
+    * INCREMENTAL mode.
+	 */
+   public long getResynced() {
+      return resynced;
+   }
+}
@@ -0,0 +1,101 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class runs something over a range of indexes (e.g. the rows of a
+ ** BodyTable) in parallel on a fork-join pool. The range is halved until the
+ ** pieces are no bigger than a fixed chunk, so where it is split depends
+ ** only on its length and the chunk size, never on how many threads there
+ ** are or which of them gets to a piece first. As long as each index is
+ ** worked on independently, the results are the same however many threads
+ ** the pool has.
+ **/
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class RangeTask extends RecursiveAction {
+   private static final long serialVersionUID = 1L;
+
+   private int from, to, chunk;
+   private Range range;
+
+   /**
+    **   Something to do to a range of indexes.
+    **/
+   public interface Range {
+      /**
+       **   Does it to indexes from to to - 1.
+       **/
+      public void run(int from, int to);
+   }
+
+   /**
+    **   Constructor method.
+    **
+    **   @param from The first index.
+    **   @param to One past the last index.
+    **   @param chunk The most indexes to do in one piece.
+    **   @param range What to do to them.
+    **/
+   public RangeTask(int from, int to, int chunk, Range range) {
+      if (chunk <= 0)
+         throw new IllegalArgumentException("Not a chunk size: " + chunk);
+      this.from = from;
+      this.to = to;
+      this.chunk = chunk;
+      this.range = range;
+   }
+
+   /**
+    **   Runs something over a range of indexes on a pool, and waits for it to
+    **   finish. With no pool it is run on the calling thread, in one piece.
+    **
+    **   @param pool The pool to run it on, or null.
+    **   @param from The first index.
+    **   @param to One past the last index.
+    **   @param chunk The most indexes to do in one piece.
+    **   @param range What to do to them.
+    **/
+   public static void invoke(ForkJoinPool pool, int from, int to, int chunk,
+                             Range range) {
+      if (pool == null || to - from <= chunk)
+         range.run(from, to);
+      else
+         pool.invoke(new RangeTask(from, to, chunk, range));
+   }
+
+   protected void compute() {
+      if (to - from <= chunk) {
+         range.run(from, to);
+         return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new RangeTask(from, middle, chunk, range), 
+                new RangeTask(middle, to, chunk, range));
+   }
+}
@@ -0,0 +1,270 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class draws small bodies straight into the pixels of an image,
+ ** bypassing Java2D, whose per-shape overhead dwarfs the cost of the few
+ ** pixels a small body covers. Bodies less than a pixel across are drawn as
+ ** points, spread over the four nearest pixels by how much of each they
+ ** would cover, and faded by how much of a pixel they cover in all; bodies
+ ** up to MAX_DISC pixels across are drawn with anti-aliased disc masks
+ ** worked out once up front. Anything bigger is left to Java2D. Lines are
+ ** drawn a pixel wide, one pixel per step along their longer axis, after
+ ** being clipped to the image.
+ **
+ ** Pixels are blended with the image as if it were opaque, so it should be
+ ** of type TYPE_INT_RGB or TYPE_INT_ARGB (with every pixel opaque).
+ **/
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class Rasterizer {
+   /** The diameter, in pixels, of the biggest disc drawn with a mask. */
+   public static final int MAX_DISC = 16;
+   // How many samples a side each pixel of a mask is worked out from.
+   private static final int SUPERSAMPLE = 4;
+
+   // MASKS[d] holds the coverage of each pixel of a disc d pixels across,
+   // row by row, as 0-256.
+   private static final int[][] MASKS = createMasks();
+
+   private int[] pixels;
+   private int width;
+   private int height;
+   // Scratch space for line().
+   private final float[] clip = new float[2];
+
+   private static int[][] createMasks() {
+      int[][] masks = new int[MAX_DISC + 1][];
+      for (int d = 1; d <= MAX_DISC; d++) {
+         masks[d] = new int[d * d];
+         double r = d / 2.0;
+         for (int py = 0; py < d; py++)
+            for (int px = 0; px < d; px++) {
+               int inside = 0;
+               for (int sy = 0; sy < SUPERSAMPLE; sy++)
+                  for (int sx = 0; sx < SUPERSAMPLE; sx++) {
+                     double dx = px + (sx + 0.5) / SUPERSAMPLE - r;
+                     double dy = py + (sy + 0.5) / SUPERSAMPLE - r;
+                     if (dx * dx + dy * dy <= r * r)
+                        inside++;
+                  }
+               masks[d][py * d + px] = 
+                  inside * 256 / (SUPERSAMPLE * SUPERSAMPLE);
+            }
+      }
+      return masks;
+   }
+
+   /**
+    **   Works out whether an image's pixels can be drawn into directly.
+    **
+    **   @param image The image.
+    **   @return true if the image is a plain TYPE_INT_RGB or TYPE_INT_ARGB
+    **   one.
+    **/
+   public static boolean canDrawInto(BufferedImage image) {
+      int type = image.getType();
+      if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB)
+         return false;
+      if (!(image.getRaster().getDataBuffer() instanceof DataBufferInt) ||
+          !(image.getSampleModel() instanceof SinglePixelPackedSampleModel))
+         return false;
+      SinglePixelPackedSampleModel model = 
+         (SinglePixelPackedSampleModel) image.getSampleModel();
+      return model.getScanlineStride() == image.getWidth() && 
+             image.getRaster().getSampleModelTranslateX() == 0 &&
+             image.getRaster().getSampleModelTranslateY() == 0;
+   }
+
+   /**
+    **   Starts drawing into an image. Java2D can still be used to draw into
+    **   it too, though the image will no longer be accelerated.
+    **
+    **   @param image The image, for which canDrawInto() must be true.
+    **/
+   public void setImage(BufferedImage image) {
+      this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      this.width = image.getWidth();
+      this.height = image.getHeight();
+   }
+
+   /**
+    **   Fills the whole image with one colour.
+    **
+    **   @param rgb The colour, as 0xRRGGBB.
+    **/
+   public void clear(int rgb) {
+      Arrays.fill(pixels, 0, width * height, 0xFF000000 | rgb);
+   }
+
+   /**
+    **   Draws a body, if it is small enough.
+    **
+    **   @param x The left edge of the body, in pixels.
+    **   @param y The top edge of the body, in pixels.
+    **   @param diameter The diameter of the body, in pixels.
+    **   @param rgb The colour of the body, as 0xRRGGBB.
+    **   @return false if the body is too big, and so wasn't drawn.
+    **/
+   public boolean draw(float x, float y, float diameter, int rgb) {
+      if (diameter < 1)
+         this.point(x + diameter / 2, y + diameter / 2, diameter, rgb);
+      else if (diameter < MAX_DISC + 1)
+         this.disc((int) x, (int) y, (int) diameter, rgb);
+      else
+         return false;
+      return true;
+   }
+
+   /**
+    **   Draws a line a pixel wide, blended with what is already there.
+    **
+    **   @param x1 The x co-ordinate of one end, in pixels.
+    **   @param y1 The y co-ordinate of one end, in pixels.
+    **   @param x2 The x co-ordinate of the other end, in pixels.
+    **   @param y2 The y co-ordinate of the other end, in pixels.
+    **   @param rgb The colour of the line, as 0xRRGGBB.
+    **   @param alpha The opacity of the line, out of 256.
+    **/
+   public void line(float x1, float y1, float x2, float y2, int rgb,
+                    int alpha) {
+      if (alpha <= 0)
+         return;
+      alpha = Math.min(alpha, 256);
+      float fromX = x1;
+      float fromY = y1;
+      float toX = x2;
+      float toY = y2;
+      if (!this.inside(x1, y1) || !this.inside(x2, y2)) {
+         // Clips the line to the image (Liang-Barsky), keeping the part of
+         // it between t[0] and t[1].
+         float dx = x2 - x1;
+         float dy = y2 - y1;
+         float[] t = clip;
+         t[0] = 0;
+         t[1] = 1;
+         if (!clip(-dx, x1, t) || !clip(dx, width - 1 - x1, t) ||
+             !clip(-dy, y1, t) || !clip(dy, height - 1 - y1, t))
+            return;
+         fromX = x1 + t[0] * dx;
+         fromY = y1 + t[0] * dy;
+         toX = x1 + t[1] * dx;
+         toY = y1 + t[1] * dy;
+      }
+
+      int steps = (int) Math.ceil(Math.max(Math.abs(toX - fromX), 
+                                           Math.abs(toY - fromY)));
+      float stepX = steps == 0 ? 0 : (toX - fromX) / steps;
+      float stepY = steps == 0 ? 0 : (toY - fromY) / steps;
+      float px = fromX + 0.5f;
+      float py = fromY + 0.5f;
+      // The far end is left to the next segment of a polyline.
+      for (int s = 0; s < Math.max(steps, 1); s++) {
+         int i = (int) py * width + (int) px;
+         pixels[i] = alpha == 256 ? 0xFF000000 | rgb : mix(pixels[i], rgb, alpha);
+         px += stepX;
+         py += stepY;
+      }
+   }
+
+   private boolean inside(float x, float y) {
+      return x >= 0 && y >= 0 && x <= width - 1 && y <= height - 1;
+   }
+
+   // Narrows [t[0], t[1]] to the part of a line inside one edge of the image.
+   private static boolean clip(float p, float q, float[] t) {
+      if (p == 0)
+         return q >= 0;
+      float r = q / p;
+      if (p < 0) {
+         if (r > t[1])
+            return false;
+         t[0] = Math.max(t[0], r);
+      } else {
+         if (r < t[0])
+            return false;
+         t[1] = Math.min(t[1], r);
+      }
+      return true;
+   }
+
+   // Spreads a body less than a pixel across over the four pixels nearest
+   // its centre.
+   private void point(float cx, float cy, float diameter, int rgb) {
+      // The share of a pixel the body covers, out of 256.
+      float coverage = (float) (Math.PI / 4) * diameter * diameter * 256;
+      float fx = cx - 0.5f;
+      float fy = cy - 0.5f;
+      int px = (int) Math.floor(fx);
+      int py = (int) Math.floor(fy);
+      float tx = fx - px;
+      float ty = fy - py;
+      this.blend(px, py, (int) (coverage * (1 - tx) * (1 - ty)), rgb);
+      this.blend(px + 1, py, (int) (coverage * tx * (1 - ty)), rgb);
+      this.blend(px, py + 1, (int) (coverage * (1 - tx) * ty), rgb);
+      this.blend(px + 1, py + 1, (int) (coverage * tx * ty), rgb);
+   }
+
+   // Draws a disc d pixels across with its top-left corner at (x, y).
+   private void disc(int x, int y, int d, int rgb) {
+      int[] mask = MASKS[d];
+      int fromX = Math.max(0, -x);
+      int toX = Math.min(d, width - x);
+      int fromY = Math.max(0, -y);
+      int toY = Math.min(d, height - y);
+      for (int my = fromY; my < toY; my++) {
+         int row = (y + my) * width + x;
+         for (int mx = fromX; mx < toX; mx++) {
+            int alpha = mask[my * d + mx];
+            if (alpha == 256)
+               pixels[row + mx] = 0xFF000000 | rgb;
+            else if (alpha > 0)
+               pixels[row + mx] = mix(pixels[row + mx], rgb, alpha);
+         }
+      }
+   }
+
+   private void blend(int x, int y, int alpha, int rgb) {
+      if (alpha <= 0 || x < 0 || y < 0 || x >= width || y >= height)
+         return;
+      int i = y * width + x;
+      pixels[i] = mix(pixels[i], rgb, Math.min(alpha, 256));
+   }
+
+   // Mixes alpha/256 of one colour into another, a channel at a time.
+   private static int mix(int dst, int src, int alpha) {
+      int rb = ((dst & 0xFF00FF) * (256 - alpha) + 
+                (src & 0xFF00FF) * alpha) >>> 8;
+      int g = ((dst & 0x00FF00) * (256 - alpha) + 
+               (src & 0x00FF00) * alpha) >>> 8;
+      return 0xFF000000 | (rb & 0xFF00FF) | (g & 0x00FF00);
+   }
+}
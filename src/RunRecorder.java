@@ -0,0 +1,175 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class records a run of the simulation compactly, so that it can be
+ ** replayed exactly by a RunReplay. The file holds the seed the bodies'
+ ** starting positions came from and the solar.* properties the run was
+ ** started with, then one record per frame: the tick it was drawn at,
+ ** preceded by the focus and zoom whenever they were changed (e.g. from the
+ ** keyboard or mouse), and optionally the frame's checksum. The focus is
+ ** recorded as the body's node in the SolarScene's SceneGraph, so that a
+ ** focus on any body (not just those with number keys) replays.
+ **
+ ** Ticks are written as the difference from the last frame's, as variable
+ ** length integers, so a frame with nothing else changed takes two bytes.
+ **/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class RunRecorder {
+   /** The first four bytes of every recording ("SOLR"). */
+   public static final int MAGIC = 0x534F4C52;
+   /** The version of the format written. */
+   public static final int VERSION = 2;
+
+   // Header flags.
+   static final int CHECKSUMS = 1;
+   // Record tags.
+   static final int FRAME = 0;
+   static final int FOCUS = 1;
+   static final int ZOOM = 2;
+
+   private DataOutputStream out;
+   private boolean checksums;
+   private long tick;
+   private int focus = SceneGraph.CENTRE;
+   private double zoom = Double.NaN;
+   private long frames = 0;
+
+   /**
+    **   Constructor method. Writes the recording's header.
+    **
+    **   @param file The file to write the recording to.
+    **   @param seed The seed the bodies' starting positions came from.
+    **   @param properties The properties the run was started with.
+    **   @param startTick The tick the run started from.
+    **   @param checksums Whether to record a checksum for each frame. Only
+    **   worth doing if frames are drawn at exactly their tick, as they are
+    **   when replaying, and not while the simulation thread is moving bodies.
+    **   @throws IOException if the file can't be written.
+    **/
+   public RunRecorder(Path file, long seed, Map<String, String> properties,
+                      long startTick, boolean checksums) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(
+         Files.newOutputStream(file)));
+      this.checksums = checksums;
+      this.tick = startTick;
+      
+      Map<String, String> sorted = new TreeMap<String, String>(properties);
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeByte(checksums ? CHECKSUMS : 0);
+      out.writeLong(seed);
+      out.writeLong(startTick);
+      out.writeInt(sorted.size());
+      for (Map.Entry<String, String> property : sorted.entrySet()) {
+         out.writeUTF(property.getKey());
+         out.writeUTF(property.getValue());
+      }
+   }
+
+   /**
+    **   Records a frame.
+    **
+    **   @param tick The tick the frame was drawn at.
+    **   @param focus The node of the body in focus, or SceneGraph.CENTRE.
+    **   @param zoom The zoom it was drawn with.
+    **   @param checksum Its checksum, ignored unless checksums are being
+    **   recorded.
+    **   @throws IOException if the file can't be written.
+    **/
+   public synchronized void frame(long tick, int focus, double zoom, 
+                                  long checksum) throws IOException {
+      if (out == null)
+         return;
+      if (focus != this.focus) {
+         out.writeByte(FOCUS);
+         writeVarLong(out, focus);
+         this.focus = focus;
+      }
+      if (Double.doubleToLongBits(zoom) != Double.doubleToLongBits(this.zoom)) {
+         out.writeByte(ZOOM);
+         out.writeDouble(zoom);
+         this.zoom = zoom;
+      }
+      out.writeByte(FRAME);
+      writeVarLong(out, tick - this.tick);
+      if (checksums)
+         out.writeLong(checksum);
+      this.tick = tick;
+      frames++;
+   }
+
+   /**
+    **   Finishes the recording. Any further frames are ignored.
+    **
+    **   @throws IOException if the file can't be written.
+    **/
+   public synchronized void close() throws IOException {
+      if (out == null)
+         return;
+      out.close();
+      out = null;
+   }
+
+   // Writes a signed number in as few bytes as it needs, seven bits a byte,
+   // zigzag encoded so small negative numbers are small too.
+   static void writeVarLong(DataOutputStream out, long value) 
+      throws IOException {
+      long zigzag = (value << 1) ^ (value >> 63);
+      while ((zigzag & ~0x7FL) != 0) {
+         out.writeByte((int) (zigzag & 0x7F) | 0x80);
+         zigzag >>>= 7;
+      }
+      out.writeByte((int) zigzag);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return Whether a checksum is recorded for each frame.
+	 */
+   public boolean hasChecksums() {
+      return checksums;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of frames recorded so far.
+	 */
+   public synchronized long getFrames() {
+      return frames;
+   }
+}
@@ -0,0 +1,210 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class reads back a recording made by a RunRecorder, one frame at a
+ ** time.
+ **/
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class RunReplay {
+   private DataInputStream in;
+   private boolean checksums;
+   private long seed;
+   private long startTick;
+   private Map<String, String> properties = new LinkedHashMap<String, String>();
+
+   // The frame last read.
+   private long tick;
+   private int focus = SceneGraph.CENTRE;
+   private double zoom = Double.NaN;
+   private long checksum;
+
+   /**
+    **   Constructor method. Reads the recording's header.
+    **
+    **   @param file The recording to replay.
+    **   @throws IOException if the file can't be read or isn't a recording.
+    **/
+   public RunReplay(Path file) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(
+         Files.newInputStream(file)));
+      try {
+         if (in.readInt() != RunRecorder.MAGIC)
+            throw new IOException(file + " isn't a recording");
+         int version = in.readUnsignedByte();
+         if (version != RunRecorder.VERSION)
+            throw new IOException("Unsupported recording version " + version);
+         this.checksums = (in.readUnsignedByte() & RunRecorder.CHECKSUMS) != 0;
+         this.seed = in.readLong();
+         this.startTick = in.readLong();
+         this.tick = startTick;
+         int count = in.readInt();
+         for (int i = 0; i < count; i++)
+            properties.put(in.readUTF(), in.readUTF());
+      } catch (IOException e) {
+         in.close();
+         throw e;
+      }
+   }
+
+   /**
+    **   Reads the next frame.
+    **
+    **   @return false if there are no more frames.
+    **   @throws IOException if the file can't be read or is corrupt.
+    **/
+   public boolean next() throws IOException {
+      while (true) {
+         int tag;
+         try {
+            tag = in.readUnsignedByte();
+         } catch (EOFException e) {
+            return false;
+         }
+         switch (tag) {
+            case RunRecorder.FOCUS:
+               focus = (int) readVarLong(in);
+               break;
+            case RunRecorder.ZOOM:
+               zoom = in.readDouble();
+               break;
+            case RunRecorder.FRAME:
+               tick += readVarLong(in);
+               if (checksums)
+                  checksum = in.readLong();
+               return true;
+            default:
+               throw new IOException("Corrupt recording: unknown record " + tag);
+         }
+      }
+   }
+
+   /**
+    **   Finishes reading the recording.
+    **
+    **   @throws IOException if the file can't be closed.
+    **/
+   public void close() throws IOException {
+      in.close();
+   }
+
+   // Reads a number written by RunRecorder.writeVarLong().
+   static long readVarLong(DataInputStream in) throws IOException {
+      long zigzag = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         int b = in.readUnsignedByte();
+         zigzag |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0)
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+      throw new IOException("Corrupt recording: number too long");
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The seed the bodies' starting positions came from.
+	 */
+   public long getSeed() {
+      return seed;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The tick the run started from.
+	 */
+   public long getStartTick() {
+      return startTick;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The properties the run was started with.
+	 */
+   public Map<String, String> getProperties() {
+      return Collections.unmodifiableMap(properties);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return Whether a checksum was recorded for each frame.
+	 */
+   public boolean hasChecksums() {
+      return checksums;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The tick the frame last read was drawn at.
+	 */
+   public long getTick() {
+      return tick;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The node of the body in focus when the frame last read was
+    * drawn, or SceneGraph.CENTRE for Sol.
+	 */
+   public int getFocus() {
+      return focus;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The zoom the frame last read was drawn with.
+	 */
+   public double getZoom() {
+      return zoom;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The checksum of the frame last read, if checksums were
+    * recorded.
+	 */
+   public long getChecksum() {
+      return checksum;
+   }
+}
@@ -22,7 +22,8 @@
 
 /**
  ** This class represents a satellite in space, which orbits a primary, 
- ** utilised in the Solar program.
+ ** utilised in the Solar program. The orbital state lives in a row of a
+ ** BodyTable; a Satellite is a named view onto that row.
  **/
 
 /**
@@ -30,14 +31,14 @@
  **   @version 1.0
  **/
 public class Satellite extends Point {
-   private double distance;
-   private double angle;
-   private double speed;
+   private BodyTable bodies;
+   private int index;
    private Satellite primary;
    
    /**
     **   Constructor method. Used for moon-type satellites.
     **
+    **   @param bodies The table to store the body's orbital state in.
     **   @param distance The distance of the body from its primary.
     **   @param radius The radius of the body (the table I used for values had 
     **   radii rather than diameters).
@@ -47,21 +48,53 @@ public class Satellite extends Point {
     **   @param colour The colour of the body.
     **   @param primary The primary, or orbital target, of the satellite.
     **/
-	public Satellite(double distance, double angle, double radius, double speed, 
-                    String name, String colour, Satellite primary) {
+	public Satellite(BodyTable bodies, double distance, double angle, 
+                    double radius, double speed, String name, String colour, 
+                    Satellite primary) {
 		super(radius, name, colour, false);
-		this.distance = distance;
-		this.angle = angle;
+      if (primary != null && primary.bodies != bodies)
+         throw new IllegalArgumentException(name + " and its primary must " +
+                                            "share a BodyTable");
+      this.bodies = bodies;
       // Determines the speed as the result of 1 - (the sidereal orbital period 
       // of the body in years/1000), which gives a speed relative to that of
       // Terra
-		this.speed = (1 - (speed/1000));
+		this.index = bodies.add(distance, angle, radius * 2, (1 - (speed/1000)),
+                              primary == null ? BodyTable.NO_PRIMARY 
+                                              : primary.index,
+                              SolarCanvas.getColourIndex(colour));
+      this.primary = primary;
+	}
+   
+   /**
+    **   Constructor method. Used for bodies already stored in a table (e.g.
+    **   loaded from a Catalogue).
+    **
+    **   @param bodies The table the body's orbital state is stored in.
+    **   @param index The row of the table the body is stored in.
+    **   @param name The name of the body.
+    **   @param primary The primary, or orbital target, of the satellite, or
+    **   null if it orbits the centre point.
+    **/
+	public Satellite(BodyTable bodies, int index, String name, 
+                    Satellite primary) {
+		super(bodies.getDiameter(index) / 2, name, 
+            SolarCanvas.COLOUR_NAMES[bodies.getColour(index)], false);
+      int primaryIndex = primary == null ? BodyTable.NO_PRIMARY : primary.index;
+      if (bodies.getPrimary(index) != primaryIndex || 
+          (primary != null && primary.bodies != bodies))
+         throw new IllegalArgumentException(name + " doesn't orbit " + 
+                                            (primary == null ? "the centre" 
+                                                             : primary.getName()));
+      this.bodies = bodies;
+      this.index = index;
       this.primary = primary;
 	}
    
    /**
     **   Constructor function. Used for non-moon-type satellites.
     **
+    **   @param bodies The table to store the body's orbital state in.
     **   @param distance The distance of the body from its primary.
     **   @param radius The radius of the body (the table I used for values had 
     **   radii rather than diameters).
@@ -70,22 +103,18 @@ public class Satellite extends Point {
     **   @param name The name of the body.
     **   @param colour The colour of the body.
     **/
-	public Satellite(double distance, double angle, double radius, double speed, 
-                    String name, String colour) {
-		super(radius, name, colour, false);
-		this.distance = distance;
-		this.angle = angle;
-		this.speed = (1 - (speed/1000));
+	public Satellite(BodyTable bodies, double distance, double angle, 
+                    double radius, double speed, String name, String colour) {
       // Planets orbit the centre point, or are the centre point, so don't need
       // primaries
-      this.primary = null;
+		this(bodies, distance, angle, radius, speed, name, colour, null);
 	}
 	
 	/**
 	 **   Moves the body along its orbit according to its current speed.
 	 **/
 	public void move() {
-	   this.angle += this.speed;
+	   bodies.move(index, index + 1);
 	}  
    
 	/**
@@ -94,7 +123,7 @@ public class Satellite extends Point {
 	 * @return The distance between this body and its primary.
 	 */
 	public double getDistance() {
-	   return this.distance * 5;
+	   return bodies.getTrueDistance(index) * BodyTable.DISTANCE_SCALE;
 	}
 	
 	/**
@@ -103,7 +132,73 @@ public class Satellite extends Point {
 	 * @return The angle along this body's orbit it is currently at.
 	 */
 	public double getAngle() {
-	   return this.angle;
+	   return bodies.getTrueAngle(index);
+	}
+	
+	/**
+	 *	Accessor function.
+    *
+	 * @return The mean anomaly of this body, which advances at a constant
+    * speed. The same as getAngle() unless the orbit is eccentric or inclined.
+	 */
+	public double getMeanAngle() {
+	   return bodies.getAngle(index);
+	}
+	
+	/**
+	 **   Works out how far this body is from its primary at any point in time,
+    **   without moving it.
+	 **
+	 **   @param t The time, in ticks since the start of the simulation.
+	 **   @return The distance between this body and its primary at that time.
+	 **/
+	public double getDistanceAt(double t) {
+      double[] position = new double[2];
+      bodies.getTruePositionAt(index, t, position);
+	   return position[0] * BodyTable.DISTANCE_SCALE;
+	}
+	
+	/**
+	 **   Works out where along its orbit this body is at any point in time,
+    **   without moving it.
+	 **
+	 **   @param t The time, in ticks since the start of the simulation.
+	 **   @return The angle along this body's orbit at that time, in [0, 360).
+	 **/
+	public double getAngleAt(double t) {
+      double[] position = new double[2];
+      bodies.getTruePositionAt(index, t, position);
+	   return position[1];
+	}
+	
+	/**
+	 **   Works out the horizontal position of this body relative to the centre
+    **   point at any point in time, in the same units as getDistance(). 
+	 **
+	 **   @param t The time, in ticks since the start of the simulation.
+	 **   @return The x co-ordinate (positive is to the right).
+	 **/
+	public double getXAt(double t) {
+      double[] position = new double[2];
+      bodies.getTruePositionAt(index, t, position);
+      double x = position[0] * BodyTable.DISTANCE_SCALE * 
+                 Math.sin(Math.toRadians(position[1]));
+	   return primary == null ? x : x + primary.getXAt(t);
+	}
+	
+	/**
+	 **   Works out the vertical position of this body relative to the centre
+    **   point at any point in time, in the same units as getDistance().
+	 **
+	 **   @param t The time, in ticks since the start of the simulation.
+	 **   @return The y co-ordinate (positive is downwards, as on screen).
+	 **/
+	public double getYAt(double t) {
+      double[] position = new double[2];
+      bodies.getTruePositionAt(index, t, position);
+      double y = position[0] * BodyTable.DISTANCE_SCALE * 
+                 Math.cos(Math.toRadians(position[1]));
+	   return primary == null ? y : y + primary.getYAt(t);
 	}
 	
 	/**
@@ -112,7 +207,23 @@ public class Satellite extends Point {
 	 * @return The speed of this body.
 	 */
 	public double getSpeed() {
-	   return this.speed;
+	   return bodies.getSpeed(index);
+	}
+   
+	/**
+	 *	Accessor function.
+	 * @return The body's diameter.
+	 */
+	public double getDiameter() {
+	   return bodies.getDiameter(index);
+	}
+	
+	/**
+	 *	Accessor function.
+	 * @return The body's radius.
+	 */
+	public double getRadius() {
+	   return bodies.getDiameter(index)/2;
 	}
    
 	/**
@@ -123,6 +234,37 @@ public class Satellite extends Point {
    public Satellite getPrimary() {
       return primary;
    } 
+   
+	/**
+	 *	Accessor function.
+    *
+	 * @return The row of the BodyTable this body is stored in.
+	 */
+   public int getIndex() {
+      return index;
+   } 
+   
+	/**
+	 *	Accessor function.
+    *
+	 * @return The BodyTable this body is stored in.
+	 */
+   public BodyTable getBodies() {
+      return bodies;
+   } 
+	
+	/**
+	 **   Puts this body on an eccentric and/or inclined orbit, of which its
+    **   distance is the semi-major axis.
+	 **
+	 **   @param eccentricity The eccentricity of the orbit, in [0, 1).
+	 **   @param inclination The inclination of the orbit, in degrees.
+	 **   @param periapsis The argument of periapsis of the orbit, in degrees.
+	 **/
+	public void setOrbit(double eccentricity, double inclination, 
+                        double periapsis) {
+	   bodies.setOrbit(index, eccentricity, inclination, periapsis);
+	}
 	
 	/**
 	 *	Mutator function.
@@ -130,7 +272,23 @@ public class Satellite extends Point {
 	 * @param speed Sets the speed of this body.
 	 */
 	public void setSpeed(double speed) {
-	   this.speed = speed;
+	   bodies.setSpeed(index, speed);
    } 
+   
+	/**
+	 *	Mutator function.
+	 * @param diameter The new diameter.
+	 */
+	public void setDiameter(double diameter) {
+	   bodies.setDiameter(index, diameter);
+	}
+	
+	/**
+	 *	Mutator function.
+	 * @param colour The new colour.
+	 */
+	public void setColour(String colour) {
+      super.setColour(colour);
+	   bodies.setColour(index, SolarCanvas.getColourIndex(colour));
+	}
 }
-
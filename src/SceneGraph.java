@@ -0,0 +1,238 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class arranges the named bodies of a scene into a tree, each body
+ ** under the one it orbits, to any depth (moons of moons and so on). The
+ ** bodies that orbit the centre point are the roots.
+ **
+ ** The bodies are stored breadth-first, so every body comes after its
+ ** primary and the children of a body are next to each other: body n's
+ ** children are getFirstChild(n) onwards, getChildCount(n) of them. Walking
+ ** the nodes in order is enough to place each after its primary.
+ **
+ ** Where each body lands on the display (its world position) is stored here
+ ** too, so that it is worked out once a frame and then shared by the body's
+ ** children and anything else drawing it.
+ **/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class SceneGraph {
+   /** The parent of the roots, i.e. the centre point. */
+   public static final int CENTRE = -1;
+
+   private Satellite[] nodes;
+   private int[] parent;
+   private int[] firstChild;
+   private int[] childCount;
+   private int rootCount = 0;
+   private Map<Satellite, Integer> index = new HashMap<Satellite, Integer>();
+   private double[] worldX;
+   private double[] worldY;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param bodies The bodies, in any order. Each must orbit either the
+    **   centre point (i.e. have no primary) or another of the bodies. Bodies
+    **   with the same primary keep the order they are given in.
+    **/
+   public SceneGraph(Satellite[] bodies) {
+      LinkedHashMap<Satellite, ArrayList<Satellite>> children = 
+         new LinkedHashMap<Satellite, ArrayList<Satellite>>();
+      ArrayList<Satellite> roots = new ArrayList<Satellite>();
+      for (Satellite body : bodies)
+         children.put(body, new ArrayList<Satellite>());
+      for (Satellite body : bodies) {
+         Satellite primary = body.getPrimary();
+         if (primary == null)
+            roots.add(body);
+         else if (children.containsKey(primary))
+            children.get(primary).add(body);
+         else
+            throw new IllegalArgumentException(body.getName() + " orbits " + 
+                                               primary.getName() + ", which " +
+                                               "isn't in the scene");
+      }
+
+      int size = children.size();
+      nodes = new Satellite[size];
+      parent = new int[size];
+      firstChild = new int[size];
+      childCount = new int[size];
+      worldX = new double[size];
+      worldY = new double[size];
+
+      // Lays the tree out breadth-first: the roots, then the children of
+      // each node in turn.
+      int tail = 0;
+      for (Satellite root : roots)
+         tail = this.append(root, CENTRE, tail);
+      rootCount = tail;
+      for (int n = 0; n < tail; n++) {
+         firstChild[n] = tail;
+         for (Satellite child : children.get(nodes[n]))
+            tail = this.append(child, n, tail);
+         childCount[n] = tail - firstChild[n];
+      }
+      // Anything not reached orbits in a loop rather than about the centre.
+      if (tail < size)
+         throw new IllegalArgumentException("Some bodies don't orbit the " +
+                                            "centre point, even indirectly");
+   }
+
+   private int append(Satellite body, int parentNode, int at) {
+      if (index.containsKey(body))
+         throw new IllegalArgumentException(body.getName() + 
+                                            " is in the scene twice");
+      nodes[at] = body;
+      parent[at] = parentNode;
+      index.put(body, at);
+      return at + 1;
+   }
+
+   /**
+    **   Finds a body's node.
+    **
+    **   @param body The body to look for.
+    **   @return The body's node, or -1 if it isn't in the tree.
+    **/
+   public int indexOf(Satellite body) {
+      Integer n = index.get(body);
+      return n == null ? -1 : n;
+   }
+
+   /**
+    **   Finds a body by name. Case insensitive.
+    **
+    **   @param name The name of the body to look for.
+    **   @return The first body in the tree with that name, or null if none.
+    **/
+   public Satellite find(String name) {
+      for (Satellite body : nodes)
+         if (body.getName().equalsIgnoreCase(name))
+            return body;
+      return null;
+   }
+
+	/**
+	 **   Notes where a body has been placed on the display this frame.
+	 **
+	 **   @param n The body's node.
+	 **   @param x The distance of its centre from the left of the display.
+	 **   @param y The distance of its centre from the top of the display.
+	 **/
+   public void setWorldPosition(int n, double x, double y) {
+      worldX[n] = x;
+      worldY[n] = y;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies in the tree.
+	 */
+   public int size() {
+      return nodes.length;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies orbiting the centre point, which are the
+    * first nodes.
+	 */
+   public int getRootCount() {
+      return rootCount;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param n The body's node.
+	 * @return The body.
+	 */
+   public Satellite getBody(int n) {
+      return nodes[n];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param n The body's node.
+	 * @return The node of the body's primary, or CENTRE.
+	 */
+   public int getParent(int n) {
+      return parent[n];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param n The body's node.
+	 * @return The node of the body's first child, if it has any.
+	 */
+   public int getFirstChild(int n) {
+      return firstChild[n];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param n The body's node.
+	 * @return The number of bodies orbiting the body.
+	 */
+   public int getChildCount(int n) {
+      return childCount[n];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param n The body's node.
+	 * @return The distance of the body's centre from the left of the display,
+    * as of the last frame it was placed in.
+	 */
+   public double getWorldX(int n) {
+      return worldX[n];
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param n The body's node.
+	 * @return The distance of the body's centre from the top of the display,
+    * as of the last frame it was placed in.
+	 */
+   public double getWorldY(int n) {
+      return worldY[n];
+   }
+}
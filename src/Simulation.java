@@ -0,0 +1,210 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class advances the bodies of a SolarScene on a thread of its own, at
+ ** a fixed number of ticks per second regardless of how long frames take to
+ ** draw. If it falls behind (e.g. the machine is busy), it runs the missed
+ ** ticks back-to-back to catch up, so simulated time keeps pace with real
+ ** time.
+ **
+ ** Bodies are moved in place, so while the thread runs it publishes the
+ ** table (see BodyTable.publish()) after each tick, and frames are drawn
+ ** from the newest state published. Every body in a frame is therefore at
+ ** the same tick, and a tick in progress is never seen. getTick() is
+ ** written after each tick completes.
+ **
+ ** seek() jumps the simulation to any tick at once, using the closed-form
+ ** positions kept by the BodyTable.
+ **/
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class Simulation implements Runnable {
+   // Beyond this many missed ticks the simulation gives up catching up, so
+   // that a long pause (e.g. a debugger) doesn't freeze it for as long again.
+   private static final int MAX_CATCH_UP = 1000;
+
+   private SolarScene scene;
+   private long tickNanos;
+   // Marks there being no seek() waiting to be carried out.
+   private static final long NO_SEEK = Long.MIN_VALUE;
+
+   private volatile long tick;
+   private volatile long pendingSeek = NO_SEEK;
+   private volatile boolean running = false;
+   private Thread thread;
+   private JitterStats jitter = new JitterStats("ticks");
+   private volatile FrameMetrics metrics;
+   private volatile StateServer server;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param scene The scene whose bodies to move.
+    **   @param ticksPerSecond How many times a second to move them.
+    **/
+   public Simulation(SolarScene scene, double ticksPerSecond) {
+      this.scene = scene;
+      this.tickNanos = (long) (1e9 / ticksPerSecond);
+      this.tick = scene.getBodies().getTick();
+   }
+
+   /**
+    **   Starts the simulation thread.
+    **/
+   public synchronized void start() {
+      if (running)
+         return;
+      running = true;
+      // So there is something to draw before the first tick.
+      scene.getBodies().publish();
+      thread = new Thread(this, "Solar simulation");
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   /**
+    **   Stops the simulation thread, waiting for the tick in progress.
+    **/
+   public void stop() {
+      Thread thread;
+      synchronized (this) {
+         running = false;
+         thread = this.thread;
+      }
+      if (thread == null)
+         return;
+      LockSupport.unpark(thread);
+      try {
+         thread.join();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   public void run() {
+      long next = System.nanoTime();
+      while (running) {
+         long now = System.nanoTime();
+         if (now < next) {
+            LockSupport.parkNanos(next - now);
+            continue;
+         }
+
+         if (now - next > MAX_CATCH_UP * tickNanos)
+            next = now;
+         this.applySeek();
+         jitter.record(now - next);
+         while (now >= next) {
+            this.step();
+            scene.getBodies().publish();
+            next += tickNanos;
+         }
+      }
+   }
+
+	/**
+	 **   Moves every body on by one tick, on the calling thread. Should only be
+    **   used when the simulation thread isn't running.
+	 **/
+   public void step() {
+      this.applySeek();
+      FrameMetrics metrics = this.metrics;
+      if (metrics != null)
+         metrics.begin(FrameMetrics.Phase.UPDATE);
+      scene.move();
+      if (metrics != null)
+         metrics.end(FrameMetrics.Phase.UPDATE);
+      tick = scene.getBodies().getTick();
+      StateServer server = this.server;
+      if (server != null)
+         server.publish(tick);
+   }
+
+	/**
+	 **   Jumps every body to where it is at the given tick. If the simulation
+    **   thread is running, the jump happens before its next tick.
+    **
+    **   @param tick The tick to jump to. May be before the current one.
+	 **/
+   public void seek(long tick) {
+      pendingSeek = tick;
+      if (!running)
+         this.applySeek();
+   }
+
+   private void applySeek() {
+      if (pendingSeek == NO_SEEK)
+         return;
+      synchronized (this) {
+         long seekTo = pendingSeek;
+         if (seekTo == NO_SEEK)
+            return;
+         pendingSeek = NO_SEEK;
+         scene.getBodies().seek(seekTo);
+         tick = seekTo;
+      }
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of ticks completed so far.
+	 */
+   public long getTick() {
+      return tick;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return How late ticks have started compared to the fixed schedule.
+	 */
+   public JitterStats getJitter() {
+      return jitter;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param metrics Where to time each tick as the UPDATE phase, or null
+    * not to time them. Defaults to null.
+	 */
+   public void setMetrics(FrameMetrics metrics) {
+      this.metrics = metrics;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param server What to publish the state of the bodies to after each
+    * tick, or null not to publish it. Defaults to null.
+	 */
+   public void setServer(StateServer server) {
+      this.server = server;
+   }
+}
@@ -0,0 +1,527 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class saves the whole state of a SolarScene to a file, and restores
+ ** it, so a run can carry on where it left off without building the solar
+ ** system again.
+ **
+ ** Every body's position follows from its phase (its angle on tick 0) and
+ ** speed, which only change when a body is edited, so a snapshot is those
+ ** and the other fixed columns of the BodyTable plus the tick. They can be
+ ** copied out while the simulation thread goes on moving the bodies, and
+ ** restoring seeks the table to the saved tick. Changes made to a body
+ ** while a snapshot is being written may be only partly saved.
+ **
+ ** As with a Catalogue, the file is memory-mapped and read and written a
+ ** column at a time with bulk copies, so a million bodies restore in
+ ** milliseconds (plus one tick's worth of work to place them).
+ **
+ ** Format version 1, little-endian throughout:
+ **
+ **   header      magic "SOLS", version, count, flags (ints), tick (long),
+ **               zoom (double), focus, named, belts (ints), length of the
+ **               string table (long), radius of the centre point (double),
+ **               padded to 64 bytes
+ **   distance    double[count]
+ **   phase       double[count], in degrees
+ **   speed       double[count], in degrees per tick
+ **   diameter    double[count]
+ **   elements    eccentricity, inclination and argument of periapsis, as
+ **               three double[count] columns (only if flags has ELEMENTS)
+ **   primary     int[count], the row of the body's primary, or -1
+ **   colour      byte[count], an index into SolarCanvas' palette
+ **   row         int[named], the row of each named body: the planets, then
+ **               the dwarf planets, then the moons
+ **   kind        byte[named], PLANET, DWARF_PLANET or MOON as in Catalogue
+ **   first       int[belts], the row of each belt's first body
+ **   size        int[belts], the number of bodies in each belt
+ **   inner       double[belts], in AU
+ **   outer       double[belts], in AU
+ **   strings     int[strings + 1], where each string starts in the string
+ **               table (the last marks its end): the names of the named
+ **               bodies, the name and colour of each belt, then the name
+ **               and colour of the centre point
+ **   table       the strings, in UTF-8
+ **
+ ** focus is the index among the named bodies of the one in focus, or -1 for
+ ** the centre point. Each column starts on an 8-byte boundary.
+ **/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class Snapshot {
+   /** The first four bytes of every snapshot: "SOLS". */
+   public static final int MAGIC = 0x534C4F53;
+   /** The newest version of the format this class reads and writes. */
+   public static final int VERSION = 1;
+   /** Set in the header's flags when the orbital elements are present. */
+   public static final int ELEMENTS = 1;
+
+   static final int HEADER_SIZE = 64;
+   // How many bodies are copied at a time.
+   private static final int CHUNK = 65536;
+
+   private Path path;
+   private ByteBuffer map;
+   private int version;
+   private int count;
+   private int flags;
+   private long tick;
+   private double zoom;
+   private int focus;
+   private int named;
+   private int belts;
+   private double centreRadius;
+   private Layout layout;
+
+   private Snapshot(Path path, ByteBuffer map) throws IOException {
+      this.path = path;
+      this.map = map.order(ByteOrder.LITTLE_ENDIAN);
+      if (map.capacity() < HEADER_SIZE || map.getInt(0) != MAGIC)
+         throw new IOException(path + " isn't a snapshot");
+      this.version = map.getInt(4);
+      if (version < 1 || version > VERSION)
+         throw new IOException(path + " is snapshot version " + version + 
+                               ", only up to " + VERSION + " can be read");
+      this.count = map.getInt(8);
+      this.flags = map.getInt(12);
+      this.tick = map.getLong(16);
+      this.zoom = map.getDouble(24);
+      this.focus = map.getInt(32);
+      this.named = map.getInt(36);
+      this.belts = map.getInt(40);
+      long stringsLength = map.getLong(48);
+      this.centreRadius = map.getDouble(56);
+      if (count < 0 || named < 0 || named > count || belts < 0 || 
+          stringsLength < 0 || focus < -1 || focus >= named)
+         throw new IOException(path + " has a corrupt header");
+      this.layout = new Layout(count, flags, named, belts, stringsLength);
+      if (layout.end != map.capacity())
+         throw new IOException(path + " should be " + layout.end + 
+                               " bytes long, but is " + map.capacity());
+   }
+
+   /**
+    **   Opens a snapshot, mapping it into memory.
+    **
+    **   @param path The snapshot file.
+    **   @return The snapshot.
+    **   @throws IOException If the file can't be read or isn't a snapshot.
+    **/
+   public static Snapshot open(Path path) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         if (channel.size() > Integer.MAX_VALUE)
+            throw new IOException(path + " is too big to map");
+         return new Snapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 
+                                               0, channel.size()));
+      }
+   }
+
+   /**
+    **   Saves a scene. The snapshot is written to a file alongside and then
+    **   moved into place, so an earlier snapshot at the same path is only
+    **   replaced once the new one is complete.
+    **
+    **   May be called on any thread; the scene's bodies may be moving at the
+    **   same time, as long as none are being added.
+    **
+    **   @param path The file to write to.
+    **   @param scene The scene to save.
+    **   @param tick The tick to save the bodies at.
+    **   @param zoom The zoom to save.
+    **   @throws IOException If the file can't be written.
+    **/
+   public static void write(Path path, SolarScene scene, long tick, double zoom)
+      throws IOException {
+      BodyTable bodies = scene.getBodies();
+      int count = bodies.size();
+      ArrayList<Satellite> namedBodies = new ArrayList<Satellite>();
+      ArrayList<Byte> kinds = new ArrayList<Byte>();
+      addNamed(scene.getPlanets(), Catalogue.PLANET, namedBodies, kinds);
+      addNamed(scene.getDwarfPlanets(), Catalogue.DWARF_PLANET, namedBodies, kinds);
+      addNamed(scene.getMoons(), Catalogue.MOON, namedBodies, kinds);
+      Belt[] belts = scene.getBelts();
+      CentrePoint centre = scene.getCentre();
+
+      ArrayList<byte[]> strings = new ArrayList<byte[]>();
+      for (Satellite body : namedBodies)
+         strings.add(utf8(body.getName()));
+      for (Belt belt : belts) {
+         strings.add(utf8(belt.getName()));
+         strings.add(utf8(belt.getColour()));
+      }
+      strings.add(utf8(centre.getName()));
+      strings.add(utf8(centre.getColour()));
+      long stringsLength = 0;
+      for (byte[] string : strings)
+         stringsLength += string.length;
+
+      boolean hasElements = false;
+      for (int i = 0; i < count && !hasElements; i++)
+         hasElements = bodies.getEccentricity(i) != 0 || 
+                       bodies.getInclination(i) != 0;
+      int flags = hasElements ? ELEMENTS : 0;
+      Layout layout = new Layout(count, flags, namedBodies.size(), belts.length,
+                                 stringsLength);
+
+      Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+      Files.deleteIfExists(temporary);
+      try (FileChannel channel = FileChannel.open(temporary, 
+                                                  StandardOpenOption.CREATE_NEW, 
+                                                  StandardOpenOption.READ, 
+                                                  StandardOpenOption.WRITE)) {
+         MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 
+                                               0, layout.end);
+         ByteBuffer out = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+         out.putInt(0, MAGIC);
+         out.putInt(4, VERSION);
+         out.putInt(8, count);
+         out.putInt(12, flags);
+         out.putLong(16, tick);
+         out.putDouble(24, zoom);
+         out.putInt(32, namedBodies.indexOf(scene.getFocusBody()));
+         out.putInt(36, namedBodies.size());
+         out.putInt(40, belts.length);
+         out.putLong(48, stringsLength);
+         out.putDouble(56, centre.getRadius());
+
+         writeBodies(out, layout, bodies, hasElements);
+         for (int n = 0; n < namedBodies.size(); n++) {
+            out.putInt(layout.row + 4 * n, namedBodies.get(n).getIndex());
+            out.put(layout.kind + n, kinds.get(n));
+         }
+         for (int b = 0; b < belts.length; b++) {
+            out.putInt(layout.first + 4 * b, belts[b].getFirst());
+            out.putInt(layout.size + 4 * b, belts[b].size());
+            out.putDouble(layout.inner + 8 * b, belts[b].getInner());
+            out.putDouble(layout.outer + 8 * b, belts[b].getOuter());
+         }
+         int offset = 0;
+         for (int s = 0; s < strings.size(); s++) {
+            out.putInt(layout.strings + 4 * s, offset);
+            out.put(layout.table + offset, strings.get(s));
+            offset += strings.get(s).length;
+         }
+         out.putInt(layout.strings + 4 * strings.size(), offset);
+         mapped.force();
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, 
+                 StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   private static void addNamed(Satellite[] bodies, byte kind, 
+                                ArrayList<Satellite> named, 
+                                ArrayList<Byte> kinds) {
+      for (Satellite body : bodies) {
+         named.add(body);
+         kinds.add(kind);
+      }
+   }
+
+   private static byte[] utf8(String string) {
+      return string.getBytes(StandardCharsets.UTF_8);
+   }
+
+   // Copies the table's columns out a chunk at a time.
+   private static void writeBodies(ByteBuffer out, Layout layout, 
+                                   BodyTable bodies, boolean hasElements) {
+      int count = layout.count;
+      int chunk = Math.max(Math.min(count, CHUNK), 1);
+      double[][] columns = new double[hasElements ? 7 : 4][chunk];
+      int[] primary = new int[chunk];
+      byte[] colour = new byte[chunk];
+      int[] at = {layout.distance, layout.phase, layout.speed, layout.diameter,
+                  layout.eccentricity, layout.inclination, layout.periapsis};
+      for (int from = 0; from < count; from += chunk) {
+         int n = Math.min(chunk, count - from);
+         for (int k = 0; k < n; k++) {
+            int i = from + k;
+            columns[0][k] = bodies.getDistance(i);
+            columns[1][k] = bodies.getPhase(i);
+            columns[2][k] = bodies.getSpeed(i);
+            columns[3][k] = bodies.getDiameter(i);
+            if (hasElements) {
+               columns[4][k] = bodies.getEccentricity(i);
+               columns[5][k] = bodies.getInclination(i);
+               columns[6][k] = bodies.getPeriapsis(i);
+            }
+            primary[k] = bodies.getPrimary(i);
+            colour[k] = (byte) bodies.getColour(i);
+         }
+         for (int c = 0; c < columns.length; c++)
+            doubles(out, at[c], count).put(from, columns[c], 0, n);
+         ints(out, layout.primary, count).put(from, primary, 0, n);
+         out.put(layout.colour + from, colour, 0, n);
+      }
+   }
+
+   /**
+    **   Builds the scene saved in the snapshot, with its bodies where they
+    **   were at the saved tick, and focuses the display as it was. Placing
+    **   bodies on eccentric orbits costs as much as a tick.
+    **
+    **   @param system The display to set the focus and zoom of.
+    **   @param pool The pool to place the bodies on in parallel, and to give
+    **   the scene's table for moving them later, or null.
+    **   @return The scene.
+    **   @throws IOException If the snapshot is corrupt.
+    **/
+   public SolarScene restore(SolarDisplay system, ForkJoinPool pool) 
+      throws IOException {
+      BodyTable bodies = new BodyTable(count);
+      bodies.setPool(pool);
+      int chunk = Math.max(Math.min(count, CHUNK), 1);
+      double[] distance = new double[chunk];
+      double[] phase = new double[chunk];
+      double[] speed = new double[chunk];
+      double[] diameter = new double[chunk];
+      int[] primary = new int[chunk];
+      byte[] colourBytes = new byte[chunk];
+      int[] colour = new int[chunk];
+      // The table is still at tick 0, so each phase goes in as the angle.
+      for (int from = 0; from < count; from += chunk) {
+         int n = Math.min(chunk, count - from);
+         doubles(map, layout.distance, count).get(from, distance, 0, n);
+         doubles(map, layout.phase, count).get(from, phase, 0, n);
+         doubles(map, layout.speed, count).get(from, speed, 0, n);
+         doubles(map, layout.diameter, count).get(from, diameter, 0, n);
+         ints(map, layout.primary, count).get(from, primary, 0, n);
+         map.get(layout.colour + from, colourBytes, 0, n);
+         for (int k = 0; k < n; k++) {
+            colour[k] = colourBytes[k] & 0xFF;
+            if (colour[k] >= SolarCanvas.COLOUR_NAMES.length)
+               throw new IOException(path + " is corrupt: row " + (from + k) + 
+                                     " has no such colour: " + colour[k]);
+         }
+         try {
+            bodies.addAll(distance, phase, diameter, speed, primary, colour, 0, n);
+         } catch (IllegalArgumentException e) {
+            throw new IOException(path + " is corrupt: " + e.getMessage());
+         }
+      }
+      if (this.hasElements()) {
+         double[] e = new double[count];
+         double[] inc = new double[count];
+         double[] periapsis = new double[count];
+         doubles(map, layout.eccentricity, count).get(0, e);
+         doubles(map, layout.inclination, count).get(0, inc);
+         doubles(map, layout.periapsis, count).get(0, periapsis);
+         bodies.setOrbits(0, e, inc, periapsis, 0, count);
+      }
+
+      ArrayList<Satellite> planets = new ArrayList<Satellite>();
+      ArrayList<Satellite> dwarfPlanets = new ArrayList<Satellite>();
+      ArrayList<Satellite> moons = new ArrayList<Satellite>();
+      Map<Integer, Satellite> byRow = new HashMap<Integer, Satellite>();
+      Satellite focusBody = null;
+      for (int n = 0; n < named; n++) {
+         int row = map.getInt(layout.row + 4 * n);
+         if (row < 0 || row >= count)
+            throw new IOException(path + " is corrupt: no row " + row);
+         int primaryRow = bodies.getPrimary(row);
+         Satellite primaryBody = primaryRow == BodyTable.NO_PRIMARY ? null 
+                                                                    : byRow.get(primaryRow);
+         if (primaryRow != BodyTable.NO_PRIMARY && primaryBody == null)
+            throw new IOException(path + " is corrupt: " + this.getString(n) + 
+                                  "'s primary isn't named before it");
+         Satellite body = new Satellite(bodies, row, this.getString(n), 
+                                        primaryBody);
+         byRow.put(row, body);
+         int kind = map.get(layout.kind + n);
+         (kind == Catalogue.PLANET ? planets 
+          : kind == Catalogue.DWARF_PLANET ? dwarfPlanets : moons).add(body);
+         if (n == focus)
+            focusBody = body;
+      }
+
+      int centreString = named + 2 * belts;
+      CentrePoint centre = new CentrePoint(centreRadius, 
+                                           this.getString(centreString), 
+                                           this.getString(centreString + 1));
+      SolarScene scene;
+      try {
+         scene = new SolarScene(bodies, centre, planets.toArray(new Satellite[0]),
+                                dwarfPlanets.toArray(new Satellite[0]),
+                                moons.toArray(new Satellite[0]));
+         for (int b = 0; b < belts; b++) {
+            Belt belt = new Belt(this.getString(named + 2 * b), 
+                                 map.getDouble(layout.inner + 8 * b), 
+                                 map.getDouble(layout.outer + 8 * b), 
+                                 map.getInt(layout.size + 4 * b), 
+                                 this.getString(named + 2 * b + 1));
+            belt.setFirst(map.getInt(layout.first + 4 * b));
+            scene.addBelt(belt);
+         }
+      } catch (IllegalArgumentException e) {
+         throw new IOException(path + " is corrupt: " + e.getMessage());
+      }
+
+      bodies.seek(tick);
+      scene.setFocus(focusBody, system);
+      system.setZoom(zoom);
+      return scene;
+   }
+
+   private String getString(int s) {
+      int start = map.getInt(layout.strings + 4 * s);
+      int end = map.getInt(layout.strings + 4 * (s + 1));
+      byte[] bytes = new byte[end - start];
+      map.get(layout.table + start, bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private static DoubleBuffer doubles(ByteBuffer map, int at, int count) {
+      return map.slice(at, count * 8).order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer();
+   }
+
+   private static IntBuffer ints(ByteBuffer map, int at, int count) {
+      return map.slice(at, count * 4).order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The file the snapshot was read from.
+	 */
+   public Path getPath() {
+      return path;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The version of the format the snapshot is in.
+	 */
+   public int getVersion() {
+      return version;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies in the snapshot.
+	 */
+   public int size() {
+      return count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The tick the snapshot was taken at.
+	 */
+   public long getTick() {
+      return tick;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The zoom when the snapshot was taken.
+	 */
+   public double getZoom() {
+      return zoom;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return Whether the snapshot holds orbital elements.
+	 */
+   public boolean hasElements() {
+      return (flags & ELEMENTS) != 0;
+   }
+
+   /**
+    ** Where each column of a snapshot starts, in bytes from the start of the
+    ** file.
+    **/
+   static class Layout {
+      final int count;
+      final int distance, phase, speed, diameter;
+      final int eccentricity, inclination, periapsis;
+      final int primary, colour, row, kind;
+      final int first, size, inner, outer, strings, table;
+      final long end;
+
+      Layout(int count, int flags, int named, int belts, long stringsLength) 
+         throws IOException {
+         this.count = count;
+         long at = HEADER_SIZE;
+         long doubles = 8L * count;
+         distance = (int) at;
+         phase = (int) (at += doubles);
+         speed = (int) (at += doubles);
+         diameter = (int) (at += doubles);
+         at += doubles;
+         if ((flags & ELEMENTS) != 0) {
+            eccentricity = (int) at;
+            inclination = (int) (at += doubles);
+            periapsis = (int) (at += doubles);
+            at += doubles;
+         } else {
+            eccentricity = inclination = periapsis = -1;
+         }
+         primary = (int) at;
+         colour = (int) (at = align(at + 4L * count));
+         row = (int) (at = align(at + count));
+         kind = (int) (at = align(at + 4L * named));
+         first = (int) (at = align(at + named));
+         size = (int) (at += 4L * belts);
+         inner = (int) (at = align(at + 4L * belts));
+         outer = (int) (at += 8L * belts);
+         strings = (int) (at += 8L * belts);
+         table = (int) (at = align(at + 4L * (named + 2L * belts + 3)));
+         end = at + stringsLength;
+         if (end > Integer.MAX_VALUE)
+            throw new IOException("A snapshot of " + count + 
+                                  " bodies is too big to map");
+      }
+
+      private static long align(long at) {
+         return (at + 7) & ~7L;
+      }
+   }
+}
@@ -20,11 +20,41 @@
  * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
  ******************************************************************************/
  
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.JMException;
+
 /**
  **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
  **   @version 1.0
  **/
 public class Solar {	 
+   // How many times a second the bodies move along their orbits.
+   private static final double TICKS_PER_SECOND = 30;
+   // Terra moves (very nearly) a degree a tick.
+   private static final double YEARS_PER_TICK = 1.0 / 360;
+   // The properties (each with any below it, e.g. solar.nbody.theta) that
+   // change what a run simulates or draws, and so are recorded with it.
+   private static final String[] RECORDED_PROPERTIES = {"solar.catalogue",
+      "solar.belt", "solar.nbody", "solar.focus", "solar.width", 
+      "solar.height", "solar.trig", "solar.orbits", "solar.trails"};
+   
+   // The masses of the planets and dwarf planets, in Earth masses, for
+   // N-body mode.
+   private static final double[] PLANET_MASSES = {0.0553, 0.815, 1, 0.107, 
+                                                  317.8, 95.2, 14.5, 17.1};
+   private static final double[] DWARF_PLANET_MASSES = {0.000157, 0.0022, 
+                                                        0.00067, 0.0005, 
+                                                        0.0028};
+   private static final double EARTH_MASSES_PER_SOL = 332946;
+   
    private enum Planets {MERCURY, VENUS, TERRA, MARS, JUPITER,
                          SATURN, URANUS, NEPTUNE}
    private enum DwarfPlanets {CERES, PLUTO, HAUMEA, MAKEMAKE, ERIS}
@@ -55,7 +85,7 @@ public class Solar {
                        FRANCISCO, MARGARET, FERDINAND, PERDITA, MAB, CUPID, 
                        TRITON, NEREID, NAIAD, THALASSA, DESPINA, GALATEA, 
                        LARISSA, PROTEUS, HALIMEDE, PSAMATHE, SAO, LAOMEDEIA, 
-                       NESO, S2004N1}
+                       NESO, S2004N1, S2011J2}
 
    /**
 	 **   Populates the solar system and animates the orbiting.
@@ -63,356 +93,1107 @@ public class Solar {
 	 **   @param args arguments passed in from the command line.
 	 **/
    public static void main(String[] args) {
-      SolarSystem system = new SolarSystem();
+      // A recording named by solar.replay is replayed as fast as it can be,
+      // off-screen, with the properties it was recorded with (unless they
+      // are given again).
+      RunReplay replay = null;
+      String replayFile = System.getProperty("solar.replay");
+      if (replayFile != null) {
+         try {
+            replay = new RunReplay(Paths.get(replayFile));
+         } catch (IOException e) {
+            System.err.println("Couldn't load the recording: " + e.getMessage());
+            System.exit(1);
+            return;
+         }
+         for (Map.Entry<String, String> property : replay.getProperties().entrySet())
+            if (System.getProperty(property.getKey()) == null)
+               System.setProperty(property.getKey(), property.getValue());
+      }
+      // The bodies start from positions generated from solar.seed, so runs
+      // with the same seed start the same way; a random one by default.
+      long seed = replay != null ? replay.getSeed()
+                                 : Long.getLong("solar.seed", new Random().nextLong());
+      // Frames are written to image files in the directory named by
+      // solar.export, if set, rather than shown.
+      String exportDirectory = System.getProperty("solar.export");
+      boolean offline = replay != null || exportDirectory != null;
+      // If solar.ephemeris names a port (0 for any free one), where the
+      // bodies are at any time is served over HTTP instead, with nothing
+      // drawn.
+      Integer ephemerisPort = Integer.getInteger("solar.ephemeris");
+      offline |= ephemerisPort != null;
+      // A simulation served elsewhere is watched, rather than one run here,
+      // if solar.connect names its server as host:port.
+      String connectTo = offline ? null : System.getProperty("solar.connect");
       
-      // Defaults the focus to Sol.
-      int previousFocus = 1;
-		CentrePoint centre = new CentrePoint(54.5, "Sol", "YELLOW");
-		
-      // Initialises all the bodies.
-      Satellite[] planets = new Satellite[8];
-      importPlanets(planets, centre);      
-      Satellite[] dwarfPlanets = new Satellite[5];
-      importDwarfPlanets(dwarfPlanets, centre);      
-      Satellite[] moons = new Satellite[173];     
-      importMoons(moons, planets);
-        	
-		while(true){
-         int focus = system.getFocus();
-         // If the focus has changed, replaces the centre point with the
-         // currently-focused one.
-         if (focus != previousFocus) {
-            switch(focus) {
-               case 1:
-                  centre.setDiameter(109);
-                  centre.setName("Sol");
-                  centre.setColour("YELLOW");
-                  
-                  system.setZoom(2.0);
-                  break;
-               case 2:case 3:case 4:case 5:case 6:case 7:case 8:case 9:
-                  for (Planets p : Planets.values())
-                     planets[p.ordinal()].setFocus(false);
-                  
-                  centre.setDiameter(planets[focus - 2].getDiameter());
-                  centre.setName(planets[focus - 2].getName());
-                  centre.setColour(planets[focus - 2].getColour());
-                  planets[focus - 2].setFocus(true);
-                  
-                  system.setZoom(35.0);
-                  break;
-               default:
-            } 
-            previousFocus = focus;            
+      // Frames are paced to the screen's refresh rate, or not at all when
+      // drawing off-screen (unless watching a served simulation, whose
+      // frames only come so fast).
+      final FramePacer pacer = new FramePacer(
+         Double.parseDouble(System.getProperty("solar.fps", 
+            offline || (GraphicsEnvironment.isHeadless() && connectTo == null) 
+               ? "0" : "" + FramePacer.getDisplayRefreshRate())));
+      // Each phase of a frame is timed, and the times can be watched over
+      // JMX, unless solar.metrics is false. They are also printed every
+      // solar.metrics.log seconds if that is set.
+      final FrameMetrics metrics = createMetrics(pacer);
+      SolarDisplay system = createDisplay(metrics, offline);
+      // Stops after this many frames if set, e.g. for a performance run.
+      long frameLimit = Long.getLong("solar.frames", Long.MAX_VALUE);
+      if (connectTo != null) {
+         System.exit(watch(connectTo, system, metrics, pacer, frameLimit));
+         return;
+      }
+      
+      // Bodies come from the snapshot named by solar.resume if there is one,
+      // carrying on from where it was taken, else from the catalogue named
+      // by solar.catalogue, else from the one compiled in.
+      SolarScene scene;
+      double[] masses = null;
+      long resumeTick = 0;
+      // Large tables of bodies move on every core, or on as many threads as
+      // solar.threads says (1 for just the simulation thread).
+      int threads = Integer.getInteger("solar.threads", 0);
+      ForkJoinPool pool = threads == 1 ? null 
+                          : threads > 1 ? new ForkJoinPool(threads) 
+                                        : ForkJoinPool.commonPool();
+      String catalogueFile = System.getProperty("solar.catalogue");
+      String resumeFile = System.getProperty("solar.resume");
+      if (resumeFile != null) {
+         try {
+            Snapshot snapshot = Snapshot.open(Paths.get(resumeFile));
+            scene = snapshot.restore(system, pool);
+            resumeTick = snapshot.getTick();
+         } catch (IOException e) {
+            System.err.println("Couldn't resume: " + e.getMessage());
+            System.exit(1);
+            return;
          }
-         
-         // Adds the centre point to the display.
-		   system.drawSolarObject(0,0, (centre.getDiameter() * system.getZoom()), 
-                                      centre.getColour());
-         
-         // If the focus is on Sol, populates the display with the planets, 
-         // dwarf planets and (certain) moons - see next comment.
-         if (focus == 1) {
-            for (Planets p : Planets.values()) {
-               Satellite currPlanet = planets[p.ordinal()];
-               double currSize = currPlanet.getDiameter() * system.getZoom();
-               // If any body is so small at the current zoom level that it
-               // is invisible, the program doesn't bother rendering it.
-               if (currSize > 0.1) {
-                  double currDist = currPlanet.getDistance() + 
-                                    (centre.getDiameter() * system.getZoom());
-                  system.drawSolarObject(currDist, currPlanet.getAngle(), 
-                                         currSize, currPlanet.getColour());
-               }
-               currPlanet.move();
+      } else if (catalogueFile == null) {
+         scene = createScene(new Random(seed));
+         masses = getMasses(scene);
+      } else {
+         try {
+            Catalogue catalogue = Catalogue.open(Paths.get(catalogueFile));
+            scene = createScene(catalogue, new Random(seed));
+            masses = catalogue.getMasses();
+         } catch (IOException e) {
+            System.err.println("Couldn't load the catalogue: " + e.getMessage());
+            System.exit(1);
+            return;
+         }
+      }
+      if (resumeFile == null)
+         addBelts(scene);
+      scene.getBodies().setPool(pool);
+      if (ephemerisPort != null) {
+         serveEphemerides(scene, ephemerisPort);
+         return;
+      }
+      // Bodies are drawn with trails behind them if solar.trails is set.
+      scene.setTrails(createTrails(scene));
+      // Positions are projected with sines and cosines worked out as
+      // solar.trig says: exact (the default), table or incremental.
+      scene.setProjection(new Projection(Projection.Mode.valueOf(
+         System.getProperty("solar.trig", "exact").toUpperCase())));
+      // And with their orbits drawn if solar.orbits is set.
+      final OrbitPaths orbits = createOrbitPaths(scene);
+      scene.setOrbitPaths(orbits);
+      // Starts focused on the body named by solar.focus, if there is one.
+      String focusName = System.getProperty("solar.focus");
+      if (focusName != null) {
+         Satellite focus = scene.getGraph().find(focusName);
+         if (focus == null) {
+            System.err.println("There's no body called " + focusName);
+            System.exit(1);
+         }
+         scene.setFocus(focus, system);
+      }
+      if (Boolean.getBoolean("solar.nbody")) {
+         // Snapshots hold neither masses nor velocities.
+         if (masses == null) {
+            System.err.println("N-body runs can't be resumed");
+            System.exit(1);
+         }
+         scene.setNBody(createNBody(scene, masses, pool));
+      }
+      
+      // The bodies move on a thread of their own, at a fixed rate, and frames
+      // are drawn from wherever they have got to.
+      final Simulation simulation = new Simulation(scene, 
+         Double.parseDouble(System.getProperty("solar.tps", 
+                                               "" + TICKS_PER_SECOND)));
+      simulation.setMetrics(metrics);
+      // The state of the bodies is served to StateClients after every tick
+      // on the port named by solar.serve (0 for any free one), if set.
+      final StateServer server = createServer(scene, simulation);
+      // Starts from a later (or earlier) point in time if asked to.
+      long startTick = replay != null ? replay.getStartTick() 
+                                      : Long.getLong("solar.start", resumeTick);
+      
+      // The run is recorded to the file named by solar.record, if set. Only
+      // replayed frames are drawn at exactly their tick, so only they have
+      // their checksums recorded.
+      RunRecorder recorder = null;
+      String recordFile = System.getProperty("solar.record");
+      if (recordFile != null) {
+         // Replays start from solar.seed, not the snapshot.
+         if (resumeFile != null) {
+            System.err.println("Resumed runs can't be recorded");
+            System.exit(1);
+         }
+         try {
+            recorder = new RunRecorder(Paths.get(recordFile), seed, 
+                                       getRecordedProperties(), startTick, 
+                                       replay != null);
+         } catch (IOException e) {
+            System.err.println("Couldn't start recording: " + e.getMessage());
+            System.exit(1);
+         }
+      }
+      ChecksumDisplay checksums = null;
+      if ((recorder != null && recorder.hasChecksums()) || 
+          (replay != null && replay.hasChecksums())) {
+         checksums = new ChecksumDisplay(system);
+         system = checksums;
+      }
+      
+      // Snapshots are saved to the file named by solar.checkpoint, if set,
+      // every solar.checkpoint.interval seconds and on the way out.
+      Checkpointer checkpointer = null;
+      String checkpointFile = System.getProperty("solar.checkpoint");
+      if (checkpointFile != null)
+         checkpointer = new Checkpointer(Paths.get(checkpointFile), scene, 
+                                         simulation, system);
+      
+      final long startTime = System.nanoTime();
+      final RunRecorder finalRecorder = recorder;
+      final Checkpointer finalCheckpointer = checkpointer;
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+         public void run() {
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            long frames = pacer.getFrames();
+            System.out.printf("%d frames in %.2fs (%.1f frames/sec), %d dropped%n",
+                              frames, seconds, frames / seconds, 
+                              pacer.getDroppedFrames());
+            System.out.println(simulation.getJitter());
+            System.out.println(pacer.getJitter());
+            if (metrics != null)
+               System.out.println(metrics);
+            if (orbits != null)
+               System.out.println(orbits);
+            if (server != null) {
+               System.out.println(server);
+               server.close();
             }
-            for (DwarfPlanets dp : DwarfPlanets.values()) {
-               Satellite currDwarfPlanet = dwarfPlanets[dp.ordinal()];
-               double currSize = currDwarfPlanet.getDiameter()*system.getZoom();
-               if (currSize > 0.1) {
-                  double currDist = currDwarfPlanet.getDistance() + 
-                                    (centre.getDiameter() * system.getZoom());
-                  
-                  system.drawSolarObject(currDist, currDwarfPlanet.getAngle(), 
-                                         currSize, currDwarfPlanet.getColour());
+            if (finalRecorder != null) {
+               try {
+                  finalRecorder.close();
+               } catch (IOException e) {
+                  System.err.println("Couldn't finish recording: " + e.getMessage());
                }
-               currDwarfPlanet.move();
-            }    
-         }       
-         // For the moons, if Sol is the current focus, they're all populated.
-         // If any of the planets is the focus, only that planet's moons are.
-         // The size-visibility rule still applies (hence why only 4-5 of 
-         // Jupiter or Saturn's 60+ moons show up, despite all being present).
-         for (Moons m : Moons.values()) {
-            Satellite currMoon = moons[m.ordinal()];
-            if (focus > 1) {
-               if (currMoon.getPrimary().getFocus()) {
-                  double currMoonSize = currMoon.getDiameter() * system.getZoom();
-                  if (currMoonSize > 0.1) {
-                     double currMoonDist = currMoon.getDistance() + 
-                                           (centre.getDiameter() * system.getZoom());
-                     
-                     system.drawSolarObject(currMoonDist, currMoon.getAngle(),
-                                            currMoonSize, currMoon.getColour());
-                  }
-               }
-            } else if (focus == 1) {
-               double currMoonSize = currMoon.getDiameter() * system.getZoom();
-               if (currMoonSize > 0.1) {
-                  Satellite currPrimary = currMoon.getPrimary();
-                  double currMoonDist = currMoon.getDistance() + 
-                                        (currPrimary.getDiameter() * system.getZoom());
-                  double primaryDist = currPrimary.getDistance() +
-                                       (centre.getDiameter() * system.getZoom());
-                  double primaryAngle = currPrimary.getAngle();
-                  
-                  system.drawSolarObjectAbout(currMoonDist, currMoon.getAngle(), 
-                                              currMoonSize, currMoon.getColour(), 
-                                              primaryDist, primaryAngle);
-                  currMoon.move();
+            }
+            if (finalCheckpointer != null) {
+               finalCheckpointer.stop();
+               try {
+                  finalCheckpointer.checkpoint();
+               } catch (IOException e) {
+                  System.err.println("Couldn't save a checkpoint: " + e.getMessage());
                }
             }
-            currMoon.move();
          }
-         
-         // The drawing is pushed to the screen.
-		   system.finishedDrawing();
+      });
+      // A restored scene is already at its tick.
+      if (resumeFile == null || startTick != resumeTick)
+         simulation.seek(startTick);
+      
+      if (replay != null) {
+         System.exit(replay(replay, simulation, scene, system, checksums, 
+                            recorder, metrics, pacer, frameLimit));
+         return;
+      }
+      if (exportDirectory != null) {
+         System.exit(export(Paths.get(exportDirectory), simulation, scene, 
+                            system, metrics, pacer, frameLimit));
+         return;
+      }
+      simulation.start();
+      if (checkpointer != null)
+         checkpointer.start((long) (1000 * Double.parseDouble(
+            System.getProperty("solar.checkpoint.interval", "60"))));
+      double[] click = new double[2];
+		for (long frame = 0; frame < frameLimit; frame++) {
+         pacer.awaitFrame();
+         // Number keys focus on Sol or a planet, and clicking on any body
+         // focuses on it (or, off every body, on the focus's primary).
+         scene.setFocus(system.getFocus(), system);
+         if (system.takeClick(click))
+            scene.focusAt(click[0], click[1], system);
+         int focus = scene.getFocusNode();
+         double zoom = system.getZoom();
+         drawFrame(scene, system, metrics);
+         // The tick the frame showed, which the simulation may be past.
+         recorder = record(recorder, scene.getDrawnTick(), focus, zoom, 0);
 	   }
+      System.exit(0);
 	}
    
+	/**
+	 **   Draws every frame of a recording, moving the bodies on to the tick
+    **   each was drawn at and setting the focus and zoom it was drawn with,
+    **   and checks each frame's checksum against the recorded one if there
+    **   is one.
+	 **
+	 **   @param replay The recording.
+	 **   @param simulation The simulation to move the bodies with. Must not be
+    **   running.
+	 **   @param scene The scene to draw.
+	 **   @param system The display to draw onto.
+	 **   @param checksums Where to get each frame's checksum from, or null.
+	 **   @param recorder Where to record the replay, or null.
+	 **   @param metrics Where to time building each frame, or null.
+	 **   @param pacer The pacer to count frames with.
+	 **   @param frameLimit The most frames to replay.
+	 **   @return 0 if every frame matched its checksum, otherwise 1.
+	 **/
+   private static int replay(RunReplay replay, Simulation simulation, 
+                             SolarScene scene, SolarDisplay system, 
+                             ChecksumDisplay checksums, RunRecorder recorder,
+                             FrameMetrics metrics, FramePacer pacer, 
+                             long frameLimit) {
+      long mismatches = 0;
+      long frame = 0;
+      try {
+         for (; frame < frameLimit && replay.next(); frame++) {
+            pacer.awaitFrame();
+            long tick = replay.getTick();
+            if (tick < simulation.getTick())
+               simulation.seek(tick);
+            while (simulation.getTick() < tick)
+               simulation.step();
+            int focus = replay.getFocus();
+            if (focus < SceneGraph.CENTRE || focus >= scene.getGraph().size())
+               throw new IOException("Corrupt recording: no body " + focus);
+            scene.setFocus(focus == SceneGraph.CENTRE 
+                           ? null : scene.getGraph().getBody(focus), system);
+            system.setZoom(replay.getZoom());
+            drawFrame(scene, system, metrics);
+            
+            long checksum = checksums != null ? checksums.getChecksum() : 0;
+            if (replay.hasChecksums() && checksum != replay.getChecksum() && 
+                mismatches++ == 0)
+               System.out.printf("Frame %d (tick %d) doesn't match the recording%n",
+                                 frame, tick);
+            recorder = record(recorder, tick, replay.getFocus(), 
+                              replay.getZoom(), checksum);
+         }
+         replay.close();
+      } catch (IOException e) {
+         System.err.println("Couldn't read the recording: " + e.getMessage());
+         return 1;
+      }
+      if (replay.hasChecksums())
+         System.out.printf("Replayed %d frames, %d not matching the recording%n",
+                           frame, mismatches);
+      else
+         System.out.printf("Replayed %d frames%n", frame);
+      return mismatches == 0 ? 0 : 1;
+   }
+   
+	/**
+	 **   Draws an animation into image files as fast as it can be drawn and
+    **   written, moving the bodies on solar.export.ticks ticks a frame (by
+    **   default, as fast as they move live at 60 frames a second). Frames are
+    **   written as solar.export.format (png, the default, or rgba) on
+    **   solar.export.threads threads (one a core by default), with at most
+    **   solar.export.buffers frames (twice as many) waiting to be written.
+	 **
+	 **   @param directory The directory to write the frames to.
+	 **   @param simulation The simulation to move the bodies with. Must not be
+    **   running.
+	 **   @param scene The scene to draw.
+	 **   @param system The display to draw onto. Must be an
+    **   OffscreenSolarSystem.
+	 **   @param metrics Where to time building each frame, or null.
+	 **   @param pacer The pacer to count frames with.
+	 **   @param frameLimit The number of frames to draw, or Long.MAX_VALUE for
+    **   a simulated year's worth.
+	 **   @return 0 if every frame was written, otherwise 1.
+	 **/
+   private static int export(Path directory, Simulation simulation, 
+                             SolarScene scene, SolarDisplay system, 
+                             FrameMetrics metrics, FramePacer pacer, 
+                             long frameLimit) {
+      OffscreenSolarSystem screen = (OffscreenSolarSystem) system;
+      double ticksPerFrame = Double.parseDouble(System.getProperty(
+         "solar.export.ticks", "" + Double.parseDouble(
+            System.getProperty("solar.tps", "" + TICKS_PER_SECOND)) / 60));
+      FrameExporter.Format format = FrameExporter.Format.valueOf(
+         System.getProperty("solar.export.format", "png").toUpperCase());
+      int threads = Integer.getInteger("solar.export.threads", 
+                                       Runtime.getRuntime().availableProcessors());
+      int buffers = Integer.getInteger("solar.export.buffers", 2 * threads);
+      long frames = frameLimit != Long.MAX_VALUE ? frameLimit 
+                    : (long) Math.ceil(1 / YEARS_PER_TICK / ticksPerFrame);
+      
+      long start = System.nanoTime();
+      long startTick = simulation.getTick();
+      try {
+         FrameExporter exporter = new FrameExporter(directory, format, 
+                                                    screen.getWidth(), 
+                                                    screen.getHeight(), 
+                                                    threads, buffers);
+         for (long frame = 0; frame < frames; frame++) {
+            pacer.awaitFrame();
+            long tick = startTick + (long) Math.floor(frame * ticksPerFrame);
+            while (simulation.getTick() < tick)
+               simulation.step();
+            scene.setFocus(system.getFocus(), system);
+            drawFrame(scene, system, metrics);
+            exporter.submit(screen.getImage());
+         }
+         exporter.close();
+         double seconds = (System.nanoTime() - start) / 1e9;
+         System.out.printf("Exported %d frames (%.1fMB) to %s in %.2fs " + 
+                           "(%.1f frames/sec)%n", frames, 
+                           exporter.getBytesWritten() / 1e6, directory, 
+                           seconds, frames / seconds);
+         return 0;
+      } catch (IOException e) {
+         System.err.println("Couldn't export the frames: " + e.getMessage());
+         return 1;
+      } catch (InterruptedException e) {
+         System.err.println("Export interrupted");
+         return 1;
+      }
+   }
+   
+	/**
+	 **   Watches a simulation served by a StateServer, drawing the latest
+    **   state received each frame, until the server goes away.
+	 **
+	 **   @param server The server to connect to, as host:port.
+	 **   @param system The display to draw onto.
+	 **   @param metrics Where to time building each frame, or null.
+	 **   @param pacer The pacer to pace frames with.
+	 **   @param frameLimit The most frames to draw.
+	 **   @return 0 if the server was watched until it went away or enough
+    **   frames were drawn, otherwise 1.
+	 **/
+   private static int watch(String server, SolarDisplay system, 
+                            FrameMetrics metrics, FramePacer pacer, 
+                            long frameLimit) {
+      int colon = server.lastIndexOf(':');
+      StateClient client;
+      try {
+         client = new StateClient(colon < 0 ? "localhost" 
+                                            : server.substring(0, colon),
+                                  Integer.parseInt(server.substring(colon + 1)));
+      } catch (IOException | NumberFormatException e) {
+         System.err.println("Couldn't connect to " + server + ": " + 
+                            e.getMessage());
+         return 1;
+      }
+      System.out.printf("Watching %d bodies served by %s%n", client.size(), 
+                        server);
+      
+      long start = System.nanoTime();
+      long frame = 0;
+      for (; frame < frameLimit && client.isConnected(); frame++) {
+         pacer.awaitFrame();
+         if (metrics != null)
+            metrics.begin(FrameMetrics.Phase.BUILD);
+         client.draw(system);
+         if (metrics != null)
+            metrics.end(FrameMetrics.Phase.BUILD);
+         system.finishedDrawing();
+      }
+      client.close();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%d frames in %.2fs (%.1f frames/sec), %d dropped%n",
+                        frame, seconds, frame / seconds, 
+                        pacer.getDroppedFrames());
+      System.out.println(client);
+      if (client.getError() != null) {
+         System.err.println("Lost the connection to " + server + ": " + 
+                            client.getError().getMessage());
+         return 1;
+      }
+      return 0;
+   }
+   
+	/**
+	 **   Starts serving where the scene's bodies are at any time over HTTP,
+    **   and stops (printing how many queries were answered) on the way out.
+    **   The server's threads keep the program running once this returns.
+    **   Exits if the port can't be listened on.
+	 **
+	 **   @param scene The scene whose bodies to serve.
+	 **   @param port The port to listen on, or 0 for any free one.
+	 **/
+   private static void serveEphemerides(SolarScene scene, int port) {
+      final EphemerisService service;
+      try {
+         service = new EphemerisService(scene, YEARS_PER_TICK, port);
+      } catch (IOException e) {
+         System.err.println("Couldn't serve ephemerides: " + e.getMessage());
+         System.exit(1);
+         return;
+      }
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+         public void run() {
+            service.stop();
+            System.out.println(service);
+         }
+      });
+      service.start();
+      System.out.printf("Serving ephemerides on http://localhost:%d/ on %s%n",
+                        service.getPort(), service.isVirtual() 
+                                           ? "virtual threads" 
+                                           : "a thread pool");
+   }
+   
+	/**
+	 **   Builds a frame and pushes it to the display.
+	 **
+	 **   @param scene The scene to draw.
+	 **   @param system The display to draw onto.
+	 **   @param metrics Where to time building the frame, or null.
+	 **/
+   private static void drawFrame(SolarScene scene, SolarDisplay system, 
+                                 FrameMetrics metrics) {
+      if (metrics != null)
+         metrics.begin(FrameMetrics.Phase.BUILD);
+      scene.draw(system);
+      if (metrics != null)
+         metrics.end(FrameMetrics.Phase.BUILD);
+      
+      // The drawing is pushed to the screen.
+      system.finishedDrawing();
+   }
+   
+	/**
+	 **   Records a frame, if recording. If it can't be written, recording
+    **   stops.
+	 **
+	 **   @param recorder Where to record the frame, or null.
+	 **   @param tick The tick the frame was drawn at.
+	 **   @param focus The node of the body in focus, or SceneGraph.CENTRE.
+	 **   @param zoom The zoom it was drawn with.
+	 **   @param checksum Its checksum.
+	 **   @return the recorder, or null if recording has stopped.
+	 **/
+   private static RunRecorder record(RunRecorder recorder, long tick, 
+                                     int focus, double zoom, long checksum) {
+      if (recorder == null)
+         return null;
+      try {
+         recorder.frame(tick, focus, zoom, checksum);
+         return recorder;
+      } catch (IOException e) {
+         System.err.println("Couldn't record the frame: " + e.getMessage());
+         try {
+            recorder.close();
+         } catch (IOException ignored) {
+         }
+         return null;
+      }
+   }
+   
+	/**
+	 **   Finds the properties a run is started with that affect what it
+    **   simulates or draws, to be recorded with it: those named by
+    **   RECORDED_PROPERTIES. Nothing that reads or writes files or serves
+    **   the run (solar.export or solar.serve, say) is recorded, so a replay
+    **   never does those things unless asked to again.
+	 **
+	 **   @return the properties.
+	 **/
+   private static Map<String, String> getRecordedProperties() {
+      Map<String, String> properties = new HashMap<String, String>();
+      for (String name : System.getProperties().stringPropertyNames())
+         for (String recorded : RECORDED_PROPERTIES)
+            if (name.equals(recorded) || name.startsWith(recorded + "."))
+               properties.put(name, System.getProperty(name));
+      return properties;
+   }
+   
+	/**
+	 **   Initialises all the bodies, with Sol as the centre point, each at a
+    **   random point in its orbit.
+	 **
+	 **   @return the populated solar system.
+	 **/
+   public static SolarScene createScene() {
+      return createScene(new Random());
+   }
+   
+	/**
+	 **   Initialises all the bodies, with Sol as the centre point.
+	 **
+	 **   @param random Where to get the bodies' starting angles from. The same
+    **   seed always gives the same starting positions.
+	 **   @return the populated solar system.
+	 **/
+   public static SolarScene createScene(Random random) {
+		CentrePoint centre = new CentrePoint(54.5, "Sol", "YELLOW");
+		
+      BodyTable bodies = new BodyTable(Planets.values().length +
+                                       DwarfPlanets.values().length +
+                                       Moons.values().length);
+      Satellite[] planets = new Satellite[Planets.values().length];
+      importPlanets(bodies, planets, centre, random);      
+      Satellite[] dwarfPlanets = new Satellite[DwarfPlanets.values().length];
+      importDwarfPlanets(bodies, dwarfPlanets, centre, random);      
+      Satellite[] moons = new Satellite[Moons.values().length];     
+      importMoons(bodies, moons, planets, random);
+      importOrbits(dwarfPlanets, moons);
+      
+      return new SolarScene(bodies, centre, planets, dwarfPlanets, moons);
+   }
+   
+	/**
+	 **   Initialises all the bodies in a catalogue, with Sol as the centre
+    **   point. The planets are given the number keys 2-9 in the order they
+    **   appear. Minor bodies, and moons whose primary comes after them in the
+    **   catalogue or isn't named, are kept in the BodyTable only.
+	 **
+	 **   @param catalogue The catalogue to load.
+	 **   @param random Where to get random starting angles from.
+	 **   @return the populated solar system.
+	 **/
+   public static SolarScene createScene(Catalogue catalogue, Random random) {
+		CentrePoint centre = new CentrePoint(54.5, "Sol", "YELLOW");
+		
+      BodyTable bodies = new BodyTable(catalogue.size());
+      int base = catalogue.load(bodies, random);
+      
+      // Only the few named bodies get a Satellite, so the names of the rest
+      // are never decoded.
+      ArrayList<Satellite> planets = new ArrayList<Satellite>();
+      ArrayList<Satellite> dwarfPlanets = new ArrayList<Satellite>();
+      ArrayList<Satellite> moons = new ArrayList<Satellite>();
+      Map<Integer, Satellite> satellites = new HashMap<Integer, Satellite>();
+      for (int i = 0; i < catalogue.size(); i++) {
+         int kind = catalogue.getKind(i);
+         if (kind == Catalogue.PLANET || kind == Catalogue.DWARF_PLANET) {
+            if (catalogue.getPrimary(i) != BodyTable.NO_PRIMARY)
+               continue;
+            Satellite body = new Satellite(bodies, base + i, 
+                                           catalogue.getName(i), null);
+            (kind == Catalogue.PLANET ? planets : dwarfPlanets).add(body);
+            satellites.put(i, body);
+         } else if (kind == Catalogue.MOON) {
+            Satellite primary = satellites.get(catalogue.getPrimary(i));
+            if (primary != null) {
+               Satellite moon = new Satellite(bodies, base + i, 
+                                              catalogue.getName(i), primary);
+               moons.add(moon);
+               satellites.put(i, moon);
+            }
+         }
+      }
+      
+      return new SolarScene(bodies, centre, planets.toArray(new Satellite[0]), 
+                            dwarfPlanets.toArray(new Satellite[0]), 
+                            moons.toArray(new Satellite[0]));
+   }
+   
+	/**
+	 **   Adds the belts of minor bodies asked for by the solar.belt.main,
+    **   solar.belt.plutinos and solar.belt.kuiper properties (the number of
+    **   bodies in each; none by default). They are generated from the seed
+    **   in solar.belt.seed, so are the same every run.
+	 **
+	 **   @param scene The solar system to add the belts to.
+	 **/
+   public static void addBelts(SolarScene scene) {
+      long seed = Long.getLong("solar.belt.seed", 1);
+      int main = Integer.getInteger("solar.belt.main", 0);
+      int plutinos = Integer.getInteger("solar.belt.plutinos", 0);
+      int kuiper = Integer.getInteger("solar.belt.kuiper", 0);
+      if (main > 0)
+         scene.addBelt(Belt.mainBelt(main), seed);
+      if (plutinos > 0)
+         scene.addBelt(Belt.plutinos(plutinos), seed + 1);
+      if (kuiper > 0)
+         scene.addBelt(Belt.kuiperBelt(kuiper), seed + 2);
+   }
+   
+	/**
+	 **   Creates the trails to draw behind bodies. solar.trails sets how many
+    **   ticks long the trails of the planets, dwarf planets and moons are (0,
+    **   the default, for none), and solar.trails.planets, .dwarfs, .moons and
+    **   .belts set them for each kind of body on its own. The bodies of belts
+    **   have none unless asked for.
+	 **
+	 **   @param scene The solar system, with all its bodies added.
+	 **   @return the trails, or null if no body has one.
+	 **/
+   public static Trails createTrails(SolarScene scene) {
+      int length = Integer.getInteger("solar.trails", 0);
+      Trails trails = new Trails(scene.getBodies().size());
+      setTrails(trails, scene.getPlanets(), 
+                Integer.getInteger("solar.trails.planets", length));
+      setTrails(trails, scene.getDwarfPlanets(), 
+                Integer.getInteger("solar.trails.dwarfs", length));
+      setTrails(trails, scene.getMoons(), 
+                Integer.getInteger("solar.trails.moons", length));
+      int beltLength = Integer.getInteger("solar.trails.belts", 0);
+      for (Belt belt : scene.getBelts())
+         trails.setLength(belt.getFirst(), belt.getFirst() + belt.size(), 
+                          beltLength);
+      return trails.size() > 0 ? trails : null;
+   }
+
+   private static void setTrails(Trails trails, Satellite[] bodies, 
+                                 int length) {
+      for (Satellite body : bodies)
+         trails.setLength(body.getIndex(), body.getIndex() + 1, length);
+   }
+   
+	/**
+	 **   Creates the cache of orbits to draw about bodies' primaries, if
+    **   solar.orbits is true. The orbits of the planets, dwarf planets and
+    **   moons are drawn, and those of belts' bodies too if solar.orbits.belts
+    **   is true. solar.orbits.cache limits the cache to that many megabytes
+    **   (32 by default), and solar.orbits.builds limits how many orbits are
+    **   traced out a frame (256 by default).
+	 **
+	 **   @param scene The solar system, with all its bodies added.
+	 **   @return the cache, or null if orbits aren't to be drawn.
+	 **/
+   public static OrbitPaths createOrbitPaths(SolarScene scene) {
+      if (!Boolean.getBoolean("solar.orbits"))
+         return null;
+      OrbitPaths orbits = new OrbitPaths(scene.getBodies(), 
+         (long) (Double.parseDouble(System.getProperty("solar.orbits.cache", 
+                                                       "32")) * 1e6),
+         Integer.getInteger("solar.orbits.builds", 256));
+      for (Satellite[] bodies : new Satellite[][] {scene.getPlanets(), 
+                                                   scene.getDwarfPlanets(),
+                                                   scene.getMoons()})
+         for (Satellite body : bodies)
+            orbits.setShown(body.getIndex(), body.getIndex() + 1, true);
+      if (Boolean.getBoolean("solar.orbits.belts"))
+         for (Belt belt : scene.getBelts())
+            orbits.setShown(belt.getFirst(), belt.getFirst() + belt.size(), 
+                            true);
+      return orbits;
+   }
+   
+	/**
+	 **   Creates a server for StateClients to watch the simulation through,
+    **   listening on the port named by solar.serve (0 for any free one), if
+    **   set, and has the simulation publish to it after every tick. Exits if
+    **   the port can't be listened on.
+	 **
+	 **   @param scene The solar system, with all its bodies added.
+	 **   @param simulation The simulation moving its bodies.
+	 **   @return the server, or null if the simulation isn't to be served.
+	 **/
+   public static StateServer createServer(SolarScene scene, 
+                                          Simulation simulation) {
+      Integer port = Integer.getInteger("solar.serve");
+      if (port == null)
+         return null;
+      StateServer server;
+      try {
+         server = new StateServer(scene, port);
+      } catch (IOException e) {
+         System.err.println("Couldn't serve the simulation: " + e.getMessage());
+         System.exit(1);
+         return null;
+      }
+      server.start();
+      simulation.setServer(server);
+      System.out.println("Serving the simulation on port " + server.getPort());
+      return server;
+   }
+   
+	/**
+	 **   Finds the masses of the bodies compiled into the program, for
+    **   N-body mode.
+	 **
+	 **   @param scene The solar system made by createScene().
+	 **   @return the masses, in Earth masses, by row of the scene's BodyTable;
+    **   0 for the moons.
+	 **/
+   public static double[] getMasses(SolarScene scene) {
+      double[] masses = new double[scene.getBodies().size()];
+      for (Planets p : Planets.values())
+         masses[scene.getPlanets()[p.ordinal()].getIndex()] = 
+            PLANET_MASSES[p.ordinal()];
+      for (DwarfPlanets dp : DwarfPlanets.values())
+         masses[scene.getDwarfPlanets()[dp.ordinal()].getIndex()] = 
+            DWARF_PLANET_MASSES[dp.ordinal()];
+      return masses;
+   }
+   
+	/**
+	 **   Hands the planets and dwarf planets (and anything else orbiting Sol)
+    **   over to an N-body simulation, with their real masses. The opening
+    **   angle and number of leapfrog steps per tick can be set with the
+    **   solar.nbody.theta and solar.nbody.substeps properties.
+	 **
+	 **   @param scene The solar system to simulate.
+	 **   @param earthMasses The masses of the bodies, in Earth masses, by row
+    **   of the scene's BodyTable.
+	 **   @param pool The pool to build the tree and evaluate forces on, or
+    **   null to do it all on the simulation thread.
+	 **   @return the N-body simulation.
+	 **/
+   public static NBodySimulation createNBody(SolarScene scene, 
+                                             double[] earthMasses,
+                                             ForkJoinPool pool) {
+      BodyTable bodies = scene.getBodies();
+      double[] masses = new double[bodies.size()];
+      for (int i = 0; i < masses.length; i++)
+         masses[i] = earthMasses[i] / EARTH_MASSES_PER_SOL;
+      
+      NBodySimulation nbody = new NBodySimulation(bodies, masses, 1, 
+                                                  YEARS_PER_TICK, pool);
+      nbody.setOpeningAngle(Double.parseDouble(
+         System.getProperty("solar.nbody.theta", "0.5")));
+      nbody.setSubsteps(Integer.getInteger("solar.nbody.substeps", 4));
+      return nbody;
+   }
+   
+	/**
+	 **   Creates the display to draw onto: a window normally, or an off-screen
+    **   image (sized by the solar.width and solar.height properties) when
+    **   running with java.awt.headless=true. Small bodies are drawn straight
+    **   into the display's pixels unless solar.raster is java2d, and the
+    **   window is drawn actively unless solar.present is passive.
+	 **
+	 **   @param metrics Where to time rasterizing and blitting frames, or null.
+	 **   @param offscreen Whether to draw off-screen even if there is a screen.
+	 **   @return the display.
+	 **/
+   private static SolarDisplay createDisplay(FrameMetrics metrics, 
+                                             boolean offscreen) {
+      boolean direct = !System.getProperty("solar.raster", "direct")
+                              .equals("java2d");
+      if (offscreen || GraphicsEnvironment.isHeadless()) {
+         OffscreenSolarSystem system = new OffscreenSolarSystem(
+            Integer.getInteger("solar.width", 1920),
+            Integer.getInteger("solar.height", 1080));
+         system.setDirectRendering(direct);
+         system.setMetrics(metrics);
+         return system;
+      }
+      SolarSystem system = new SolarSystem();
+      system.setFrameDelay(0);
+      system.setDirectRendering(direct);
+      system.setActiveRendering(!System.getProperty("solar.present", "active")
+                                        .equals("passive"));
+      system.setMetrics(metrics);
+      return system;
+   }
+   
+	/**
+	 **   Creates the metrics that time each phase of a frame, and registers
+    **   them with the platform's MBean server, unless solar.metrics is false.
+    **   If solar.metrics.log is set, they are also printed that many seconds
+    **   apart.
+	 **
+	 **   @param pacer The pacer of the frames to be timed.
+	 **   @return the metrics, or null if frames aren't to be timed.
+	 **/
+   private static FrameMetrics createMetrics(FramePacer pacer) {
+      if (!Boolean.parseBoolean(System.getProperty("solar.metrics", "true")))
+         return null;
+      FrameMetrics metrics = new FrameMetrics(pacer);
+      try {
+         metrics.register();
+      } catch (JMException e) {
+         System.err.println("Couldn't register the metrics: " + e.getMessage());
+      }
+      double logSeconds = Double.parseDouble(
+         System.getProperty("solar.metrics.log", "0"));
+      if (logSeconds > 0)
+         metrics.startLogging((long) (logSeconds * 1000));
+      return metrics;
+   }
+   
 	/**
 	 **   Imports the details of the planets (Mercury, Venus, Terra, Mars, 
     **   Jupiter, Saturn, Uranus & Neptune).
 	 **
+	 **   @param bodies The table to store the planets' orbital state in.
 	 **   @param planets The array of Satellite objects representing the planets.
+	 **   @param random Where to get their starting angles from.
 	 **/
-	private static void importPlanets(Satellite[] planets, CentrePoint centre) {
-      planets[Planets.MERCURY.ordinal()] = new Satellite(0.38709893, startOrbit(), 0.3825, 0.2408467, "Mercury","CYAN");
-	   planets[Planets.VENUS.ordinal()] = new Satellite(0.72333199, startOrbit(), 0.9488, 0.61519726, "Venus","CYAN");
-	   planets[Planets.TERRA.ordinal()] = new Satellite(1.00000011, startOrbit(), 1, 1.0000174, "Terra","CYAN");
-	   planets[Planets.MARS.ordinal()] = new Satellite(1.52366231, startOrbit(), 0.53226, 1.8808476, "Mars","RED");
-	   planets[Planets.JUPITER.ordinal()] = new Satellite(5.20336301, startOrbit(), 11.209, 11.862615, "Jupiter","ORANGE");
-	   planets[Planets.SATURN.ordinal()] = new Satellite(9.53707032, startOrbit(), 9.449, 29.447498, "Saturn","ORANGE");
-	   planets[Planets.URANUS.ordinal()] = new Satellite(19.19126393, startOrbit(), 4.007, 84.016846, "Uranus","CYAN");
-	   planets[Planets.NEPTUNE.ordinal()] = new Satellite(30.06896348, startOrbit(), 3.883, 164.79132, "Neptune","BLUE");
+	private static void importPlanets(BodyTable bodies, Satellite[] planets, CentrePoint centre, Random random) {
+      planets[Planets.MERCURY.ordinal()] = new Satellite(bodies, 0.38709893, startOrbit(random), 0.3825, 0.2408467, "Mercury","CYAN");
+	   planets[Planets.VENUS.ordinal()] = new Satellite(bodies, 0.72333199, startOrbit(random), 0.9488, 0.61519726, "Venus","CYAN");
+	   planets[Planets.TERRA.ordinal()] = new Satellite(bodies, 1.00000011, startOrbit(random), 1, 1.0000174, "Terra","CYAN");
+	   planets[Planets.MARS.ordinal()] = new Satellite(bodies, 1.52366231, startOrbit(random), 0.53226, 1.8808476, "Mars","RED");
+	   planets[Planets.JUPITER.ordinal()] = new Satellite(bodies, 5.20336301, startOrbit(random), 11.209, 11.862615, "Jupiter","ORANGE");
+	   planets[Planets.SATURN.ordinal()] = new Satellite(bodies, 9.53707032, startOrbit(random), 9.449, 29.447498, "Saturn","ORANGE");
+	   planets[Planets.URANUS.ordinal()] = new Satellite(bodies, 19.19126393, startOrbit(random), 4.007, 84.016846, "Uranus","CYAN");
+	   planets[Planets.NEPTUNE.ordinal()] = new Satellite(bodies, 30.06896348, startOrbit(random), 3.883, 164.79132, "Neptune","BLUE");
 	}
    
 	/**
 	 **   Imports the details of the dwarf planets (Ceres, Pluto, Haumea, 
     **   Makemake & Eris).
 	 **
+	 **   @param bodies The table to store the dwarf planets' orbital state in.
 	 **   @param dwarfPlanets The array of Satellite objects representing the
     **   dwarf planets.
+	 **   @param random Where to get their starting angles from.
 	 **/
-	private static void importDwarfPlanets(Satellite[] dwarfPlanets, CentrePoint centre) {
-      dwarfPlanets[DwarfPlanets.CERES.ordinal()] = new Satellite(2.766, startOrbit(), 0.0741, 4.599, "Ceres", "RED");
-	   dwarfPlanets[DwarfPlanets.PLUTO.ordinal()] = new Satellite(39.482, startOrbit(), 0.180, 247.92065, "Pluto", "RED");
-	   dwarfPlanets[DwarfPlanets.HAUMEA.ordinal()] = new Satellite(43.335, startOrbit(), 0.10, 285.4, "Haumea", "RED");
-	   dwarfPlanets[DwarfPlanets.MAKEMAKE.ordinal()] = new Satellite(45.792, startOrbit(), 0.11, 309.9, "Makemake", "RED");
-	   dwarfPlanets[DwarfPlanets.ERIS.ordinal()] = new Satellite(67.668, startOrbit(), 0.19, 557, "Eris", "RED");
+	private static void importDwarfPlanets(BodyTable bodies, Satellite[] dwarfPlanets, CentrePoint centre, Random random) {
+      dwarfPlanets[DwarfPlanets.CERES.ordinal()] = new Satellite(bodies, 2.766, startOrbit(random), 0.0741, 4.599, "Ceres", "RED");
+	   dwarfPlanets[DwarfPlanets.PLUTO.ordinal()] = new Satellite(bodies, 39.482, startOrbit(random), 0.180, 247.92065, "Pluto", "RED");
+	   dwarfPlanets[DwarfPlanets.HAUMEA.ordinal()] = new Satellite(bodies, 43.335, startOrbit(random), 0.10, 285.4, "Haumea", "RED");
+	   dwarfPlanets[DwarfPlanets.MAKEMAKE.ordinal()] = new Satellite(bodies, 45.792, startOrbit(random), 0.11, 309.9, "Makemake", "RED");
+	   dwarfPlanets[DwarfPlanets.ERIS.ordinal()] = new Satellite(bodies, 67.668, startOrbit(random), 0.19, 557, "Eris", "RED");
 	}
    
 	/**
 	 **   Imports the details of the moons (there's loads).
 	 **
+	 **   @param bodies The table to store the moons' orbital state in.
 	 **   @param moons The array of Satellite objects representing the moons.
 	 **   @param planets The array of Satellite objects representing their 
     **   primaries.
+	 **   @param random Where to get their starting angles from.
 	 **/
-   private static void importMoons(Satellite[] moons, Satellite[] planets) {   
+   private static void importMoons(BodyTable bodies, Satellite[] moons, Satellite[] planets, Random random) {   
       /* Moons of Terra */
-      moons[Moons.LUNA.ordinal()] = new Satellite(0.00256954860549408, startOrbit(), 0.272353835781816, 27.321582, "Luna", "WHITE", planets[Planets.TERRA.ordinal()]);
+      moons[Moons.LUNA.ordinal()] = new Satellite(bodies, 0.00256954860549408, startOrbit(random), 0.272353835781816, 27.321582, "Luna", "WHITE", planets[Planets.TERRA.ordinal()]);
       
       /* Moons of Mars  */
-      moons[Moons.PHOBOS.ordinal()] = new Satellite(0.0000627, startOrbit(), 0.00174033019237704, 0.319, "Phobos", "WHITE", planets[Planets.MARS.ordinal()]);
-      moons[Moons.DEIMOS.ordinal()] = new Satellite(0.00015682041390558, startOrbit(), 0.000972076323670058, 1.262, "Deimos", "WHITE", planets[Planets.MARS.ordinal()]);
+      moons[Moons.PHOBOS.ordinal()] = new Satellite(bodies, 0.0000627, startOrbit(random), 0.00174033019237704, 0.319, "Phobos", "WHITE", planets[Planets.MARS.ordinal()]);
+      moons[Moons.DEIMOS.ordinal()] = new Satellite(bodies, 0.00015682041390558, startOrbit(random), 0.000972076323670058, 1.262, "Deimos", "WHITE", planets[Planets.MARS.ordinal()]);
       
       /* Moons of Jupiter */
-      moons[Moons.IO.ordinal()] = new Satellite(0.0028195588484814, startOrbit(), 0.285053542591054, 1.769, "Io", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.EUROPA.ordinal()] = new Satellite(0.0044860264182453, startOrbit(), 0.244696696508365, 3.551, "Europa", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.GANYMEDE.ordinal()] = new Satellite(0.0071551820564592, startOrbit(), 0.412991329706339, 7.155, "Ganymede", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.CALLISTO.ordinal()] = new Satellite(0.0125850721764721, startOrbit(), 0.377604615794672, 16.69, "Callisto", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.AMALTHEA.ordinal()] = new Satellite(0.0012125841041122, startOrbit(), 0.0130838337435914, 0.498, "Amalthea", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.HIMALIA.ordinal()] = new Satellite(0.076612053016703, startOrbit(), 0.0105046957557893, 250.56, "Himalia", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.ELARA.ordinal()] = new Satellite(0.078483737411143, startOrbit(), 0.00674181966416331, 259.64, "Elara", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.PASIPHAE.ordinal()] = new Satellite(0.157916686193752, startOrbit(), 0.00470359511453254, -743.6, "Pasiphae", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.SINOPE.ordinal()] = new Satellite(0.160022331137497, startOrbit(), 0.00297894357253728, -758.9, "Sinope", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.LYSITHEA.ordinal()] = new Satellite(0.078323307320191, startOrbit(), 0.00282215706871952, 259.2, "Lysithea", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.CARME.ordinal()] = new Satellite(0.156446077026692, startOrbit(), 0.00360608958780828, -734.1, "Carme", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.ANANKE.ordinal()] = new Satellite(0.142221275628948, startOrbit(), 0.00219501105344852, -629.7, "Ananke", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.LEDA.ordinal()] = new Satellite(0.074633415228295, startOrbit(), 0.00156786503817751, 240.92, "Leda", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.THEBE.ordinal()] = new Satellite(0.0014833098825937, startOrbit(), 0.00772957463821514, 0.675, "Thebe", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.ADRASTEA.ordinal()] = new Satellite(0.000862311738867, startOrbit(), 0.00128564933130556, 0.298, "Adrastea", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.METIS.ordinal()] = new Satellite(0.000855627151744, startOrbit(), 0.00337090983208165, 0.295, "Metis", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.CALLIRRHOE.ordinal()] = new Satellite(0.161118603425669, startOrbit(), 0.000674181966416331, -758.7, "Callirrhoe", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.THEMISTO.ordinal()] = new Satellite(0.048690532603932, startOrbit(), 0.000627146015271005, 130.02, "Themisto", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.MEGACLITE.ordinal()] = new Satellite(0.157041005280639, startOrbit(), 0.000423323560307929, -752.8, "Megaclite", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.TAYGETE.ordinal()] = new Satellite(0.15561718822344, startOrbit(), 0.000391966259544378, -732.4, "Taygete", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.CHALDENE.ordinal()] = new Satellite(0.1544139625413, startOrbit(), 0.000297894357253728, -723.7, "Chaldene", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.HARPALYKE.ordinal()] = new Satellite(0.139427118211534, startOrbit(), 0.000344930308399053, -623.3, "Harpalyke", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.KALYKE.ordinal()] = new Satellite(0.156974159409409, startOrbit(), 0.000407644909926154, -742, "Kalyke", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.IOCASTE.ordinal()] = new Satellite(0.14077740481038, startOrbit(), 0.000407644909926154, -631.6, "Iocaste", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.ERINOME.ordinal()] = new Satellite(0.155055682905108, startOrbit(), 0.000250858406108402, -728.4, "Erinome", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.ISONOE.ordinal()] = new Satellite(0.154781614833065, startOrbit(), 0.000297894357253728, -726.2, "Isonoe", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.PRAXIDIKE.ordinal()] = new Satellite(0.139761347567684, startOrbit(), 0.000533074112980355, -625.3, "Praxidike", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.AUTONOE.ordinal()] = new Satellite(0.160737581959658, startOrbit(), 0.000313573007635503, -760.9, "Autonoe", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.THYONE.ordinal()] = new Satellite(0.139968569768497, startOrbit(), 0.000313573007635503, -627.2, "Thyone", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.HERMIPPE.ordinal()] = new Satellite(0.141252010496113, startOrbit(), 0.000313573007635503, -633, "Hermippe", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.AITNE.ordinal()] = new Satellite(0.155276274280167, startOrbit(), 0.000235179755726627, -730.1, "Aitne", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.EURYDOME.ordinal()] = new Satellite(0.152843084567395, startOrbit(), 0.000235179755726627, -717.3, "Eurydome", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.EUANTHE.ordinal()] = new Satellite(0.139019358397031, startOrbit(), 0.000235179755726627, -620.4, "Euanthe", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.EUPORIE.ordinal()] = new Satellite(0.129039269822392, startOrbit(), 0.000156786503817751, -550.7, "Euporie", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.ORTHOSIE.ordinal()] = new Satellite(0.13850464518856, startOrbit(), 0.000156786503817751, -622.5, "Orthosie", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.SPONDE.ordinal()] = new Satellite(0.157000897757901, startOrbit(), 0.000156786503817751, -748.3, "Sponde", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.KALE.ordinal()] = new Satellite(0.155196059234691, startOrbit(), 0.000156786503817751, -729.4, "Kale", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.PASITHEE.ordinal()] = new Satellite(0.153772242177492, startOrbit(), 0.000156786503817751, -719.4, "Pasithee", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.HEGEMONE.ordinal()] = new Satellite(0.157602510598971, startOrbit(), 0.000235179755726627, -739.8, "Hegemone", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.MNEME.ordinal()] = new Satellite(0.140610290132305, startOrbit(), 0.000156786503817751, -620, "Mneme", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.AOEDE.ordinal()] = new Satellite(0.16029639920954, startOrbit(), 0.000313573007635503, -761.5, "Aoede", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.THELXINOE.ordinal()] = new Satellite(0.141472601871172, startOrbit(), 0.000156786503817751, -628, "Thelxinoe", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.ARCHE.ordinal()] = new Satellite(0.156118532257665, startOrbit(), 0.000235179755726627, -731.9, "Arche", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.KALLICHORE.ordinal()] = new Satellite(0.155670664920424, startOrbit(), 0.000156786503817751, -728.7, "Kallichore", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.HELIKE.ordinal()] = new Satellite(0.140837566094487, startOrbit(), 0.000313573007635503, -626.3, "Helike", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.CARPO.ordinal()] = new Satellite(0.114025687144134, startOrbit(), 0.000235179755726627, 456.3, "Carpo", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.EUKELADE.ordinal()] = new Satellite(0.155938048405344, startOrbit(), 0.000313573007635503, -730.4, "Eukelade", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.CYLLENE.ordinal()] = new Satellite(0.159153334811507, startOrbit(), 0.000156786503817751, -75, "Cyllene", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.KORE.ordinal()] = new Satellite(0.164059821759789, startOrbit(), 0.000156786503817751, -779.1, "Kore", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.HERSE.ordinal()] = new Satellite(0.153631865847909, startOrbit(), 0.000156786503817751, -714.5, "Herse", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2010J1.ordinal()] = new Satellite(0.155846703522308, startOrbit(), 0.000156786503817751, -723, "S/2010 J 1", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2010J2.ordinal()] = new Satellite(0.135744913394829, startOrbit(), 0.0000783932519088757, -588, "S/2010 J 2", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.DIA.ordinal()] = new Satellite(0.08402526013611, startOrbit(), 0.000313573007635503, 287.93, "Dia", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J2.ordinal()] = new Satellite(0.190209926584965, startOrbit(), 0.000156786503817751, -981.5, "S/2003 J 2", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J3.ordinal()] = new Satellite(0.135189089975552, startOrbit(), 0.000156786503817751, -583.8, "S/2003 J 3", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J4.ordinal()] = new Satellite(0.159982223614759, startOrbit(), 0.000156786503817751, -755.2, "S/2003 J 4", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J5.ordinal()] = new Satellite(0.157074428216254, startOrbit(), 0.000313573007635503, -738.7, "S/2003 J 5", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J9.ordinal()] = new Satellite(0.156339123632724, startOrbit(), 0.0000783932519088757, -733.3, "S/2003 J 9", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J10.ordinal()] = new Satellite(0.154039625662412, startOrbit(), 0.000156786503817751, -716.2, "S/2003 J 10", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J12.ordinal()] = new Satellite(0.119206242164459, startOrbit(), 0.0000783932519088757, -489.7, "S/2003 J 12", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J15.ordinal()] = new Satellite(0.15127220659349, startOrbit(), 0.000156786503817751, -689.7, "S/2003 J 15", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J16.ordinal()] = new Satellite(0.140082207749588, startOrbit(), 0.000156786503817751, -616.3, "S/2003 J 16", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J18.ordinal()] = new Satellite(0.136539376574398, startOrbit(), 0.000156786503817751, -596.5, "S/2003 J 18", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J19.ordinal()] = new Satellite(0.157321757939805, startOrbit(), 0.000156786503817751, -740.4, "S/2003 J 19", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J23.ordinal()] = new Satellite(0.157528980140618, startOrbit(), 0.000156786503817751, -732.4, "S/2003 J 23", "WHITE", planets[Planets.JUPITER.ordinal()]);
-      moons[Moons.S2003J2.ordinal()] = new Satellite(0.155949479049324, startOrbit(), 0.0000783932519088757, -726, "S/2011 J 2", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.IO.ordinal()] = new Satellite(bodies, 0.0028195588484814, startOrbit(random), 0.285053542591054, 1.769, "Io", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.EUROPA.ordinal()] = new Satellite(bodies, 0.0044860264182453, startOrbit(random), 0.244696696508365, 3.551, "Europa", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.GANYMEDE.ordinal()] = new Satellite(bodies, 0.0071551820564592, startOrbit(random), 0.412991329706339, 7.155, "Ganymede", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.CALLISTO.ordinal()] = new Satellite(bodies, 0.0125850721764721, startOrbit(random), 0.377604615794672, 16.69, "Callisto", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.AMALTHEA.ordinal()] = new Satellite(bodies, 0.0012125841041122, startOrbit(random), 0.0130838337435914, 0.498, "Amalthea", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.HIMALIA.ordinal()] = new Satellite(bodies, 0.076612053016703, startOrbit(random), 0.0105046957557893, 250.56, "Himalia", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.ELARA.ordinal()] = new Satellite(bodies, 0.078483737411143, startOrbit(random), 0.00674181966416331, 259.64, "Elara", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.PASIPHAE.ordinal()] = new Satellite(bodies, 0.157916686193752, startOrbit(random), 0.00470359511453254, -743.6, "Pasiphae", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.SINOPE.ordinal()] = new Satellite(bodies, 0.160022331137497, startOrbit(random), 0.00297894357253728, -758.9, "Sinope", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.LYSITHEA.ordinal()] = new Satellite(bodies, 0.078323307320191, startOrbit(random), 0.00282215706871952, 259.2, "Lysithea", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.CARME.ordinal()] = new Satellite(bodies, 0.156446077026692, startOrbit(random), 0.00360608958780828, -734.1, "Carme", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.ANANKE.ordinal()] = new Satellite(bodies, 0.142221275628948, startOrbit(random), 0.00219501105344852, -629.7, "Ananke", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.LEDA.ordinal()] = new Satellite(bodies, 0.074633415228295, startOrbit(random), 0.00156786503817751, 240.92, "Leda", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.THEBE.ordinal()] = new Satellite(bodies, 0.0014833098825937, startOrbit(random), 0.00772957463821514, 0.675, "Thebe", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.ADRASTEA.ordinal()] = new Satellite(bodies, 0.000862311738867, startOrbit(random), 0.00128564933130556, 0.298, "Adrastea", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.METIS.ordinal()] = new Satellite(bodies, 0.000855627151744, startOrbit(random), 0.00337090983208165, 0.295, "Metis", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.CALLIRRHOE.ordinal()] = new Satellite(bodies, 0.161118603425669, startOrbit(random), 0.000674181966416331, -758.7, "Callirrhoe", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.THEMISTO.ordinal()] = new Satellite(bodies, 0.048690532603932, startOrbit(random), 0.000627146015271005, 130.02, "Themisto", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.MEGACLITE.ordinal()] = new Satellite(bodies, 0.157041005280639, startOrbit(random), 0.000423323560307929, -752.8, "Megaclite", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.TAYGETE.ordinal()] = new Satellite(bodies, 0.15561718822344, startOrbit(random), 0.000391966259544378, -732.4, "Taygete", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.CHALDENE.ordinal()] = new Satellite(bodies, 0.1544139625413, startOrbit(random), 0.000297894357253728, -723.7, "Chaldene", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.HARPALYKE.ordinal()] = new Satellite(bodies, 0.139427118211534, startOrbit(random), 0.000344930308399053, -623.3, "Harpalyke", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.KALYKE.ordinal()] = new Satellite(bodies, 0.156974159409409, startOrbit(random), 0.000407644909926154, -742, "Kalyke", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.IOCASTE.ordinal()] = new Satellite(bodies, 0.14077740481038, startOrbit(random), 0.000407644909926154, -631.6, "Iocaste", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.ERINOME.ordinal()] = new Satellite(bodies, 0.155055682905108, startOrbit(random), 0.000250858406108402, -728.4, "Erinome", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.ISONOE.ordinal()] = new Satellite(bodies, 0.154781614833065, startOrbit(random), 0.000297894357253728, -726.2, "Isonoe", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.PRAXIDIKE.ordinal()] = new Satellite(bodies, 0.139761347567684, startOrbit(random), 0.000533074112980355, -625.3, "Praxidike", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.AUTONOE.ordinal()] = new Satellite(bodies, 0.160737581959658, startOrbit(random), 0.000313573007635503, -760.9, "Autonoe", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.THYONE.ordinal()] = new Satellite(bodies, 0.139968569768497, startOrbit(random), 0.000313573007635503, -627.2, "Thyone", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.HERMIPPE.ordinal()] = new Satellite(bodies, 0.141252010496113, startOrbit(random), 0.000313573007635503, -633, "Hermippe", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.AITNE.ordinal()] = new Satellite(bodies, 0.155276274280167, startOrbit(random), 0.000235179755726627, -730.1, "Aitne", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.EURYDOME.ordinal()] = new Satellite(bodies, 0.152843084567395, startOrbit(random), 0.000235179755726627, -717.3, "Eurydome", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.EUANTHE.ordinal()] = new Satellite(bodies, 0.139019358397031, startOrbit(random), 0.000235179755726627, -620.4, "Euanthe", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.EUPORIE.ordinal()] = new Satellite(bodies, 0.129039269822392, startOrbit(random), 0.000156786503817751, -550.7, "Euporie", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.ORTHOSIE.ordinal()] = new Satellite(bodies, 0.13850464518856, startOrbit(random), 0.000156786503817751, -622.5, "Orthosie", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.SPONDE.ordinal()] = new Satellite(bodies, 0.157000897757901, startOrbit(random), 0.000156786503817751, -748.3, "Sponde", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.KALE.ordinal()] = new Satellite(bodies, 0.155196059234691, startOrbit(random), 0.000156786503817751, -729.4, "Kale", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.PASITHEE.ordinal()] = new Satellite(bodies, 0.153772242177492, startOrbit(random), 0.000156786503817751, -719.4, "Pasithee", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.HEGEMONE.ordinal()] = new Satellite(bodies, 0.157602510598971, startOrbit(random), 0.000235179755726627, -739.8, "Hegemone", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.MNEME.ordinal()] = new Satellite(bodies, 0.140610290132305, startOrbit(random), 0.000156786503817751, -620, "Mneme", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.AOEDE.ordinal()] = new Satellite(bodies, 0.16029639920954, startOrbit(random), 0.000313573007635503, -761.5, "Aoede", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.THELXINOE.ordinal()] = new Satellite(bodies, 0.141472601871172, startOrbit(random), 0.000156786503817751, -628, "Thelxinoe", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.ARCHE.ordinal()] = new Satellite(bodies, 0.156118532257665, startOrbit(random), 0.000235179755726627, -731.9, "Arche", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.KALLICHORE.ordinal()] = new Satellite(bodies, 0.155670664920424, startOrbit(random), 0.000156786503817751, -728.7, "Kallichore", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.HELIKE.ordinal()] = new Satellite(bodies, 0.140837566094487, startOrbit(random), 0.000313573007635503, -626.3, "Helike", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.CARPO.ordinal()] = new Satellite(bodies, 0.114025687144134, startOrbit(random), 0.000235179755726627, 456.3, "Carpo", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.EUKELADE.ordinal()] = new Satellite(bodies, 0.155938048405344, startOrbit(random), 0.000313573007635503, -730.4, "Eukelade", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.CYLLENE.ordinal()] = new Satellite(bodies, 0.159153334811507, startOrbit(random), 0.000156786503817751, -75, "Cyllene", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.KORE.ordinal()] = new Satellite(bodies, 0.164059821759789, startOrbit(random), 0.000156786503817751, -779.1, "Kore", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.HERSE.ordinal()] = new Satellite(bodies, 0.153631865847909, startOrbit(random), 0.000156786503817751, -714.5, "Herse", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2010J1.ordinal()] = new Satellite(bodies, 0.155846703522308, startOrbit(random), 0.000156786503817751, -723, "S/2010 J 1", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2010J2.ordinal()] = new Satellite(bodies, 0.135744913394829, startOrbit(random), 0.0000783932519088757, -588, "S/2010 J 2", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.DIA.ordinal()] = new Satellite(bodies, 0.08402526013611, startOrbit(random), 0.000313573007635503, 287.93, "Dia", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J2.ordinal()] = new Satellite(bodies, 0.190209926584965, startOrbit(random), 0.000156786503817751, -981.5, "S/2003 J 2", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J3.ordinal()] = new Satellite(bodies, 0.135189089975552, startOrbit(random), 0.000156786503817751, -583.8, "S/2003 J 3", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J4.ordinal()] = new Satellite(bodies, 0.159982223614759, startOrbit(random), 0.000156786503817751, -755.2, "S/2003 J 4", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J5.ordinal()] = new Satellite(bodies, 0.157074428216254, startOrbit(random), 0.000313573007635503, -738.7, "S/2003 J 5", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J9.ordinal()] = new Satellite(bodies, 0.156339123632724, startOrbit(random), 0.0000783932519088757, -733.3, "S/2003 J 9", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J10.ordinal()] = new Satellite(bodies, 0.154039625662412, startOrbit(random), 0.000156786503817751, -716.2, "S/2003 J 10", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J12.ordinal()] = new Satellite(bodies, 0.119206242164459, startOrbit(random), 0.0000783932519088757, -489.7, "S/2003 J 12", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J15.ordinal()] = new Satellite(bodies, 0.15127220659349, startOrbit(random), 0.000156786503817751, -689.7, "S/2003 J 15", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J16.ordinal()] = new Satellite(bodies, 0.140082207749588, startOrbit(random), 0.000156786503817751, -616.3, "S/2003 J 16", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J18.ordinal()] = new Satellite(bodies, 0.136539376574398, startOrbit(random), 0.000156786503817751, -596.5, "S/2003 J 18", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J19.ordinal()] = new Satellite(bodies, 0.157321757939805, startOrbit(random), 0.000156786503817751, -740.4, "S/2003 J 19", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2003J23.ordinal()] = new Satellite(bodies, 0.157528980140618, startOrbit(random), 0.000156786503817751, -732.4, "S/2003 J 23", "WHITE", planets[Planets.JUPITER.ordinal()]);
+      moons[Moons.S2011J2.ordinal()] = new Satellite(bodies, 0.155949479049324, startOrbit(random), 0.0000783932519088757, -726, "S/2011 J 2", "WHITE", planets[Planets.JUPITER.ordinal()]);
 
       /* Moons of Saturn */ 
       
-      moons[Moons.MIMAS.ordinal()] = new Satellite(0.00124025829480142, startOrbit(), 0.0310750850566783, 0.942, "Mimas", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.ENCELADUS.ordinal()] = new Satellite(0.00159119911875892, startOrbit(), 0.0395572349132187, 1.37, "Enceladus", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.TETHYS.ordinal()] = new Satellite(0.00196974728753441, startOrbit(), 0.08408460199746, 1.888, "Tethys", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.DIONE.ordinal()] = new Satellite(0.00252289687196266, startOrbit(), 0.0881924083974851, 2.737, "Dione", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.RHEA.ordinal()] = new Satellite(0.00352324533491961, startOrbit(), 0.119863282168671, 4.518, "Rhea", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.TITAN.ordinal()] = new Satellite(0.00816769646798001, startOrbit(), 0.403803640582619, 15.95, "Titan", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.HYPERION.ordinal()] = new Satellite(0.0100327631211682, startOrbit(), 0.0208526050077609, 21.28, "Hyperion", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.IAPETUS.ordinal()] = new Satellite(0.0238027452110633, startOrbit(), 0.115159687054138, 79.33, "Iapetus", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.PHOEBE.ordinal()] = new Satellite(0.0865505634594369, startOrbit(), 0.0167134413069723, -550.3, "Phoebe", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.JANUS.ordinal()] = new Satellite(0.00101244756564958, startOrbit(), 0.0141734999451247, 0.695, "Janus", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.EPIMETHEUS.ordinal()] = new Satellite(0.00101211333629343, startOrbit(), 0.0091406531725749, 0.694, "Epimetheus", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.HELENE.ordinal()] = new Satellite(0.00252289687196266, startOrbit(), 0.00250858406108402, 2.737, "Helene", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.TELESTO.ordinal()] = new Satellite(0.00197001467101933, startOrbit(), 0.00188143804581302, 1.888, "Telesto", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.CALYPSO.ordinal()] = new Satellite(0.00197001467101933, startOrbit(), 0.00148947178626864, 1.888, "Calypso", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.ATLAS.ordinal()] = new Satellite(0.00092026710922341, startOrbit(), 0.0023988335084116, 0.602, "Atlas", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.PROMETHEUS.ordinal()] = new Satellite(0.00093169775320374, startOrbit(), 0.00733760837867076, 0.613, "Prometheus", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.PANDORA.ordinal()] = new Satellite(0.00094733968707156, startOrbit(), 0.00636553205500071, 0.629, "Pandora", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.PAN.ordinal()] = new Satellite(0.00089292714789034, startOrbit(), 0.00200686724886722, 0.575, "Pan", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.YMIR.ordinal()] = new Satellite(0.154684019861069, startOrbit(), 0.00141107853435976, -1315.5, "Ymir", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.PAALIAQ.ordinal()] = new Satellite(0.1016057242696, startOrbit(), 0.00172465154199526, 686.95, "Paaliaq", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.TARVOS.ordinal()] = new Satellite(0.120208930232909, startOrbit(), 0.00117589877863314, 926.23, "Tarvos", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.IJIRAQ.ordinal()] = new Satellite(0.074359347156252, startOrbit(), 0.000940719022906508, 451.42, "Ijiraq", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.SUTTUNGR.ordinal()] = new Satellite(0.130075380826457, startOrbit(), 0.00054875276336213, -1016.6, "Suttungr", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.KIVIUQ.ordinal()] = new Satellite(0.07426576293653, startOrbit(), 0.00125429203054201, 449.22, "Kiviuq", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.MUNDILFARI.ordinal()] = new Satellite(0.124520488927244, startOrbit(), 0.00054875276336213, -952.7, "Mundilfari", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.ALBIORIX.ordinal()] = new Satellite(0.108169988824386, startOrbit(), 0.00250858406108402, 783.45, "Albiorix", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.SKATHI.ordinal()] = new Satellite(0.10387848389142, startOrbit(), 0.000627146015271005, -728.2, "Skathi", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.ERRIAPUS.ordinal()] = new Satellite(0.115930794474189, startOrbit(), 0.000783932519088757, 871.19, "Erriapus", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.SIARNAQ.ordinal()] = new Satellite(0.120425510855694, startOrbit(), 0.00313573007635503, 896.44, "Siarnaq", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.THRYMR.ordinal()] = new Satellite(0.135790702816622, startOrbit(), 0.00054875276336213, -1094.1, "Thrymr", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.NARVI.ordinal()] = new Satellite(0.127053947446861, startOrbit(), 0.00054875276336213, -1003.8, "Narvi", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.METHONE.ordinal()] = new Satellite(0.00129975112019612, startOrbit(), 0.000250858406108402, 1.01, "Methone", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.PALLENE.ordinal()] = new Satellite(0.00141900415447044, startOrbit(), 0.000313573007635503, 1.154, "Pallene", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.POLYDEUCES.ordinal()] = new Satellite(0.0025214262627956, startOrbit(), 0.000195983129772189, 2.737, "Polydeuces", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.DAPHNIS.ordinal()] = new Satellite(0.0009124461422895, startOrbit(), 0.00054875276336213, 0.594, "Daphnis", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.AEGIR.ordinal()] = new Satellite(0.138711867389373, startOrbit(), 0.000470359511453254, -1117.5, "Aegir", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.BEBHIONN.ordinal()] = new Satellite(0.114433446958637, startOrbit(), 0.000470359511453254, 834.84, "Bebhionn", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.BERGELMIR.ordinal()] = new Satellite(0.129253176610328, startOrbit(), 0.000470359511453254, -1005.7, "Bergelmir", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.BESTLA.ordinal()] = new Satellite(0.134975183187616, startOrbit(), 0.00054875276336213, -1088.7, "Bestla", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.FARBAUTI.ordinal()] = new Satellite(0.136211831805371, startOrbit(), 0.000391966259544378, -1085.5, "Farbauti", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.FENRIR.ordinal()] = new Satellite(0.150095719259842, startOrbit(), 0.000313573007635503, -1260.3, "Fenrir", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.FORNJOT.ordinal()] = new Satellite(0.168090627794958, startOrbit(), 0.000470359511453254, -1494, "Fornjot", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.HATI.ordinal()] = new Satellite(0.132662316043058, startOrbit(), 0.000470359511453254, -1038.6, "Hati", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.HYRROKKIN.ordinal()] = new Satellite(0.123243732786751, startOrbit(), 0.000627146015271005, -931.8, "Hyrrokkin", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.KARI.ordinal()] = new Satellite(0.147655844959947, startOrbit(), 0.00054875276336213, -1230.9, "Kari", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.LOGE.ordinal()] = new Satellite(0.154133209882134, startOrbit(), 0.000470359511453254, -1311.3, "Loge", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.SKOLL.ordinal()] = new Satellite(0.118083231527795, startOrbit(), 0.000470359511453254, -878.2, "Skoll", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.SURTUR.ordinal()] = new Satellite(0.151766866040592, startOrbit(), 0.000470359511453254, -1297.3, "Surtur", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.ANTHE.ordinal()] = new Satellite(0.0013215428742171, startOrbit(), 0.000156786503817751, 1.0365, "Anthe", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.JARNSAXA.ordinal()] = new Satellite(0.125743768370753, startOrbit(), 0.000470359511453254, -964.74, "Jarnsaxa", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.GREIP.ordinal()] = new Satellite(0.121699593161338, startOrbit(), 0.000470359511453254, -921.19, "Greip", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.TARQEQ.ordinal()] = new Satellite(0.120382729498107, startOrbit(), 0.00054875276336213, 887.48, "Tarqeq", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.AEGAEON.ordinal()] = new Satellite(0.0011196683431025, startOrbit(), 0.0000391966259544378, 0.808, "Aegaeon", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.S2004S7.ordinal()] = new Satellite(0.140369644995877, startOrbit(), 0.000470359511453254, -1140.24, "S/2004 S 7", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.S2004S12.ordinal()] = new Satellite(0.132876222830994, startOrbit(), 0.000391966259544378, -1046.19, "S/2004 S 12", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.S2004S13.ordinal()] = new Satellite(0.123023141411692, startOrbit(), 0.000470359511453254, -933.48, "S/2004 S 13", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.S2006S1.ordinal()] = new Satellite(0.12560339204117, startOrbit(), 0.000470359511453254, -963.37, "S/2006 S 1", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.S2006S3.ordinal()] = new Satellite(0.147702637069808, startOrbit(), 0.000470359511453254, -1227.21, "S/2006 S 3", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.S2007S2.ordinal()] = new Satellite(0.111799719632175, startOrbit(), 0.000470359511453254, -808.08, "S/2007 S 2", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.S2007S3.ordinal()] = new Satellite(0.126840040658925, startOrbit(), 0.000470359511453254, -977.8, "S/2007 S 3", "WHITE", planets[Planets.SATURN.ordinal()]);
-      moons[Moons.S2009S1.ordinal()] = new Satellite(0.000782096693391, startOrbit(), 0.0000235179755726627, 0.471, "S/2009 S 1", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.MIMAS.ordinal()] = new Satellite(bodies, 0.00124025829480142, startOrbit(random), 0.0310750850566783, 0.942, "Mimas", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.ENCELADUS.ordinal()] = new Satellite(bodies, 0.00159119911875892, startOrbit(random), 0.0395572349132187, 1.37, "Enceladus", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.TETHYS.ordinal()] = new Satellite(bodies, 0.00196974728753441, startOrbit(random), 0.08408460199746, 1.888, "Tethys", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.DIONE.ordinal()] = new Satellite(bodies, 0.00252289687196266, startOrbit(random), 0.0881924083974851, 2.737, "Dione", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.RHEA.ordinal()] = new Satellite(bodies, 0.00352324533491961, startOrbit(random), 0.119863282168671, 4.518, "Rhea", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.TITAN.ordinal()] = new Satellite(bodies, 0.00816769646798001, startOrbit(random), 0.403803640582619, 15.95, "Titan", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.HYPERION.ordinal()] = new Satellite(bodies, 0.0100327631211682, startOrbit(random), 0.0208526050077609, 21.28, "Hyperion", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.IAPETUS.ordinal()] = new Satellite(bodies, 0.0238027452110633, startOrbit(random), 0.115159687054138, 79.33, "Iapetus", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.PHOEBE.ordinal()] = new Satellite(bodies, 0.0865505634594369, startOrbit(random), 0.0167134413069723, -550.3, "Phoebe", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.JANUS.ordinal()] = new Satellite(bodies, 0.00101244756564958, startOrbit(random), 0.0141734999451247, 0.695, "Janus", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.EPIMETHEUS.ordinal()] = new Satellite(bodies, 0.00101211333629343, startOrbit(random), 0.0091406531725749, 0.694, "Epimetheus", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.HELENE.ordinal()] = new Satellite(bodies, 0.00252289687196266, startOrbit(random), 0.00250858406108402, 2.737, "Helene", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.TELESTO.ordinal()] = new Satellite(bodies, 0.00197001467101933, startOrbit(random), 0.00188143804581302, 1.888, "Telesto", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.CALYPSO.ordinal()] = new Satellite(bodies, 0.00197001467101933, startOrbit(random), 0.00148947178626864, 1.888, "Calypso", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.ATLAS.ordinal()] = new Satellite(bodies, 0.00092026710922341, startOrbit(random), 0.0023988335084116, 0.602, "Atlas", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.PROMETHEUS.ordinal()] = new Satellite(bodies, 0.00093169775320374, startOrbit(random), 0.00733760837867076, 0.613, "Prometheus", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.PANDORA.ordinal()] = new Satellite(bodies, 0.00094733968707156, startOrbit(random), 0.00636553205500071, 0.629, "Pandora", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.PAN.ordinal()] = new Satellite(bodies, 0.00089292714789034, startOrbit(random), 0.00200686724886722, 0.575, "Pan", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.YMIR.ordinal()] = new Satellite(bodies, 0.154684019861069, startOrbit(random), 0.00141107853435976, -1315.5, "Ymir", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.PAALIAQ.ordinal()] = new Satellite(bodies, 0.1016057242696, startOrbit(random), 0.00172465154199526, 686.95, "Paaliaq", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.TARVOS.ordinal()] = new Satellite(bodies, 0.120208930232909, startOrbit(random), 0.00117589877863314, 926.23, "Tarvos", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.IJIRAQ.ordinal()] = new Satellite(bodies, 0.074359347156252, startOrbit(random), 0.000940719022906508, 451.42, "Ijiraq", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.SUTTUNGR.ordinal()] = new Satellite(bodies, 0.130075380826457, startOrbit(random), 0.00054875276336213, -1016.6, "Suttungr", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.KIVIUQ.ordinal()] = new Satellite(bodies, 0.07426576293653, startOrbit(random), 0.00125429203054201, 449.22, "Kiviuq", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.MUNDILFARI.ordinal()] = new Satellite(bodies, 0.124520488927244, startOrbit(random), 0.00054875276336213, -952.7, "Mundilfari", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.ALBIORIX.ordinal()] = new Satellite(bodies, 0.108169988824386, startOrbit(random), 0.00250858406108402, 783.45, "Albiorix", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.SKATHI.ordinal()] = new Satellite(bodies, 0.10387848389142, startOrbit(random), 0.000627146015271005, -728.2, "Skathi", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.ERRIAPUS.ordinal()] = new Satellite(bodies, 0.115930794474189, startOrbit(random), 0.000783932519088757, 871.19, "Erriapus", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.SIARNAQ.ordinal()] = new Satellite(bodies, 0.120425510855694, startOrbit(random), 0.00313573007635503, 896.44, "Siarnaq", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.THRYMR.ordinal()] = new Satellite(bodies, 0.135790702816622, startOrbit(random), 0.00054875276336213, -1094.1, "Thrymr", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.NARVI.ordinal()] = new Satellite(bodies, 0.127053947446861, startOrbit(random), 0.00054875276336213, -1003.8, "Narvi", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.METHONE.ordinal()] = new Satellite(bodies, 0.00129975112019612, startOrbit(random), 0.000250858406108402, 1.01, "Methone", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.PALLENE.ordinal()] = new Satellite(bodies, 0.00141900415447044, startOrbit(random), 0.000313573007635503, 1.154, "Pallene", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.POLYDEUCES.ordinal()] = new Satellite(bodies, 0.0025214262627956, startOrbit(random), 0.000195983129772189, 2.737, "Polydeuces", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.DAPHNIS.ordinal()] = new Satellite(bodies, 0.0009124461422895, startOrbit(random), 0.00054875276336213, 0.594, "Daphnis", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.AEGIR.ordinal()] = new Satellite(bodies, 0.138711867389373, startOrbit(random), 0.000470359511453254, -1117.5, "Aegir", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.BEBHIONN.ordinal()] = new Satellite(bodies, 0.114433446958637, startOrbit(random), 0.000470359511453254, 834.84, "Bebhionn", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.BERGELMIR.ordinal()] = new Satellite(bodies, 0.129253176610328, startOrbit(random), 0.000470359511453254, -1005.7, "Bergelmir", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.BESTLA.ordinal()] = new Satellite(bodies, 0.134975183187616, startOrbit(random), 0.00054875276336213, -1088.7, "Bestla", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.FARBAUTI.ordinal()] = new Satellite(bodies, 0.136211831805371, startOrbit(random), 0.000391966259544378, -1085.5, "Farbauti", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.FENRIR.ordinal()] = new Satellite(bodies, 0.150095719259842, startOrbit(random), 0.000313573007635503, -1260.3, "Fenrir", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.FORNJOT.ordinal()] = new Satellite(bodies, 0.168090627794958, startOrbit(random), 0.000470359511453254, -1494, "Fornjot", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.HATI.ordinal()] = new Satellite(bodies, 0.132662316043058, startOrbit(random), 0.000470359511453254, -1038.6, "Hati", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.HYRROKKIN.ordinal()] = new Satellite(bodies, 0.123243732786751, startOrbit(random), 0.000627146015271005, -931.8, "Hyrrokkin", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.KARI.ordinal()] = new Satellite(bodies, 0.147655844959947, startOrbit(random), 0.00054875276336213, -1230.9, "Kari", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.LOGE.ordinal()] = new Satellite(bodies, 0.154133209882134, startOrbit(random), 0.000470359511453254, -1311.3, "Loge", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.SKOLL.ordinal()] = new Satellite(bodies, 0.118083231527795, startOrbit(random), 0.000470359511453254, -878.2, "Skoll", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.SURTUR.ordinal()] = new Satellite(bodies, 0.151766866040592, startOrbit(random), 0.000470359511453254, -1297.3, "Surtur", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.ANTHE.ordinal()] = new Satellite(bodies, 0.0013215428742171, startOrbit(random), 0.000156786503817751, 1.0365, "Anthe", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.JARNSAXA.ordinal()] = new Satellite(bodies, 0.125743768370753, startOrbit(random), 0.000470359511453254, -964.74, "Jarnsaxa", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.GREIP.ordinal()] = new Satellite(bodies, 0.121699593161338, startOrbit(random), 0.000470359511453254, -921.19, "Greip", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.TARQEQ.ordinal()] = new Satellite(bodies, 0.120382729498107, startOrbit(random), 0.00054875276336213, 887.48, "Tarqeq", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.AEGAEON.ordinal()] = new Satellite(bodies, 0.0011196683431025, startOrbit(random), 0.0000391966259544378, 0.808, "Aegaeon", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.S2004S7.ordinal()] = new Satellite(bodies, 0.140369644995877, startOrbit(random), 0.000470359511453254, -1140.24, "S/2004 S 7", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.S2004S12.ordinal()] = new Satellite(bodies, 0.132876222830994, startOrbit(random), 0.000391966259544378, -1046.19, "S/2004 S 12", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.S2004S13.ordinal()] = new Satellite(bodies, 0.123023141411692, startOrbit(random), 0.000470359511453254, -933.48, "S/2004 S 13", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.S2006S1.ordinal()] = new Satellite(bodies, 0.12560339204117, startOrbit(random), 0.000470359511453254, -963.37, "S/2006 S 1", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.S2006S3.ordinal()] = new Satellite(bodies, 0.147702637069808, startOrbit(random), 0.000470359511453254, -1227.21, "S/2006 S 3", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.S2007S2.ordinal()] = new Satellite(bodies, 0.111799719632175, startOrbit(random), 0.000470359511453254, -808.08, "S/2007 S 2", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.S2007S3.ordinal()] = new Satellite(bodies, 0.126840040658925, startOrbit(random), 0.000470359511453254, -977.8, "S/2007 S 3", "WHITE", planets[Planets.SATURN.ordinal()]);
+      moons[Moons.S2009S1.ordinal()] = new Satellite(bodies, 0.000782096693391, startOrbit(random), 0.0000235179755726627, 0.471, "S/2009 S 1", "WHITE", planets[Planets.SATURN.ordinal()]);
       
       /* Moons of Uranus  */
       
-      moons[Moons.ARIEL.ordinal()] = new Satellite(0.0012760876817807, startOrbit(), 0.0907637070600963, 2.52, "Ariel", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.UMBRIEL.ordinal()] = new Satellite(0.001778100174718, startOrbit(), 0.0916730687822392, 4.144, "Umbriel", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.TITANIA.ordinal()] = new Satellite(0.0029164853617649, startOrbit(), 0.123688872861824, 8.706, "Titania", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.OBERON.ordinal()] = new Satellite(0.0039004565862705, startOrbit(), 0.119377244006836, 13.46, "Oberon", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.MIRANDA.ordinal()] = new Satellite(0.0008683278672777, startOrbit(), 0.0369702576002258, 1.413, "Miranda", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.CORDELIA.ordinal()] = new Satellite(0.0003328924387254, startOrbit(), 0.0031514087267368, 0.335, "Cordelia", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.OPHELIA.ordinal()] = new Satellite(0.0003596307872174, startOrbit(), 0.00335523118169988, 0.376, "Ophelia", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.BIANCA.ordinal()] = new Satellite(0.0003957275576816, startOrbit(), 0.00402941314811621, 0.435, "Bianca", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.CRESSIDA.ordinal()] = new Satellite(0.0004131074842014, startOrbit(), 0.0062401028519465, 0.464, "Cressida", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.DESDEMONA.ordinal()] = new Satellite(0.0004191236126121, startOrbit(), 0.00501716812216804, 0.474, "Desdemona", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.JULIET.ordinal()] = new Satellite(0.0004304874107212, startOrbit(), 0.00733760837867076, 0.493, "Juliet", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.PORTIA.ordinal()] = new Satellite(0.0004418512088303, startOrbit(), 0.01059876765808, 0.513, "Portia", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.ROSALIND.ordinal()] = new Satellite(0.0004672526398977, startOrbit(), 0.00564431413743905, 0.558, "Rosalind", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.BELINDA.ordinal()] = new Satellite(0.0005033494103619, startOrbit(), 0.00631849610385538, 0.624, "Belinda", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.PUCK.ordinal()] = new Satellite(0.000574874492578, startOrbit(), 0.0126997068092379, 0.762, "Puck", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.CALIBAN.ordinal()] = new Satellite(0.0483369179451253, startOrbit(), 0.00768253868706982, -579.73, "Caliban", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.SYCORAX.ordinal()] = new Satellite(0.0814142604058662, startOrbit(), 0.0117589877863314, -1288.38, "Sycorax", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.PROSPERO.ordinal()] = new Satellite(0.108664648271488, startOrbit(), 0.00235179755726627, -1978.29, "Prospero", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.SETEBOS.ordinal()] = new Satellite(0.116432138508414, startOrbit(), 0.00235179755726627, -2225.21, "Setebos", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.STEPHANO.ordinal()] = new Satellite(0.053503435332492, startOrbit(), 0.00156786503817751, -677.36, "Stephano", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.TRINCULO.ordinal()] = new Satellite(0.056845728893992, startOrbit(), 0.000783932519088757, -749.24, "Trinculo", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.FRANCISCO.ordinal()] = new Satellite(0.028583294537948, startOrbit(), 0.000940719022906508, -266.56, "Francisco", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.MARGARET.ordinal()] = new Satellite(0.095890402279435, startOrbit(), 0.000862325770997632, 1687.01, "Margaret", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.FERDINAND.ordinal()] = new Satellite(0.139714555457823, startOrbit(), 0.000940719022906508, -2887.21, "Ferdinand", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.PERDITA.ordinal()] = new Satellite(0.000510816094178291, startOrbit(), 0.00156786503817751, 0.638, "Perdita", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.MAB.ordinal()] = new Satellite(0.000653324807053528, startOrbit(), 0.000783932519088757, 0.923, "Mab", "WHITE", planets[Planets.URANUS.ordinal()]);
-      moons[Moons.CUPID.ordinal()] = new Satellite(0.000497279805254216, startOrbit(), 0.000783932519088757, 0.613, "Cupid", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.ARIEL.ordinal()] = new Satellite(bodies, 0.0012760876817807, startOrbit(random), 0.0907637070600963, 2.52, "Ariel", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.UMBRIEL.ordinal()] = new Satellite(bodies, 0.001778100174718, startOrbit(random), 0.0916730687822392, 4.144, "Umbriel", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.TITANIA.ordinal()] = new Satellite(bodies, 0.0029164853617649, startOrbit(random), 0.123688872861824, 8.706, "Titania", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.OBERON.ordinal()] = new Satellite(bodies, 0.0039004565862705, startOrbit(random), 0.119377244006836, 13.46, "Oberon", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.MIRANDA.ordinal()] = new Satellite(bodies, 0.0008683278672777, startOrbit(random), 0.0369702576002258, 1.413, "Miranda", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.CORDELIA.ordinal()] = new Satellite(bodies, 0.0003328924387254, startOrbit(random), 0.0031514087267368, 0.335, "Cordelia", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.OPHELIA.ordinal()] = new Satellite(bodies, 0.0003596307872174, startOrbit(random), 0.00335523118169988, 0.376, "Ophelia", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.BIANCA.ordinal()] = new Satellite(bodies, 0.0003957275576816, startOrbit(random), 0.00402941314811621, 0.435, "Bianca", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.CRESSIDA.ordinal()] = new Satellite(bodies, 0.0004131074842014, startOrbit(random), 0.0062401028519465, 0.464, "Cressida", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.DESDEMONA.ordinal()] = new Satellite(bodies, 0.0004191236126121, startOrbit(random), 0.00501716812216804, 0.474, "Desdemona", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.JULIET.ordinal()] = new Satellite(bodies, 0.0004304874107212, startOrbit(random), 0.00733760837867076, 0.493, "Juliet", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.PORTIA.ordinal()] = new Satellite(bodies, 0.0004418512088303, startOrbit(random), 0.01059876765808, 0.513, "Portia", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.ROSALIND.ordinal()] = new Satellite(bodies, 0.0004672526398977, startOrbit(random), 0.00564431413743905, 0.558, "Rosalind", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.BELINDA.ordinal()] = new Satellite(bodies, 0.0005033494103619, startOrbit(random), 0.00631849610385538, 0.624, "Belinda", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.PUCK.ordinal()] = new Satellite(bodies, 0.000574874492578, startOrbit(random), 0.0126997068092379, 0.762, "Puck", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.CALIBAN.ordinal()] = new Satellite(bodies, 0.0483369179451253, startOrbit(random), 0.00768253868706982, -579.73, "Caliban", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.SYCORAX.ordinal()] = new Satellite(bodies, 0.0814142604058662, startOrbit(random), 0.0117589877863314, -1288.38, "Sycorax", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.PROSPERO.ordinal()] = new Satellite(bodies, 0.108664648271488, startOrbit(random), 0.00235179755726627, -1978.29, "Prospero", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.SETEBOS.ordinal()] = new Satellite(bodies, 0.116432138508414, startOrbit(random), 0.00235179755726627, -2225.21, "Setebos", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.STEPHANO.ordinal()] = new Satellite(bodies, 0.053503435332492, startOrbit(random), 0.00156786503817751, -677.36, "Stephano", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.TRINCULO.ordinal()] = new Satellite(bodies, 0.056845728893992, startOrbit(random), 0.000783932519088757, -749.24, "Trinculo", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.FRANCISCO.ordinal()] = new Satellite(bodies, 0.028583294537948, startOrbit(random), 0.000940719022906508, -266.56, "Francisco", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.MARGARET.ordinal()] = new Satellite(bodies, 0.095890402279435, startOrbit(random), 0.000862325770997632, 1687.01, "Margaret", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.FERDINAND.ordinal()] = new Satellite(bodies, 0.139714555457823, startOrbit(random), 0.000940719022906508, -2887.21, "Ferdinand", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.PERDITA.ordinal()] = new Satellite(bodies, 0.000510816094178291, startOrbit(random), 0.00156786503817751, 0.638, "Perdita", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.MAB.ordinal()] = new Satellite(bodies, 0.000653324807053528, startOrbit(random), 0.000783932519088757, 0.923, "Mab", "WHITE", planets[Planets.URANUS.ordinal()]);
+      moons[Moons.CUPID.ordinal()] = new Satellite(bodies, 0.000497279805254216, startOrbit(random), 0.000783932519088757, 0.613, "Cupid", "WHITE", planets[Planets.URANUS.ordinal()]);
 
       /* Moons of Neptune   */
       
-      moons[Moons.TRITON.ordinal()] = new Satellite(0.0023716915112404, startOrbit(), 0.212194854266945, -5.877, "Triton", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.NEREID.ordinal()] = new Satellite(0.0368576101705399, startOrbit(), 0.0266537056490177, 360.14, "Nereid", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.NAIAD.ordinal()] = new Satellite(0.000322377583180921, startOrbit(), 0.0051739546259858, 0.294, "Naiad", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.THALASSA.ordinal()] = new Satellite(0.000334730700184225, startOrbit(), 0.00642824665652781, 0.311, "Thalassa", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.DESPINA.ordinal()] = new Satellite(0.000351114623222698, startOrbit(), 0.0117589877863314, 0.335, "Despina", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.GALATEA.ordinal()] = new Satellite(0.000414130226031219, startOrbit(), 0.0137972123359621, 0.429, "Galatea", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.LARISSA.ordinal()] = new Satellite(0.000491638013722404, startOrbit(), 0.0152082908703219, 0.555, "Larissa", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.PROTEUS.ordinal()] = new Satellite(0.000786421621259581, startOrbit(), 0.0329251658017278, 1.122, "Proteus", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.HALIMEDE.ordinal()] = new Satellite(0.105135186270544, startOrbit(), 0.00486038161835029, -1879.71, "Halimede", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.PSAMATHE.ordinal()] = new Satellite(0.312136795708485, startOrbit(), 0.00313573007635503, -9115.91, "Psamathe", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.SAO.ordinal()] = new Satellite(0.149881812471906, startOrbit(), 0.00344930308399053, 2914.07, "Sao", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.LAOMEDEIA.ordinal()] = new Satellite(0.157562403076233, startOrbit(), 0.00329251658017278, 3167.85, "Laomedeia", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.NESO.ordinal()] = new Satellite(0.323447117120601, startOrbit(), 0.00470359511453254, -9373.99, "Neso", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
-      moons[Moons.S2004N1.ordinal()] = new Satellite(0.000703773386070809, startOrbit(), 0.00148947178626864, 0.9362, "S/2004 N 1", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.TRITON.ordinal()] = new Satellite(bodies, 0.0023716915112404, startOrbit(random), 0.212194854266945, -5.877, "Triton", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.NEREID.ordinal()] = new Satellite(bodies, 0.0368576101705399, startOrbit(random), 0.0266537056490177, 360.14, "Nereid", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.NAIAD.ordinal()] = new Satellite(bodies, 0.000322377583180921, startOrbit(random), 0.0051739546259858, 0.294, "Naiad", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.THALASSA.ordinal()] = new Satellite(bodies, 0.000334730700184225, startOrbit(random), 0.00642824665652781, 0.311, "Thalassa", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.DESPINA.ordinal()] = new Satellite(bodies, 0.000351114623222698, startOrbit(random), 0.0117589877863314, 0.335, "Despina", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.GALATEA.ordinal()] = new Satellite(bodies, 0.000414130226031219, startOrbit(random), 0.0137972123359621, 0.429, "Galatea", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.LARISSA.ordinal()] = new Satellite(bodies, 0.000491638013722404, startOrbit(random), 0.0152082908703219, 0.555, "Larissa", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.PROTEUS.ordinal()] = new Satellite(bodies, 0.000786421621259581, startOrbit(random), 0.0329251658017278, 1.122, "Proteus", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.HALIMEDE.ordinal()] = new Satellite(bodies, 0.105135186270544, startOrbit(random), 0.00486038161835029, -1879.71, "Halimede", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.PSAMATHE.ordinal()] = new Satellite(bodies, 0.312136795708485, startOrbit(random), 0.00313573007635503, -9115.91, "Psamathe", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.SAO.ordinal()] = new Satellite(bodies, 0.149881812471906, startOrbit(random), 0.00344930308399053, 2914.07, "Sao", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.LAOMEDEIA.ordinal()] = new Satellite(bodies, 0.157562403076233, startOrbit(random), 0.00329251658017278, 3167.85, "Laomedeia", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.NESO.ordinal()] = new Satellite(bodies, 0.323447117120601, startOrbit(random), 0.00470359511453254, -9373.99, "Neso", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+      moons[Moons.S2004N1.ordinal()] = new Satellite(bodies, 0.000703773386070809, startOrbit(random), 0.00148947178626864, 0.9362, "S/2004 N 1", "WHITE", planets[Planets.NEPTUNE.ordinal()]);
+   }
+   
+	/**
+	 **   Puts the bodies whose orbits are far from circular onto eccentric
+    **   orbits: the dwarf planets, Nereid and the irregular moons of Jupiter
+    **   and Neptune. The values are eccentricity, inclination (to the
+    **   ecliptic for dwarf planets, to the primary's equator or Laplace plane
+    **   for moons) and argument of periapsis, where known, else 0.
+	 **
+	 **   @param dwarfPlanets The array of Satellite objects representing the
+    **   dwarf planets.
+	 **   @param moons The array of Satellite objects representing the moons.
+	 **/
+   private static void importOrbits(Satellite[] dwarfPlanets, Satellite[] moons) {
+      dwarfPlanets[DwarfPlanets.CERES.ordinal()].setOrbit(0.0758, 10.59, 73.6);
+      dwarfPlanets[DwarfPlanets.PLUTO.ordinal()].setOrbit(0.2488, 17.16, 113.8);
+      dwarfPlanets[DwarfPlanets.HAUMEA.ordinal()].setOrbit(0.1913, 28.21, 239.0);
+      dwarfPlanets[DwarfPlanets.MAKEMAKE.ordinal()].setOrbit(0.1559, 28.98, 294.8);
+      dwarfPlanets[DwarfPlanets.ERIS.ordinal()].setOrbit(0.4407, 44.04, 151.6);
+      
+      /* Irregular moons of Jupiter */
+      moons[Moons.HIMALIA.ordinal()].setOrbit(0.16, 27.5, 0);
+      moons[Moons.ELARA.ordinal()].setOrbit(0.22, 26.6, 0);
+      moons[Moons.PASIPHAE.ordinal()].setOrbit(0.41, 151.4, 0);
+      moons[Moons.SINOPE.ordinal()].setOrbit(0.25, 158.1, 0);
+      moons[Moons.LYSITHEA.ordinal()].setOrbit(0.11, 28.3, 0);
+      moons[Moons.CARME.ordinal()].setOrbit(0.25, 164.9, 0);
+      moons[Moons.ANANKE.ordinal()].setOrbit(0.24, 148.9, 0);
+      moons[Moons.LEDA.ordinal()].setOrbit(0.16, 27.5, 0);
+      
+      /* Irregular moons of Neptune */
+      moons[Moons.NEREID.ordinal()].setOrbit(0.7507, 7.23, 281.1);
+      moons[Moons.HALIMEDE.ordinal()].setOrbit(0.571, 134.1, 0);
+      moons[Moons.SAO.ordinal()].setOrbit(0.293, 48.5, 0);
+      moons[Moons.LAOMEDEIA.ordinal()].setOrbit(0.424, 34.7, 0);
+      moons[Moons.PSAMATHE.ordinal()].setOrbit(0.381, 137.4, 0);
+      moons[Moons.NESO.ordinal()].setOrbit(0.495, 132.6, 0);
    }
    
 	/**
 	 **   Returns a random starting position in the body in question's orbit.
 	 **
+	 **   @param random Where to get the position from.
 	 **   @return the angle in the orbit.
 	 **/
-   private static int startOrbit() {
-      return (0 + (int)(Math.random() * ((360 - 0) + 1)));
+   private static int startOrbit(Random random) {
+      return random.nextInt(361);
    }
 }
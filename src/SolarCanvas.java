@@ -0,0 +1,397 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class holds the objects queued for display by a SolarDisplay and
+ ** rasterizes them, so that the on-screen and off-screen displays share the
+ ** same polar co-ordinate maths and view state (zoom and focus).
+ **
+ ** Objects are queued into preallocated DrawBuffers rather than one object
+ ** apiece. There are three buffers: one being filled by the thread drawing
+ ** the solar system, one being rasterized by the thread painting the
+ ** display, and a spare. publish() swaps the filled buffer with the spare
+ ** and render() swaps the spare with the one it last drew if a newer frame
+ ** has been published, so neither side ever waits for the other or
+ ** allocates once the buffers have grown to the size of a frame. Only one
+ ** thread may queue objects and publish, and only one may render.
+ **
+ ** When rendering into a BufferedImage whose pixels can be reached, small
+ ** objects are drawn straight into them by a Rasterizer, and only those
+ ** more than Rasterizer.MAX_DISC pixels across go through Java2D. Lines are
+ ** drawn before objects, so trails pass underneath the bodies they follow.
+ **/
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ **   @author Joe Finney
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class SolarCanvas {
+   // The number of objects each buffer has room for before it first grows.
+   private static final int INITIAL_CAPACITY = 1024;
+
+   private final int width;
+   private final int height;
+   private volatile double zoom = 2.0;
+   private volatile int focus = 1;
+   private volatile boolean directRendering = true;
+   private final Rasterizer rasterizer = new Rasterizer();
+   private volatile FrameMetrics metrics;
+
+   // Marks the spare buffer as holding a frame render() hasn't seen yet.
+   private static final int FRESH = 4;
+
+   private final DrawBuffer[] buffers = {
+      new DrawBuffer(INITIAL_CAPACITY), new DrawBuffer(INITIAL_CAPACITY),
+      new DrawBuffer(INITIAL_CAPACITY)
+   };
+   // The buffer being filled; only touched by the drawing thread.
+   private int back = 0;
+   // The buffer last rendered; only touched by the painting thread.
+   private int front = 1;
+   // The spare buffer, possibly flagged FRESH.
+   private final AtomicInteger spare = new AtomicInteger(2);
+
+   /**
+    **   Constructor method.
+    **
+    **   @param width The width of the drawing area, in pixels.
+    **   @param height The height of the drawing area, in pixels.
+    **/
+   public SolarCanvas(int width, int height) {
+      this.width = width;
+      this.height = height;
+   }
+
+   /** The names of the colours objects can be drawn in. */
+   public static final String[] COLOUR_NAMES = {
+      "WHITE", "BLACK", "BLUE", "CYAN", "DARKGREY", "GREY", "GREEN",
+      "LIGHTGREY", "MAGENTA", "ORANGE", "PINK", "RED", "YELLOW"
+   };
+   private static final Color[] COLOURS = {
+      Color.WHITE, Color.BLACK, Color.BLUE, Color.CYAN, Color.DARK_GRAY,
+      Color.GRAY, Color.GREEN, Color.LIGHT_GRAY, Color.MAGENTA, Color.ORANGE,
+      Color.PINK, Color.RED, Color.YELLOW
+   };
+   private static final int[] RGBS = new int[COLOURS.length];
+   // The number of opacities lines are drawn in by Java2D, and the colours
+   // for each, so that drawing a line needn't make a Color.
+   private static final int ALPHA_LEVELS = 16;
+   private static final Color[][] TRANSLUCENT = 
+      new Color[COLOURS.length][ALPHA_LEVELS];
+   static {
+      for (int i = 0; i < COLOURS.length; i++) {
+         RGBS[i] = COLOURS[i].getRGB() & 0xFFFFFF;
+         for (int a = 0; a < ALPHA_LEVELS; a++)
+            TRANSLUCENT[i][a] = new Color(COLOURS[i].getRed(), 
+                                          COLOURS[i].getGreen(),
+                                          COLOURS[i].getBlue(),
+                                          a * 255 / (ALPHA_LEVELS - 1));
+      }
+   }
+
+	//
+	// Shouldn't really handle colour this way, but the student's haven't been
+   // introduced to constants properly yet, and Color.getColor() doesn't seem
+   // to work... hmmm....
+	//
+   /**
+    **   Looks up a colour in the palette. Unknown colours are drawn white.
+    **
+    **   @param col The name of the colour. Case insensitive.
+    **   @return The index of the colour in COLOUR_NAMES.
+    **/
+   public static int getColourIndex(String col) {
+      for (int i = 0; i < COLOUR_NAMES.length; i++)
+         if (COLOUR_NAMES[i].equalsIgnoreCase(col))
+            return i;
+      return 0;
+   }
+
+   /**
+    **   Queues an object orbiting the centre of the drawing area. See
+    **   SolarDisplay.drawSolarObject() for the meaning of the parameters.
+    **/
+   public void queue(double distance, double angle, double diameter,
+                     String col) {
+      this.queueAbout(distance, angle, diameter, col, 0, 0);
+   }
+
+   /**
+    **   Queues an object orbiting an arbitrary point. See
+    **   SolarDisplay.drawSolarObjectAbout() for the meaning of the parameters.
+    **/
+   public void queueAbout(double distance, double angle, double diameter,
+                          String col, double centreOfRotationDistance,
+                          double centreOfRotationAngle) {
+		int colour = getColourIndex(col);
+		double centrerads = Math.toRadians(centreOfRotationAngle);
+		double centreOfRotationX = (((double) width) / 2.0) + centreOfRotationDistance * Math.sin(centrerads);
+		double centreOfRotationY = (((double) height) / 2.0) + centreOfRotationDistance * Math.cos(centrerads);
+
+		double rads = Math.toRadians(angle);
+		this.queueAt(colour, centreOfRotationX + distance * Math.sin(rads),
+                   centreOfRotationY + distance * Math.cos(rads), diameter);
+   }
+
+   /**
+    **   Queues an object at a point on the drawing area. See
+    **   SolarDisplay.drawSolarObjectAt() for the meaning of the parameters.
+    **/
+   public void queueAt(double x, double y, double diameter, String col) {
+      this.queueAt(getColourIndex(col), x, y, diameter);
+   }
+
+   /**
+    **   Queues a trail of lines through a run of points. See
+    **   SolarDisplay.drawTrailAt() for the meaning of the parameters.
+    **/
+   public void queueTrail(double[] x, double[] y, int points, String col) {
+      if (points < 2)
+         return;
+      int colour = getColourIndex(col);
+      DrawBuffer buffer = buffers[back];
+      for (int k = 0; k < points - 1; k++)
+         buffer.addLine((float) x[k], (float) y[k], (float) x[k + 1], 
+                        (float) y[k + 1], colour, 
+                        256 * (points - 1 - k) / (points - 1));
+   }
+
+   /**
+    **   Queues lines through a run of points. See SolarDisplay.drawPathAt()
+    **   for the meaning of the parameters.
+    **/
+   public void queuePath(double[] x, double[] y, int points, String col,
+                         double opacity) {
+      int colour = getColourIndex(col);
+      int alpha = (int) Math.round(Math.max(0, Math.min(1, opacity)) * 256);
+      DrawBuffer buffer = buffers[back];
+      for (int k = 0; k < points - 1; k++)
+         buffer.addLine((float) x[k], (float) y[k], (float) x[k + 1], 
+                        (float) y[k + 1], colour, alpha);
+   }
+
+   /**
+    **   Queues a batch of objects, each orbiting either the centre of the
+    **   drawing area or a point of its own, in one pass. A centre of
+    **   rotation is only projected again when it differs from the last
+    **   object's, so objects orbiting the same point are best kept together.
+    **   See SolarDisplay.drawSolarObjects() for the meaning of the
+    **   parameters.
+    **/
+   public void queueAll(double[] distance, double[] angle, double[] diameter,
+                        int[] colour, double[] centreOfRotationDistance,
+                        double[] centreOfRotationAngle, int offset, 
+                        int count) {
+      DrawBuffer buffer = buffers[back];
+      buffer.ensureCapacity(buffer.size + count);
+      double middleX = ((double) width) / 2.0;
+      double middleY = ((double) height) / 2.0;
+      boolean about = centreOfRotationDistance != null;
+      double cx = middleX;
+      double cy = middleY;
+      double lastDistance = 0;
+      double lastAngle = 0;
+      for (int i = offset, end = offset + count; i < end; i++) {
+         if (about && (centreOfRotationDistance[i] != lastDistance || 
+                       centreOfRotationAngle[i] != lastAngle)) {
+            lastDistance = centreOfRotationDistance[i];
+            lastAngle = centreOfRotationAngle[i];
+            double centrerads = Math.toRadians(lastAngle);
+            cx = middleX + lastDistance * Math.sin(centrerads);
+            cy = middleY + lastDistance * Math.cos(centrerads);
+         }
+         double rads = Math.toRadians(angle[i]);
+         this.queueAt(checkColour(colour[i]), cx + distance[i] * Math.sin(rads),
+                      cy + distance[i] * Math.cos(rads), diameter[i]);
+      }
+   }
+
+   /**
+    **   Queues a batch of objects at points on the drawing area, in one
+    **   pass. See SolarDisplay.drawSolarObjectsAt() for the meaning of the
+    **   parameters.
+    **/
+   public void queueAllAt(double[] x, double[] y, double[] diameter,
+                          int[] colour, int offset, int count) {
+      DrawBuffer buffer = buffers[back];
+      buffer.ensureCapacity(buffer.size + count);
+      for (int i = offset, end = offset + count; i < end; i++)
+         this.queueAt(checkColour(colour[i]), x[i], y[i], diameter[i]);
+   }
+
+   // Draws colours that aren't in the palette white, as getColourIndex()
+   // does unknown names.
+   private static int checkColour(int colour) {
+      return colour >= 0 && colour < COLOURS.length ? colour : 0;
+   }
+
+   private void queueAt(int colour, double centreX, double centreY,
+                        double diameter) {
+		double x = (int) centreX - diameter / 2;
+		double y = (int) centreY - diameter / 2;
+
+      buffers[back].add((float)x, (float)y, (float)diameter, colour);
+   }
+
+   /**
+    **   Makes everything queued since the last call the frame that render()
+    **   draws, and starts a new, empty one.
+    **/
+   public void publish() {
+      back = spare.getAndSet(back | FRESH) & ~FRESH;
+      buffers[back].clear();
+   }
+
+   /**
+    **   Draws the most recently published frame onto the given graphics
+    **   context, clearing it first.
+    **
+    **   @param g The graphics context to draw onto.
+    **/
+   public void render(Graphics2D g) {
+      DrawBuffer things = this.latestFrame();
+
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                         RenderingHints.VALUE_ANTIALIAS_ON);
+      g.clearRect(0, 0, width, height);
+      for (int i = 0; i < things.lines; i++) {
+         int level = (things.lineAlpha[i] * (ALPHA_LEVELS - 1) + 128) >> 8;
+         if (level == 0)
+            continue;
+         g.setColor(TRANSLUCENT[things.lineColour[i]][level]);
+         g.drawLine((int) things.lineX1[i], (int) things.lineY1[i],
+                    (int) things.lineX2[i], (int) things.lineY2[i]);
+      }
+      for (int i = 0; i < things.size; i++) {
+         int diameter = (int) things.diameter[i];
+         if (diameter < 1)
+            continue;
+         g.setColor(COLOURS[things.colour[i]]);
+         // Objects a pixel across (e.g. the bodies of a belt) are far
+         // cheaper to draw as a pixel than as an anti-aliased oval.
+         if (diameter == 1)
+            g.fillRect((int) things.x[i], (int) things.y[i], 1, 1);
+         else
+            g.fillOval((int) things.x[i], (int) things.y[i], diameter, diameter);
+      }
+   }
+
+   /**
+    **   Draws the most recently published frame into an image, clearing it
+    **   first. Small objects are drawn straight into the image's pixels if
+    **   direct rendering is on and the image allows it.
+    **
+    **   @param image The image to draw into.
+    **   @param g A graphics context for the image, used for big objects.
+    **/
+   public void render(BufferedImage image, Graphics2D g) {
+      FrameMetrics metrics = this.metrics;
+      if (metrics != null)
+         metrics.begin(FrameMetrics.Phase.RASTER);
+      this.rasterize(image, g);
+      if (metrics != null)
+         metrics.end(FrameMetrics.Phase.RASTER);
+   }
+
+   private void rasterize(BufferedImage image, Graphics2D g) {
+      if (!directRendering || !Rasterizer.canDrawInto(image)) {
+         this.render(g);
+         return;
+      }
+      DrawBuffer things = this.latestFrame();
+
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                         RenderingHints.VALUE_ANTIALIAS_ON);
+      rasterizer.setImage(image);
+      rasterizer.clear(g.getBackground().getRGB());
+      for (int i = 0; i < things.lines; i++)
+         rasterizer.line(things.lineX1[i], things.lineY1[i], things.lineX2[i],
+                         things.lineY2[i], RGBS[things.lineColour[i]], 
+                         things.lineAlpha[i]);
+      for (int i = 0; i < things.size; i++) {
+         int rgb = RGBS[things.colour[i]];
+         if (rasterizer.draw(things.x[i], things.y[i], things.diameter[i], rgb))
+            continue;
+         int diameter = (int) things.diameter[i];
+         g.setColor(COLOURS[things.colour[i]]);
+         g.fillOval((int) things.x[i], (int) things.y[i], diameter, diameter);
+      }
+   }
+
+   // Takes over the spare buffer if it holds a newer frame than the one
+   // last rendered.
+   private DrawBuffer latestFrame() {
+      if ((spare.get() & FRESH) != 0)
+         front = spare.getAndSet(front) & ~FRESH;
+      return buffers[front];
+   }
+
+	public double getZoom() {
+	   return this.zoom;
+	}
+
+	public int getFocus() {
+	   return this.focus;
+	}
+
+   public int getHeight() {
+      return this.height;
+   }
+
+   public int getWidth() {
+      return this.width;
+   }
+
+	public void setZoom(double zoom) {
+	   this.zoom = zoom;
+	}
+
+	public void setFocus(int focus) {
+	   this.focus = focus;
+	}
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param directRendering Whether render() may draw small objects straight
+    * into an image's pixels, rather than all through Java2D. Defaults to
+    * true.
+	 */
+	public void setDirectRendering(boolean directRendering) {
+	   this.directRendering = directRendering;
+	}
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param metrics Where to time render(BufferedImage, Graphics2D) as the
+    * RASTER phase, or null not to time it. Defaults to null.
+	 */
+	public void setMetrics(FrameMetrics metrics) {
+	   this.metrics = metrics;
+	}
+}
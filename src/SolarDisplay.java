@@ -0,0 +1,186 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This interface represents something the Solar program can draw the solar
+ ** system onto, whether that is a window on screen or an off-screen image.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public interface SolarDisplay {
+	/**
+	 * Draws a round shape at the given co-ordinates that represents an object
+    * in the solar system, using <i>Polar Co-ordinates</i> about the centre of
+    * the display.
+	 *
+	 * @param distance the distance from the sun to the object.
+	 * @param angle the angle (in degrees) that represents how far the planet is
+    * around its orbit of the sun.
+	 * @param diameter the size of the object.
+	 * @param col the colour of this object, as a string. Case insentive.
+	 */
+	public void drawSolarObject(double distance, double angle, double diameter,
+                               String col);
+
+	/**
+	 * Draws a round shape at the given co-ordinates, about an arbitrary point
+    * (e.g. a planet rather than the sun).
+	 *
+	 * @param distance the distance from this object to the point about which it
+    * is orbiting.
+	 * @param angle the angle (in degrees) that represents how far the object is
+    * around its orbit.
+	 * @param diameter the size of the object.
+	 * @param col the colour of this object, as a string. Case insentive.
+	 * @param centreOfRotationDistance the distance part of the polar co-ordinate
+    * about which this object orbits.
+	 * @param centreOfRotationAngle the angular part of the polar co-ordinate
+    * about which this object orbits.
+	 */
+	public void drawSolarObjectAbout(double distance, double angle,
+                                    double diameter, String col,
+                                    double centreOfRotationDistance,
+                                    double centreOfRotationAngle);
+
+	/**
+	 * Draws a round shape centred on the given point of the display, for
+    * objects whose position on it has already been worked out.
+	 *
+	 * @param x the distance of the object's centre from the left of the
+    * display, in pixels.
+	 * @param y the distance of the object's centre from the top of the
+    * display, in pixels.
+	 * @param diameter the size of the object.
+	 * @param col the colour of this object, as a string. Case insentive.
+	 */
+	public void drawSolarObjectAt(double x, double y, double diameter,
+                                 String col);
+
+	/**
+	 * Draws a batch of round shapes in one go, each at <i>Polar
+    * Co-ordinates</i> about either the centre of the display or a point of
+    * its own, as drawSolarObject() and drawSolarObjectAbout() would. Much
+    * cheaper than drawing them one at a time.
+	 *
+	 * @param distance the distance of each object from the point it orbits.
+	 * @param angle the angle (in degrees) of each object around its orbit.
+	 * @param diameter the size of each object.
+	 * @param colour the colour of each object, as an index into
+    * SolarCanvas.COLOUR_NAMES.
+	 * @param centreOfRotationDistance the distance part of the polar
+    * co-ordinate each object orbits about, or null for the centre of the
+    * display.
+	 * @param centreOfRotationAngle the angular part of the polar co-ordinate
+    * each object orbits about, or null for the centre of the display.
+	 * @param offset where in the arrays the first object is.
+	 * @param count the number of objects.
+	 */
+	public void drawSolarObjects(double[] distance, double[] angle,
+                                double[] diameter, int[] colour,
+                                double[] centreOfRotationDistance,
+                                double[] centreOfRotationAngle, int offset,
+                                int count);
+
+	/**
+	 * Draws a batch of round shapes in one go, each centred on a point of
+    * the display, as drawSolarObjectAt() would.
+	 *
+	 * @param x the distance of each object's centre from the left of the
+    * display, in pixels.
+	 * @param y the distance of each object's centre from the top of the
+    * display, in pixels.
+	 * @param diameter the size of each object.
+	 * @param colour the colour of each object, as an index into
+    * SolarCanvas.COLOUR_NAMES.
+	 * @param offset where in the arrays the first object is.
+	 * @param count the number of objects.
+	 */
+	public void drawSolarObjectsAt(double[] x, double[] y, double[] diameter,
+                                  int[] colour, int offset, int count);
+
+	/**
+	 * Draws a trail of lines through a run of points on the display, e.g.
+    * where an object has been, fading out from the first point to the last.
+	 *
+	 * @param x the distances of the points from the left of the display, in
+    * pixels.
+	 * @param y the distances of the points from the top of the display, in
+    * pixels.
+	 * @param points the number of points to draw through, from the start of
+    * x and y.
+	 * @param col the colour of the trail, as a string. Case insentive.
+	 */
+	public void drawTrailAt(double[] x, double[] y, int points, String col);
+
+	/**
+	 * Draws lines through a run of points on the display, e.g. around an
+    * object's orbit, all with the same opacity.
+	 *
+	 * @param x the distances of the points from the left of the display, in
+    * pixels.
+	 * @param y the distances of the points from the top of the display, in
+    * pixels.
+	 * @param points the number of points to draw through, from the start of
+    * x and y.
+	 * @param col the colour of the lines, as a string. Case insentive.
+	 * @param opacity how opaque the lines are, from 0 (invisible) to 1.
+	 */
+	public void drawPathAt(double[] x, double[] y, int points, String col,
+                          double opacity);
+
+	/**
+	 * Makes all objects drawn since the last call visible, and starts a new
+    * frame.
+	 */
+	public void finishedDrawing();
+
+	public double getZoom();
+
+	public int getFocus();
+
+   public int getHeight();
+
+   public int getWidth();
+
+	public void setZoom(double zoom);
+
+	/**
+	 * Sets the focus, as though its key had been pressed, e.g. so that the
+    * display agrees with a focus set some other way.
+	 *
+	 * @param focus 1 for Sol, 2-9 for the planets, or 0 for any other body.
+	 */
+	public void setFocus(int focus);
+
+	/**
+	 * Takes the point last clicked on the display, if it has been clicked on
+    * since this was last called.
+	 *
+	 * @param result where to put the distance of the point from the left
+    * (element 0) and from the top (element 1) of the display, in pixels.
+	 * @return whether the display had been clicked on.
+	 */
+	public boolean takeClick(double[] result);
+}
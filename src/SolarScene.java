@@ -0,0 +1,657 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+/**
+ ** This class represents the populated solar system: the centre point, the
+ ** bodies orbiting it and which of them is in focus. It knows how to draw
+ ** itself onto a SolarDisplay, so the main loop, benchmarks and other tools
+ ** all draw a frame the same way.
+ **/
+
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class SolarScene {
+   /** The focus key standing for a body that has no key of its own. */
+   public static final int OTHER_FOCUS = 0;
+   // How far outside a body a click may land and still pick it, in pixels.
+   private static final double PICK_SLACK = 4;
+
+   private BodyTable bodies;
+   private CentrePoint centre;
+   private Satellite[] planets;
+   private Satellite[] dwarfPlanets;
+   private Satellite[] moons;
+   private Belt[] belts = new Belt[0];
+   // Every named body, arranged by what it orbits.
+   private SceneGraph graph;
+   // The nodes whose children are to be placed this frame.
+   private int[] queue;
+
+   // The bodies that may be drawn this frame, and where they would land.
+   private int candidates = 0;
+   private double[] x = new double[0];
+   private double[] y = new double[0];
+   private double[] radius = new double[0];
+   // Where the centre of each one's primary landed, and how far its size
+   // moves the body out from it.
+   private double[] centreX = new double[0];
+   private double[] centreY = new double[0];
+   private double[] centreOffset = new double[0];
+   // Each is either a named body or, if that is null, a row of a belt.
+   private int[] rows = new int[0];
+   private Satellite[] satellites = new Satellite[0];
+   // The bodies found to be in view, gathered to be drawn in one batch.
+   private double[] drawX = new double[0];
+   private double[] drawY = new double[0];
+   private double[] drawDiameter = new double[0];
+   private int[] drawColour = new int[0];
+   private NBodySimulation nbody = null;
+   private Trails trails = null;
+   private OrbitPaths orbits = null;
+   private Projection projection = new Projection(Projection.Mode.EXACT);
+   // Scratch space for the projection.
+   private final double[] sinCos = new double[2];
+   // The view the trails were recorded in.
+   private double trailZoom;
+   private Satellite trailFocus;
+   private float trailWidth;
+   private float trailHeight;
+   // The state being drawn from, if the table is published, and its tick.
+   private BodyFrame frame = null;
+   private long drawnTick = 0;
+   // Defaults the focus to Sol, which is kept as null.
+   private int focus = 1;
+   private Satellite focusBody = null;
+
+   /**
+    **   Constructor method.
+    **
+    **   @param bodies The table holding the orbital state of every body.
+    **   @param centre The centre point (Sol).
+    **   @param planets The planets, in the order of the number keys 2-9.
+    **   @param dwarfPlanets The dwarf planets.
+    **   @param moons The moons. Each must orbit one of the planets, dwarf
+    **   planets or other moons.
+    **/
+   public SolarScene(BodyTable bodies, CentrePoint centre, Satellite[] planets,
+                     Satellite[] dwarfPlanets, Satellite[] moons) {
+      this.bodies = bodies;
+      this.centre = centre;
+      this.planets = planets;
+      this.dwarfPlanets = dwarfPlanets;
+      this.moons = moons;
+
+      Satellite[] named = new Satellite[planets.length + dwarfPlanets.length +
+                                        moons.length];
+      System.arraycopy(planets, 0, named, 0, planets.length);
+      System.arraycopy(dwarfPlanets, 0, named, planets.length, 
+                       dwarfPlanets.length);
+      System.arraycopy(moons, 0, named, planets.length + dwarfPlanets.length,
+                       moons.length);
+      this.graph = new SceneGraph(named);
+      this.queue = new int[graph.size()];
+   }
+
+   /**
+    **   Changes which body is in focus, by number key. If the key differs
+    **   from that of the body in focus, focuses on Sol or the planet it
+    **   stands for.
+    **
+    **   @param focus 1 for Sol, 2-9 for the planets, or OTHER_FOCUS.
+    **   @param system The display whose zoom should be reset.
+    **/
+   public void setFocus(int focus, SolarDisplay system) {
+      if (focus == this.focus)
+         return;
+
+      if (focus == 1)
+         this.setFocus(null, system);
+      else if (focus >= 2 && focus <= 9 && focus - 2 < planets.length)
+         this.setFocus(planets[focus - 2], system);
+   }
+
+   /**
+    **   Changes which body is in focus. The focused body is drawn at the
+    **   centre of the display, with only the bodies orbiting it (to any
+    **   depth) around it. If the focus has changed, resets the zoom.
+    **
+    **   @param body The body to focus on, which may be any in the scene, or
+    **   null for Sol.
+    **   @param system The display whose zoom should be reset.
+    **/
+   public void setFocus(Satellite body, SolarDisplay system) {
+      if (body != null && graph.indexOf(body) < 0)
+         throw new IllegalArgumentException(body.getName() + 
+                                            " isn't in the scene");
+      // The display is told the body's key, so that pressing any other
+      // (including Sol's, if it was focused some other way) changes focus.
+      this.focus = this.keyOf(body);
+      system.setFocus(this.focus);
+      if (body == focusBody)
+         return;
+
+      if (focusBody != null)
+         focusBody.setFocus(false);
+      if (body != null)
+         body.setFocus(true);
+      focusBody = body;
+      system.setZoom(body == null ? 2.0 : 35.0);
+   }
+
+   // Finds the number key standing for a body, if it has one.
+   private int keyOf(Satellite body) {
+      if (body == null)
+         return 1;
+      for (int k = 0; k < planets.length && k < 8; k++)
+         if (planets[k] == body)
+            return k + 2;
+      return OTHER_FOCUS;
+   }
+
+   /**
+    **   Changes the focus to the body drawn at a point of the display in the
+    **   last frame, e.g. where it was clicked on. If several were drawn
+    **   there, the one whose centre is nearest is picked. If none was (and
+    **   the point isn't on the body in focus), the focus moves out to the
+    **   primary of the body in focus.
+    **
+    **   @param px The distance of the point from the left of the display.
+    **   @param py The distance of the point from the top of the display.
+    **   @param system The display the last frame was drawn onto.
+    **/
+   public void focusAt(double px, double py, SolarDisplay system) {
+      Satellite picked = null;
+      double nearest = Double.MAX_VALUE;
+      for (int k = 0; k < candidates; k++) {
+         if (satellites[k] == null)
+            continue;
+         double dx = x[k] - px;
+         double dy = y[k] - py;
+         double reach = radius[k] + PICK_SLACK;
+         double distance = dx * dx + dy * dy;
+         if (distance <= reach * reach && distance < nearest) {
+            picked = satellites[k];
+            nearest = distance;
+         }
+      }
+      if (picked != null) {
+         this.setFocus(picked, system);
+         return;
+      }
+
+      Point middle = focusBody == null ? centre : focusBody;
+      double dx = system.getWidth() / 2.0 - px;
+      double dy = system.getHeight() / 2.0 - py;
+      double reach = middle.getDiameter() * system.getZoom() / 2 + PICK_SLACK;
+      if (focusBody != null && dx * dx + dy * dy > reach * reach)
+         this.setFocus(focusBody.getPrimary(), system);
+   }
+
+   /**
+    **   Draws the current positions of the bodies onto a display. Does not
+    **   call finishedDrawing(). If the table is being published (see
+    **   BodyTable.publish()), they are drawn from the newest frame published
+    **   instead, so that all are at the same tick however far the table has
+    **   moved on since.
+    **
+    **   Each body is placed relative to its primary, so the bodies are
+    **   visited from the focus outwards and each is placed once a frame.
+    **   Only those that overlap the display are drawn. Everything orbiting a
+    **   body is skipped at once if the circle it all lies within is out of
+    **   view, and a row of a belt is skipped without being placed if its
+    **   distance from the centre puts it beyond the corners of the display.
+    **   Orbits and trails, if any, are drawn for every body placed, in view
+    **   or not, since they may cross the display, so rows of belts with
+    **   either are always placed. Orbits aren't drawn in N-body mode, where
+    **   bodies leave them.
+    **
+    **   @param system The display to draw onto.
+    **/
+   public void draw(SolarDisplay system) {
+      frame = bodies.takeFrame();
+      drawnTick = frame != null ? frame.getTick() : bodies.getTick();
+      double zoom = system.getZoom();
+      float width = system.getWidth();
+      float height = system.getHeight();
+      Point middle = focusBody == null ? centre : focusBody;
+      double centreSize = middle.getDiameter() * zoom;
+
+      // Adds the centre point (or the body in focus) to the display.
+      system.drawSolarObject(0,0, centreSize, middle.getColour());
+
+      // If the focus is on Sol, populates the display with the planets,
+      // dwarf planets, belts and (certain) moons. If any other body is the
+      // focus, only what orbits it is. The size-visibility rule still applies
+      // (hence why only 4-5 of Jupiter or Saturn's 60+ moons show up,
+      // despite all being present).
+      candidates = 0;
+      projection.begin(bodies);
+      int tail;
+      if (focusBody == null)
+         tail = this.place(0, graph.getRootCount(), width / 2.0, height / 2.0,
+                           centreSize, zoom, width, height, 0);
+      else
+         tail = this.placeChildren(graph.indexOf(focusBody), width / 2.0, 
+                                   height / 2.0, centreSize, zoom, width, 
+                                   height, 0);
+      if (focusBody == null) {
+         // The bodies of belts are drawn straight from the table, and as
+         // (at least) a pixel each, so that the belt shows up as a whole.
+         // The centre is in the middle of the display, so none further from
+         // it than the corners can be in view.
+         double corner = Math.hypot(width / 2.0, height / 2.0);
+         for (Belt belt : belts)
+            for (int i = belt.getFirst(), end = i + belt.size(); i < end; i++) {
+               double dist = this.trueDistance(i) * BodyTable.DISTANCE_SCALE;
+               double size = Math.max(bodies.getDiameter(i) * zoom, 1);
+               if (dist + centreSize - size / 2 > corner && 
+                   !this.hasPathOrTrail(i))
+                  continue;
+               this.addCandidate(i, dist, centreSize, this.trueAngle(i), size,
+                                 width, height);
+            }
+      }
+      // Then everything further out, a ring at a time.
+      for (int head = 0; head < tail; head++) {
+         int n = queue[head];
+         tail = this.placeChildren(n, graph.getWorldX(n), graph.getWorldY(n),
+                                   graph.getBody(n).getDiameter() * zoom, zoom,
+                                   width, height, tail);
+      }
+
+      if (orbits != null && nbody == null) {
+         orbits.begin();
+         for (int k = 0; k < candidates; k++)
+            orbits.draw(satellites[k] == null ? rows[k] 
+                                              : satellites[k].getIndex(),
+                        centreX[k], centreY[k], centreOffset[k], zoom, width, 
+                        height, system);
+      }
+      if (trails != null)
+         this.drawTrails(system, zoom, width, height);
+
+      this.drawCandidates(system, width, height);
+   }
+
+   // Works out whether a row has its orbit or trail drawn, and so must be
+   // placed even if it can't be in view.
+   private boolean hasPathOrTrail(int row) {
+      return (orbits != null && nbody == null && orbits.isShown(row)) ||
+             (trails != null && trails.hasTrail(row));
+   }
+
+   // Records where each placed body landed in its trail, starting the trails
+   // again if the view has changed, and draws them.
+   private void drawTrails(SolarDisplay system, double zoom, float width,
+                           float height) {
+      if (zoom != trailZoom || focusBody != trailFocus || 
+          width != trailWidth || height != trailHeight) {
+         trails.clear();
+         trailZoom = zoom;
+         trailFocus = focusBody;
+         trailWidth = width;
+         trailHeight = height;
+      }
+      trails.begin(drawnTick);
+      for (int k = 0; k < candidates; k++)
+         trails.record(satellites[k] == null ? rows[k] 
+                                             : satellites[k].getIndex(),
+                       x[k], y[k]);
+      trails.draw(bodies, system);
+   }
+
+   // Places the children of a node about where it is on the display.
+   private int placeChildren(int n, double px, double py, double offset,
+                             double zoom, float width, float height, 
+                             int tail) {
+      int first = graph.getFirstChild(n);
+      return this.place(first, first + graph.getChildCount(n), px, py, offset,
+                        zoom, width, height, tail);
+   }
+
+   // Works out where each of a run of bodies with the same primary lands on
+   // the display, from where the primary did, and adds it to the bodies
+   // that may be drawn if it isn't too small to see. Any of them whose
+   // children could be in view is put in the queue, to have its children
+   // placed in turn.
+   private int place(int from, int to, double px, double py, double offset,
+                     double zoom, float width, float height, int tail) {
+      for (int n = from; n < to; n++) {
+         Satellite body = graph.getBody(n);
+         double size = body.getDiameter() * zoom;
+         boolean hasChildren = graph.getChildCount(n) > 0;
+         // If any body is so small at the current zoom level that it is
+         // invisible, the program doesn't bother rendering it (though what
+         // orbits it may still be visible).
+         if (size <= 0.1 && !hasChildren)
+            continue;
+
+         int row = body.getIndex();
+         double dist = this.trueDistance(row) * BodyTable.DISTANCE_SCALE + 
+                       offset;
+         projection.sinCos(row, this.trueAngle(row), sinCos);
+         double bx = px + dist * sinCos[0];
+         double by = py + dist * sinCos[1];
+         graph.setWorldPosition(n, bx, by);
+         if (size > 0.1)
+            this.addCandidate(body, bx, by, size, px, py, offset);
+         if (hasChildren && this.childrenInView(n, bx, by, size, zoom, width,
+                                                height))
+            queue[tail++] = n;
+      }
+      return tail;
+   }
+
+   // Works out whether anything orbiting a body could be in view, from the
+   // circle about the body that it all lies within.
+   private boolean childrenInView(int n, double bx, double by, double size,
+                                  double zoom, float width, float height) {
+      if (bx >= 0 && bx <= width && by >= 0 && by <= height)
+         return true;
+      double reach = this.reach(n, size, zoom);
+      return bx + reach >= 0 && bx - reach <= width &&
+             by + reach >= 0 && by - reach <= height;
+   }
+
+   // Works out how far from a body anything orbiting it (to any depth) can
+   // be drawn.
+   private double reach(int n, double size, double zoom) {
+      double reach = 0;
+      for (int c = graph.getFirstChild(n), end = c + graph.getChildCount(n);
+           c < end; c++) {
+         Satellite child = graph.getBody(c);
+         double childSize = child.getDiameter() * zoom;
+         double childReach = childSize;
+         if (graph.getChildCount(c) > 0)
+            childReach = Math.max(childReach, this.reach(c, childSize, zoom));
+         reach = Math.max(reach, this.trueDistance(child.getIndex()) * 
+                                 BodyTable.DISTANCE_SCALE + childReach);
+      }
+      return reach + size;
+   }
+
+   // Where a body is in the frame being drawn, or the table if there isn't
+   // one.
+   private double trueDistance(int row) {
+      return frame != null ? frame.getDistance(row) 
+                           : bodies.getTrueDistance(row);
+   }
+
+   private double trueAngle(int row) {
+      return frame != null ? frame.getAngle(row) : bodies.getTrueAngle(row);
+   }
+
+   // Adds a named body to the bodies that may be drawn.
+   private void addCandidate(Satellite body, double bx, double by, 
+                             double size, double px, double py, 
+                             double offset) {
+      int k = this.nextCandidate();
+      x[k] = bx;
+      y[k] = by;
+      radius[k] = size / 2;
+      centreX[k] = px;
+      centreY[k] = py;
+      centreOffset[k] = offset;
+      satellites[k] = body;
+   }
+
+   // Places a row of the table drawn about the centre point and adds it
+   // to the bodies that may be drawn.
+   private void addCandidate(int row, double dist, double offset, 
+                             double angle, double size, float width, 
+                             float height) {
+      projection.sinCos(row, angle, sinCos);
+      int k = this.nextCandidate();
+      x[k] = width / 2.0 + (dist + offset) * sinCos[0];
+      y[k] = height / 2.0 + (dist + offset) * sinCos[1];
+      radius[k] = size / 2;
+      centreX[k] = width / 2.0;
+      centreY[k] = height / 2.0;
+      centreOffset[k] = offset;
+      rows[k] = row;
+      satellites[k] = null;
+   }
+
+   private int nextCandidate() {
+      if (candidates == x.length) {
+         int capacity = Math.max(candidates * 2, 256);
+         x = Arrays.copyOf(x, capacity);
+         y = Arrays.copyOf(y, capacity);
+         radius = Arrays.copyOf(radius, capacity);
+         centreX = Arrays.copyOf(centreX, capacity);
+         centreY = Arrays.copyOf(centreY, capacity);
+         centreOffset = Arrays.copyOf(centreOffset, capacity);
+         rows = Arrays.copyOf(rows, capacity);
+         satellites = Arrays.copyOf(satellites, capacity);
+      }
+      return candidates++;
+   }
+
+   // Draws the bodies that overlap the display onto it, where they were
+   // projected to by addCandidate(), in one batch.
+   private void drawCandidates(SolarDisplay system, float width, 
+                               float height) {
+      if (candidates > drawX.length) {
+         int capacity = Math.max(candidates, drawX.length * 2);
+         drawX = new double[capacity];
+         drawY = new double[capacity];
+         drawDiameter = new double[capacity];
+         drawColour = new int[capacity];
+      }
+      int found = 0;
+      for (int k = 0; k < candidates; k++) {
+         double r = radius[k];
+         if (x[k] + r < 0 || x[k] - r > width || 
+             y[k] + r < 0 || y[k] - r > height)
+            continue;
+         drawX[found] = x[k];
+         drawY[found] = y[k];
+         drawDiameter[found] = r * 2;
+         drawColour[found] = bodies.getColour(satellites[k] == null 
+                                              ? rows[k] 
+                                              : satellites[k].getIndex());
+         found++;
+      }
+      system.drawSolarObjectsAt(drawX, drawY, drawDiameter, drawColour, 0, 
+                                found);
+   }
+
+	/**
+	 **   Moves every body along its orbit by one tick, and then by gravity if
+    **   N-body mode is on.
+	 **/
+   public void move() {
+      bodies.move();
+      if (nbody != null)
+         nbody.step();
+   }
+
+	/**
+	 **   Generates a belt of bodies and adds it to the scene.
+	 **
+	 **   @param belt The belt to add.
+	 **   @param seed The seed to generate the belt's bodies from.
+	 **/
+   public void addBelt(Belt belt, long seed) {
+      belt.populate(bodies, seed);
+      this.addBelt(belt);
+   }
+
+	/**
+	 **   Adds a belt whose bodies are already in the scene's table.
+	 **
+	 **   @param belt The belt to add.
+	 **/
+   public void addBelt(Belt belt) {
+      if (belt.getFirst() < 0 || belt.getFirst() + belt.size() > bodies.size())
+         throw new IllegalArgumentException(belt.getName() + 
+                                            " isn't in the scene's table");
+      belts = Arrays.copyOf(belts, belts.length + 1);
+      belts[belts.length - 1] = belt;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param nbody The N-body simulation to step along with the scene, or
+    * null to go back to fixed orbits only.
+	 */
+   public void setNBody(NBodySimulation nbody) {
+      this.nbody = nbody;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param trails The trails to draw behind bodies, indexed by row of the
+    * scene's table, or null for none. Defaults to null.
+	 */
+   public void setTrails(Trails trails) {
+      this.trails = trails;
+      trailZoom = Double.NaN;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param projection How to work out where bodies land on the display.
+    * Defaults to exactly.
+	 */
+   public void setProjection(Projection projection) {
+      this.projection = projection;
+   }
+
+	/**
+	 *	Mutator function.
+    *
+	 * @param orbits The orbits to draw about bodies' primaries, or null for
+    * none. Defaults to null.
+	 */
+   public void setOrbitPaths(OrbitPaths orbits) {
+      this.orbits = orbits;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The table holding the orbital state of every body.
+	 */
+   public BodyTable getBodies() {
+      return this.bodies;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The centre point.
+	 */
+   public CentrePoint getCentre() {
+      return this.centre;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The planets.
+	 */
+   public Satellite[] getPlanets() {
+      return this.planets;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The dwarf planets.
+	 */
+   public Satellite[] getDwarfPlanets() {
+      return this.dwarfPlanets;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The moons.
+	 */
+   public Satellite[] getMoons() {
+      return this.moons;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The belts of minor bodies.
+	 */
+   public Belt[] getBelts() {
+      return this.belts;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The named bodies, arranged by what they orbit.
+	 */
+   public SceneGraph getGraph() {
+      return this.graph;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number key of the body in focus (1 for Sol, 2-9 for the
+    * planets), or OTHER_FOCUS if it has none.
+	 */
+   public int getFocus() {
+      return this.focus;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The node of the body in focus in the scene graph, or
+    * SceneGraph.CENTRE for Sol.
+	 */
+   public int getFocusNode() {
+      return focusBody == null ? SceneGraph.CENTRE : graph.indexOf(focusBody);
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The tick the bodies were at in the last frame drawn.
+	 */
+   public long getDrawnTick() {
+      return drawnTick;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The body in focus, or null for Sol.
+	 */
+   public Satellite getFocusBody() {
+      return this.focusBody;
+   }
+}
@@ -23,6 +23,12 @@
 /**
  ** This class provides a graphical user interface to a model of the solar
  ** system (with some minor edits by Ben Goldsworthy).
+ **
+ ** By default frames are drawn actively: finishedDrawing() draws the frame
+ ** and flips it onto the screen itself, through a BufferStrategy, rather
+ ** than asking Swing to repaint at some later point. Frames therefore reach
+ ** the screen when the caller finishes them, and the image frames are drawn
+ ** into is kept from one frame to the next rather than allocated each time.
  **/
 
 import javax.swing.*;
@@ -36,16 +42,27 @@ import java.util.*;
  **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
  **   @version 1.1
  **/
-public class SolarSystem extends JFrame implements MouseWheelListener, 
+public class SolarSystem extends JFrame implements SolarDisplay,
+                                                   MouseWheelListener,
                                                    KeyListener
 {
-	private int width = 300;
-	private int height = 300;
 	private boolean exiting = false;
-	private double zoom = 2.0;
-   private int focus = 1;
-
-	private Vector<SolarObject> things = new Vector<SolarObject>();
+	private int frameDelay = 30;
+	private boolean activeRendering = true;
+	private volatile FrameMetrics metrics;
+
+	private SolarCanvas canvas;
+	private Surface surface;
+	private BufferStrategy strategy;
+	// The image frames are drawn into before being copied to the screen,
+	// so that small bodies can be drawn straight into its pixels.
+	private BufferedImage backImage;
+	private Graphics2D backGraphics;
+	// The point last clicked on, until it is taken by takeClick().
+	private final Object clickLock = new Object();
+	private boolean clicked = false;
+	private int clickX;
+	private int clickY;
 
 	/**
 	 * Create a view of the Solar System.
@@ -59,102 +76,102 @@ public class SolarSystem extends JFrame implements MouseWheelListener,
       int width = (int)screenSize.getWidth();
       int height = (int)screenSize.getHeight();
       
-		this.width = width;
-		this.height = height;
+		this.canvas = new SolarCanvas(width, height);
+		this.backImage = new BufferedImage(width, height, 
+                                         BufferedImage.TYPE_INT_RGB);
+		this.backGraphics = backImage.createGraphics();
+		this.backGraphics.setBackground(Color.BLACK);
+		this.surface = new Surface();
+		this.surface.setBackground(Color.BLACK);
+		this.surface.setFocusable(false);
+		this.surface.setIgnoreRepaint(true);
      
 		this.setTitle("The Solar System");
       this.setFocusable(true);
 		this.setSize(width, height);
 		this.setBackground(Color.BLACK);
 		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		this.add(surface);
 		this.setVisible(true);		
+
+		// A BufferStrategy needs the surface to be on screen.
+		this.surface.createBufferStrategy(2);
+		this.strategy = surface.getBufferStrategy();
       
 		this.addMouseWheelListener(this);
       this.addKeyListener(this);
+		this.surface.addMouseListener(new MouseAdapter() {
+			public void mouseClicked(MouseEvent e) {
+				synchronized (clickLock) {
+					clicked = true;
+					clickX = e.getX();
+					clickY = e.getY();
+				}
+			}
+		});
 	}
 
 	/**
-	 * A method called by the operating system to draw onto the screen - 
-    * <p><B>YOU DO NOT (AND SHOULD NOT) NEED TO CALL THIS METHOD.</b></p>
+	 * The part of the window the solar system is drawn onto. When rendering
+    * passively it is painted by Swing, otherwise it is only ever drawn by
+    * finishedDrawing().
 	 */
-	public void paint (Graphics gr)
+	private class Surface extends Canvas
 	{
-		BufferedImage i = new BufferedImage(this.getWidth(), this.getHeight(), 
-                                          BufferedImage.TYPE_INT_ARGB);
-		Graphics2D g = i.createGraphics();
-		
-		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, 
-                         RenderingHints.VALUE_ANTIALIAS_ON);
+		private static final long serialVersionUID = 1L;
 
-		synchronized (this)
+		/**
+		 * A method called by the operating system to draw onto the screen - 
+		 * <p><B>YOU DO NOT (AND SHOULD NOT) NEED TO CALL THIS METHOD.</b></p>
+		 */
+		public void paint(Graphics gr)
 		{
-			if (!this.exiting)
-			{
-				g.clearRect(0,0,width,height);
-				for(SolarObject t : things)
-				{
-					g.setColor(t.col);
-					g.fillOval(t.x, t.y, t.diameter, t.diameter);
+			if (activeRendering || exiting)
+				return;
+			canvas.render(backImage, backGraphics);
+			FrameMetrics metrics = SolarSystem.this.metrics;
+			if (metrics != null)
+				metrics.begin(FrameMetrics.Phase.BLIT);
+			gr.drawImage(backImage, 0, 0, this);
+			if (metrics != null)
+				metrics.end(FrameMetrics.Phase.BLIT);
+		}
 
-					try{ Thread.sleep(0); } catch (Exception e) {} }
-			}
-			
-			gr.drawImage(i, 0, 0, this);
+		public void update(Graphics gr)
+		{
+			this.paint(gr);
 		}
 	}
 
-	//
-	// Shouldn't really handle colour this way, but the student's haven't been 
-   // introduced to constants properly yet, and Color.getColor() doesn't seem 
-   // to work... hmmm....
-	// 
-	private Color getColourFromString(String col)
+	// Draws the most recently finished frame and flips it onto the screen,
+	// redrawing it if the screen's buffers are lost along the way.
+	private void present()
 	{
-		Color colour = Color.WHITE;
-		col = col.toUpperCase();
-
-		if (col.equals("BLACK"))
-			colour = Color.BLACK;	
-
-		if (col.equals("BLUE"))
-			colour = Color.BLUE;	
-
-		if (col.equals("CYAN"))
-			colour = Color.CYAN;	
-
-		if (col.equals("DARKGREY"))
-			colour = Color.DARK_GRAY;	
-
-		if (col.equals("GREY"))
-			colour = Color.GRAY;	
-
-		if (col.equals("GREEN"))
-			colour = Color.GREEN;	
-
-		if (col.equals("LIGHTGREY"))
-			colour = Color.LIGHT_GRAY;	
-				
-		if (col.equals("MAGENTA"))
-			colour = Color.MAGENTA;	
-
-		if (col.equals("ORANGE"))
-			colour = Color.ORANGE;	
-
-		if (col.equals("PINK"))
-			colour = Color.PINK;	
-
-		if (col.equals("RED"))
-			colour = Color.RED;	
-		
-		if (col.equals("WHITE"))
-			colour = Color.WHITE;	
-
-		if (col.equals("YELLOW"))
-			colour = Color.YELLOW;	
-
-		return colour;
+		canvas.render(backImage, backGraphics);
+		FrameMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.begin(FrameMetrics.Phase.BLIT);
+		do
+		{
+			do
+			{
+				Graphics g = strategy.getDrawGraphics();
+				try
+				{
+					g.drawImage(backImage, 0, 0, null);
+				}
+				finally
+				{
+					g.dispose();
+				}
+			} while (strategy.contentsRestored());
+			strategy.show();
+		} while (strategy.contentsLost());
+		Toolkit.getDefaultToolkit().sync();
+		if (metrics != null)
+			metrics.end(FrameMetrics.Phase.BLIT);
 	}
-	
+
 	/**
 	 * Draws a round shape in the window at the given co-ordinates that 
     * represents an object in the solar system.
@@ -172,38 +189,7 @@ public class SolarSystem extends JFrame implements MouseWheelListener,
 	public void drawSolarObject(double distance, double angle, double diameter, 
                                String col)
 	{
-		Color colour = this.getColourFromString(col);
-		double centreOfRotationX = ((double) width) / 2.0; 
-		double centreOfRotationY = ((double) height) / 2.0; 
-
-		double rads = Math.toRadians(angle);
-		double x = (int) (centreOfRotationX + distance*Math.sin(rads))-diameter/2;
-		double y = (int) (centreOfRotationY + distance*Math.cos(rads))-diameter/2;
-
-		synchronized (this)
-		{
-			if (things.size() > 1000)
-			{
-				System.out.println("\n\n");
-				System.out.println(" ********************************************************* ");
-				System.out.println(" ***** Only 1000 Entities Supported per Solar System ***** ");
-				System.out.println(" ********************************************************* ");
-				System.out.println("\n\n");
-				System.out.println("If you are't trying to add this many things");
-				System.out.println("to your SolarSystem, then you have probably");
-				System.out.println("forgotten to call the finishedDrawing() method");
-				System.out.println("See the JavaDOC documentation for more information");
-				System.out.println("\n-- Joe");
-				System.out.println("\n\n");
-
-				this.dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
-			}
-			else
-			{
-				SolarObject t = new SolarObject((int)x, (int)y, (int)diameter, colour);
-				things.add(t);
-			}
-		}
+		canvas.queue(distance, angle, diameter, col);
 	}
 
 	/**
@@ -232,39 +218,108 @@ public class SolarSystem extends JFrame implements MouseWheelListener,
                                     double centreOfRotationDistance, 
                                     double centreOfRotationAngle)
 	{
-		Color colour = this.getColourFromString(col);
-		double centrerads = Math.toRadians(centreOfRotationAngle);
-		double centreOfRotationX = (((double) width) / 2.0) + centreOfRotationDistance * Math.sin(centrerads); 
-		double centreOfRotationY = (((double) height) / 2.0) + centreOfRotationDistance * Math.cos(centrerads); 
+		canvas.queueAbout(distance, angle, diameter, col,
+                        centreOfRotationDistance, centreOfRotationAngle);
+	}
 
-		double rads = Math.toRadians(angle);
-		double x = (int) (centreOfRotationX + distance * Math.sin(rads)) - diameter / 2;
-		double y = (int) (centreOfRotationY + distance * Math.cos(rads)) - diameter / 2;
+	/**
+	 * Draws a round shape in the window centred on the given point, for
+    * objects whose position in the window has already been worked out.
+	 *
+	 * @param x the distance of the object's centre from the left of the
+    * window, in pixels.
+	 * @param y the distance of the object's centre from the top of the
+    * window, in pixels.
+	 * @param diameter the size of the object.
+	 * @param col the colour of this object, as a string. Case insentive.
+	 */
+	public void drawSolarObjectAt(double x, double y, double diameter, 
+                                 String col)
+	{
+		canvas.queueAt(x, y, diameter, col);
+	}
 
-		synchronized (this)
-		{
-			if (things.size() > 1000)
-			{
-				System.out.println("\n\n");
-				System.out.println(" ********************************************************* ");
-				System.out.println(" ***** Only 1000 Entities Supported per Solar System ***** ");
-				System.out.println(" ********************************************************* ");
-				System.out.println("\n\n");
-				System.out.println("If you are't trying to add this many things");
-				System.out.println("to your SolarSystem, then you have probably");
-				System.out.println("forgotten to call the finishedDrawing() method");
-				System.out.println("See the JavaDOC documentation for more information");
-				System.out.println("\n-- Joe");
-				System.out.println("\n\n");
+	/**
+	 * Draws a batch of round shapes in the window in one go, each at
+    * <i>Polar Co-ordinates</i> about either the centre of the window or a
+    * point of its own, as drawSolarObject() and drawSolarObjectAbout() would.
+	 *
+	 * @param distance the distance of each object from the point it orbits.
+	 * @param angle the angle (in degrees) of each object around its orbit.
+	 * @param diameter the size of each object.
+	 * @param colour the colour of each object, as an index into
+    * SolarCanvas.COLOUR_NAMES.
+	 * @param centreOfRotationDistance the distance part of the polar
+    * co-ordinate each object orbits about, or null for the centre of the
+    * window.
+	 * @param centreOfRotationAngle the angular part of the polar co-ordinate
+    * each object orbits about, or null for the centre of the window.
+	 * @param offset where in the arrays the first object is.
+	 * @param count the number of objects.
+	 */
+	public void drawSolarObjects(double[] distance, double[] angle,
+                                double[] diameter, int[] colour,
+                                double[] centreOfRotationDistance,
+                                double[] centreOfRotationAngle, int offset,
+                                int count)
+	{
+		canvas.queueAll(distance, angle, diameter, colour, 
+                      centreOfRotationDistance, centreOfRotationAngle, offset,
+                      count);
+	}
 
-				this.dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
-			}
-			else
-			{
-				SolarObject t = new SolarObject((int)x, (int)y, (int)diameter, colour);
-				things.add(t);
-			}
-		}
+	/**
+	 * Draws a batch of round shapes in the window in one go, each centred on
+    * a point of the window, as drawSolarObjectAt() would.
+	 *
+	 * @param x the distance of each object's centre from the left of the
+    * window, in pixels.
+	 * @param y the distance of each object's centre from the top of the
+    * window, in pixels.
+	 * @param diameter the size of each object.
+	 * @param colour the colour of each object, as an index into
+    * SolarCanvas.COLOUR_NAMES.
+	 * @param offset where in the arrays the first object is.
+	 * @param count the number of objects.
+	 */
+	public void drawSolarObjectsAt(double[] x, double[] y, double[] diameter,
+                                  int[] colour, int offset, int count)
+	{
+		canvas.queueAllAt(x, y, diameter, colour, offset, count);
+	}
+
+	/**
+	 * Draws a trail of lines through a run of points in the window, fading
+    * out from the first point to the last.
+	 *
+	 * @param x the distances of the points from the left of the window, in
+    * pixels.
+	 * @param y the distances of the points from the top of the window, in
+    * pixels.
+	 * @param points the number of points to draw through.
+	 * @param col the colour of the trail, as a string. Case insentive.
+	 */
+	public void drawTrailAt(double[] x, double[] y, int points, String col)
+	{
+		canvas.queueTrail(x, y, points, col);
+	}
+
+	/**
+	 * Draws lines through a run of points in the window, e.g. around an
+    * object's orbit, all with the same opacity.
+	 *
+	 * @param x the distances of the points from the left of the window, in
+    * pixels.
+	 * @param y the distances of the points from the top of the window, in
+    * pixels.
+	 * @param points the number of points to draw through.
+	 * @param col the colour of the lines, as a string. Case insentive.
+	 * @param opacity how opaque the lines are, from 0 (invisible) to 1.
+	 */
+	public void drawPathAt(double[] x, double[] y, int points, String col,
+                          double opacity)
+	{
+		canvas.queuePath(x, y, points, col, opacity);
 	}
 
 	/**
@@ -274,47 +329,32 @@ public class SolarSystem extends JFrame implements MouseWheelListener,
 	 */
 	public void finishedDrawing()
 	{
+		canvas.publish();
+
 		try
 		{
-			this.repaint();
-			Thread.sleep(30);
+			if (activeRendering)
+				this.present();
+			else
+				surface.repaint();
+			if (frameDelay > 0)
+				Thread.sleep(frameDelay);
 		}
 		catch (Exception e) { }
-
-		synchronized (this)
-		{
-			things.clear();
-		}
-	}
-	
-	private class SolarObject 
-	{
-		public int x;
-		public int y;
-		public int diameter;
-		public Color col;
-
-		public SolarObject(int x, int y, int diameter, Color col)
-		{
-			this.x = x;
-			this.y = y;
-			this.diameter = diameter;
-			this.col = col;
-		}
 	}
 
 	public void mouseWheelMoved(MouseWheelEvent e) {
 		double notches = e.getWheelRotation();
 
-      switch(this.focus) {
+      switch(canvas.getFocus()) {
          case 1:
-            this.zoom -= (notches/10);
+            canvas.setZoom(canvas.getZoom() - (notches/10));
             break;
-         case 2:case 3:case 4:case 5:case 8:case 9:
-            this.zoom -= (notches*10);
+         case 0:case 2:case 3:case 4:case 5:case 8:case 9:
+            canvas.setZoom(canvas.getZoom() - (notches*10));
             break;
          case 6:case 7:
-            this.zoom -= (notches*3);
+            canvas.setZoom(canvas.getZoom() - (notches*3));
             break;
          default:
       }
@@ -327,7 +367,7 @@ public class SolarSystem extends JFrame implements MouseWheelListener,
          case '1':case '2':case '3':case '4':
          case '5':case '6':case '7':case '8':
          case '9':
-            this.focus = (int)c - 48;
+            canvas.setFocus((int)c - 48);
          default:
       }
    }
@@ -339,22 +379,81 @@ public class SolarSystem extends JFrame implements MouseWheelListener,
    }
 	
 	public double getZoom() {
-	   return this.zoom;
+	   return canvas.getZoom();
 	}
    
 	public int getFocus() {
-	   return this.focus;
+	   return canvas.getFocus();
 	}
    
    public int getHeight() {
-      return this.height;
+      return canvas.getHeight();
    }   
    
    public int getWidth() {
-      return this.width;
+      return canvas.getWidth();
    }   
    
 	public void setZoom(double zoom) {
-	   this.zoom = zoom;
+	   canvas.setZoom(zoom);
+	}
+
+	public void setFocus(int focus) {
+	   canvas.setFocus(focus);
+	}
+
+	public boolean takeClick(double[] result) {
+		synchronized (clickLock) {
+			if (!clicked)
+				return false;
+			clicked = false;
+			result[0] = clickX;
+			result[1] = clickY;
+			return true;
+		}
+	}
+   
+	/**
+	 * Sets whether small bodies are drawn straight into the pixels of the
+    * image behind the window, rather than through Java2D.
+    *
+	 * @param directRendering true to draw them directly. Defaults to true.
+	 */
+	public void setDirectRendering(boolean directRendering) {
+	   canvas.setDirectRendering(directRendering);
+	}
+   
+	/**
+	 * Sets whether finishedDrawing() puts frames on the screen itself (active
+    * rendering), or leaves Swing to repaint the window when it gets round to
+    * it (passive rendering).
+    *
+	 * @param activeRendering true to render actively. Defaults to true.
+	 */
+	public void setActiveRendering(boolean activeRendering) {
+	   this.activeRendering = activeRendering;
+	   surface.setIgnoreRepaint(activeRendering);
+	}
+   
+	/**
+	 * Sets how long finishedDrawing() pauses for after each frame. Set it to 0
+    * if something else (e.g. a FramePacer) is controlling the frame rate.
+    *
+	 * @param millis the pause, in milliseconds. Defaults to 30.
+	 */
+	public void setFrameDelay(int millis) {
+	   this.frameDelay = millis;
+	}
+   
+	/**
+	 * Sets where the time taken to rasterize each frame and blit it onto the
+    * screen is recorded.
+    *
+	 * @param metrics the metrics, or null not to time frames. Defaults to
+    * null.
+	 */
+	public void setMetrics(FrameMetrics metrics) {
+	   this.metrics = metrics;
+	   canvas.setMetrics(metrics);
 	}
 }
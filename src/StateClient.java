@@ -0,0 +1,403 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class watches a simulation served by a StateServer, keeping the
+ ** latest state of every body it is sent so that it can be drawn onto a
+ ** display as the simulation itself would draw it with Sol in focus.
+ **
+ ** Frames are read and decoded on a thread of their own, and drawing always
+ ** uses the latest one in full, so a client that draws slower than the
+ ** server ticks just sees fewer of them.
+ **/
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class StateClient {
+   private final Socket connection;
+   private final DataInputStream in;
+   private final int count;
+   private final double centreDiameter;
+   private final int centreColour;
+   private final double[] distance;
+   private final double[] diameter;
+   private final int[] primary;
+   private final int[] colour;
+   private final boolean[] eccentric;
+   private final boolean[] belt;
+
+   // The state being decoded, only touched by the reading thread.
+   private final int[] angle;
+   private final int[] angleStep;
+   private final int[] trueDistance;
+   private final int[] distanceStep;
+   private long decodedTick = 0;
+   private byte[] frame = new byte[1024];
+   private int position;
+
+   // The latest state decoded in full, for drawing.
+   private final Object lock = new Object();
+   private final double[] latestAngle;
+   private final double[] latestDistance;
+   private volatile long tick = 0;
+   private volatile long frames = 0;
+   private volatile boolean connected = true;
+   private volatile IOException error = null;
+
+   // The state being drawn, copied from the latest so that the reader needn't
+   // wait for a whole frame to be projected.
+   private final double[] drawAngle;
+   private final double[] drawDistance;
+   // Where each body lands on the display, and the batch drawn.
+   private double[] x;
+   private double[] y;
+   private double[] size;
+   private double[] drawX = new double[0];
+   private double[] drawY = new double[0];
+   private double[] drawDiameter = new double[0];
+   private int[] drawColour = new int[0];
+
+   /**
+    **   Constructor method. Connects to the server and reads what bodies it
+    **   serves, then starts reading their state on a thread of its own.
+    **
+    **   @param host The host the server is on.
+    **   @param port The port the server is listening on.
+    **   @throws IOException if the server can't be connected to, or isn't a
+    **   StateServer.
+    **/
+   public StateClient(String host, int port) throws IOException {
+      this.connection = new Socket(host, port);
+      try {
+         connection.setTcpNoDelay(true);
+         this.in = new DataInputStream(new BufferedInputStream(
+            connection.getInputStream(), 1 << 16));
+         if (in.readInt() != StateServer.MAGIC)
+            throw new IOException("Not a Solar state server");
+         int version = in.readInt();
+         if (version != StateServer.VERSION)
+            throw new IOException("Unsupported state server version " + version);
+         this.count = in.readInt();
+         if (count < 0)
+            throw new IOException("Corrupt state: " + count + " bodies");
+         this.centreDiameter = in.readFloat();
+         this.centreColour = in.readUnsignedByte();
+         this.distance = new double[count];
+         this.diameter = new double[count];
+         this.primary = new int[count];
+         this.colour = new int[count];
+         this.eccentric = new boolean[count];
+         this.belt = new boolean[count];
+         for (int i = 0; i < count; i++) {
+            distance[i] = in.readFloat();
+            diameter[i] = in.readFloat();
+            primary[i] = in.readInt();
+            if (primary[i] != BodyTable.NO_PRIMARY && 
+                (primary[i] < 0 || primary[i] >= i))
+               throw new IOException("Corrupt state: no such primary " + 
+                                     primary[i]);
+            colour[i] = in.readUnsignedByte();
+            int flags = in.readUnsignedByte();
+            eccentric[i] = (flags & StateServer.ECCENTRIC) != 0;
+            belt[i] = (flags & StateServer.BELT) != 0;
+         }
+      } catch (IOException e) {
+         connection.close();
+         throw e;
+      }
+      this.angle = new int[count];
+      this.angleStep = new int[count];
+      this.trueDistance = new int[count];
+      this.distanceStep = new int[count];
+      this.latestAngle = new double[count];
+      this.latestDistance = new double[count];
+      System.arraycopy(distance, 0, latestDistance, 0, count);
+      this.drawAngle = new double[count];
+      this.drawDistance = new double[count];
+      this.x = new double[count];
+      this.y = new double[count];
+      this.size = new double[count];
+
+      Thread reader = new Thread("Solar state reader") {
+         public void run() {
+            read();
+         }
+      };
+      reader.setDaemon(true);
+      reader.start();
+   }
+
+   private void read() {
+      try {
+         // Deltas are meaningless until the first keyframe.
+         boolean keyed = false;
+         while (connected) {
+            int length = in.readInt();
+            if (length <= 0)
+               throw new IOException("Corrupt state: frame of " + length + 
+                                     " bytes");
+            if (length > frame.length)
+               frame = new byte[Math.max(length, frame.length * 2)];
+            in.readFully(frame, 0, length);
+            position = 0;
+            int type = frame[position++];
+            if (type == StateServer.KEYFRAME) {
+               this.decodeKeyframe();
+               keyed = true;
+            } else if (type == StateServer.DELTA) {
+               if (!keyed)
+                  throw new IOException("Corrupt state: delta before keyframe");
+               this.decodeDelta();
+            } else
+               throw new IOException("Corrupt state: unknown frame " + type);
+            if (position != length)
+               throw new IOException("Corrupt state: frame of " + length + 
+                                     " bytes holds " + position);
+            this.publish();
+         }
+      } catch (EOFException e) {
+         // The server has gone.
+      } catch (IOException e) {
+         if (connected)
+            error = e;
+      } catch (ArrayIndexOutOfBoundsException e) {
+         error = new IOException("Corrupt state: frame too short");
+      } finally {
+         this.close();
+      }
+   }
+
+   private void decodeKeyframe() {
+      decodedTick = this.nextVarLong();
+      for (int i = 0; i < count; i++) {
+         angle[i] = this.nextShort();
+         angleStep[i] = (int) this.nextVarLong();
+         if (eccentric[i]) {
+            trueDistance[i] = this.nextShort();
+            distanceStep[i] = (int) this.nextVarLong();
+         }
+      }
+   }
+
+   private void decodeDelta() {
+      decodedTick += this.nextVarLong();
+      for (int i = 0; i < count; i++) {
+         angleStep[i] = (short) (angleStep[i] + this.nextVarLong());
+         angle[i] = (angle[i] + angleStep[i]) & (StateServer.STEPS - 1);
+         if (eccentric[i]) {
+            distanceStep[i] = (short) (distanceStep[i] + this.nextVarLong());
+            trueDistance[i] = (trueDistance[i] + distanceStep[i]) & 
+                              (StateServer.STEPS - 1);
+         }
+      }
+   }
+
+   // Makes the state just decoded the one drawn.
+   private void publish() {
+      synchronized (lock) {
+         for (int i = 0; i < count; i++) {
+            latestAngle[i] = angle[i] * 360.0 / StateServer.STEPS;
+            if (eccentric[i])
+               latestDistance[i] = trueDistance[i] * 2.0 * distance[i] / 
+                                   StateServer.STEPS;
+         }
+         tick = decodedTick;
+      }
+      frames++;
+   }
+
+   private int nextShort() {
+      int value = (frame[position] & 0xFF) << 8 | (frame[position + 1] & 0xFF);
+      position += 2;
+      return value;
+   }
+
+   // As RunReplay.readVarLong().
+   private long nextVarLong() {
+      long zigzag = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         int b = frame[position++];
+         zigzag |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0)
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+      throw new ArrayIndexOutOfBoundsException("number too long");
+   }
+
+   /**
+    **   Draws the latest state received onto a display: Sol in the middle
+    **   and every body about its primary, as a SolarScene would with Sol in
+    **   focus. Bodies too small to see, or off the display, are left out.
+    **
+    **   @param system The display to draw onto.
+    **/
+   public void draw(SolarDisplay system) {
+      double zoom = system.getZoom();
+      float width = system.getWidth();
+      float height = system.getHeight();
+      double centreSize = centreDiameter * zoom;
+      system.drawSolarObject(0, 0, centreSize, 
+                             SolarCanvas.COLOUR_NAMES[centreColour]);
+
+      synchronized (lock) {
+         System.arraycopy(latestAngle, 0, drawAngle, 0, count);
+         System.arraycopy(latestDistance, 0, drawDistance, 0, count);
+      }
+      int found = 0;
+      for (int i = 0; i < count; i++) {
+         double px = width / 2.0;
+         double py = height / 2.0;
+         double offset = centreSize;
+         if (primary[i] != BodyTable.NO_PRIMARY) {
+            px = x[primary[i]];
+            py = y[primary[i]];
+            offset = size[primary[i]];
+         }
+         double theta = Math.toRadians(drawAngle[i]);
+         double dist = drawDistance[i] * BodyTable.DISTANCE_SCALE + offset;
+         x[i] = px + dist * Math.sin(theta);
+         y[i] = py + dist * Math.cos(theta);
+         size[i] = belt[i] ? Math.max(diameter[i] * zoom, 1) 
+                           : diameter[i] * zoom;
+         double r = size[i] / 2;
+         if (size[i] <= 0.1 || x[i] + r < 0 || x[i] - r > width || 
+             y[i] + r < 0 || y[i] - r > height)
+            continue;
+         if (found == drawX.length)
+            this.grow();
+         drawX[found] = x[i];
+         drawY[found] = y[i];
+         drawDiameter[found] = size[i];
+         drawColour[found] = colour[i];
+         found++;
+      }
+      system.drawSolarObjectsAt(drawX, drawY, drawDiameter, drawColour, 0, 
+                                found);
+   }
+
+   private void grow() {
+      int capacity = Math.max(drawX.length * 2, 256);
+      drawX = Arrays.copyOf(drawX, capacity);
+      drawY = Arrays.copyOf(drawY, capacity);
+      drawDiameter = Arrays.copyOf(drawDiameter, capacity);
+      drawColour = Arrays.copyOf(drawColour, capacity);
+   }
+
+   /**
+    **   Disconnects from the server.
+    **/
+   public void close() {
+      connected = false;
+      try {
+         connection.close();
+      } catch (IOException e) {
+         // Already closed, or as good as.
+      }
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return Whether the client is still connected to the server.
+	 */
+   public boolean isConnected() {
+      return connected;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return Why the connection was lost, or null if it is still up or
+    * the server closed it.
+	 */
+   public IOException getError() {
+      return error;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies served.
+	 */
+   public int size() {
+      return count;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The tick of the latest state received.
+	 */
+   public long getTick() {
+      return tick;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of frames received.
+	 */
+   public long getFrames() {
+      return frames;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The latest angle received of the body about its primary, in
+    * degrees.
+	 */
+   public double getAngle(int i) {
+      synchronized (lock) {
+         return latestAngle[i];
+      }
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @param i The row of the body.
+	 * @return The latest (unscaled) distance received between the body and
+    * its primary.
+	 */
+   public double getDistance(int i) {
+      synchronized (lock) {
+         return latestDistance[i];
+      }
+   }
+
+   public String toString() {
+      return String.format("state client: %d bodies, %d frames, tick %d", 
+                           count, frames, tick);
+   }
+}
@@ -0,0 +1,471 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class serves the state of a running simulation over TCP, so that
+ ** any number of StateClients can watch it. Each client is first sent a
+ ** header describing every body (its distance, size, primary, colour and
+ ** whether it is on an eccentric orbit or in a belt), then a frame for
+ ** every tick.
+ **
+ ** Angles are quantized to 16 bits (about 0.0055 degrees), as are the true
+ ** distances of bodies on eccentric orbits, as a fraction of twice their
+ ** semi-major axes. As bodies move at a constant speed, the change in a
+ ** body's angle from one tick to the next hardly changes, so a delta frame
+ ** holds only the change in that change, as a zigzag variable length
+ ** integer: a byte a body, nearly always. A keyframe holds every angle and
+ ** its last change outright, so a client can pick up from it.
+ **
+ ** Each frame is encoded once, on the thread calling publish(), and the
+ ** same bytes are queued for every client. Each client has a thread of its
+ ** own writing the header and then its queue to the socket, so a slow
+ ** client only holds itself up, even while the header is being sent. A
+ ** client that lets QUEUE_FRAMES frames back up (behind its header or
+ ** otherwise) has its queue thrown away and is sent nothing more until the
+ ** next keyframe, which is encoded as soon as any client (new or fallen
+ ** behind) wants one.
+ **
+ ** Frame format, after a four-byte length:
+ **   byte     KEYFRAME or DELTA
+ **   varlong  the tick (keyframes) or the ticks since the last frame
+ **   per body, for the angle and then (if eccentric) the distance:
+ **     keyframes  the value as a short, then its last change as a varint
+ **     deltas     the change in its change as a varint
+ **/
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class StateServer {
+   /** The first four bytes sent to every client ("SOLW"). */
+   public static final int MAGIC = 0x534F4C57;
+   /** The version of the protocol spoken. */
+   public static final int VERSION = 1;
+   /** How many frames may wait to be sent to a client before it is skipped. */
+   public static final int QUEUE_FRAMES = 4;
+
+   // Body flags.
+   static final int ECCENTRIC = 1;
+   static final int BELT = 2;
+   // Frame types.
+   static final int KEYFRAME = 0;
+   static final int DELTA = 1;
+   // The number of steps a value is quantized to.
+   static final int STEPS = 1 << 16;
+   // The largest distance that can be sent, as a fraction of twice the
+   // semi-major axis.
+   private static final double LARGEST = (STEPS - 1.0) / STEPS;
+
+   private final BodyTable bodies;
+   private final int count;
+   private final boolean[] eccentric;
+   private final byte[] header;
+   private final ServerSocket socket;
+   private final List<Client> clients = new CopyOnWriteArrayList<Client>();
+   // Set by any thread, and taken by publish(), when a client needs a
+   // keyframe.
+   private final AtomicBoolean keyframeWanted = new AtomicBoolean(false);
+   private volatile boolean running = true;
+   private Thread acceptor;
+
+   // The state last encoded, and the change into it, per body; only touched
+   // by the thread calling publish().
+   private boolean encoded = false;
+   private long lastTick;
+   private int[] angle;
+   private int[] angleStep;
+   private int[] distance;
+   private int[] distanceStep;
+   private byte[] frame = new byte[1024];
+   private int length;
+
+   private volatile long published = 0;
+   private volatile long keyframes = 0;
+   // Totals for clients that have gone.
+   private long goneSent = 0;
+   private long goneSkipped = 0;
+   private long goneBytes = 0;
+
+   /**
+    **   Constructor method. Starts listening, but accepts no clients until
+    **   start() is called. The bodies of the scene's table as it is now are
+    **   the ones served.
+    **
+    **   @param scene The scene to serve the bodies of.
+    **   @param port The port to listen on, or 0 for any free one.
+    **   @throws IOException if the port can't be listened on.
+    **/
+   public StateServer(SolarScene scene, int port) throws IOException {
+      this.bodies = scene.getBodies();
+      this.count = bodies.size();
+      this.eccentric = new boolean[count];
+      this.angle = new int[count];
+      this.angleStep = new int[count];
+      this.distance = new int[count];
+      this.distanceStep = new int[count];
+      this.header = this.createHeader(scene);
+      this.socket = new ServerSocket(port);
+   }
+
+   private byte[] createHeader(SolarScene scene) throws IOException {
+      boolean[] belt = new boolean[count];
+      for (Belt b : scene.getBelts())
+         Arrays.fill(belt, b.getFirst(), b.getFirst() + b.size(), true);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(count);
+      CentrePoint centre = scene.getCentre();
+      out.writeFloat((float) centre.getDiameter());
+      out.writeByte(SolarCanvas.getColourIndex(centre.getColour()));
+      for (int i = 0; i < count; i++) {
+         eccentric[i] = bodies.isEccentric(i);
+         out.writeFloat((float) bodies.getDistance(i));
+         out.writeFloat((float) bodies.getDiameter(i));
+         out.writeInt(bodies.getPrimary(i));
+         out.writeByte(bodies.getColour(i));
+         out.writeByte((eccentric[i] ? ECCENTRIC : 0) | (belt[i] ? BELT : 0));
+      }
+      out.flush();
+      return bytes.toByteArray();
+   }
+
+   /**
+    **   Starts accepting clients, on a thread of its own.
+    **/
+   public synchronized void start() {
+      if (acceptor != null)
+         return;
+      acceptor = new Thread("Solar state server") {
+         public void run() {
+            accept();
+         }
+      };
+      acceptor.setDaemon(true);
+      acceptor.start();
+   }
+
+   private void accept() {
+      while (running) {
+         Socket connection;
+         try {
+            connection = socket.accept();
+         } catch (IOException e) {
+            // The server socket has been closed.
+            return;
+         }
+         try {
+            connection.setTcpNoDelay(true);
+            Client client = new Client(connection);
+            clients.add(client);
+            keyframeWanted.set(true);
+            client.start();
+         } catch (IOException e) {
+            closeQuietly(connection);
+         }
+      }
+   }
+
+   /**
+    **   Encodes the bodies' state for a tick and queues it for every client.
+    **   Should be called from one thread only, between ticks.
+    **
+    **   @param tick The tick the bodies are at.
+    **/
+   public void publish(long tick) {
+      if (clients.isEmpty()) {
+         encoded = false;
+         return;
+      }
+      boolean keyframe = keyframeWanted.getAndSet(false) || !encoded;
+
+      byte[] delta = null;
+      length = 0;
+      this.putByte(DELTA);
+      this.putVarLong(tick - lastTick);
+      for (int i = 0; i < count; i++) {
+         int q = quantize(bodies.getTrueAngle(i) / 360);
+         int step = (short) (q - angle[i]);
+         this.putVarLong((short) (step - angleStep[i]));
+         angle[i] = q;
+         angleStep[i] = step;
+         if (eccentric[i]) {
+            q = quantize(Math.min(bodies.getTrueDistance(i) / 
+                                  (2 * bodies.getDistance(i)), LARGEST));
+            step = (short) (q - distance[i]);
+            this.putVarLong((short) (step - distanceStep[i]));
+            distance[i] = q;
+            distanceStep[i] = step;
+         }
+      }
+      if (encoded)
+         delta = Arrays.copyOf(frame, length);
+      encoded = true;
+      lastTick = tick;
+
+      byte[] key = null;
+      if (keyframe) {
+         length = 0;
+         this.putByte(KEYFRAME);
+         this.putVarLong(tick);
+         for (int i = 0; i < count; i++) {
+            this.putShort(angle[i]);
+            this.putVarLong(angleStep[i]);
+            if (eccentric[i]) {
+               this.putShort(distance[i]);
+               this.putVarLong(distanceStep[i]);
+            }
+         }
+         key = Arrays.copyOf(frame, length);
+         keyframes++;
+      }
+
+      for (Client client : clients)
+         client.offer(delta, key);
+      published++;
+   }
+
+   // Quantizes a value in [0, 1] to STEPS steps, wrapping round at 1.
+   private static int quantize(double value) {
+      return (int) Math.round(value * STEPS) & (STEPS - 1);
+   }
+
+   private void ensureRoom(int bytes) {
+      if (length + bytes > frame.length)
+         frame = Arrays.copyOf(frame, Math.max(frame.length * 2, length + bytes));
+   }
+
+   private void putByte(int value) {
+      this.ensureRoom(1);
+      frame[length++] = (byte) value;
+   }
+
+   private void putShort(int value) {
+      this.ensureRoom(2);
+      frame[length++] = (byte) (value >> 8);
+      frame[length++] = (byte) value;
+   }
+
+   // As RunRecorder.writeVarLong().
+   private void putVarLong(long value) {
+      this.ensureRoom(10);
+      long zigzag = (value << 1) ^ (value >> 63);
+      while ((zigzag & ~0x7FL) != 0) {
+         frame[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+         zigzag >>>= 7;
+      }
+      frame[length++] = (byte) zigzag;
+   }
+
+   /**
+    **   Stops serving, and disconnects every client.
+    **/
+   public void close() {
+      running = false;
+      closeQuietly(socket);
+      for (Client client : clients)
+         client.close();
+   }
+
+   private static void closeQuietly(Closeable closeable) {
+      try {
+         closeable.close();
+      } catch (IOException e) {
+         // Already closed, or as good as.
+      }
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The port being listened on.
+	 */
+   public int getPort() {
+      return socket.getLocalPort();
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of clients connected.
+	 */
+   public int getClients() {
+      return clients.size();
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of ticks published to at least one client.
+	 */
+   public long getPublished() {
+      return published;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of frames sent to clients, over all of them.
+	 */
+   public synchronized long getSent() {
+      long sent = goneSent;
+      for (Client client : clients)
+         sent += client.sent;
+      return sent;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of frames not sent to clients that were behind,
+    * over all of them.
+	 */
+   public synchronized long getSkipped() {
+      long skipped = goneSkipped;
+      for (Client client : clients)
+         skipped += client.skipped;
+      return skipped;
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bytes of frames sent, over all clients.
+	 */
+   public synchronized long getBytesSent() {
+      long bytes = goneBytes;
+      for (Client client : clients)
+         bytes += client.bytes;
+      return bytes;
+   }
+
+   public String toString() {
+      long sent = this.getSent();
+      return String.format("state server: %d clients, %d ticks published " +
+                           "(%d keyframes), %d frames sent (%.1f bytes/body), " +
+                           "%d skipped", this.getClients(), published, 
+                           keyframes, sent, 
+                           sent == 0 || count == 0 ? 0 
+                              : (double) this.getBytesSent() / sent / count,
+                           this.getSkipped());
+   }
+
+   /**
+    **   A connected client, with the queue of frames waiting to be sent to
+    **   it and the thread sending them.
+    **/
+   private class Client extends Thread {
+      private final Socket connection;
+      private final DataOutputStream out;
+      private final BlockingQueue<byte[]> queue = 
+         new ArrayBlockingQueue<byte[]>(QUEUE_FRAMES);
+      // Only touched by the thread calling publish().
+      private boolean needsKeyframe = true;
+      private volatile long sent = 0;
+      private volatile long skipped = 0;
+      private volatile long bytes = 0;
+
+      public Client(Socket connection) throws IOException {
+         super("Solar state client " + connection.getRemoteSocketAddress());
+         this.setDaemon(true);
+         this.connection = connection;
+         this.out = new DataOutputStream(new BufferedOutputStream(
+            connection.getOutputStream(), 1 << 16));
+      }
+
+      // Queues a tick's frame: the keyframe if the client needs one, else
+      // the delta, unless the client has fallen behind.
+      public void offer(byte[] delta, byte[] key) {
+         if (needsKeyframe) {
+            if (key != null && queue.offer(key)) {
+               needsKeyframe = false;
+            } else {
+               skipped++;
+               // Asks again, in case the request was taken before this
+               // client was there to see its keyframe.
+               keyframeWanted.set(true);
+            }
+            return;
+         }
+         if (delta != null && queue.offer(delta))
+            return;
+         skipped += queue.size() + 1;
+         queue.clear();
+         needsKeyframe = true;
+         keyframeWanted.set(true);
+      }
+
+      public void run() {
+         try {
+            out.write(header);
+            out.flush();
+            while (running) {
+               byte[] frame = queue.take();
+               out.writeInt(frame.length);
+               out.write(frame);
+               if (queue.isEmpty())
+                  out.flush();
+               sent++;
+               bytes += 4 + frame.length;
+            }
+         } catch (SocketException e) {
+            // The client has gone.
+         } catch (IOException e) {
+            // Likewise.
+         } catch (InterruptedException e) {
+            // The server has been closed.
+         } finally {
+            this.close();
+         }
+      }
+
+      public void close() {
+         closeQuietly(connection);
+         this.interrupt();
+         synchronized (StateServer.this) {
+            if (clients.remove(this)) {
+               goneSent += sent;
+               goneSkipped += skipped;
+               goneBytes += bytes;
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,225 @@
+/******************************************************************************
+ *                             Solar 1.0                                      *
+ *                  Copyright © 2015 Ben Goldsworthy (rumps)                  *
+ *                                                                            *
+ * A program to simulate the motion of the Sol system                         *
+ *                                                                            *
+ * This file is part of Solar.                                                *
+ *                                                                            *
+ * Solar is free software: you can redistribute it and/or modify              *
+ * it under the terms of the GNU General Public License as published by       *
+ * the Free Software Foundation, either version 3 of the License, or          *
+ * (at your option) any later version.                                        *
+ *                                                                            *
+ * Solar is distributed in the hope that it will be useful,                   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              *
+ * GNU General Public License for more details.                               *
+ *                                                                            *
+ * You should have received a copy of the GNU General Public License          *
+ * along with Solar.  If not, see <http://www.gnu.org/licenses/>.             *
+ ******************************************************************************/
+
+
+/**
+ ** This class remembers where bodies have been drawn, so that each can be
+ ** drawn with a trail behind it. Any row of a BodyTable can be given a
+ ** trail of its own length; the points of every trail are kept in one pair
+ ** of preallocated arrays, each trail a ring within them, so recording and
+ ** drawing trails allocates nothing.
+ **
+ ** A point is recorded once a tick (however many frames are drawn in it),
+ ** in display co-ordinates, so trails are only good for as long as the view
+ ** stays the same; clear() should be called whenever it changes. A body that
+ ** misses a sample, e.g. because it wasn't placed on the display, starts its
+ ** trail again.
+ **/
+
+import java.util.Arrays;
+
+/**
+ **   @author  Ben Goldsworthy (rumps) <me+modelsolar@bengoldsworthy.net>
+ **   @version 1.0
+ **/
+public class Trails {
+   // Marks a row without a trail.
+   private static final int NONE = -1;
+
+   private int[] slotOf;
+   private int slots = 0;
+   private int[] rowOf = new int[0];
+   // Per trail: where its ring starts, its length, where its newest point
+   // is, how many points it holds, and the sample it was last recorded in.
+   private int[] start = new int[0];
+   private int[] length = new int[0];
+   private int[] head = new int[0];
+   private int[] count = new int[0];
+   private long[] lastSample = new long[0];
+   private int points = 0;
+   private float[] x = new float[0];
+   private float[] y = new float[0];
+
+   private long tick = Long.MIN_VALUE;
+   private long sample = 0;
+   private boolean sampling = false;
+   // The trails recorded in the current sample, and so to be drawn.
+   private int[] active = new int[0];
+   private int activeCount = 0;
+   // Where drawTrails() copies a trail's points to, newest first.
+   private double[] trailX = new double[0];
+   private double[] trailY = new double[0];
+
+   /**
+    **   Constructor method.
+    **
+    **   @param rows The number of rows of the table the bodies are in.
+    **/
+   public Trails(int rows) {
+      this.slotOf = new int[rows];
+      Arrays.fill(slotOf, NONE);
+   }
+
+   /**
+    **   Gives a run of rows trails of the given length. Rows that already
+    **   have a trail keep it.
+    **
+    **   @param from The first row.
+    **   @param to One past the last row.
+    **   @param length The number of points in each trail. 0 or less for
+    **   none.
+    **/
+   public void setLength(int from, int to, int length) {
+      if (length < 2 || from >= to)
+         return;
+      int added = 0;
+      for (int row = from; row < to; row++)
+         if (slotOf[row] == NONE)
+            added++;
+      this.ensureCapacity(slots + added, points + (long) added * length);
+      for (int row = from; row < to; row++) {
+         if (slotOf[row] != NONE)
+            continue;
+         int slot = slots++;
+         slotOf[row] = slot;
+         this.rowOf[slot] = row;
+         this.start[slot] = points;
+         this.length[slot] = length;
+         points += length;
+      }
+      if (length > trailX.length) {
+         trailX = new double[length];
+         trailY = new double[length];
+      }
+   }
+
+   private void ensureCapacity(int slots, long points) {
+      if (points > Integer.MAX_VALUE)
+         throw new IllegalArgumentException("Too many trail points: " + points);
+      if (slots > start.length) {
+         rowOf = Arrays.copyOf(rowOf, slots);
+         start = Arrays.copyOf(start, slots);
+         length = Arrays.copyOf(length, slots);
+         head = Arrays.copyOf(head, slots);
+         count = Arrays.copyOf(count, slots);
+         lastSample = Arrays.copyOf(lastSample, slots);
+         active = Arrays.copyOf(active, slots);
+      }
+      if (points > x.length) {
+         x = Arrays.copyOf(x, (int) points);
+         y = Arrays.copyOf(y, (int) points);
+      }
+   }
+
+   /**
+    **   Starts a frame. If the tick has moved on since the last frame, the
+    **   positions given to record() are added to the trails; otherwise they
+    **   are ignored and the trails drawn as they were.
+    **
+    **   @param tick The tick the frame shows.
+    **/
+   public void begin(long tick) {
+      sampling = tick != this.tick;
+      if (!sampling)
+         return;
+      this.tick = tick;
+      sample++;
+      activeCount = 0;
+   }
+
+   /**
+    **   Finds whether a row has a trail.
+    **
+    **   @param row The row.
+    **   @return Whether it has one.
+    **/
+   public boolean hasTrail(int row) {
+      return slotOf[row] != NONE;
+   }
+
+   /**
+    **   Records where a body was drawn this frame, if it has a trail.
+    **
+    **   @param row The row of the body.
+    **   @param px The body's centre on the display, in pixels from the left.
+    **   @param py The body's centre on the display, in pixels from the top.
+    **/
+   public void record(int row, double px, double py) {
+      if (!sampling)
+         return;
+      int slot = slotOf[row];
+      if (slot == NONE || lastSample[slot] == sample)
+         return;
+      if (lastSample[slot] != sample - 1)
+         count[slot] = 0;
+      lastSample[slot] = sample;
+      head[slot] = head[slot] + 1 == length[slot] ? 0 : head[slot] + 1;
+      x[start[slot] + head[slot]] = (float) px;
+      y[start[slot] + head[slot]] = (float) py;
+      if (count[slot] < length[slot])
+         count[slot]++;
+      active[activeCount++] = slot;
+   }
+
+   /**
+    **   Forgets every trail, e.g. because the view has changed.
+    **/
+   public void clear() {
+      Arrays.fill(count, 0, slots, 0);
+      activeCount = 0;
+      tick = Long.MIN_VALUE;
+   }
+
+   /**
+    **   Draws the trail of every body recorded in the latest sample, each
+    **   fading out from the body.
+    **
+    **   @param bodies The table holding the bodies' colours.
+    **   @param system The display to draw onto.
+    **/
+   public void draw(BodyTable bodies, SolarDisplay system) {
+      for (int a = 0; a < activeCount; a++) {
+         int slot = active[a];
+         int n = count[slot];
+         if (n < 2)
+            continue;
+         int base = start[slot];
+         int at = head[slot];
+         for (int k = 0; k < n; k++) {
+            trailX[k] = x[base + at];
+            trailY[k] = y[base + at];
+            at = at == 0 ? length[slot] - 1 : at - 1;
+         }
+         system.drawTrailAt(trailX, trailY, n, 
+                            SolarCanvas.COLOUR_NAMES[bodies.getColour(rowOf[slot])]);
+      }
+   }
+
+	/**
+	 *	Accessor function.
+    *
+	 * @return The number of bodies with trails.
+	 */
+   public int size() {
+      return slots;
+   }
+}